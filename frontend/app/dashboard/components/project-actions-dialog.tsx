@@ -16,7 +16,7 @@ import { Input } from "@/components/ui/input"
 import { Label } from "@/components/ui/label"
 import { Textarea } from "@/components/ui/textarea"
 import { Tabs, TabsContent, TabsList, TabsTrigger } from "@/components/ui/tabs"
-import { Trash2, Share2, ExternalLink, Save, AlertTriangle } from "lucide-react"
+import { Trash2, Share2, ExternalLink, Save, AlertTriangle, Copy } from "lucide-react"
 import type { AudioProject } from "@/models/user/UserResponse"
 import { useAuthGuard } from "@/lib/auth/use-auth"
 import httpClient from "@/lib/httpClient"
@@ -53,6 +53,7 @@ export function ProjectActionsDialog({
   const [projectDescription, setProjectDescription] = useState(project.description || "")
   const [isSubmitting, setIsSubmitting] = useState(false)
   const [isDeleting, setIsDeleting] = useState(false)
+  const [isDuplicating, setIsDuplicating] = useState(false)
   const [showDeleteConfirm, setShowDeleteConfirm] = useState(false)
 
   // Update local state when project props change
@@ -114,6 +115,29 @@ export function ProjectActionsDialog({
     }
   }
 
+  const handleDuplicateProject = async () => {
+    setIsDuplicating(true)
+
+    try {
+      // The copy shares the audio of the project on the server, nothing is uploaded again
+      await httpClient.post(`/api/users/${project.id}/fork-project`)
+
+      toast.success("Project duplicated successfully")
+      onClose()
+
+      await mutate(undefined, { revalidate: true })
+
+      if (onProjectChange) {
+        await onProjectChange()
+      }
+    } catch (error) {
+      console.error("Error duplicating project:", error)
+      toast.error("Failed to duplicate project")
+    } finally {
+      setIsDuplicating(false)
+    }
+  }
+
   const handleShareProject = () => {
     // Placeholder for share functionality
     toast.info("Share functionality will be implemented in the backend")
@@ -207,6 +231,19 @@ export function ProjectActionsDialog({
                   </div>
                 </Button>
 
+                <Button
+                  onClick={handleDuplicateProject}
+                  variant="outline"
+                  className="flex items-center justify-start gap-2 h-auto py-3"
+                  disabled={isDuplicating}
+                >
+                  <Copy className="h-5 w-5" />
+                  <div className="flex flex-col items-start">
+                    <span>{isDuplicating ? "Duplicating..." : "Duplicate Project"}</span>
+                    <span className="text-xs text-muted-foreground">Start a copy with the same audio and edits</span>
+                  </div>
+                </Button>
+
                 <Button
                   onClick={() => setShowDeleteConfirm(true)}
                   variant="destructive"
@@ -20,6 +20,12 @@ import { toast } from "sonner"
 import { AudioWaveformIcon, Loader2Icon, UploadIcon } from "lucide-react"
 import { Progress } from "@/components/ui/progress"
 import httpClient from "@/lib/httpClient"
+import { uploadToS3, type PresignedUpload } from "@/lib/s3Upload"
+
+interface AudioProjectUpload {
+  uploadId: number
+  upload: PresignedUpload
+}
 
 interface UploadAudioModalProps {
   isOpen: boolean
@@ -42,10 +48,10 @@ export function UploadAudioModal({ isOpen, onClose, onProjectCreated }: UploadAu
     if (e.target.files && e.target.files.length > 0) {
       const file = e.target.files[0]
 
-      // Check file size (max 50MB)
-      const maxSize = 50 * 1024 * 1024 // 50MB
+      // Check file size (max 2GB)
+      const maxSize = 2 * 1024 * 1024 * 1024 // 2GB
       if (file.size > maxSize) {
-        toast.error("File size exceeds 50MB limit")
+        toast.error("File size exceeds 2GB limit")
         if (fileInputRef.current) fileInputRef.current.value = ""
         return
       }
@@ -99,35 +105,29 @@ export function UploadAudioModal({ isOpen, onClose, onProjectCreated }: UploadAu
       console.log("Project name:", projectName)
       console.log("Description:", description || "(empty)")
 
-      // Create a FormData object
-      const formData = new FormData()
-      formData.append("file", selectedFile)
-      formData.append("name", projectName)
-      formData.append("description", description || "")
-
       // Create an abort controller for cancellation
       abortControllerRef.current = new AbortController()
 
-      // Make the request using httpClient
-      const response = await httpClient.post("/api/users/create-audio-project", formData, {
-        headers: {
-          "Content-Type": "multipart/form-data",
-        },
-        signal: abortControllerRef.current.signal,
-        timeout: 300000, // 5 minutes
-        onUploadProgress: (progressEvent) => {
-          if (progressEvent.total !== undefined) {
-            const percentCompleted = Math.round((progressEvent.loaded * 100) / progressEvent.total)
-            setUploadProgress(percentCompleted)
-            console.log(`Upload progress: ${percentCompleted}%`)
-          } else {
-            // If total is undefined, we can't calculate percentage
-            // Just show the amount of data uploaded
-            console.log(`Uploaded ${(progressEvent.loaded / (1024 * 1024)).toFixed(2)} MB`)
-            // We could set an indeterminate progress here
-            setUploadProgress(-1) // Use a special value to indicate indeterminate progress
-          }
-        },
+      // The backend hands out pre-signed URLs, the file itself goes straight to S3
+      const { data: slot } = await httpClient.post<AudioProjectUpload>("/api/users/audio-project-uploads", {
+        fileName: selectedFile.name,
+        size: selectedFile.size,
+        contentType: selectedFile.type || `audio/${selectedFile.name.split(".").pop()}`,
+      })
+
+      try {
+        await uploadToS3(selectedFile, slot.upload, abortControllerRef.current.signal, (percent) => {
+          setUploadProgress(percent)
+          console.log(`Upload progress: ${percent}%`)
+        })
+      } catch (error) {
+        httpClient.delete(`/api/users/audio-project-uploads/${slot.uploadId}`).catch(() => {})
+        throw error
+      }
+
+      const response = await httpClient.post(`/api/users/audio-project-uploads/${slot.uploadId}/complete`, {
+        name: projectName,
+        description: description || "",
       })
 
       console.log("Upload complete!", response.data)
@@ -147,7 +147,7 @@ export function UploadAudioModal({ isOpen, onClose, onProjectCreated }: UploadAu
       console.error("Error uploading audio:", error)
 
       // Check if it's an abort error (user cancelled)
-      if (error.name === "AbortError" || error.code === "ECONNABORTED") {
+      if (error.name === "AbortError" || error.code === "ECONNABORTED" || error.code === "ERR_CANCELED") {
         toast.info("Upload was cancelled")
       } else {
         // Extract error message from response if available
@@ -235,7 +235,7 @@ export function UploadAudioModal({ isOpen, onClose, onProjectCreated }: UploadAu
                   <UploadIcon className="h-10 w-10 text-muted-foreground" />
                   <div className="text-center">
                     <p className="font-medium">Click to upload or drag and drop</p>
-                    <p className="text-sm text-muted-foreground">MP3, WAV, or FLAC (max. 50MB)</p>
+                    <p className="text-sm text-muted-foreground">MP3, WAV, or FLAC (max. 2GB)</p>
                   </div>
                   <Button
                     type="button"
@@ -9,40 +9,28 @@ import { AddProjectCard } from "./components/add-project-card"
 import { UploadAudioModal } from "./components/upload-audio-modal"
 import { Tabs, TabsContent, TabsList, TabsTrigger } from "@/components/ui/tabs"
 import Loading from "@/components/loading"
-import httpClient from "@/lib/httpClient"
+import { useProjects } from "@/lib/projects/use-projects"
+import { Button } from "@/components/ui/button"
 
 export default function DashboardPage() {
-  const { user, mutate } = useAuthGuard({ middleware: "auth" })
+  const { user } = useAuthGuard({ middleware: "auth" })
+  const { projects: audioProjects, isLoading: isLoadingProjects, hasMore, isLoadingMore, loadMore, mutate } = useProjects()
   const router = useRouter()
   const [isUploadModalOpen, setIsUploadModalOpen] = useState(false)
   const [isLoading, setIsLoading] = useState(true)
   const [refreshKey, setRefreshKey] = useState(Date.now())
 
-  // Function to fetch user data directly (bypassing SWR cache)
-  const refreshUserData = useCallback(async () => {
+  // Revalidates every loaded page of projects, e.g. after one was created, renamed or deleted
+  const refreshProjects = useCallback(async () => {
     try {
-      const response = await httpClient.get("/api/auth/me", {
-        headers: {
-          "Cache-Control": "no-cache, no-store, must-revalidate",
-          Pragma: "no-cache",
-          Expires: "0",
-        },
-      })
-
-      // Force update the SWR cache with the new data
-      await mutate(response.data, false)
+      const pages = await mutate()
 
       // Update refresh key to trigger re-render
       setRefreshKey(Date.now())
 
-      // Update the local state immediately
-      if (response.data) {
-        setIsLoading(false)
-      }
-
-      return response.data
+      return pages
     } catch (error) {
-      console.error("Error refreshing user data:", error)
+      console.error("Error refreshing projects:", error)
       return null
     }
   }, [mutate])
@@ -57,27 +45,25 @@ export default function DashboardPage() {
     if (typeof window !== "undefined") {
       const urlParams = new URLSearchParams(window.location.search)
       if (urlParams.has("refresh")) {
-        // Force a direct refresh of user data
-        refreshUserData()
+        // Force a direct refresh of the projects
+        refreshProjects()
       }
     }
-  }, [user, refreshUserData])
+  }, [user, refreshProjects])
 
   // Set up a periodic revalidation
   useEffect(() => {
     const interval = setInterval(() => {
-      refreshUserData()
+      refreshProjects()
     }, 30000) // Revalidate every 30 seconds
 
     return () => clearInterval(interval)
-  }, [refreshUserData])
+  }, [refreshProjects])
 
-  if (isLoading || !user) {
+  if (isLoading || !user || isLoadingProjects) {
     return <Loading />
   }
 
-  const audioProjects = user.audioProjects || []
-
   return (
     <Container size="lg" className="py-8">
       <div className="flex flex-col gap-6">
@@ -103,24 +89,30 @@ export default function DashboardPage() {
                     key={`${project.id}-${project.updatedAt}-${refreshKey}`}
                     project={project}
                     projectIndex={index}
-                    onProjectChange={refreshUserData}
+                    onProjectChange={refreshProjects}
                   />
                 ))}
                 <AddProjectCard onClick={() => setIsUploadModalOpen(true)} />
               </div>
             )}
+            {hasMore && (
+              <div className="flex justify-center mt-6">
+                <Button variant="outline" onClick={loadMore} disabled={isLoadingMore}>
+                  {isLoadingMore ? "Loading..." : "Load more projects"}
+                </Button>
+              </div>
+            )}
           </TabsContent>
           <TabsContent value="recent" className="mt-6">
             <div className="grid grid-cols-1 sm:grid-cols-2 md:grid-cols-3 lg:grid-cols-4 gap-4">
               {audioProjects
-                .sort((a, b) => new Date(b.updatedAt).getTime() - new Date(a.updatedAt).getTime())
                 .slice(0, 3)
                 .map((project, index) => (
                   <AudioProjectCard
                     key={`${project.id}-${project.updatedAt}-${refreshKey}`}
                     project={project}
                     projectIndex={index}
-                    onProjectChange={refreshUserData}
+                    onProjectChange={refreshProjects}
                   />
                 ))}
               <AddProjectCard onClick={() => setIsUploadModalOpen(true)} />
@@ -132,7 +124,7 @@ export default function DashboardPage() {
       <UploadAudioModal
         isOpen={isUploadModalOpen}
         onClose={() => setIsUploadModalOpen(false)}
-        onProjectCreated={refreshUserData}
+        onProjectCreated={refreshProjects}
       />
     </Container>
   )
@@ -18,6 +18,8 @@ import {
   Settings,
   Volume2,
   Pause,
+  Undo2,
+  Redo2,
 } from "lucide-react"
 import { Button } from "@/components/ui/button"
 import { Slider } from "@/components/ui/slider"
@@ -25,7 +27,8 @@ import type { AudioProject } from "@/models/user/UserResponse"
 import type { TranscriptionResult, WordTimestamp } from "@/models/audio/TranscriptionResult"
 import { Dialog, DialogContent, DialogHeader, DialogTitle, DialogDescription } from "@/components/ui/dialog"
 import { toast } from "sonner"
-import httpClient from "@/lib/httpClient"
+import httpClient, { waitForAudio } from "@/lib/httpClient"
+import { fetchWaveform } from "@/lib/waveformPeaks"
 import { Label } from "@/components/ui/label"
 import { RadioGroup, RadioGroupItem } from "@/components/ui/radio-group"
 import { Textarea } from "@/components/ui/textarea"
@@ -225,48 +228,8 @@ export default function AudioEditor({
       // Generate waveform data
       const generateWaveform = async () => {
         try {
-          // Create audio context
-          const AudioContext = window.AudioContext || (window as any).webkitAudioContext
-          if (!AudioContext) {
-            throw new Error("Web Audio API not supported")
-          }
-
-          const audioContext = new AudioContext()
-          const response = await fetch(audioUrl)
-          if (!response.ok) {
-            throw new Error(`Failed to fetch audio: ${response.status}`)
-          }
-
-          const arrayBuffer = await response.arrayBuffer()
-          const audioBuffer = await audioContext.decodeAudioData(arrayBuffer)
-
-          // Get the raw audio data
-          const rawData = audioBuffer.getChannelData(0)
-          const samples = rawData.length
-          const blockSize = Math.floor(samples / 4000)
-          const filteredData: number[] = []
-
-          // Process audio in blocks
-          for (let i = 0; i < 4000; i++) {
-            const blockStart = blockSize * i
-            let sum = 0
-            let max = 0
-
-            for (let j = 0; j < blockSize; j++) {
-              const sample = Math.abs(rawData[blockStart + j] || 0)
-              sum += sample * sample
-              max = Math.max(max, sample)
-            }
-
-            const rms = Math.sqrt(sum / blockSize)
-            const amplitude = rms * 0.7 + max * 0.3
-            filteredData.push(amplitude)
-          }
-
-          // Close audio context
-          if (audioContext.state !== "closed") {
-            await audioContext.close()
-          }
+          // The backend precomputes the peaks, so the audio isn't downloaded just to draw it
+          const filteredData = await fetchWaveform(audioUrl, 4000)
 
           // Cache the data in sessionStorage
           sessionStorage.setItem(cacheKey, JSON.stringify(filteredData))
@@ -1008,13 +971,8 @@ export default function AudioEditor({
 
     setIsDownloading(true)
     try {
-      // Extract filename from URL or use project name
-      let filename = audioUrl.split("/").pop() || `${project.name}.${project.extension || "wav"}`
-
-      // Ensure filename has the correct extension
-      if (!filename.includes(".")) {
-        filename = `${filename}.${project.extension || "wav"}`
-      }
+      // The audio is served by the API, its URL doesn't end with a file name
+      const filename = `${project.name}.${project.extension || "wav"}`
 
       // Create a temporary anchor element to trigger the download
       const link = document.createElement("a")
@@ -1791,12 +1749,26 @@ export default function AudioEditor({
     }
   }, [])
 
+  // Edits are kept as a list on the server, undo and redo only move through it
+  const handleHistory = async (action: "undo" | "redo") => {
+    try {
+      const response = await httpClient.post(`/api/audio/${project.id}/${action}`)
+      await handleModificationComplete(response.data.audioUrl)
+    } catch (error: unknown) {
+      console.error(`Error during ${action}:`, error)
+      toast.error(action === "undo" ? "Nothing to undo" : "Nothing to redo")
+    }
+  }
+
   // Update the handleModificationComplete function to properly handle the new audio URL
   const handleModificationComplete = async (newAudioUrl?: string) => {
     // If a new audio URL is provided, update the project's audio URL
     if (newAudioUrl) {
       console.log("Updating audio URL from:", project.audioUrl, "to:", newAudioUrl)
 
+      // The player can't wait for the render job, so the audio is only swapped once it's rendered
+      await waitForAudio(newAudioUrl)
+
       // Update the project object with the new URL
       project.audioUrl = newAudioUrl
 
@@ -2167,6 +2139,22 @@ export default function AudioEditor({
                     </Button>
                   </div>
                   <div className="flex items-center space-x-2">
+                    <Button
+                      variant="outline"
+                      size="icon"
+                      onClick={() => handleHistory("undo")}
+                      title="Undo"
+                    >
+                      <Undo2 className="h-4 w-4" />
+                    </Button>
+                    <Button
+                      variant="outline"
+                      size="icon"
+                      onClick={() => handleHistory("redo")}
+                      title="Redo"
+                    >
+                      <Redo2 className="h-4 w-4" />
+                    </Button>
                     <Button
                       variant="outline"
                       size="sm"
@@ -2486,7 +2474,6 @@ const AudioModificationOptions: React.FC<AudioModificationOptionsProps> = ({
   const [useEdgeTts, setUseEdgeTts] = useState(true)
   const [gender, setGender] = useState<"male" | "female">("male")
   const [toneFrequency, setToneFrequency] = useState(440) // Default to A4 (440 Hz)
-  const [useFixedDuration, setUseFixedDuration] = useState(true)
 
   // Helper function to get the start time from a word, handling different property names
   const getStartTime = (word: WordTimestamp): number => {
@@ -2610,7 +2597,7 @@ const AudioModificationOptions: React.FC<AudioModificationOptionsProps> = ({
       const response = await httpClient.post(`/api/audio/${projectId}/replace-with-tts`, null, {
         params: {
           start_time: startTime,
-          end_time: useFixedDuration ? endTime : undefined,
+          end_time: endTime,
           replacement_text: replacementText,
           use_edge_tts: useEdgeTts,
           ...(useEdgeTts && { gender: gender }), // Only include gender when Edge TTS is enabled
@@ -2658,24 +2645,14 @@ const AudioModificationOptions: React.FC<AudioModificationOptionsProps> = ({
           <span className="font-medium">Start Time:</span>
           <span>{formatTimeWithMilliseconds(startTime)}</span>
         </div>
-        {(modificationType !== "tts" || useFixedDuration) && (
-          <>
-            <div className="flex justify-between">
-              <span className="font-medium">End Time:</span>
-              <span>{formatTimeWithMilliseconds(endTime)}</span>
-            </div>
-            <div className="flex justify-between">
-              <span className="font-medium">Duration:</span>
-              <span>{((endTime - startTime) * 1000).toFixed(0) + " ms"}</span>
-            </div>
-          </>
-        )}
-        {modificationType === "tts" && !useFixedDuration && (
-          <div className="flex justify-between">
-            <span className="font-medium">Mode:</span>
-            <span className="text-muted-foreground">Auto duration</span>
-          </div>
-        )}
+        <div className="flex justify-between">
+          <span className="font-medium">End Time:</span>
+          <span>{formatTimeWithMilliseconds(endTime)}</span>
+        </div>
+        <div className="flex justify-between">
+          <span className="font-medium">Duration:</span>
+          <span>{((endTime - startTime) * 1000).toFixed(0) + " ms"}</span>
+        </div>
       </div>
 
       <div className="space-y-3 pt-2">
@@ -2759,17 +2736,6 @@ const AudioModificationOptions: React.FC<AudioModificationOptionsProps> = ({
             </p>
           </div>
 
-          <div className="space-y-2">
-            <div className="flex items-center justify-between">
-              <Label htmlFor="useFixedDuration">Use fixed duration</Label>
-              <Switch id="useFixedDuration" checked={useFixedDuration} onCheckedChange={setUseFixedDuration} />
-            </div>
-            <p className="text-xs text-muted-foreground">
-              When enabled, TTS will fit exactly into the selected time range. When disabled, TTS duration will be
-              determined automatically by the speech length.
-            </p>
-          </div>
-
           {useEdgeTts && (
             <div className="space-y-2">
               <Label>Voice Gender</Label>
@@ -2845,7 +2811,6 @@ const BatchAudioModificationOptions: React.FC<BatchAudioModificationOptionsProps
   const [useEdgeTts, setUseEdgeTts] = useState(true)
   const [gender, setGender] = useState<"male" | "female">("male")
   const [toneFrequency, setToneFrequency] = useState(440)
-  const [useFixedDuration, setUseFixedDuration] = useState(true)
   const [selectedWords, setSelectedWords] = useState<Set<number>>(new Set(searchResults.map((r) => r.wordIndex)))
   const [processedCount, setProcessedCount] = useState(0)
 
@@ -2891,64 +2856,39 @@ const BatchAudioModificationOptions: React.FC<BatchAudioModificationOptionsProps
     setProcessedCount(0)
 
     try {
-      let lastAudioUrl: string | undefined
-
-      for (let i = 0; i < selectedResults.length; i++) {
-        const result = selectedResults[i]
-        const word = result.word
-        const startTime = getStartTime(word)
-        const endTime = getEndTime(word)
-
-        console.log(`Processing word ${i + 1}/${selectedResults.length}: "${word.word}"`)
-
-        try {
-          let response
-
-          if (modificationType === "mute") {
-            response = await httpClient.post(`/api/audio/${projectId}/mute-audio`, null, {
-              params: {
-                start_time: startTime,
-                end_time: endTime,
-              },
-            })
-          } else if (modificationType === "tone") {
-            response = await httpClient.post(`/api/audio/${projectId}/replace-with-tone`, null, {
-              params: {
-                start_time: startTime,
-                end_time: endTime,
-                tone_frequency: toneFrequency,
-              },
-            })
-          } else {
-            response = await httpClient.post(`/api/audio/${projectId}/replace-with-tts`, null, {
-              params: {
-                start_time: startTime,
-                end_time: useFixedDuration ? endTime : undefined,
-                replacement_text: replacementText || word.word,
-                use_edge_tts: useEdgeTts,
-                ...(useEdgeTts && { gender: gender }),
-              },
-            })
-          }
-
-          if (response.data.audioUrl) {
-            lastAudioUrl = response.data.audioUrl
-          }
-
-          setProcessedCount(i + 1)
-
-          // Small delay between requests to avoid overwhelming the server
-          if (i < selectedResults.length - 1) {
-            await new Promise((resolve) => setTimeout(resolve, 500))
-          }
-        } catch (error) {
-          console.error(`Error processing word "${word.word}":`, error)
-          toast.error(`Failed to process word "${word.word}"`)
+      // All words are edited in one pass on the server, overlapping ranges of neighbouring words are trimmed
+      const ranges = selectedResults
+        .map((result) => ({ word: result.word, startTime: getStartTime(result.word), endTime: getEndTime(result.word) }))
+        .sort((a, b) => a.startTime - b.startTime)
+
+      const edits = []
+      let previousEnd = 0
+      for (const range of ranges) {
+        const startTime = Math.max(range.startTime, previousEnd)
+        if (startTime >= range.endTime) continue
+        previousEnd = range.endTime
+
+        if (modificationType === "mute") {
+          edits.push({ type: "MUTE", startTime, endTime: range.endTime })
+        } else if (modificationType === "tone") {
+          edits.push({ type: "TONE", startTime, endTime: range.endTime, toneFrequency })
+        } else {
+          edits.push({
+            type: "TTS",
+            startTime,
+            endTime: range.endTime,
+            replacementText: replacementText || range.word.word,
+            useEdgeTts,
+            ...(useEdgeTts && { gender }),
+          })
         }
       }
 
-      if (lastAudioUrl) {
-        await onModificationComplete(lastAudioUrl)
+      const response = await httpClient.post(`/api/audio/${projectId}/edits`, { edits })
+      setProcessedCount(selectedResults.length)
+
+      if (response.data.audioUrl) {
+        await onModificationComplete(response.data.audioUrl)
         toast.success(`Successfully processed ${selectedResults.length} words`)
         onClose()
       } else {
@@ -3081,17 +3021,6 @@ const BatchAudioModificationOptions: React.FC<BatchAudioModificationOptionsProps
             </p>
           </div>
 
-          <div className="space-y-2">
-            <div className="flex items-center justify-between">
-              <Label htmlFor="batch-useFixedDuration">Use fixed duration</Label>
-              <Switch id="batch-useFixedDuration" checked={useFixedDuration} onCheckedChange={setUseFixedDuration} />
-            </div>
-            <p className="text-xs text-muted-foreground">
-              When enabled, TTS will fit exactly into the selected time range. When disabled, TTS duration will be
-              determined automatically by the speech length.
-            </p>
-          </div>
-
           {useEdgeTts && (
             <div className="space-y-2">
               <Label>Voice Gender</Label>
@@ -13,7 +13,7 @@ import httpClient from "@/lib/httpClient"
 import { toast } from "sonner"
 
 export default function ProjectEditPage() {
-  const { user, mutate } = useAuthGuard({ middleware: "auth" })
+  const { user } = useAuthGuard({ middleware: "auth" })
   const params = useParams()
   const router = useRouter()
   const [isLoading, setIsLoading] = useState(true)
@@ -27,7 +27,7 @@ export default function ProjectEditPage() {
       // Get the current audio URL before refreshing
       const currentAudioUrl = project?.audioUrl;
 
-      const response = await httpClient.get("/api/auth/me", {
+      const response = await httpClient.get<AudioProject>(`/api/projects/${params.id}`, {
         headers: {
           "Cache-Control": "no-cache, no-store, must-revalidate",
           Pragma: "no-cache",
@@ -35,45 +35,38 @@ export default function ProjectEditPage() {
         },
       });
 
-      // Update the SWR cache with the new data
-      await mutate(response.data, false);
-
-      // Find and update the project
-      const projectId = params.id as string;
-      const updatedProject = response.data.audioProjects?.find((p: AudioProject) => p.id.toString() === projectId);
-      if (updatedProject) {
-        // If we have a current audio URL, use it instead of the server's URL
-        if (currentAudioUrl) {
-          updatedProject.audioUrl = currentAudioUrl;
-        }
-        setProject(updatedProject);
+      const updatedProject = response.data;
+      // If we have a current audio URL, use it instead of the server's URL
+      if (currentAudioUrl) {
+        updatedProject.audioUrl = currentAudioUrl;
       }
+      setProject(updatedProject);
     } catch (error) {
       console.error("Error refreshing project data:", error);
     }
   };
 
-  // Replace the useEffect hook with this simpler version
+  // The session only holds the user, the project is fetched on its own
   useEffect(() => {
-    if (user) {
-      const projectId = params.id as string
-      const foundProject = user.audioProjects?.find((p) => p.id.toString() === projectId)
+    if (!user) {
+      return
+    }
 
-      // Check if we have a refresh parameter in the URL
-      if (typeof window !== "undefined" && foundProject) {
-        const urlParams = new URLSearchParams(window.location.search)
-        if (urlParams.has("refresh")) {
-          // Remove the refresh parameter from the URL without reloading the page
-          const newUrl = window.location.pathname
-          window.history.replaceState({}, document.title, newUrl)
-          // Refresh the project data
-          refreshProjectData();
-        }
-      }
+    const projectId = params.id as string
 
-      setProject(foundProject || null)
-      setIsLoading(false)
+    // Remove the refresh parameter from the URL without reloading the page
+    if (typeof window !== "undefined" && new URLSearchParams(window.location.search).has("refresh")) {
+      window.history.replaceState({}, document.title, window.location.pathname)
     }
+
+    httpClient
+      .get<AudioProject>(`/api/projects/${projectId}`)
+      .then((response) => setProject(response.data))
+      .catch((error) => {
+        console.error("Error loading project:", error)
+        setProject(null)
+      })
+      .finally(() => setIsLoading(false))
   }, [user, params.id])
 
   // Update the handleTranscribe function to be simpler
@@ -1,4 +1,4 @@
-import Axios from 'axios'
+import Axios, { AxiosResponse } from 'axios'
 require('dotenv').config()
 
 const httpClient = Axios.create({
@@ -13,4 +13,42 @@ const httpClient = Axios.create({
   withXSRFToken: true,
 })
 
-export default httpClient
\ No newline at end of file
+const JOB_POLL_INTERVAL_MS = 1000
+
+interface AudioJob {
+  jobId: number
+  status: 'ENQUEUED' | 'PROCESSING' | 'SUCCEEDED' | 'FAILED'
+  result: unknown
+  error: string | null
+}
+
+// Audio operations are accepted with 202 and run as background jobs,
+// wait for the job so callers receive the operation result as before
+async function waitForAudioJob(response: AxiosResponse<AudioJob>): Promise<AxiosResponse> {
+  let job = response.data
+
+  while (job.status !== 'SUCCEEDED') {
+    if (job.status === 'FAILED') {
+      throw new Error(job.error || 'Audio job failed')
+    }
+
+    await new Promise((resolve) => setTimeout(resolve, JOB_POLL_INTERVAL_MS))
+    job = (await httpClient.get<AudioJob>(`/api/audio/jobs/${job.jobId}`)).data
+  }
+
+  return { ...response, status: 200, data: job.result }
+}
+
+httpClient.interceptors.response.use((response) => {
+  if (response.status === 202 && response.data?.jobId !== undefined) {
+    return waitForAudioJob(response)
+  }
+  return response
+})
+
+// Edits are rendered in the background, the audio answers with the render job until it's done
+export async function waitForAudio(audioUrl: string): Promise<void> {
+  await httpClient.get(audioUrl, { headers: { Range: 'bytes=0-0' } })
+}
+
+export default httpClient
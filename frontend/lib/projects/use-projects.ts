@@ -0,0 +1,35 @@
+"use client"
+
+import useSWRInfinite from "swr/infinite";
+import httpClient from "../httpClient";
+import { AudioProject, ProjectPage } from "@/models/user/UserResponse";
+
+const PAGE_SIZE = 24;
+
+// Projects of the signed in user, most recently created first, loaded a page at a time
+export const useProjects = () => {
+  const { data, error, mutate, size, setSize, isValidating } = useSWRInfinite<ProjectPage>(
+    (index, previousPage: ProjectPage | null) => {
+      if (previousPage && !previousPage.nextCursor) {
+        return null;
+      }
+
+      const cursor = previousPage ? `&cursor=${encodeURIComponent(previousPage.nextCursor!)}` : "";
+      return `/api/projects?limit=${PAGE_SIZE}${cursor}`;
+    },
+    (url: string) => httpClient.get<ProjectPage>(url).then((res) => res.data)
+  );
+
+  const projects: AudioProject[] = data ? data.flatMap((page) => page.projects) : [];
+  const hasMore = !!data && !!data[data.length - 1]?.nextCursor;
+
+  return {
+    projects,
+    error,
+    isLoading: !data && !error,
+    isLoadingMore: isValidating && !!data && size > data.length,
+    hasMore,
+    loadMore: () => setSize(size + 1),
+    mutate,
+  };
+};
@@ -0,0 +1,60 @@
+import Axios from 'axios'
+
+export interface PresignedUpload {
+  url: string | null
+  headers: Record<string, string[]>
+  multipartUploadId: string | null
+  partSize: number
+  parts: { partNumber: number; url: string }[]
+  expiresAt: string
+}
+
+const PARALLEL_PARTS = 4
+
+// Sends a file straight to S3 through the pre-signed URLs handed out by the backend
+export async function uploadToS3(
+  file: File,
+  upload: PresignedUpload,
+  signal: AbortSignal,
+  onProgress: (percent: number) => void,
+): Promise<void> {
+  if (upload.url) {
+    const headers = Object.fromEntries(
+      Object.entries(upload.headers).map(([name, values]) => [name, values.join(',')]),
+    )
+
+    await Axios.put(upload.url, file, {
+      headers,
+      signal,
+      onUploadProgress: (event) => onProgress(Math.round((event.loaded * 100) / file.size)),
+    })
+    return
+  }
+
+  // Multipart uploads send a few parts at once, S3 assembles them once the backend completes the upload
+  const loaded = new Map<number, number>()
+  const queue = [...upload.parts]
+
+  const reportProgress = () => {
+    const total = Array.from(loaded.values()).reduce((sum, bytes) => sum + bytes, 0)
+    onProgress(Math.round((total * 100) / file.size))
+  }
+
+  const worker = async () => {
+    for (let part = queue.shift(); part; part = queue.shift()) {
+      const start = (part.partNumber - 1) * upload.partSize
+      const blob = file.slice(start, Math.min(file.size, start + upload.partSize))
+      const partNumber = part.partNumber
+
+      await Axios.put(part.url, blob, {
+        signal,
+        onUploadProgress: (event) => {
+          loaded.set(partNumber, event.loaded)
+          reportProgress()
+        },
+      })
+    }
+  }
+
+  await Promise.all(Array.from({ length: Math.min(PARALLEL_PARTS, queue.length) }, worker))
+}
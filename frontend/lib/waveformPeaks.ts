@@ -0,0 +1,49 @@
+import { waitForAudio } from '@/lib/httpClient'
+
+const HEADER_SIZE = 20
+const MAGIC = 0x4b504653
+const PEAKS_LEVEL = 1024
+
+// Peaks are served next to the audio, e.g. /api/audio/1/stream?v=abc becomes /api/audio/1/peaks?v=abc&level=1024
+export function peaksUrl(audioUrl: string, level: number = PEAKS_LEVEL): string {
+  const url = new URL(audioUrl, window.location.origin)
+  url.pathname = url.pathname.replace(/\/(audio|stream)$/, '/peaks')
+  url.searchParams.set('level', String(level))
+  return url.pathname + url.search
+}
+
+// Fetches the precomputed min/max peaks of the audio and reduces them to the amplitudes of `points` columns
+export async function fetchWaveform(audioUrl: string, points: number): Promise<number[]> {
+  let response = await fetch(peaksUrl(audioUrl), { credentials: 'include' })
+  if (response.status === 202) {
+    await waitForAudio(audioUrl)
+    response = await fetch(peaksUrl(audioUrl), { credentials: 'include' })
+  }
+  if (!response.ok) {
+    throw new Error(`Failed to fetch waveform peaks: ${response.status}`)
+  }
+
+  const view = new DataView(await response.arrayBuffer())
+  if (view.byteLength < HEADER_SIZE || view.getInt32(0, true) !== MAGIC) {
+    throw new Error('Invalid waveform peaks')
+  }
+
+  const binCount = view.getInt32(16, true)
+  const binsPerPoint = Math.max(1, binCount / points)
+  const amplitudes: number[] = []
+
+  for (let i = 0; i < points; i++) {
+    const start = Math.floor(i * binsPerPoint)
+    const end = Math.min(binCount, Math.max(start + 1, Math.floor((i + 1) * binsPerPoint)))
+    let max = 0
+
+    for (let bin = start; bin < end; bin++) {
+      const offset = HEADER_SIZE + bin * 2
+      max = Math.max(max, Math.abs(view.getInt8(offset)), Math.abs(view.getInt8(offset + 1)))
+    }
+
+    amplitudes.push(Math.min(1, max / 127))
+  }
+
+  return amplitudes
+}
@@ -6,7 +6,6 @@ export interface UserResponse {
     email: string;
     profileImageUrl?: string;
     connectedAccounts: ConnectedAccount[];
-    audioProjects: AudioProject[];
 }
 
 export interface ConnectedAccount {
@@ -24,6 +23,11 @@ export interface AudioProject {
     audioUrl: string
 }
 
+export interface ProjectPage {
+    projects: AudioProject[]
+    nextCursor: string | null
+}
+
 export enum Role {
     USER = "USER",
     ADMIN = "ADMIN"
@@ -0,0 +1,68 @@
+package com.michael21.SoundFilter.audio;
+
+import com.michael21.SoundFilter.config.ApplicationProperties;
+import com.michael21.SoundFilter.config.PythonApiProperties;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.web.client.RestTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building and writing the multipart request of {@code AudioUtil.callPythonApi}, against a request factory
+ * that keeps the body in memory and answers at once, so only the client side is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AudioUtilBenchmark {
+    private static final byte[] RESPONSE = "{\"status\":\"ok\"}".getBytes(StandardCharsets.UTF_8);
+
+    @Param({"1024", "16384"})
+    public int audioKilobytes;
+
+    private AudioUtil audioUtil;
+    private byte[] audio;
+
+    @Setup
+    public void setUp() {
+        audio = new byte[audioKilobytes * 1024];
+        ThreadLocalRandom.current().nextBytes(audio);
+
+        RestTemplate restTemplate = new RestTemplate((uri, method) -> {
+            MockClientHttpRequest request = new MockClientHttpRequest(method, uri);
+            request.setResponse(new MockClientHttpResponse(RESPONSE, HttpStatus.OK));
+            return request;
+        });
+
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.setBaseUrl("http://localhost:8080");
+        audioUtil = new AudioUtil(restTemplate, Jackson2ObjectMapperBuilder.json().build(), applicationProperties,
+                new PythonApiProperties());
+    }
+
+    @Benchmark
+    public String callPythonApi() {
+        return audioUtil.callPythonApi(audio, "benchmark.wav", "/audio-api/mute-audio",
+                Map.of("start_time", 1.5, "end_time", 2.5), String.class);
+    }
+}
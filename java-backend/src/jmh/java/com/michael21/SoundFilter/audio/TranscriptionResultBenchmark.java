@@ -0,0 +1,66 @@
+package com.michael21.SoundFilter.audio;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.michael21.SoundFilter.audio.data.TranscriptionResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading the transcription returned by the Python API, which {@code AudioUtil} receives as a string.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TranscriptionResultBenchmark {
+    private static final String[] WORDS = {"the", "quick", "brown", "fox", "jumps", "over", "lazy", "dog", "and",
+            "keeps", "running", "through", "forest", "until", "night", "falls"};
+
+    @Param({"10000", "100000", "1000000"})
+    public int wordCount;
+
+    // Configured like the mapper Spring Boot injects into AudioUtil
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private String json;
+
+    @Setup
+    public void setUp() {
+        StringBuilder transcript = new StringBuilder();
+        StringBuilder words = new StringBuilder();
+        double time = 0;
+
+        for (int i = 0; i < wordCount; i++) {
+            String word = WORDS[i % WORDS.length];
+            double end = time + 0.2 + (i % 7) * 0.03;
+            transcript.append(i == 0 ? "" : " ").append(word);
+            words.append(i == 0 ? "" : ",")
+                    .append(String.format(Locale.ROOT, "{\"word\":\"%s\",\"start_time\":%.2f,\"end_time\":%.2f}",
+                            word, time, end));
+            time = end + 0.05;
+        }
+
+        json = "{\"filename\":\"benchmark.wav\",\"transcript\":\"" + transcript + "\",\"words\":[" + words
+                + "],\"detected_language\":\"en\",\"processing_time\":12.5}";
+    }
+
+    @Benchmark
+    public TranscriptionResult deserialize() throws IOException {
+        return objectMapper.readValue(json, TranscriptionResult.class);
+    }
+}
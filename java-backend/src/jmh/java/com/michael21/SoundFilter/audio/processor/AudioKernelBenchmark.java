@@ -0,0 +1,122 @@
+package com.michael21.SoundFilter.audio.processor;
+
+import com.michael21.SoundFilter.audio.AudioEditType;
+import com.michael21.SoundFilter.audio.data.AudioEdit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-JVM audio kernels over a minute of stereo 44.1 kHz WAV: decoding samples, rendering an edit list
+ * and computing waveform peaks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AudioKernelBenchmark {
+    private static final int SAMPLE_RATE = 44100;
+    private static final int CHANNELS = 2;
+    private static final int SECONDS = 60;
+    private static final List<AudioEdit> EDITS = List.of(
+            new AudioEdit(AudioEditType.MUTE, 5.0, 6.5, null, null, null, null),
+            new AudioEdit(AudioEditType.TONE, 20.0, 21.0, 1000, null, null, null),
+            new AudioEdit(AudioEditType.MUTE, 42.25, 42.75, null, null, null, null));
+
+    @Param({"16", "24"})
+    public int bitsPerSample;
+
+    private final PcmAudioProcessor processor = new PcmAudioProcessor();
+    private byte[] wav;
+    private WavHeader header;
+    private float[] samples;
+    // Renders read from a file like they do from the cache, tones measure the audio through its channel
+    private Path wavFile;
+    private FileChannel wavChannel;
+
+    @Setup
+    public void setUp() throws IOException {
+        wav = wav(bitsPerSample);
+        header = WavHeader.parse(wav).orElseThrow();
+        samples = new float[(int) header.frameCount() * CHANNELS];
+        wavFile = Files.write(Files.createTempFile("benchmark", ".wav"), wav);
+        wavChannel = FileChannel.open(wavFile, StandardOpenOption.READ);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        wavChannel.close();
+        Files.deleteIfExists(wavFile);
+    }
+
+    @Benchmark
+    public float[] decode() {
+        PcmCodec.decode(wav, header.dataOffset(), (int) header.frameCount(), header, samples);
+        return samples;
+    }
+
+    @Benchmark
+    public void applyEdits() throws IOException {
+        InputStream stream = Channels.newInputStream(wavChannel.position(0));
+        processor.applyEdits(new AudioInput(stream, wav.length, "benchmark.wav", "wav", wavChannel),
+                OutputStream.nullOutputStream(), EDITS);
+    }
+
+    @Benchmark
+    public Map<Integer, byte[]> waveformPeaks() throws IOException {
+        InputStream data = new ByteArrayInputStream(wav, header.dataOffset(), wav.length - header.dataOffset());
+        return WaveformPeaks.compute(data, header, List.of(256, 1024, 4096));
+    }
+
+    // A sweeping tone, so neither the samples nor the peaks are constant
+    private static byte[] wav(int bitsPerSample) {
+        int bytesPerSample = bitsPerSample / 8;
+        int frames = SAMPLE_RATE * SECONDS;
+        int dataLength = frames * CHANNELS * bytesPerSample;
+
+        ByteBuffer buffer = ByteBuffer.allocate(44 + dataLength).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put("RIFF".getBytes()).putInt(36 + dataLength).put("WAVE".getBytes());
+        buffer.put("fmt ".getBytes()).putInt(16).putShort((short) WavHeader.FORMAT_PCM).putShort((short) CHANNELS)
+                .putInt(SAMPLE_RATE).putInt(SAMPLE_RATE * CHANNELS * bytesPerSample)
+                .putShort((short) (CHANNELS * bytesPerSample)).putShort((short) bitsPerSample);
+        buffer.put("data".getBytes()).putInt(dataLength);
+
+        int max = (1 << (bitsPerSample - 1)) - 1;
+        for (int i = 0; i < frames; i++) {
+            double frequency = 200 + 800.0 * i / frames;
+            int sample = (int) (Math.sin(2 * Math.PI * frequency * i / SAMPLE_RATE) * max * 0.8);
+            for (int c = 0; c < CHANNELS; c++) {
+                for (int b = 0; b < bytesPerSample; b++) {
+                    buffer.put((byte) (sample >> (8 * b)));
+                }
+            }
+        }
+        return buffer.array();
+    }
+}
@@ -0,0 +1,46 @@
+package com.michael21.SoundFilter.s3;
+
+import com.michael21.SoundFilter.users.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the S3 key of an upload, done for every file and every rendered version.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class UploadedFileBenchmark {
+    private UploadedFile uploadedFile;
+
+    @Setup
+    public void setUp() {
+        User user = new User();
+        ReflectionTestUtils.setField(user, "id", 42L);
+        uploadedFile = new UploadedFile("interview recording.wav", 48_000_000L, user);
+    }
+
+    @Benchmark
+    public String buildPath() {
+        return uploadedFile.buildPath("audio", "projects");
+    }
+
+    @Benchmark
+    public String buildPathWithFilename() {
+        return uploadedFile.buildPathWithFilename("source.wav", "audio", "projects");
+    }
+}
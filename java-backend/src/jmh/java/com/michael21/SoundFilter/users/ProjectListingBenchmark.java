@@ -0,0 +1,124 @@
+package com.michael21.SoundFilter.users;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.michael21.SoundFilter.users.data.AudioProjectResponse;
+import com.michael21.SoundFilter.users.data.AudioProjectSummary;
+import com.michael21.SoundFilter.users.data.ProjectCursor;
+import com.michael21.SoundFilter.users.data.ProjectPageResponse;
+import com.michael21.SoundFilter.users.data.UserResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building and serializing the responses about a user with many projects: the session, which no longer
+ * holds the projects, and a page of the project listing built from summaries.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ProjectListingBenchmark {
+    @Param({"24", "100"})
+    public int pageSize;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private User user;
+    private List<AudioProjectSummary> summaries;
+
+    @Setup
+    public void setUp() {
+        user = new User();
+        ReflectionTestUtils.setField(user, "id", 42L);
+        ReflectionTestUtils.setField(user, "email", "listener@example.com");
+        ReflectionTestUtils.setField(user, "firstName", "Benchmark");
+        ReflectionTestUtils.setField(user, "role", Role.USER);
+        for (String provider : List.of("google", "github")) {
+            user.addConnectedAccount(new UserConnectedAccount(provider, provider + "-42", user));
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        summaries = new ArrayList<>();
+        for (int i = 0; i < pageSize + 1; i++) {
+            summaries.add(new Summary(10_000 - i, "Project " + i, "Recording number " + i, "wav",
+                    "http://localhost:4566/sound-filter/user:42/audio/" + i + ".wav", "%064d".formatted(i),
+                    now.minusDays(i), now.minusMinutes(i)));
+        }
+    }
+
+    @Benchmark
+    public String session() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(new UserResponse(user));
+    }
+
+    @Benchmark
+    public String projectPage() throws JsonProcessingException {
+        // Mirrors UserService.getProjects, one extra row tells whether there is a next page
+        List<AudioProjectSummary> page = summaries.subList(0, pageSize);
+        ProjectPageResponse response = new ProjectPageResponse(page.stream().map(AudioProjectResponse::from).toList(),
+                ProjectCursor.of(page.getLast()).encode());
+        return objectMapper.writeValueAsString(response);
+    }
+
+    private record Summary(long id, String name, String description, String audioFormat, String audioUrl,
+                           String editListHash, LocalDateTime createdAt, LocalDateTime updatedAt)
+            implements AudioProjectSummary {
+        @Override
+        public long getId() {
+            return id;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String getDescription() {
+            return description;
+        }
+
+        @Override
+        public String getAudioFormat() {
+            return audioFormat;
+        }
+
+        @Override
+        public String getAudioUrl() {
+            return audioUrl;
+        }
+
+        @Override
+        public String getEditListHash() {
+            return editListHash;
+        }
+
+        @Override
+        public LocalDateTime getCreatedAt() {
+            return createdAt;
+        }
+
+        @Override
+        public LocalDateTime getUpdatedAt() {
+            return updatedAt;
+        }
+    }
+}
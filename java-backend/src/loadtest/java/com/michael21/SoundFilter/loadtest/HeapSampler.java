@@ -0,0 +1,77 @@
+package com.michael21.SoundFilter.loadtest;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Heap used during a run, sampled every 100 ms, and the collections it took. The backend, the stubs and
+ * the load generator share the JVM, the stubs keep their data on disk so the heap is mostly the backend's.
+ */
+public class HeapSampler implements AutoCloseable {
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "heap-sampler");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final long startGcCount;
+    private final long startGcMillis;
+    private volatile long maxUsed;
+    private long samples;
+    private double usedSum;
+
+    public HeapSampler() {
+        this.startGcCount = gcCount();
+        this.startGcMillis = gcMillis();
+        scheduler.scheduleAtFixedRate(this::sample, 0, 100, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void sample() {
+        long used = memory.getHeapMemoryUsage().getUsed();
+        maxUsed = Math.max(maxUsed, used);
+        usedSum += used;
+        samples++;
+    }
+
+    /**
+     * Stops sampling and measures what is still live after a full collection.
+     */
+    public synchronized Summary summarize() {
+        scheduler.shutdownNow();
+        long gcCount = gcCount() - startGcCount;
+        long gcMillis = gcMillis() - startGcMillis;
+
+        System.gc();
+        long retained = memory.getHeapMemoryUsage().getUsed();
+
+        return new Summary(mb(maxUsed), samples == 0 ? 0 : mb((long) (usedSum / samples)), mb(retained),
+                mb(memory.getHeapMemoryUsage().getMax()), gcCount, gcMillis);
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private static long gcCount() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionCount).filter(count -> count > 0).sum();
+    }
+
+    private static long gcMillis() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionTime).filter(time -> time > 0).sum();
+    }
+
+    private static double mb(long bytes) {
+        return bytes / (1024.0 * 1024.0);
+    }
+
+    public record Summary(double maxUsedMb, double meanUsedMb, double retainedMb, double maxHeapMb,
+                          long collections, long collectionMillis) {
+    }
+}
@@ -0,0 +1,51 @@
+package com.michael21.SoundFilter.loadtest;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Latency and failures of a stubbed service. Latencies are log-normal around the median, like those of
+ * real services: most calls take about the median and a few take several times longer.
+ */
+@Setter
+@Getter
+public class LatencyModel {
+    private Duration median = Duration.ZERO;
+    // Spread of the latencies, 0 makes every call take the median
+    private double sigma = 0.5;
+    // Share of the calls answered with a server error
+    private double errorRate = 0;
+
+    public static LatencyModel of(Duration median, double sigma, double errorRate) {
+        LatencyModel model = new LatencyModel();
+        model.setMedian(median);
+        model.setSigma(sigma);
+        model.setErrorRate(errorRate);
+        return model;
+    }
+
+    public boolean fails() {
+        return errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate;
+    }
+
+    /**
+     * Waits for one sampled latency.
+     */
+    public void await() throws InterruptedException {
+        if (median.isZero()) {
+            return;
+        }
+
+        double factor = Math.exp(sigma * ThreadLocalRandom.current().nextGaussian());
+        long nanos = (long) (median.toNanos() * factor);
+        Thread.sleep(Duration.ofNanos(nanos));
+    }
+
+    @Override
+    public String toString() {
+        return median.toMillis() + " ms median, sigma " + sigma + ", " + (errorRate * 100) + "% errors";
+    }
+}
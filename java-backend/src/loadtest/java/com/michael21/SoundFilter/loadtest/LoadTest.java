@@ -0,0 +1,292 @@
+package com.michael21.SoundFilter.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.michael21.SoundFilter.SoundFilterApplication;
+import com.michael21.SoundFilter.users.User;
+import com.michael21.SoundFilter.users.data.CreateUserRequest;
+import com.michael21.SoundFilter.users.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.SimpleCommandLinePropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the backend against stand-ins of S3 and the Python API, with an in-memory database, and drives
+ * concurrent transcribe, mute, TTS and convert workloads through the REST API like browsers would.
+ * Reports latency percentiles and throughput per workload, the time spent in each stage of the audio
+ * pipeline and the heap used, and fails when a workload is slower or fails more often than allowed.
+ * <p>
+ * Runs offline with {@code mvn -Ploadtest verify [-Dloadtest.args="--loadtest.users=32"]}, see
+ * {@link LoadTestProperties} for the settings.
+ */
+@Slf4j
+public class LoadTest {
+    private static final int SAMPLE_RATE = 16_000;
+    private static final String PASSWORD = "LoadTest1";
+
+    private final LoadTestProperties properties;
+    private final ConfigurableApplicationContext application;
+    private final String baseUrl;
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .findAndRegisterModules()
+            .enable(SerializationFeature.INDENT_OUTPUT);
+    private final Map<Workload, WorkloadStats> stats = new EnumMap<>(Workload.class);
+
+    public LoadTest(LoadTestProperties properties, ConfigurableApplicationContext application, String baseUrl) {
+        this.properties = properties;
+        this.application = application;
+        this.baseUrl = baseUrl;
+        for (Workload workload : properties.getWorkloads()) {
+            stats.put(workload, new WorkloadStats(workload));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        StandardEnvironment arguments = new StandardEnvironment();
+        arguments.getPropertySources().addFirst(new SimpleCommandLinePropertySource(args));
+        LoadTestProperties properties = Binder.get(arguments)
+                .bind("loadtest", LoadTestProperties.class)
+                .orElseGet(LoadTestProperties::new);
+
+        // Every virtual user keeps connections open to the stubs, which close idle ones past this many
+        System.setProperty("sun.net.httpserver.maxIdleConnections", "1000");
+
+        boolean passed;
+        try (StubS3 s3 = new StubS3("sound-filter", properties.getS3());
+             StubPythonApi python = new StubPythonApi(properties.getPython(), properties.getPythonEndpoints(),
+                     properties.getTranscriptionWordsPerSecond())) {
+            log.info("S3 stub at {} ({}), Python API stub at {} ({})", s3.getBaseUrl(), properties.getS3(),
+                    python.getBaseUrl(), properties.getPython());
+
+            try (ConfigurableApplicationContext application = new SpringApplicationBuilder(SoundFilterApplication.class)
+                    .profiles("loadtest")
+                    // Ahead of application.properties, defaults would be overridden by it
+                    .initializers(context -> context.getEnvironment().getPropertySources().addFirst(
+                            new MapPropertySource("loadtestStubs", Map.of(
+                                    "app.s3.base-url", s3.getBaseUrl(),
+                                    // The Python API is reached through the base URL, Caddy routes it in development
+                                    "app.base-url", python.getBaseUrl()))))
+                    .run(args)) {
+                int port = ((WebServerApplicationContext) application).getWebServer().getPort();
+                passed = new LoadTest(properties, application, "http://localhost:" + port).run();
+            }
+        }
+
+        System.exit(passed ? 0 : 1);
+    }
+
+    /**
+     * Signs the users up, warms up and measures.
+     *
+     * @return Whether every workload met the thresholds
+     */
+    public boolean run() throws Exception {
+        List<LoadTestClient> clients = signUp();
+
+        log.info("Warming up for {} with {} users", properties.getWarmUp(), clients.size());
+        drive(clients, properties.getWarmUp(), false);
+
+        Map<String, StageTotals> stagesBefore = stageTotals();
+        log.info("Measuring for {}", properties.getDuration());
+        HeapSampler heap = new HeapSampler();
+        long start = System.nanoTime();
+        drive(clients, properties.getDuration(), true);
+        Duration measured = Duration.ofNanos(System.nanoTime() - start);
+        HeapSampler.Summary heapSummary = heap.summarize();
+
+        List<WorkloadStats.Summary> workloads = stats.values().stream().map(s -> s.summarize(measured)).toList();
+        Map<String, StageSummary> stages = stageSummaries(stagesBefore, stageTotals());
+        List<String> violations = checkThresholds(workloads);
+
+        print(workloads, stages, heapSummary, measured, violations);
+        writeResult(workloads, stages, heapSummary, measured, violations);
+        return violations.isEmpty();
+    }
+
+    private List<LoadTestClient> signUp() throws Exception {
+        UserRepository userRepository = application.getBean(UserRepository.class);
+        byte[] wav = wav(properties.getAudioLength());
+        List<LoadTestClient> clients = new ArrayList<>();
+
+        for (int i = 0; i < properties.getUsers(); i++) {
+            // Users are created verified, the verification email would go nowhere
+            CreateUserRequest request = new CreateUserRequest();
+            request.setEmail("load-test-" + i + "@example.com");
+            request.setPassword(PASSWORD);
+            request.setFirstName("Load");
+            request.setLastName("Test " + i);
+            User user = new User(request);
+            user.setVerified(true);
+            userRepository.save(user);
+
+            LoadTestClient client = new LoadTestClient(baseUrl, properties.getAudioLength().toMillis() / 1000.0, objectMapper);
+            client.login(request.getEmail(), PASSWORD);
+            client.createProject("Load test " + i, wav);
+            clients.add(client);
+        }
+
+        return clients;
+    }
+
+    private void drive(List<LoadTestClient> clients, Duration duration, boolean measure) throws Exception {
+        long deadline = System.nanoTime() + duration.toNanos();
+        List<Workload> workloads = properties.getWorkloads();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> users = new ArrayList<>();
+            for (LoadTestClient client : clients) {
+                users.add(executor.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        Workload workload = workloads.get(ThreadLocalRandom.current().nextInt(workloads.size()));
+                        long start = System.nanoTime();
+                        try {
+                            client.run(workload);
+                            if (measure) {
+                                stats.get(workload).recordSuccess(System.nanoTime() - start);
+                            }
+                        } catch (IOException e) {
+                            log.warn("{} failed: {}", workload, e.getMessage());
+                            if (measure) {
+                                stats.get(workload).recordError();
+                            }
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> user : users) {
+                user.get();
+            }
+        }
+    }
+
+    private Map<String, StageTotals> stageTotals() {
+        Map<String, StageTotals> totals = new LinkedHashMap<>();
+        for (Timer timer : application.getBean(MeterRegistry.class).find("audio.stage.duration").timers()) {
+            String stage = timer.getId().getTag("operation") + "/" + timer.getId().getTag("stage");
+            totals.merge(stage, new StageTotals(timer.count(), timer.totalTime(TimeUnit.NANOSECONDS)), StageTotals::plus);
+        }
+        return totals;
+    }
+
+    // Stage timers run since the backend started, the warm-up is taken out of them
+    private static Map<String, StageSummary> stageSummaries(Map<String, StageTotals> before, Map<String, StageTotals> after) {
+        Map<String, StageSummary> stages = new LinkedHashMap<>();
+        after.entrySet().stream().sorted(Map.Entry.comparingByKey()).forEach(entry -> {
+            StageTotals previous = before.getOrDefault(entry.getKey(), new StageTotals(0, 0));
+            long count = entry.getValue().count() - previous.count();
+            double nanos = entry.getValue().totalNanos() - previous.totalNanos();
+            if (count > 0) {
+                stages.put(entry.getKey(), new StageSummary(count, nanos / count / 1e6, nanos / 1e6));
+            }
+        });
+        return stages;
+    }
+
+    private List<String> checkThresholds(List<WorkloadStats.Summary> workloads) {
+        List<String> violations = new ArrayList<>();
+
+        for (WorkloadStats.Summary workload : workloads) {
+            if (properties.getMaxP99() != null && workload.p99Ms() > properties.getMaxP99().toMillis()) {
+                violations.add(String.format("%s p99 of %.0f ms is over %d ms", workload.workload(), workload.p99Ms(),
+                        properties.getMaxP99().toMillis()));
+            }
+            if (properties.getMaxErrorRate() != null && workload.errorRate() > properties.getMaxErrorRate()) {
+                violations.add(String.format("%s error rate of %.2f%% is over %.2f%%", workload.workload(),
+                        workload.errorRate() * 100, properties.getMaxErrorRate() * 100));
+            }
+        }
+
+        return violations;
+    }
+
+    private void print(List<WorkloadStats.Summary> workloads, Map<String, StageSummary> stages,
+                       HeapSampler.Summary heap, Duration measured, List<String> violations) {
+        System.out.printf("%n%d users for %d s%n%n", properties.getUsers(), measured.toSeconds());
+        System.out.printf("%-10s %8s %7s %9s %9s %9s %9s %9s%n",
+                "workload", "count", "errors", "ops/s", "p50 ms", "p95 ms", "p99 ms", "max ms");
+        for (WorkloadStats.Summary workload : workloads) {
+            System.out.printf("%-10s %8d %7d %9.2f %9.1f %9.1f %9.1f %9.1f%n", workload.workload(), workload.count(),
+                    workload.errors(), workload.throughput(), workload.p50Ms(), workload.p95Ms(), workload.p99Ms(),
+                    workload.maxMs());
+        }
+
+        System.out.printf("%n%-28s %8s %10s %12s%n", "stage", "count", "mean ms", "total s");
+        stages.forEach((stage, summary) -> System.out.printf("%-28s %8d %10.1f %12.1f%n", stage, summary.count(),
+                summary.meanMs(), summary.totalMs() / 1000));
+
+        System.out.printf("%nheap: %.0f MB max, %.0f MB mean, %.0f MB retained of %.0f MB, %d collections in %d ms%n",
+                heap.maxUsedMb(), heap.meanUsedMb(), heap.retainedMb(), heap.maxHeapMb(), heap.collections(),
+                heap.collectionMillis());
+
+        violations.forEach(violation -> System.out.println("FAILED: " + violation));
+    }
+
+    private void writeResult(List<WorkloadStats.Summary> workloads, Map<String, StageSummary> stages,
+                             HeapSampler.Summary heap, Duration measured, List<String> violations) throws IOException {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("users", properties.getUsers());
+        result.put("durationSeconds", measured.toMillis() / 1000.0);
+        result.put("workloads", workloads);
+        result.put("stages", stages);
+        result.put("heap", heap);
+        result.put("violations", violations);
+
+        if (properties.getResult().getParent() != null) {
+            Files.createDirectories(properties.getResult().getParent());
+        }
+        objectMapper.writeValue(properties.getResult().toFile(), result);
+        log.info("Results written to {}", properties.getResult().toAbsolutePath());
+    }
+
+    // A sweeping tone, so renders and waveform peaks work on varying samples
+    private static byte[] wav(Duration length) {
+        int frames = (int) (SAMPLE_RATE * length.toMillis() / 1000);
+        int dataLength = frames * 2;
+
+        ByteBuffer buffer = ByteBuffer.allocate(44 + dataLength).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put("RIFF".getBytes()).putInt(36 + dataLength).put("WAVE".getBytes());
+        buffer.put("fmt ".getBytes()).putInt(16).putShort((short) 1).putShort((short) 1)
+                .putInt(SAMPLE_RATE).putInt(SAMPLE_RATE * 2).putShort((short) 2).putShort((short) 16);
+        buffer.put("data".getBytes()).putInt(dataLength);
+
+        for (int i = 0; i < frames; i++) {
+            double frequency = 200 + 800.0 * i / frames;
+            buffer.putShort((short) (Math.sin(2 * Math.PI * frequency * i / SAMPLE_RATE) * Short.MAX_VALUE * 0.8));
+        }
+
+        return buffer.array();
+    }
+
+    private record StageTotals(long count, double totalNanos) {
+        StageTotals plus(StageTotals other) {
+            return new StageTotals(count + other.count, totalNanos + other.totalNanos);
+        }
+    }
+
+    private record StageSummary(long count, double meanMs, double totalMs) {
+    }
+}
@@ -0,0 +1,170 @@
+package com.michael21.SoundFilter.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * One virtual user of the backend, logged in with its own session and editing its own project.
+ */
+public class LoadTestClient {
+    private static final Duration JOB_POLL_INTERVAL = Duration.ofMillis(100);
+    private static final Duration JOB_TIMEOUT = Duration.ofMinutes(5);
+
+    private final String baseUrl;
+    private final double audioSeconds;
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private long projectId;
+    private String audioFormat = "wav";
+
+    public LoadTestClient(String baseUrl, double audioSeconds, ObjectMapper objectMapper) {
+        this.baseUrl = baseUrl;
+        this.audioSeconds = audioSeconds;
+        this.objectMapper = objectMapper;
+        // Sessions are kept in a cookie, like in the browser
+        this.httpClient = HttpClient.newBuilder()
+                .cookieHandler(new CookieManager())
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    public void login(String email, String password) throws IOException, InterruptedException {
+        send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/auth/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(
+                        Map.of("email", email, "password", password))))
+                .build());
+    }
+
+    public void createProject(String name, byte[] wav) throws IOException, InterruptedException {
+        String boundary = UUID.randomUUID().toString();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        writeField(body, boundary, "name", name);
+        writeField(body, boundary, "description", "Load test");
+        body.write(("--" + boundary + "\r\nContent-Disposition: form-data; name=\"file\"; filename=\"" + name
+                + ".wav\"\r\nContent-Type: audio/wav\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        body.write(wav);
+        body.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+
+        JsonNode project = json(send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/users/create-audio-project"))
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()))
+                .build()));
+        this.projectId = project.path("id").asLong();
+    }
+
+    public void run(Workload workload) throws IOException, InterruptedException {
+        switch (workload) {
+            case TRANSCRIBE -> transcribe();
+            case MUTE -> {
+                double start = randomStart();
+                post("/mute-audio?start_time=" + start + "&end_time=" + (start + 1));
+                downloadAudio();
+            }
+            case TTS -> {
+                double start = randomStart();
+                post("/replace-with-tts?start_time=" + start + "&end_time=" + (start + 1)
+                        + "&replacement_text=" + URLEncoder.encode("nothing to see here", StandardCharsets.UTF_8));
+                downloadAudio();
+            }
+            case CONVERT -> {
+                audioFormat = audioFormat.equals("wav") ? "mp3" : "wav";
+                post("/convert-format?target_format=" + audioFormat);
+                downloadAudio();
+            }
+            case SEARCH -> send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/search?q="
+                    + URLEncoder.encode("quick brown fox", StandardCharsets.UTF_8))).GET().build());
+        }
+    }
+
+    private void transcribe() throws IOException, InterruptedException {
+        awaitJob(json(post("/transcribe")).path("jobId").asLong());
+    }
+
+    private void downloadAudio() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/audio/" + projectId + "/stream")).GET().build();
+        HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+
+        // Edits are rendered in the background, until then the audio is answered with the render job
+        if (response.statusCode() == 202) {
+            try (InputStream body = response.body()) {
+                awaitJob(objectMapper.readTree(body).path("jobId").asLong());
+            }
+            response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        }
+
+        try (InputStream body = response.body()) {
+            long length = body.transferTo(OutputStream.nullOutputStream());
+            if (response.statusCode() != 200 || length == 0) {
+                throw new IOException("Audio of project " + projectId + " returned " + response.statusCode()
+                        + " with " + length + " bytes");
+            }
+        }
+    }
+
+    private void awaitJob(long jobId) throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + JOB_TIMEOUT.toNanos();
+
+        while (System.nanoTime() < deadline) {
+            JsonNode job = json(send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/audio/jobs/" + jobId)).GET().build()));
+            String status = job.path("status").asText();
+            if (status.equals("SUCCEEDED")) {
+                return;
+            }
+            if (status.equals("FAILED")) {
+                throw new IOException(job.path("type").asText() + " job " + jobId + " failed: " + job.path("error").asText());
+            }
+            Thread.sleep(JOB_POLL_INTERVAL);
+        }
+
+        throw new IOException("Audio job " + jobId + " didn't finish within " + JOB_TIMEOUT);
+    }
+
+    private byte[] post(String path) throws IOException, InterruptedException {
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/audio/" + projectId + path))
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build());
+    }
+
+    private byte[] send(HttpRequest request) throws IOException, InterruptedException {
+        // Like the frontend, which asks for JSON
+        request = HttpRequest.newBuilder(request, (name, value) -> true).header("Accept", "application/json").build();
+        HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() / 100 != 2) {
+            String body = new String(response.body(), StandardCharsets.UTF_8);
+            throw new IOException(request.method() + " " + request.uri().getPath() + " returned "
+                    + response.statusCode() + ": " + body.substring(0, Math.min(200, body.length())));
+        }
+        return response.body();
+    }
+
+    private JsonNode json(byte[] body) throws IOException {
+        return objectMapper.readTree(body);
+    }
+
+    private double randomStart() {
+        // Whole tenths of a second, the edits stay readable in logs
+        return Math.floor(ThreadLocalRandom.current().nextDouble(Math.max(0, audioSeconds - 1)) * 10) / 10;
+    }
+
+    private static void writeField(OutputStream body, String boundary, String name, String value) throws IOException {
+        body.write(("--" + boundary + "\r\nContent-Disposition: form-data; name=\"" + name + "\"\r\n\r\n" + value + "\r\n")
+                .getBytes(StandardCharsets.UTF_8));
+    }
+}
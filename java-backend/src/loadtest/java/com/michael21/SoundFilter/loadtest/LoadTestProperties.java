@@ -0,0 +1,39 @@
+package com.michael21.SoundFilter.loadtest;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Settings of a load test run, bound from {@code --loadtest.*} arguments, e.g.
+ * {@code --loadtest.users=32 --loadtest.duration=2m --loadtest.python.error-rate=0.01}.
+ */
+@Setter
+@Getter
+public class LoadTestProperties {
+    // Virtual users, each editing its own project one request after the other
+    private int users = 8;
+    private Duration warmUp = Duration.ofSeconds(10);
+    private Duration duration = Duration.ofSeconds(60);
+    // Workloads the users pick from at random, any of transcribe, mute, tts, convert and search
+    private List<Workload> workloads = List.of(Workload.values());
+    // Length of the WAV audio of every project, 16 kHz mono
+    private Duration audioLength = Duration.ofSeconds(60);
+
+    private LatencyModel s3 = LatencyModel.of(Duration.ofMillis(5), 0.5, 0);
+    private LatencyModel python = LatencyModel.of(Duration.ofMillis(150), 0.5, 0);
+    // Python endpoints slower or faster than the default, keyed by path
+    private Map<String, LatencyModel> pythonEndpoints = new HashMap<>(Map.of(
+            "/audio-api/transcribe", LatencyModel.of(Duration.ofSeconds(2), 0.5, 0)));
+    private double transcriptionWordsPerSecond = 2.5;
+
+    // The run fails when a workload is slower or fails more often than this, unset to only report
+    private Duration maxP99;
+    private Double maxErrorRate;
+    private Path result = Path.of("target", "loadtest-result.json");
+}
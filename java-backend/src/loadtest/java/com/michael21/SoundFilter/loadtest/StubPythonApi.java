@@ -0,0 +1,204 @@
+package com.michael21.SoundFilter.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Python audio API stand-in. Edits and conversions send the audio back unchanged, transcriptions return
+ * canned words spread over the duration of the audio. Every endpoint answers after a sampled latency and
+ * fails at the configured rate, so the backend sees the timing of the real API without a GPU.
+ */
+@Slf4j
+public class StubPythonApi implements AutoCloseable {
+    private static final String[] WORDS = {"the", "quick", "brown", "fox", "jumps", "over", "a", "lazy", "dog",
+            "while", "we", "record", "this", "take", "again"};
+
+    private final LatencyModel defaultLatency;
+    private final Map<String, LatencyModel> endpointLatencies;
+    private final double wordsPerSecond;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    public StubPythonApi(LatencyModel defaultLatency, Map<String, LatencyModel> endpointLatencies,
+                         double wordsPerSecond) throws IOException {
+        this.defaultLatency = defaultLatency;
+        this.endpointLatencies = endpointLatencies;
+        this.wordsPerSecond = wordsPerSecond;
+
+        // The server reads requests under a monitor, on platform threads it can't pin the callers' carriers
+        this.executor = Executors.newCachedThreadPool();
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+        this.server.createContext("/audio-api/", this::handle);
+        this.server.setExecutor(executor);
+        this.server.start();
+    }
+
+    public String getBaseUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String endpoint = exchange.getRequestURI().getPath();
+            Map<String, byte[]> parts = parseMultipart(exchange);
+
+            LatencyModel latency = endpointLatencies.getOrDefault(endpoint, defaultLatency);
+            latency.await();
+            if (latency.fails()) {
+                send(exchange, 500, "application/json", "{\"detail\":\"Injected failure\"}".getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+
+            byte[] audio = parts.get("audio_file");
+            if (audio == null) {
+                send(exchange, 422, "application/json", "{\"detail\":\"audio_file is required\"}".getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+
+            switch (endpoint) {
+                case "/audio-api/transcribe" -> send(exchange, 200, "application/json", transcribe(audio, parts));
+                case "/audio-api/modify", "/audio-api/batch-modify", "/audio-api/convert-format" ->
+                        send(exchange, 200, "application/octet-stream", audio);
+                default -> send(exchange, 404, "application/json", "{\"detail\":\"Not Found\"}".getBytes(StandardCharsets.UTF_8));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Stub Python API failed on {}: {}", exchange.getRequestURI(), e.toString());
+            throw e;
+        }
+    }
+
+    private byte[] transcribe(byte[] audio, Map<String, byte[]> parts) throws IOException {
+        double duration = durationOf(audio);
+        double start = parts.containsKey("start_time") ? Double.parseDouble(text(parts.get("start_time"))) : 0;
+        double end = parts.containsKey("end_time") ? Double.parseDouble(text(parts.get("end_time"))) : duration;
+        // Windows are transcribed from their start, like the real API returns them
+        double length = Math.max(0, Math.min(end, duration) - start);
+
+        ObjectNode result = objectMapper.createObjectNode();
+        ArrayNode words = result.putArray("words");
+        StringBuilder transcript = new StringBuilder();
+        double step = 1 / wordsPerSecond;
+
+        for (int i = 0; i * step < length; i++) {
+            String word = " " + WORDS[i % WORDS.length];
+            ObjectNode timestamp = words.addObject();
+            timestamp.put("word", word);
+            timestamp.put("start_time", i * step);
+            timestamp.put("end_time", Math.min(length, i * step + step * 0.8));
+            transcript.append(word);
+        }
+
+        result.put("filename", "stub");
+        result.put("transcript", transcript.toString().trim());
+        result.put("detected_language", "en");
+        result.put("processing_time", 0.0);
+        return objectMapper.writeValueAsBytes(result);
+    }
+
+    // Duration of WAV audio from its header, other formats are taken for a minute of audio
+    private static double durationOf(byte[] audio) {
+        if (audio.length < 44 || !new String(audio, 0, 4, StandardCharsets.US_ASCII).equals("RIFF")) {
+            return 60;
+        }
+
+        ByteBuffer header = ByteBuffer.wrap(audio).order(ByteOrder.LITTLE_ENDIAN);
+        int byteRate = header.getInt(28);
+        return byteRate <= 0 ? 60 : (audio.length - 44) / (double) byteRate;
+    }
+
+    /**
+     * Reads the parts of a multipart form by name. The whole request is read at once, audio sent in a
+     * load test is small enough for that.
+     */
+    private static Map<String, byte[]> parseMultipart(HttpExchange exchange) throws IOException {
+        byte[] body = exchange.getRequestBody().readAllBytes();
+        Map<String, byte[]> parts = new LinkedHashMap<>();
+
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        int boundaryIndex = contentType == null ? -1 : contentType.indexOf("boundary=");
+        if (boundaryIndex < 0) {
+            return parts;
+        }
+
+        String boundaryValue = contentType.substring(boundaryIndex + "boundary=".length()).split(";")[0].replace("\"", "");
+        byte[] delimiter = ("--" + boundaryValue).getBytes(StandardCharsets.US_ASCII);
+        byte[] headerEnd = "\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+        int position = indexOf(body, delimiter, 0);
+        while (position >= 0) {
+            int partStart = position + delimiter.length;
+            if (partStart + 2 <= body.length && body[partStart] == '-' && body[partStart + 1] == '-') {
+                break;
+            }
+
+            int headersEnd = indexOf(body, headerEnd, partStart);
+            int next = indexOf(body, delimiter, headersEnd);
+            if (headersEnd < 0 || next < 0) {
+                break;
+            }
+
+            String headers = new String(body, partStart, headersEnd - partStart, StandardCharsets.UTF_8);
+            int nameIndex = headers.indexOf("name=\"");
+            if (nameIndex >= 0) {
+                String name = headers.substring(nameIndex + 6, headers.indexOf('"', nameIndex + 6));
+                // The part ends with the line break before the next delimiter
+                parts.put(name, Arrays.copyOfRange(body, headersEnd + headerEnd.length, next - 2));
+            }
+            position = next;
+        }
+
+        return parts;
+    }
+
+    private static int indexOf(byte[] data, byte[] pattern, int from) {
+        if (from < 0) {
+            return -1;
+        }
+
+        outer:
+        for (int i = from; i <= data.length - pattern.length; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (data[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private static String text(byte[] value) {
+        return new String(value, StandardCharsets.UTF_8).trim();
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        exchange.getResponseBody().write(body);
+    }
+}
@@ -0,0 +1,439 @@
+package com.michael21.SoundFilter.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * S3 stand-in storing objects on the local disk, speaking the part of the S3 REST API the backend uses:
+ * listing buckets, putting, getting (with ranges), heading and deleting objects, and multipart uploads.
+ * Requests are path-style, like those of the backend to LocalStack.
+ * <p>
+ * Objects live on disk rather than in memory so they don't weigh on the heap usage the load test reports.
+ */
+@Slf4j
+public class StubS3 implements AutoCloseable {
+    private static final String XMLNS = "http://s3.amazonaws.com/doc/2006-03-01/";
+    private static final Pattern PART_NUMBER = Pattern.compile("<PartNumber>(\\d+)</PartNumber>");
+
+    private final String bucketName;
+    private final LatencyModel latency;
+    private final Path directory;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    // Parts of every upload in progress by upload ID, each a file in the directory
+    private final Map<String, Map<Integer, Part>> uploads = new ConcurrentHashMap<>();
+
+    public StubS3(String bucketName, LatencyModel latency) throws IOException {
+        this.bucketName = bucketName;
+        this.latency = latency;
+        this.directory = Files.createTempDirectory("stub-s3-");
+
+        // The server reads requests under a monitor, on platform threads it can't pin the callers' carriers
+        this.executor = Executors.newCachedThreadPool();
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+        this.server.createContext("/", this::handle);
+        this.server.setExecutor(executor);
+        this.server.start();
+    }
+
+    public String getBaseUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    /**
+     * Disk space taken by the objects and parts, for the report.
+     */
+    public long storedBytes() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(Files::isRegularFile).mapToLong(file -> file.toFile().length()).sum();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.stop(0);
+        executor.shutdownNow();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted((a, b) -> b.getNameCount() - a.getNameCount()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            latency.await();
+            if (latency.fails()) {
+                drain(exchange);
+                sendError(exchange, 503, "SlowDown", "Injected failure");
+                return;
+            }
+
+            URI uri = exchange.getRequestURI();
+            Map<String, String> query = parseQuery(uri.getRawQuery());
+            String path = uri.getPath().startsWith("/") ? uri.getPath().substring(1) : uri.getPath();
+            int slash = path.indexOf('/');
+            String key = slash < 0 ? "" : path.substring(slash + 1);
+            String method = exchange.getRequestMethod();
+
+            if (path.isEmpty()) {
+                listBuckets(exchange);
+            } else if (key.isEmpty()) {
+                drain(exchange);
+                sendError(exchange, 400, "InvalidRequest", "Bucket operations aren't supported");
+            } else if (query.containsKey("uploads") && method.equals("POST")) {
+                createMultipartUpload(exchange, key);
+            } else if (query.containsKey("uploadId")) {
+                String uploadId = query.get("uploadId");
+                switch (method) {
+                    case "PUT" -> uploadPart(exchange, uploadId, Integer.parseInt(query.get("partNumber")));
+                    case "GET" -> listParts(exchange, key, uploadId);
+                    case "POST" -> completeMultipartUpload(exchange, key, uploadId);
+                    case "DELETE" -> abortMultipartUpload(exchange, uploadId);
+                    default -> sendError(exchange, 405, "MethodNotAllowed", method);
+                }
+            } else {
+                switch (method) {
+                    case "PUT" -> putObject(exchange, key);
+                    case "GET" -> getObject(exchange, key, true);
+                    case "HEAD" -> getObject(exchange, key, false);
+                    case "DELETE" -> deleteObject(exchange, key);
+                    default -> sendError(exchange, 405, "MethodNotAllowed", method);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Stub S3 failed on {} {}: {}", exchange.getRequestMethod(), exchange.getRequestURI(), e.toString());
+            throw e;
+        }
+    }
+
+    private void listBuckets(HttpExchange exchange) throws IOException {
+        sendXml(exchange, 200, "<ListAllMyBucketsResult xmlns=\"" + XMLNS + "\"><Owner><ID>stub</ID></Owner><Buckets>"
+                + "<Bucket><Name>" + bucketName + "</Name><CreationDate>" + timestamp(Instant.EPOCH) + "</CreationDate></Bucket>"
+                + "</Buckets></ListAllMyBucketsResult>");
+    }
+
+    private void putObject(HttpExchange exchange, String key) throws IOException {
+        Path temp = Files.createTempFile(directory, "put-", ".tmp");
+        String md5 = receive(exchange, temp);
+        Files.move(temp, objectPath(key), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        exchange.getResponseHeaders().set("ETag", quote(md5));
+        exchange.sendResponseHeaders(200, -1);
+    }
+
+    private void getObject(HttpExchange exchange, String key, boolean withBody) throws IOException {
+        Path object = objectPath(key);
+        if (!Files.exists(object)) {
+            if (withBody) {
+                sendError(exchange, 404, "NoSuchKey", "The specified key does not exist.");
+            } else {
+                exchange.sendResponseHeaders(404, -1);
+            }
+            return;
+        }
+
+        long size = Files.size(object);
+        long start = 0;
+        long end = size - 1;
+        int status = 200;
+
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        if (range != null && range.startsWith("bytes=")) {
+            String[] bounds = range.substring("bytes=".length()).split("-", 2);
+            start = Long.parseLong(bounds[0]);
+            end = bounds[1].isEmpty() ? size - 1 : Math.min(Long.parseLong(bounds[1]), size - 1);
+            exchange.getResponseHeaders().set("Content-Range", "bytes " + start + "-" + end + "/" + size);
+            status = 206;
+        }
+
+        long length = end - start + 1;
+        exchange.getResponseHeaders().set("Content-Type", "application/octet-stream");
+        exchange.getResponseHeaders().set("Last-Modified",
+                DateTimeFormatter.RFC_1123_DATE_TIME.format(Files.getLastModifiedTime(object).toInstant().atOffset(ZoneOffset.UTC)));
+        exchange.getResponseHeaders().set("Accept-Ranges", "bytes");
+
+        if (!withBody) {
+            exchange.getResponseHeaders().set("Content-Length", String.valueOf(size));
+            exchange.sendResponseHeaders(200, -1);
+            return;
+        }
+
+        exchange.sendResponseHeaders(status, length == 0 ? -1 : length);
+        try (InputStream in = Files.newInputStream(object); OutputStream out = exchange.getResponseBody()) {
+            in.skipNBytes(start);
+            copy(in, out, length);
+        }
+    }
+
+    private void deleteObject(HttpExchange exchange, String key) throws IOException {
+        Files.deleteIfExists(objectPath(key));
+        exchange.sendResponseHeaders(204, -1);
+    }
+
+    private void createMultipartUpload(HttpExchange exchange, String key) throws IOException {
+        drain(exchange);
+        String uploadId = UUID.randomUUID().toString();
+        uploads.put(uploadId, new ConcurrentHashMap<>());
+
+        sendXml(exchange, 200, "<InitiateMultipartUploadResult xmlns=\"" + XMLNS + "\"><Bucket>" + bucketName
+                + "</Bucket><Key>" + escape(key) + "</Key><UploadId>" + uploadId + "</UploadId></InitiateMultipartUploadResult>");
+    }
+
+    private void uploadPart(HttpExchange exchange, String uploadId, int partNumber) throws IOException {
+        Map<Integer, Part> parts = uploads.get(uploadId);
+        if (parts == null) {
+            drain(exchange);
+            sendError(exchange, 404, "NoSuchUpload", "The specified upload does not exist.");
+            return;
+        }
+
+        Path file = directory.resolve("part-" + uploadId + "-" + partNumber);
+        String md5 = receive(exchange, file);
+        parts.put(partNumber, new Part(file, md5, Files.size(file)));
+
+        exchange.getResponseHeaders().set("ETag", quote(md5));
+        exchange.sendResponseHeaders(200, -1);
+    }
+
+    private void listParts(HttpExchange exchange, String key, String uploadId) throws IOException {
+        Map<Integer, Part> parts = uploads.get(uploadId);
+        if (parts == null) {
+            sendError(exchange, 404, "NoSuchUpload", "The specified upload does not exist.");
+            return;
+        }
+
+        StringBuilder xml = new StringBuilder("<ListPartsResult xmlns=\"" + XMLNS + "\"><Bucket>" + bucketName
+                + "</Bucket><Key>" + escape(key) + "</Key><UploadId>" + uploadId + "</UploadId><IsTruncated>false</IsTruncated>");
+        new LinkedHashMap<>(parts).entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(part -> xml.append("<Part><PartNumber>").append(part.getKey())
+                        .append("</PartNumber><ETag>").append(quote(part.getValue().md5()))
+                        .append("</ETag><Size>").append(part.getValue().size())
+                        .append("</Size><LastModified>").append(timestamp(Instant.now())).append("</LastModified></Part>"));
+        xml.append("</ListPartsResult>");
+        sendXml(exchange, 200, xml.toString());
+    }
+
+    private void completeMultipartUpload(HttpExchange exchange, String key, String uploadId) throws IOException {
+        String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        Map<Integer, Part> parts = uploads.remove(uploadId);
+        if (parts == null) {
+            sendError(exchange, 404, "NoSuchUpload", "The specified upload does not exist.");
+            return;
+        }
+
+        List<Integer> partNumbers = new ArrayList<>();
+        Matcher matcher = PART_NUMBER.matcher(body);
+        while (matcher.find()) {
+            partNumbers.add(Integer.parseInt(matcher.group(1)));
+        }
+
+        Path temp = Files.createTempFile(directory, "complete-", ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            for (int partNumber : partNumbers) {
+                Part part = parts.get(partNumber);
+                if (part == null) {
+                    Files.delete(temp);
+                    sendError(exchange, 400, "InvalidPart", "Part " + partNumber + " was not uploaded.");
+                    return;
+                }
+                Files.copy(part.file(), out);
+            }
+        }
+        Files.move(temp, objectPath(key), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        deleteParts(parts);
+
+        sendXml(exchange, 200, "<CompleteMultipartUploadResult xmlns=\"" + XMLNS + "\"><Location>" + getBaseUrl()
+                + "/" + bucketName + "/" + escape(key) + "</Location><Bucket>" + bucketName + "</Bucket><Key>"
+                + escape(key) + "</Key><ETag>\"" + uploadId + "-" + partNumbers.size() + "\"</ETag></CompleteMultipartUploadResult>");
+    }
+
+    private void abortMultipartUpload(HttpExchange exchange, String uploadId) throws IOException {
+        Map<Integer, Part> parts = uploads.remove(uploadId);
+        if (parts == null) {
+            sendError(exchange, 404, "NoSuchUpload", "The specified upload does not exist.");
+            return;
+        }
+
+        deleteParts(parts);
+        exchange.sendResponseHeaders(204, -1);
+    }
+
+    /**
+     * Writes the request body to a file and returns its MD5, the ETag the SDK checks the upload against.
+     * Over plain HTTP the SDK signs every chunk of a streamed body, those chunks are decoded here.
+     */
+    private static String receive(HttpExchange exchange, Path file) throws IOException {
+        MessageDigest md5 = newMd5();
+        String contentSha = exchange.getRequestHeaders().getFirst("x-amz-content-sha256");
+        boolean chunked = contentSha != null && contentSha.startsWith("STREAMING-");
+
+        try (InputStream body = exchange.getRequestBody();
+             OutputStream out = Files.newOutputStream(file)) {
+            if (chunked) {
+                decodeChunks(body, out, md5);
+            } else {
+                new DigestInputStream(body, md5).transferTo(out);
+            }
+        }
+
+        return HexFormat.of().formatHex(md5.digest());
+    }
+
+    private static void decodeChunks(InputStream body, OutputStream out, MessageDigest md5) throws IOException {
+        while (true) {
+            String header = readLine(body);
+            int extension = header.indexOf(';');
+            long size = Long.parseLong(extension < 0 ? header.trim() : header.substring(0, extension).trim(), 16);
+            if (size == 0) {
+                // Trailing headers, if any, end with an empty line
+                while (!readLine(body).isEmpty()) {
+                }
+                return;
+            }
+
+            byte[] chunk = body.readNBytes((int) size);
+            if (chunk.length < size) {
+                throw new EOFException("Chunk ended after " + chunk.length + " of " + size + " bytes");
+            }
+            md5.update(chunk);
+            out.write(chunk);
+            readLine(body);
+        }
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != -1) {
+            if (b == '\n') {
+                break;
+            }
+            if (b != '\r') {
+                line.write(b);
+            }
+        }
+        return line.toString(StandardCharsets.US_ASCII);
+    }
+
+    private static void copy(InputStream in, OutputStream out, long length) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        long remaining = length;
+        while (remaining > 0) {
+            int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (read < 0) {
+                throw new EOFException();
+            }
+            out.write(buffer, 0, read);
+            remaining -= read;
+        }
+    }
+
+    private static void deleteParts(Map<Integer, Part> parts) throws IOException {
+        for (Part part : parts.values()) {
+            Files.deleteIfExists(part.file());
+        }
+    }
+
+    private Path objectPath(String key) {
+        // Keys hold slashes and colons, their hash is a safe file name
+        return directory.resolve("object-" + HexFormat.of().formatHex(newSha256().digest(key.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    private static void drain(HttpExchange exchange) throws IOException {
+        exchange.getRequestBody().transferTo(OutputStream.nullOutputStream());
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String code, String message) throws IOException {
+        sendXml(exchange, status, "<Error><Code>" + code + "</Code><Message>" + escape(message)
+                + "</Message><RequestId>stub</RequestId></Error>");
+    }
+
+    private static void sendXml(HttpExchange exchange, int status, String xml) throws IOException {
+        byte[] body = ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>" + xml).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/xml");
+        exchange.sendResponseHeaders(status, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new LinkedHashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return query;
+        }
+        for (String parameter : rawQuery.split("&")) {
+            int equals = parameter.indexOf('=');
+            String name = equals < 0 ? parameter : parameter.substring(0, equals);
+            String value = equals < 0 ? "" : URLDecoder.decode(parameter.substring(equals + 1), StandardCharsets.UTF_8);
+            query.put(name, value);
+        }
+        return query;
+    }
+
+    private static String timestamp(Instant instant) {
+        return DateTimeFormatter.ISO_INSTANT.format(instant);
+    }
+
+    private static String quote(String etag) {
+        return "\"" + etag + "\"";
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+
+    private static MessageDigest newMd5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 is not available", e);
+        }
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private record Part(Path file, String md5, long size) {
+    }
+}
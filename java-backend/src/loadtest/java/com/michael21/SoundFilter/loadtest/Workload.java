@@ -0,0 +1,18 @@
+package com.michael21.SoundFilter.loadtest;
+
+/**
+ * Requests a virtual user makes against the audio API. Edits are only rendered when the audio is played,
+ * so every edit is followed by a download of the audio, which is what a user editing in the browser does.
+ */
+public enum Workload {
+    // Transcription job, from the request until the job finished
+    TRANSCRIBE,
+    // Mute of a random second, rendered by the PCM processor for WAV and the Python API otherwise
+    MUTE,
+    // Text to speech over a random second, always rendered by the Python API
+    TTS,
+    // Conversion between WAV and MP3, rendered by the Python API
+    CONVERT,
+    // Phrase search across the transcriptions of the user, hits once a project was transcribed
+    SEARCH
+}
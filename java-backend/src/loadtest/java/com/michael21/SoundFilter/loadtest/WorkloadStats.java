@@ -0,0 +1,56 @@
+package com.michael21.SoundFilter.loadtest;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latencies and failures of one workload during the measured part of a run.
+ */
+public class WorkloadStats {
+    private final Workload workload;
+    private final AtomicLong errors = new AtomicLong();
+    private long[] latencies = new long[1024];
+    private int count;
+
+    public WorkloadStats(Workload workload) {
+        this.workload = workload;
+    }
+
+    public synchronized void recordSuccess(long nanos) {
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = nanos;
+    }
+
+    public void recordError() {
+        errors.incrementAndGet();
+    }
+
+    public synchronized Summary summarize(Duration measured) {
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        long failed = errors.get();
+        long total = count + failed;
+
+        return new Summary(workload, count, failed,
+                total == 0 ? 0 : failed / (double) total,
+                count / (measured.toNanos() / 1e9),
+                percentile(sorted, 0.50), percentile(sorted, 0.95), percentile(sorted, 0.99),
+                sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1e6);
+    }
+
+    // Nearest rank, in milliseconds
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(quantile * sorted.length);
+        return sorted[Math.max(0, rank - 1)] / 1e6;
+    }
+
+    public record Summary(Workload workload, long count, long errors, double errorRate, double throughput,
+                          double p50Ms, double p95Ms, double p99Ms, double maxMs) {
+    }
+}
@@ -0,0 +1,7 @@
+package com.michael21.SoundFilter.audio;
+
+public enum AudioEditType {
+    MUTE,
+    TONE,
+    TTS
+}
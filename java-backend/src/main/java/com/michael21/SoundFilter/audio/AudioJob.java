@@ -0,0 +1,79 @@
+package com.michael21.SoundFilter.audio;
+
+import com.michael21.SoundFilter.entity.AbstractEntity;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Tracks an audio operation running in the background, from the moment it is accepted until its
+ * result or error is recorded. Projects and users are referenced by ID so the history outlives them.
+ */
+@Entity
+@Getter
+@NoArgsConstructor
+@Table(indexes = {@Index(columnList = "userId"), @Index(columnList = "projectId, type, status")})
+public class AudioJob extends AbstractEntity {
+    @Column(nullable = false)
+    private Long userId;
+
+    @Column(nullable = false)
+    private Long projectId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private AudioJobType type;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private AudioJobStatus status;
+
+    // JSON of the operation response, transcripts with word timings can be large
+    @Column(columnDefinition = "LONGTEXT")
+    private String result;
+
+    @Column(columnDefinition = "TEXT")
+    private String error;
+
+    private int attempts;
+
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @UpdateTimestamp
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+
+    public AudioJob(Long userId, Long projectId, AudioJobType type) {
+        this.userId = userId;
+        this.projectId = projectId;
+        this.type = type;
+        this.status = AudioJobStatus.ENQUEUED;
+    }
+
+    public void onStarted() {
+        this.status = AudioJobStatus.PROCESSING;
+        this.error = null;
+        this.attempts++;
+    }
+
+    public void onSucceeded(String result) {
+        this.status = AudioJobStatus.SUCCEEDED;
+        this.result = result;
+    }
+
+    public void onRetrying(String error) {
+        this.status = AudioJobStatus.ENQUEUED;
+        this.error = error;
+    }
+
+    public void onFailed(String error) {
+        this.status = AudioJobStatus.FAILED;
+        this.error = error;
+    }
+}
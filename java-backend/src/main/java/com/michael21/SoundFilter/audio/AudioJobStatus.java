@@ -0,0 +1,12 @@
+package com.michael21.SoundFilter.audio;
+
+public enum AudioJobStatus {
+    ENQUEUED,
+    PROCESSING,
+    SUCCEEDED,
+    FAILED;
+
+    public boolean isFinished() {
+        return this == SUCCEEDED || this == FAILED;
+    }
+}
@@ -0,0 +1,13 @@
+package com.michael21.SoundFilter.audio;
+
+public enum AudioJobType {
+    TRANSCRIBE,
+    // Renders the edits of a project after they were saved
+    RENDER,
+    // Edits used to run as jobs, kept so the records of those jobs still load
+    MUTE,
+    REPLACE_WITH_TONE,
+    REPLACE_WITH_TTS,
+    CONVERT_FORMAT,
+    EDITS
+}
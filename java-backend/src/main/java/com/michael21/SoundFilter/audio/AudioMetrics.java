@@ -0,0 +1,149 @@
+package com.michael21.SoundFilter.audio;
+
+import com.michael21.SoundFilter.util.exception.ApiException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Meters of the audio pipeline, scraped from /actuator/prometheus on the management port.
+ * <ul>
+ *     <li>{@code audio.operation.duration} times a whole operation, like a render or a transcription</li>
+ *     <li>{@code audio.stage.duration} times one stage of it, like the S3 download or the Python call</li>
+ *     <li>{@code audio.stage.bytes} sizes the audio a stage read or wrote</li>
+ *     <li>{@code audio.operations.in.flight} counts the operations running right now</li>
+ * </ul>
+ * Timers publish histogram buckets, so percentiles are computed across instances by Prometheus.
+ */
+@Component
+@RequiredArgsConstructor
+public class AudioMetrics {
+    // Formats a project can be converted to, anything else is tagged as other to bound the series
+    private static final Set<String> FORMATS = Set.of("mp3", "wav", "flac", "aac", "ogg", "m4a");
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Times a whole operation and counts it as in flight while it runs.
+     *
+     * @param operation Name of the operation, like render or transcribe
+     * @param call The operation
+     * @return What the operation returned
+     */
+    public <T, E extends Exception> T operation(String operation, Call<T, E> call) throws E {
+        AtomicInteger running = inFlight.computeIfAbsent(operation, this::registerInFlight);
+        running.incrementAndGet();
+        long start = System.nanoTime();
+        String outcome = "error";
+
+        try {
+            T result = call.call();
+            outcome = "success";
+            return result;
+        } catch (ApiException e) {
+            outcome = outcomeOf(e);
+            throw e;
+        } finally {
+            running.decrementAndGet();
+            Timer.builder("audio.operation.duration")
+                    .description("Time to run an audio operation")
+                    .tag("operation", operation)
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .maximumExpectedValue(Duration.ofMinutes(30))
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Times one stage of an operation.
+     *
+     * @param operation Operation the stage belongs to
+     * @param stage Name of the stage, like s3_download or python_api
+     * @param audioFormat Format of the audio the stage works on
+     * @param call The stage
+     * @return What the stage returned
+     */
+    public <T, E extends Exception> T stage(String operation, String stage, String audioFormat,
+                                            Call<T, E> call) throws E {
+        long start = System.nanoTime();
+        String outcome = "error";
+
+        try {
+            T result = call.call();
+            outcome = "success";
+            return result;
+        } catch (ApiException e) {
+            outcome = outcomeOf(e);
+            throw e;
+        } finally {
+            Timer.builder("audio.stage.duration")
+                    .description("Time spent in one stage of an audio operation")
+                    .tag("operation", operation)
+                    .tag("stage", stage)
+                    .tag("format", formatTag(audioFormat))
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .maximumExpectedValue(Duration.ofMinutes(30))
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Records the size of the audio a stage read or wrote.
+     */
+    public void recordBytes(String operation, String stage, String audioFormat, long bytes) {
+        DistributionSummary.builder("audio.stage.bytes")
+                .description("Audio read or written by one stage of an audio operation")
+                .baseUnit("bytes")
+                .tag("operation", operation)
+                .tag("stage", stage)
+                .tag("format", formatTag(audioFormat))
+                .publishPercentileHistogram()
+                .minimumExpectedValue(1024.0)
+                .maximumExpectedValue(4.0 * 1024 * 1024 * 1024)
+                .register(meterRegistry)
+                .record(bytes);
+    }
+
+    private AtomicInteger registerInFlight(String operation) {
+        AtomicInteger running = new AtomicInteger();
+        Gauge.builder("audio.operations.in.flight", running, AtomicInteger::get)
+                .description("Audio operations running right now")
+                .tag("operation", operation)
+                .register(meterRegistry);
+        return running;
+    }
+
+    // Rejected requests are told apart from failures, a spike of them isn't the pipeline being slow
+    private static String outcomeOf(ApiException e) {
+        return e.getStatus() >= 400 && e.getStatus() < 500 ? "client_error" : "error";
+    }
+
+    private static String formatTag(String audioFormat) {
+        if (audioFormat == null) {
+            return "unknown";
+        }
+        String format = audioFormat.toLowerCase(Locale.ROOT);
+        return FORMATS.contains(format) ? format : "other";
+    }
+
+    @FunctionalInterface
+    public interface Call<T, E extends Exception> {
+        T call() throws E;
+    }
+}
@@ -6,15 +6,26 @@ import com.michael21.SoundFilter.util.exception.ApiException;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.core5.http.ConnectionRequestTimeoutException;
 import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.InputStreamResource;
 import org.springframework.http.*;
 import org.springframework.stereotype.Component;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.ResponseExtractor;
 import org.springframework.web.client.RestTemplate;
 import com.michael21.SoundFilter.config.ApplicationProperties;
+import com.michael21.SoundFilter.config.PythonApiProperties;
 
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 @Slf4j
 @Component
@@ -24,6 +35,9 @@ public class AudioUtil {
     private final RestTemplate restTemplate;
     private final ObjectMapper objectMapper;
     private final ApplicationProperties applicationProperties;
+    private final PythonApiProperties pythonApiProperties;
+    // Connections each Python API instance may have in use, callers past them wait for a permit
+    private final Map<String, Semaphore> connectionPermits = new ConcurrentHashMap<>();
 
     public <T> T callPythonApi(
             byte[] audioData,
@@ -32,6 +46,17 @@ public class AudioUtil {
             Map<String, Object> additionalParams,
             Class<T> responseType) {
 
+        return withConnectionPermit(applicationProperties.getBaseUrl(), endpoint,
+                () -> sendPythonApi(audioData, fileName, endpoint, additionalParams, responseType));
+    }
+
+    private <T> T sendPythonApi(
+            byte[] audioData,
+            String fileName,
+            String endpoint,
+            Map<String, Object> additionalParams,
+            Class<T> responseType) {
+
         try {
             log.info("Sending request to Python API endpoint: {}", endpoint);
 
@@ -101,10 +126,152 @@ public class AudioUtil {
                     .build();
         } catch (Exception e) {
             log.error("Error calling Python API: {}", e.getMessage(), e);
-            throw ApiException.builder()
-                    .status(HttpServletResponse.SC_INTERNAL_SERVER_ERROR)
-                    .message("Error calling Python API: " + e.getMessage())
+            throw toApiException(endpoint, e);
+        }
+    }
+
+    /**
+     * Streams audio to the Python API and hands the response body to the extractor,
+     * without holding the request or the response in memory.
+     *
+     * @param audioStream Audio to send, read once
+     * @param contentLength Length of the audio in bytes, or -1 if unknown
+     * @param fileName File name reported for the audio part
+     * @param endpoint Python API endpoint
+     * @param additionalParams Form parameters sent with the audio
+     * @param responseExtractor Consumes the response while the connection is open
+     * @return The value produced by the extractor
+     */
+    public <T> T streamPythonApi(
+            InputStream audioStream,
+            long contentLength,
+            String fileName,
+            String endpoint,
+            Map<String, Object> additionalParams,
+            ResponseExtractor<T> responseExtractor) {
+
+        return streamPythonApi(applicationProperties.getBaseUrl(), audioStream, contentLength, fileName, endpoint,
+                additionalParams, responseExtractor);
+    }
+
+    /**
+     * Streams audio to a specific Python API instance, see {@link #streamPythonApi(InputStream, long, String, String, Map, ResponseExtractor)}.
+     *
+     * @param baseUrl Base URL of the Python API instance
+     */
+    public <T> T streamPythonApi(
+            String baseUrl,
+            InputStream audioStream,
+            long contentLength,
+            String fileName,
+            String endpoint,
+            Map<String, Object> additionalParams,
+            ResponseExtractor<T> responseExtractor) {
+
+        return withConnectionPermit(baseUrl, endpoint, () -> sendStreamingPythonApi(baseUrl, audioStream, contentLength,
+                fileName, endpoint, additionalParams, responseExtractor));
+    }
+
+    private <T> T sendStreamingPythonApi(
+            String baseUrl,
+            InputStream audioStream,
+            long contentLength,
+            String fileName,
+            String endpoint,
+            Map<String, Object> additionalParams,
+            ResponseExtractor<T> responseExtractor) {
+
+        try {
+            log.info("Streaming request to Python API endpoint: {}{}", baseUrl, endpoint);
+
+            MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
+
+            // Reporting the length up front lets the converter write the part without reading the stream twice
+            InputStreamResource resource = new InputStreamResource(audioStream) {
+                @Override
+                public String getFilename() {
+                    return fileName;
+                }
+
+                @Override
+                public long contentLength() {
+                    return contentLength;
+                }
+            };
+            body.add("audio_file", resource);
+
+            if (additionalParams != null) {
+                additionalParams.forEach((key, value) -> body.add(key, value));
+            }
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+
+            HttpEntity<MultiValueMap<String, Object>> requestEntity = new HttpEntity<>(body, headers);
+
+            return restTemplate.execute(
+                    baseUrl + endpoint,
+                    HttpMethod.POST,
+                    restTemplate.httpEntityCallback(requestEntity),
+                    responseExtractor);
+
+        } catch (ApiException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Error streaming to Python API: {}", e.getMessage(), e);
+            throw toApiException(endpoint, e);
+        }
+    }
+
+    /**
+     * Runs a call once a connection to the Python API instance is free. Callers wait here rather than in
+     * the connection pool, which waits for a connection while holding a monitor and would pin every
+     * waiting virtual thread to its carrier.
+     */
+    private <T> T withConnectionPermit(String baseUrl, String endpoint, Supplier<T> call) {
+        Semaphore permits = connectionPermits.computeIfAbsent(baseUrl, url -> new Semaphore(
+                Math.min(pythonApiProperties.getMaxConnectionsPerRoute(), pythonApiProperties.getMaxConnections()), true));
+
+        try {
+            if (!permits.tryAcquire(pythonApiProperties.getConnectionRequestTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                throw noConnectionAvailable(endpoint);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw noConnectionAvailable(endpoint);
+        }
+
+        try {
+            return call.get();
+        } finally {
+            permits.release();
+        }
+    }
+
+    private static ApiException noConnectionAvailable(String endpoint) {
+        return ApiException.builder()
+                .status(HttpServletResponse.SC_SERVICE_UNAVAILABLE)
+                .message("No connection to the Python API available for " + endpoint)
+                .build();
+    }
+
+    private ApiException toApiException(String endpoint, Exception e) {
+        Throwable cause = e instanceof ResourceAccessException ? e.getCause() : e;
+
+        if (cause instanceof ConnectionRequestTimeoutException) {
+            return noConnectionAvailable(endpoint);
+        }
+
+        if (cause instanceof SocketTimeoutException) {
+            return ApiException.builder()
+                    .status(HttpServletResponse.SC_GATEWAY_TIMEOUT)
+                    .message("Python API timed out on " + endpoint)
                     .build();
         }
+
+        return ApiException.builder()
+                .status(HttpServletResponse.SC_INTERNAL_SERVER_ERROR)
+                .message("Error calling Python API: " + e.getMessage())
+                .build();
     }
 }
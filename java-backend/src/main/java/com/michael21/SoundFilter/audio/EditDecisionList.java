@@ -0,0 +1,93 @@
+package com.michael21.SoundFilter.audio;
+
+import com.michael21.SoundFilter.audio.data.AudioEdit;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Turns the edits of a project, in the order they were made, into what is rendered from its source audio.
+ */
+public final class EditDecisionList {
+
+    private EditDecisionList() {
+    }
+
+    /**
+     * Resolves overlaps between edits, a later edit wins over the part of an earlier one it covers.
+     * Speech can't be cut, so an earlier TTS edit touched by a later edit is dropped as a whole.
+     *
+     * @param edits Edits in the order they were made
+     * @return Non-overlapping edits ordered by start time
+     */
+    public static List<AudioEdit> flatten(List<AudioEdit> edits) {
+        List<AudioEdit> visible = new ArrayList<>();
+
+        for (AudioEdit edit : edits) {
+            List<AudioEdit> remaining = new ArrayList<>();
+
+            for (AudioEdit earlier : visible) {
+                if (earlier.getEndTime() <= edit.getStartTime() || earlier.getStartTime() >= edit.getEndTime()) {
+                    remaining.add(earlier);
+                    continue;
+                }
+                if (earlier.getType() == AudioEditType.TTS) {
+                    continue;
+                }
+                if (earlier.getStartTime() < edit.getStartTime()) {
+                    remaining.add(trimmed(earlier, earlier.getStartTime(), edit.getStartTime()));
+                }
+                if (earlier.getEndTime() > edit.getEndTime()) {
+                    remaining.add(trimmed(earlier, edit.getEndTime(), earlier.getEndTime()));
+                }
+            }
+
+            remaining.add(edit);
+            visible = remaining;
+        }
+
+        visible.sort(Comparator.comparingDouble(AudioEdit::getStartTime));
+        return visible;
+    }
+
+    /**
+     * Identifies the audio rendered from a source with some edits, two projects never share one.
+     *
+     * @param sourceAudioUrl URL of the source audio
+     * @param audioFormat Format the audio is rendered to
+     * @param edits Applied edits in the order they were made
+     * @return SHA-256 in hex
+     */
+    public static String hash(String sourceAudioUrl, String audioFormat, List<AudioEdit> edits) {
+        MessageDigest digest = AudioHash.newDigest();
+        update(digest, sourceAudioUrl);
+        update(digest, audioFormat);
+
+        for (AudioEdit edit : edits) {
+            update(digest, edit.getType());
+            update(digest, edit.getStartTime());
+            update(digest, edit.getEndTime());
+            update(digest, edit.getToneFrequency());
+            update(digest, edit.getReplacementText());
+            update(digest, edit.getUseEdgeTts());
+            update(digest, edit.getGender());
+        }
+
+        return AudioHash.toHex(digest);
+    }
+
+    private static AudioEdit trimmed(AudioEdit edit, double startTime, double endTime) {
+        return new AudioEdit(edit.getType(), startTime, endTime, edit.getToneFrequency(), edit.getReplacementText(),
+                edit.getUseEdgeTts(), edit.getGender());
+    }
+
+    private static void update(MessageDigest digest, Object value) {
+        // Fields are separated so shifting text between them changes the hash
+        digest.update(Objects.toString(value, "").getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+}
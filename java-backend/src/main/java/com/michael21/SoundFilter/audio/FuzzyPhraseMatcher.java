@@ -0,0 +1,273 @@
+package com.michael21.SoundFilter.audio;
+
+import com.michael21.SoundFilter.audio.data.TranscriptionResult.WordTimestamp;
+import org.apache.commons.codec.language.DoubleMetaphone;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Banned phrases matched word by word against words Whisper may have misheard. A word of the
+ * transcription stands for a word of the lexicon when they're equal, sound the same by their
+ * Double Metaphone keys, or are a few letters apart. Words of the lexicon are indexed by sound and
+ * in a letter trie searched like a Levenshtein automaton, so a word is never compared with every
+ * word of the lexicon.
+ */
+public final class FuzzyPhraseMatcher {
+    // Whole words are encoded, the default of four letters would make most long words sound alike
+    private static final int MAX_KEY_LENGTH = 16;
+    private static final int ROOT = 0;
+
+    private final List<String> phrases;
+    private final Map<String, Integer> wordIds;
+    private final Map<String, int[]> wordsBySound;
+    private final SpellingTrie wordsBySpelling;
+    private final int maxEditDistance;
+    private final int minFuzzyLength;
+    // Trie of the phrases, a misheard word may continue several partial matches at once
+    private final List<Map<Integer, Integer>> children;
+    private final int[] phraseAt;
+
+    private FuzzyPhraseMatcher(List<String> phrases, Map<String, Integer> wordIds,
+                               Map<String, int[]> wordsBySound, SpellingTrie wordsBySpelling, int maxEditDistance,
+                               int minFuzzyLength, List<Map<Integer, Integer>> children, int[] phraseAt) {
+        this.phrases = phrases;
+        this.wordIds = wordIds;
+        this.wordsBySound = wordsBySound;
+        this.wordsBySpelling = wordsBySpelling;
+        this.maxEditDistance = maxEditDistance;
+        this.minFuzzyLength = minFuzzyLength;
+        this.children = children;
+        this.phraseAt = phraseAt;
+    }
+
+    /**
+     * Compiles a lexicon, words are normalized like those of {@link PhraseMatcher}.
+     *
+     * @param maxEditDistance Letters inserted, removed or replaced for a word to still match
+     * @param minFuzzyLength Words shorter than this only match exactly, short words sound and look like too many others
+     */
+    public static FuzzyPhraseMatcher compile(Collection<String> lexicon, int maxEditDistance, int minFuzzyLength) {
+        List<String> phrases = new ArrayList<>();
+        Map<String, Integer> wordIds = new HashMap<>();
+        List<Map<Integer, Integer>> children = new ArrayList<>();
+        List<Integer> phraseAt = new ArrayList<>();
+        children.add(new HashMap<>());
+        phraseAt.add(-1);
+
+        for (String phrase : lexicon) {
+            List<String> words = PhraseMatcher.tokenize(phrase);
+            if (words.isEmpty()) {
+                continue;
+            }
+
+            int state = ROOT;
+            for (String word : words) {
+                int wordId = wordIds.computeIfAbsent(word, key -> wordIds.size());
+                Integer next = children.get(state).get(wordId);
+                if (next == null) {
+                    next = children.size();
+                    children.get(state).put(wordId, next);
+                    children.add(new HashMap<>());
+                    phraseAt.add(-1);
+                }
+                state = next;
+            }
+
+            if (phraseAt.get(state) < 0) {
+                phraseAt.set(state, phrases.size());
+                phrases.add(phrase.trim());
+            }
+        }
+
+        Map<String, List<Integer>> sounds = new HashMap<>();
+        SpellingTrie wordsBySpelling = new SpellingTrie();
+        for (Map.Entry<String, Integer> entry : wordIds.entrySet()) {
+            if (entry.getKey().length() < minFuzzyLength) {
+                continue;
+            }
+            for (String key : soundKeys(entry.getKey())) {
+                sounds.computeIfAbsent(key, k -> new ArrayList<>()).add(entry.getValue());
+            }
+            wordsBySpelling.add(entry.getKey(), entry.getValue());
+        }
+
+        Map<String, int[]> wordsBySound = new HashMap<>();
+        sounds.forEach((key, ids) -> wordsBySound.put(key, ids.stream().mapToInt(Integer::intValue).toArray()));
+
+        return new FuzzyPhraseMatcher(List.copyOf(phrases), Map.copyOf(wordIds), wordsBySound, wordsBySpelling,
+                maxEditDistance, minFuzzyLength, children, phraseAt.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    public List<String> getPhrases() {
+        return phrases;
+    }
+
+    /**
+     * Finds every phrase whose words each match a word of the transcription, in the order they end.
+     * The lexicon words a transcription word matches are looked up once per distinct word.
+     */
+    public List<PhraseMatcher.Match> find(List<WordTimestamp> words) {
+        List<PhraseMatcher.Match> matches = new ArrayList<>();
+        Map<String, int[]> candidates = new HashMap<>();
+        // Partial matches, as trie states and the index of their first word
+        int[] states = new int[0];
+        int[] firstWords = new int[0];
+
+        for (int i = 0; i < words.size(); i++) {
+            String text = words.get(i).getWord();
+            String word = text == null ? "" : PhraseMatcher.normalize(text);
+            if (word.isEmpty()) {
+                continue;
+            }
+
+            int[] wordCandidates = candidates.computeIfAbsent(word, this::lexiconWords);
+            int[] nextStates = new int[(states.length + 1) * wordCandidates.length];
+            int[] nextFirstWords = new int[nextStates.length];
+            int count = 0;
+
+            for (int partial = -1; partial < states.length; partial++) {
+                // -1 starts a new match at this word
+                int state = partial < 0 ? ROOT : states[partial];
+                int first = partial < 0 ? i : firstWords[partial];
+
+                for (int candidate : wordCandidates) {
+                    Integer next = children.get(state).get(candidate);
+                    if (next == null) {
+                        continue;
+                    }
+
+                    if (phraseAt[next] >= 0) {
+                        int phrase = phraseAt[next];
+                        matches.add(new PhraseMatcher.Match(phrase, phrases.get(phrase), first, i,
+                                words.get(first).getStartTime(), words.get(i).getEndTime()));
+                    }
+                    if (!children.get(next).isEmpty()) {
+                        nextStates[count] = next;
+                        nextFirstWords[count++] = first;
+                    }
+                }
+            }
+
+            states = Arrays.copyOf(nextStates, count);
+            firstWords = Arrays.copyOf(nextFirstWords, count);
+        }
+
+        return matches;
+    }
+
+    private int[] lexiconWords(String word) {
+        TreeSet<Integer> found = new TreeSet<>();
+        Integer exact = wordIds.get(word);
+        if (exact != null) {
+            found.add(exact);
+        }
+
+        if (word.length() >= minFuzzyLength) {
+            for (String key : soundKeys(word)) {
+                for (int id : wordsBySound.getOrDefault(key, new int[0])) {
+                    found.add(id);
+                }
+            }
+            if (maxEditDistance > 0) {
+                wordsBySpelling.search(word, maxEditDistance, found);
+            }
+        }
+
+        return found.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static List<String> soundKeys(String word) {
+        DoubleMetaphone metaphone = new DoubleMetaphone();
+        metaphone.setMaxCodeLen(MAX_KEY_LENGTH);
+
+        String primary = metaphone.doubleMetaphone(word);
+        String alternate = metaphone.doubleMetaphone(word, true);
+        if (primary == null || primary.isEmpty()) {
+            return List.of();
+        }
+        return alternate == null || alternate.isEmpty() || alternate.equals(primary)
+                ? List.of(primary)
+                : List.of(primary, alternate);
+    }
+
+    /**
+     * Words of the lexicon by their letters. A search walks the trie with the rows of the edit distance
+     * table of the word, like a Levenshtein automaton, and leaves a branch as soon as every entry of its
+     * row is past the distance. Only prefixes within the distance are visited, whatever the size of the lexicon.
+     */
+    private static final class SpellingTrie {
+        private final Node root = new Node();
+
+        void add(String word, int id) {
+            Node node = root;
+            for (int i = 0; i < word.length(); i++) {
+                node = node.child(word.charAt(i));
+            }
+            node.id = id;
+        }
+
+        void search(String word, int maxDistance, Collection<Integer> found) {
+            // One row per depth, a branch deeper than the word and the distance can't match
+            int[][] rows = new int[word.length() + maxDistance + 1][word.length() + 1];
+            for (int j = 0; j <= word.length(); j++) {
+                rows[0][j] = j;
+            }
+            search(root, 0, word, rows, maxDistance, found);
+        }
+
+        private void search(Node node, int depth, String word, int[][] rows, int maxDistance, Collection<Integer> found) {
+            if (depth + 1 == rows.length) {
+                return;
+            }
+            int[] previous = rows[depth];
+            int[] row = rows[depth + 1];
+
+            for (int child = 0; child < node.size; child++) {
+                char letter = node.letters[child];
+                row[0] = depth + 1;
+                int closest = row[0];
+                for (int j = 1; j < row.length; j++) {
+                    int replace = previous[j - 1] + (word.charAt(j - 1) == letter ? 0 : 1);
+                    row[j] = Math.min(replace, Math.min(previous[j], row[j - 1]) + 1);
+                    closest = Math.min(closest, row[j]);
+                }
+
+                Node next = node.children[child];
+                if (next.id >= 0 && row[row.length - 1] <= maxDistance) {
+                    found.add(next.id);
+                }
+                if (closest <= maxDistance) {
+                    search(next, depth + 1, word, rows, maxDistance, found);
+                }
+            }
+        }
+
+        private static final class Node {
+            private char[] letters = new char[0];
+            private Node[] children = new Node[0];
+            private int size;
+            private int id = -1;
+
+            private Node child(char letter) {
+                for (int i = 0; i < size; i++) {
+                    if (letters[i] == letter) {
+                        return children[i];
+                    }
+                }
+                if (size == letters.length) {
+                    letters = Arrays.copyOf(letters, Math.max(2, size * 2));
+                    children = Arrays.copyOf(children, letters.length);
+                }
+                letters[size] = letter;
+                children[size] = new Node();
+                return children[size++];
+            }
+        }
+    }
+}
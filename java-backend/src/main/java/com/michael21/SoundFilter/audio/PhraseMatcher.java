@@ -0,0 +1,271 @@
+package com.michael21.SoundFilter.audio;
+
+import com.michael21.SoundFilter.audio.data.TranscriptionResult.WordTimestamp;
+
+import java.text.Normalizer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Banned phrases compiled into an Aho-Corasick automaton over normalized words. A transcription is
+ * scanned word by word in one pass, however many phrases there are, and phrases inside other
+ * phrases are found too.
+ */
+public final class PhraseMatcher {
+    private static final Pattern NOT_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final int ROOT = 0;
+
+    private final List<String> phrases;
+    private final int[] phraseLengths;
+    // Words of the phrases, any other word ends every partial match
+    private final Map<String, Integer> wordIds;
+    // Transitions of each state, sorted by word id for a binary search
+    private final int[][] transitionWords;
+    private final int[][] transitionTargets;
+    private final int[] failure;
+    // Phrase ending in each state or -1, and the closest state down the failure links ending one
+    private final int[] phraseAt;
+    private final int[] nextMatch;
+    private final int maxPhraseLength;
+
+    private PhraseMatcher(List<String> phrases, int[] phraseLengths, Map<String, Integer> wordIds,
+                          int[][] transitionWords, int[][] transitionTargets, int[] failure,
+                          int[] phraseAt, int[] nextMatch, int maxPhraseLength) {
+        this.phrases = phrases;
+        this.phraseLengths = phraseLengths;
+        this.wordIds = wordIds;
+        this.transitionWords = transitionWords;
+        this.transitionTargets = transitionTargets;
+        this.failure = failure;
+        this.phraseAt = phraseAt;
+        this.nextMatch = nextMatch;
+        this.maxPhraseLength = maxPhraseLength;
+    }
+
+    /**
+     * Compiles a lexicon. Phrases are compared word by word after {@link #normalize(String)}, phrases
+     * without any word are ignored and phrases equal after normalization are kept once.
+     */
+    public static PhraseMatcher compile(Collection<String> lexicon) {
+        List<String> phrases = new ArrayList<>();
+        List<Integer> lengths = new ArrayList<>();
+        Map<String, Integer> wordIds = new HashMap<>();
+        List<Map<Integer, Integer>> children = new ArrayList<>();
+        List<Integer> phraseAt = new ArrayList<>();
+        children.add(new HashMap<>());
+        phraseAt.add(-1);
+        int maxPhraseLength = 0;
+
+        for (String phrase : lexicon) {
+            List<String> words = tokenize(phrase);
+            if (words.isEmpty()) {
+                continue;
+            }
+
+            int state = ROOT;
+            for (String word : words) {
+                int wordId = wordIds.computeIfAbsent(word, key -> wordIds.size());
+                Integer next = children.get(state).get(wordId);
+                if (next == null) {
+                    next = children.size();
+                    children.get(state).put(wordId, next);
+                    children.add(new HashMap<>());
+                    phraseAt.add(-1);
+                }
+                state = next;
+            }
+
+            if (phraseAt.get(state) < 0) {
+                phraseAt.set(state, phrases.size());
+                phrases.add(phrase.trim());
+                lengths.add(words.size());
+                maxPhraseLength = Math.max(maxPhraseLength, words.size());
+            }
+        }
+
+        int states = children.size();
+        int[][] transitionWords = new int[states][];
+        int[][] transitionTargets = new int[states][];
+        for (int state = 0; state < states; state++) {
+            int[] words = children.get(state).keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+            int[] targets = new int[words.length];
+            for (int i = 0; i < words.length; i++) {
+                targets[i] = children.get(state).get(words[i]);
+            }
+            transitionWords[state] = words;
+            transitionTargets[state] = targets;
+        }
+
+        int[] phraseStates = phraseAt.stream().mapToInt(Integer::intValue).toArray();
+        int[] failure = new int[states];
+        int[] nextMatch = new int[states];
+
+        // Breadth first, the failure of a state is shorter than the state and already known
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int child : transitionTargets[ROOT]) {
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.remove();
+            for (int i = 0; i < transitionWords[state].length; i++) {
+                int word = transitionWords[state][i];
+                int child = transitionTargets[state][i];
+
+                int fallback = failure[state];
+                while (fallback != ROOT && transition(transitionWords, transitionTargets, fallback, word) < 0) {
+                    fallback = failure[fallback];
+                }
+                int target = transition(transitionWords, transitionTargets, fallback, word);
+                failure[child] = target >= 0 ? target : ROOT;
+                nextMatch[child] = phraseStates[failure[child]] >= 0 ? failure[child] : nextMatch[failure[child]];
+
+                queue.add(child);
+            }
+        }
+
+        return new PhraseMatcher(List.copyOf(phrases), lengths.stream().mapToInt(Integer::intValue).toArray(),
+                Map.copyOf(wordIds), transitionWords, transitionTargets, failure, phraseStates, nextMatch,
+                maxPhraseLength);
+    }
+
+    /**
+     * Lower case letters and digits of a word, without accents. Whisper's leading space, punctuation,
+     * apostrophes and hyphens are dropped, so "Don't," matches "dont".
+     */
+    public static String normalize(String word) {
+        String decomposed = Normalizer.normalize(word, Normalizer.Form.NFKD);
+        return NOT_WORD.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    static List<String> tokenize(String phrase) {
+        List<String> words = new ArrayList<>();
+        for (String part : phrase.trim().split("\\s+")) {
+            String word = normalize(part);
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    public List<String> getPhrases() {
+        return phrases;
+    }
+
+    /**
+     * Finds every occurrence of every phrase, in the order they end. Words that are only punctuation
+     * are skipped, a phrase can't be broken by them.
+     */
+    public List<Match> find(List<WordTimestamp> words) {
+        List<Match> matches = new ArrayList<>();
+        // Indexes of the last words, the first word of a match is looked up by its phrase length
+        int[] recentWords = new int[Math.max(1, maxPhraseLength)];
+        int wordCount = 0;
+        int state = ROOT;
+
+        for (int i = 0; i < words.size(); i++) {
+            String text = words.get(i).getWord();
+            String word = text == null ? "" : normalize(text);
+            if (word.isEmpty()) {
+                continue;
+            }
+            recentWords[wordCount++ % recentWords.length] = i;
+
+            Integer wordId = wordIds.get(word);
+            if (wordId == null) {
+                state = ROOT;
+                continue;
+            }
+            state = next(state, wordId);
+
+            for (int match = phraseAt[state] >= 0 ? state : nextMatch[state]; match != ROOT; match = nextMatch[match]) {
+                int phrase = phraseAt[match];
+                int first = recentWords[(wordCount - phraseLengths[phrase]) % recentWords.length];
+                matches.add(new Match(phrase, phrases.get(phrase), first, i,
+                        words.get(first).getStartTime(), words.get(i).getEndTime()));
+            }
+        }
+
+        return matches;
+    }
+
+    /**
+     * Pads the matches and merges the ones that overlap after padding, ready to be muted or toned.
+     *
+     * @param matches Matches of any matcher, in any order
+     * @param padding Seconds added on both sides, word times of Whisper are only roughly aligned
+     * @return Ranges ordered by time, none of them overlapping
+     */
+    public static List<Range> ranges(List<Match> matches, double padding) {
+        List<Match> ordered = matches.stream().sorted(Comparator.comparingDouble(Match::startTime)).toList();
+        List<Range> ranges = new ArrayList<>();
+
+        double start = 0;
+        double end = -1;
+        Set<String> found = new LinkedHashSet<>();
+        for (Match match : ordered) {
+            double matchStart = Math.max(0, match.startTime() - padding);
+            double matchEnd = match.endTime() + padding;
+
+            if (!found.isEmpty() && matchStart > end) {
+                ranges.add(new Range(start, end, List.copyOf(found)));
+                found.clear();
+            }
+            if (found.isEmpty()) {
+                start = matchStart;
+                end = matchEnd;
+            } else {
+                end = Math.max(end, matchEnd);
+            }
+            found.add(match.phrase());
+        }
+        if (!found.isEmpty()) {
+            ranges.add(new Range(start, end, List.copyOf(found)));
+        }
+
+        return ranges;
+    }
+
+    private int next(int state, int word) {
+        while (true) {
+            int target = transition(transitionWords, transitionTargets, state, word);
+            if (target >= 0) {
+                return target;
+            }
+            if (state == ROOT) {
+                return ROOT;
+            }
+            state = failure[state];
+        }
+    }
+
+    private static int transition(int[][] words, int[][] targets, int state, int word) {
+        int index = Arrays.binarySearch(words[state], word);
+        return index >= 0 ? targets[state][index] : -1;
+    }
+
+    /**
+     * @param phraseIndex Index of the phrase in {@link #getPhrases()}
+     * @param firstWord Index of the first word of the match in the transcription
+     * @param lastWord Index of the last word
+     */
+    public record Match(int phraseIndex, String phrase, int firstWord, int lastWord, double startTime, double endTime) {
+    }
+
+    /**
+     * Span of audio to censor, in seconds, with the phrases found in it.
+     */
+    public record Range(double startTime, double endTime, List<String> phrases) {
+    }
+}
@@ -0,0 +1,56 @@
+package com.michael21.SoundFilter.audio;
+
+import com.michael21.SoundFilter.entity.AbstractEntity;
+import com.michael21.SoundFilter.users.AudioProject;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Audio rendered from the edit list of a project, reused whenever the project gets back to the same edits.
+ */
+@Entity
+@Getter
+@NoArgsConstructor
+@Table(indexes = @Index(columnList = "audio_project_id, editListHash", unique = true))
+public class RenderedAudio extends AbstractEntity {
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "audio_project_id", nullable = false)
+    private AudioProject audioProject;
+
+    @Column(nullable = false, length = 64)
+    private String editListHash;
+
+    @Column(nullable = false)
+    private String audioUrl;
+
+    @Column(nullable = false, length = 64)
+    private String audioHash;
+
+    @Column(nullable = false)
+    private Long fileSize;
+
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    // Renders used least recently are deleted first
+    @Column(nullable = false)
+    private LocalDateTime lastUsedAt;
+
+    public RenderedAudio(AudioProject audioProject, String editListHash, String audioUrl, String audioHash, Long fileSize) {
+        this.audioProject = audioProject;
+        this.editListHash = editListHash;
+        this.audioUrl = audioUrl;
+        this.audioHash = audioHash;
+        this.fileSize = fileSize;
+        this.lastUsedAt = LocalDateTime.now();
+    }
+
+    public void onUsed() {
+        this.lastUsedAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,35 @@
+package com.michael21.SoundFilter.audio;
+
+import com.michael21.SoundFilter.entity.AbstractEntity;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Getter
+@NoArgsConstructor
+@Table(indexes = @Index(columnList = "cacheKey", unique = true))
+public class TranscriptionCacheEntry extends AbstractEntity {
+    @Column(nullable = false, length = 128)
+    private String cacheKey;
+
+    @Column(nullable = false, length = 64)
+    private String audioHash;
+
+    // JSON of the full TranscriptionResult including word timestamps
+    @Column(nullable = false, columnDefinition = "LONGTEXT")
+    private String result;
+
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    public TranscriptionCacheEntry(String cacheKey, String audioHash, String result) {
+        this.cacheKey = cacheKey;
+        this.audioHash = audioHash;
+        this.result = result;
+    }
+}
@@ -0,0 +1,108 @@
+package com.michael21.SoundFilter.audio;
+
+import com.michael21.SoundFilter.audio.data.TranscriptionResult;
+import com.michael21.SoundFilter.audio.data.TranscriptionResult.WordTimestamp;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Piece of a long recording transcribed on its own, in seconds. The chunk is sent with some overlap on
+ * both sides so words at the cuts keep their context, but only the words centred between the cuts are kept.
+ *
+ * @param sendStart Start of the audio sent for the chunk
+ * @param sendEnd End of the audio sent for the chunk
+ * @param keepStart Cut before the chunk
+ * @param keepEnd Cut after the chunk
+ */
+public record TranscriptionChunk(double sendStart, double sendEnd, double keepStart, double keepEnd) {
+
+    /**
+     * Splits the audio at the cuts.
+     *
+     * @param cuts Ascending times to split at
+     * @param duration Length of the audio
+     * @param overlap Audio sent past each cut
+     * @return One chunk more than there are cuts
+     */
+    public static List<TranscriptionChunk> between(List<Double> cuts, double duration, double overlap) {
+        List<TranscriptionChunk> chunks = new ArrayList<>();
+        double previous = 0;
+
+        for (int i = 0; i <= cuts.size(); i++) {
+            double next = i < cuts.size() ? cuts.get(i) : duration;
+            chunks.add(new TranscriptionChunk(Math.max(0, previous - overlap), Math.min(duration, next + overlap),
+                    previous, next));
+            previous = next;
+        }
+
+        return chunks;
+    }
+
+    /**
+     * Moves the words of the chunk onto the timeline of the whole audio, dropping those that belong to a
+     * neighbouring chunk. A word belongs to the chunk its midpoint falls in, so words in the overlap are
+     * kept exactly once.
+     *
+     * @param chunkResult The transcription of the chunk, timed from {@link #sendStart}
+     * @return The kept words in order
+     */
+    public List<WordTimestamp> keptWords(TranscriptionResult chunkResult) {
+        List<WordTimestamp> words = new ArrayList<>();
+
+        for (WordTimestamp word : chunkResult.getWords()) {
+            double start = word.getStartTime() + sendStart;
+            double end = word.getEndTime() + sendStart;
+            double middle = (start + end) / 2;
+
+            if (middle >= keepStart && middle < keepEnd) {
+                WordTimestamp shifted = new WordTimestamp();
+                shifted.setWord(word.getWord());
+                shifted.setStartTime(start);
+                shifted.setEndTime(end);
+                shifted.setProbability(word.getProbability());
+                words.add(shifted);
+            }
+        }
+
+        return words;
+    }
+
+    /**
+     * Joins the transcriptions of all chunks into the transcription of the whole audio.
+     *
+     * @param fileName Name of the transcribed file
+     * @param chunks Chunks in order
+     * @param chunkResults Transcription of every chunk, in the same order
+     * @return The transcription of the whole audio
+     */
+    public static TranscriptionResult merge(String fileName, List<TranscriptionChunk> chunks,
+                                            List<TranscriptionResult> chunkResults) {
+        List<WordTimestamp> words = new ArrayList<>();
+        for (int i = 0; i < chunks.size(); i++) {
+            words.addAll(chunks.get(i).keptWords(chunkResults.get(i)));
+        }
+
+        TranscriptionResult result = new TranscriptionResult();
+        result.setFilename(fileName);
+        // Whisper keeps the leading space of each word
+        result.setTranscript(words.stream().map(WordTimestamp::getWord).collect(Collectors.joining()).trim());
+        result.setWords(words);
+        result.setDetectedLanguage(mostCommon(chunkResults.stream().map(TranscriptionResult::getDetectedLanguage)
+                .filter(Objects::nonNull).toList()));
+        // Chunks run side by side, so the slowest one is the time spent
+        result.setProcessingTime(chunkResults.stream().mapToDouble(TranscriptionResult::getProcessingTime).max().orElse(0));
+
+        return result;
+    }
+
+    private static String mostCommon(Collection<String> values) {
+        Map<String, Long> counts = values.stream().collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+        return counts.entrySet().stream().max(Map.Entry.comparingByValue()).map(Map.Entry::getKey).orElse(null);
+    }
+}
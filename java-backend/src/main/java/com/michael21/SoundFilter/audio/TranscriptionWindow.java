@@ -0,0 +1,107 @@
+package com.michael21.SoundFilter.audio;
+
+import com.michael21.SoundFilter.audio.data.TranscriptionResult;
+import com.michael21.SoundFilter.audio.data.TranscriptionResult.WordTimestamp;
+import com.michael21.SoundFilter.users.EditedRange;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Span of audio transcribed again after edits, in seconds. Words of the previous transcription
+ * outside of the window are kept, the words inside are replaced by those of the window.
+ *
+ * @param startTime Start of the window
+ * @param endTime End of the window, or null to transcribe up to the end of the audio
+ */
+public record TranscriptionWindow(double startTime, Double endTime) {
+
+    /**
+     * Covers all edited ranges with padding on both sides, widened so no word of the previous
+     * transcription is cut in half.
+     *
+     * @param words Words of the previous transcription
+     * @param editedRanges Ranges edited since the previous transcription
+     * @param padding Audio added on both sides so Whisper has context around the edits
+     * @return The window to transcribe again
+     */
+    public static TranscriptionWindow covering(List<WordTimestamp> words, List<EditedRange> editedRanges, double padding) {
+        double start = Double.MAX_VALUE;
+        double end = 0;
+        boolean toTheEnd = false;
+
+        for (EditedRange range : editedRanges) {
+            start = Math.min(start, range.getStartTime());
+            if (range.getEndTime() == null) {
+                toTheEnd = true;
+            } else {
+                end = Math.max(end, range.getEndTime());
+            }
+        }
+
+        start = Math.max(0, start - padding);
+        end = end + padding;
+
+        for (WordTimestamp word : words) {
+            if (word.getStartTime() < start && word.getEndTime() > start) {
+                start = word.getStartTime();
+            }
+            if (word.getStartTime() < end && word.getEndTime() > end) {
+                end = word.getEndTime();
+            }
+        }
+
+        return new TranscriptionWindow(start, toTheEnd ? null : end);
+    }
+
+    public Map<String, Object> toParams() {
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put("start_time", String.valueOf(startTime));
+        if (endTime != null) {
+            params.put("end_time", String.valueOf(endTime));
+        }
+        return params;
+    }
+
+    /**
+     * Replaces the words of the previous transcription inside the window by the words of the window.
+     *
+     * @param previous The previous transcription of the whole audio
+     * @param windowResult The transcription of the window, timed from the start of the window
+     * @return The transcription of the whole audio
+     */
+    public TranscriptionResult splice(TranscriptionResult previous, TranscriptionResult windowResult) {
+        List<WordTimestamp> words = new ArrayList<>();
+
+        for (WordTimestamp word : previous.getWords()) {
+            if (word.getEndTime() <= startTime || (endTime != null && word.getStartTime() >= endTime)) {
+                words.add(word);
+            }
+        }
+
+        for (WordTimestamp word : windowResult.getWords()) {
+            WordTimestamp shifted = new WordTimestamp();
+            shifted.setWord(word.getWord());
+            shifted.setStartTime(word.getStartTime() + startTime);
+            shifted.setEndTime(word.getEndTime() + startTime);
+            shifted.setProbability(word.getProbability());
+            words.add(shifted);
+        }
+
+        words.sort(Comparator.comparingDouble(WordTimestamp::getStartTime));
+
+        TranscriptionResult result = new TranscriptionResult();
+        result.setFilename(windowResult.getFilename());
+        // Whisper keeps the leading space of each word
+        result.setTranscript(words.stream().map(WordTimestamp::getWord).collect(Collectors.joining()).trim());
+        result.setWords(words);
+        result.setDetectedLanguage(previous.getDetectedLanguage());
+        result.setProcessingTime(windowResult.getProcessingTime());
+
+        return result;
+    }
+}
@@ -0,0 +1,339 @@
+package com.michael21.SoundFilter.audio;
+
+import com.michael21.SoundFilter.audio.data.TranscriptionResult.WordTimestamp;
+import com.michael21.SoundFilter.util.VarInt;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Words of a transcription and their times in a compact columnar form, a few bytes per word.
+ * Words are stored once in a table ordered by how often they occur, so frequent words have short ids.
+ * Times are whole milliseconds counted in the step all of them share, Whisper times words to 20 ms.
+ * The words are split into blocks of columns: word ids, the gap from the end of the word before to
+ * the start, the length and optionally the confidence. Blocks are deflated on their own and indexed
+ * by time, a slice only inflates the blocks it overlaps.
+ * <p>
+ * Layout, integers are variable length: the magic bytes, format, flags, time step, word count, the
+ * deflated word table, the block index (words, first start, span to the last end and deflated size of
+ * each block) and the blocks.
+ */
+public final class WordTimeline {
+    private static final byte[] MAGIC = {'W', 'T', 'L'};
+    private static final int FORMAT = 1;
+    private static final int FLAG_CONFIDENCES = 1;
+    private static final int BLOCK_SIZE = 1024;
+
+    private final byte[] data;
+    private final int timeStep;
+    private final int wordCount;
+    private final boolean confidences;
+    private final String[] words;
+    // Block index, times are in steps
+    private final int[] blockWordCounts;
+    private final int[] blockStarts;
+    private final int[] blockEnds;
+    private final int[] blockOffsets;
+    private final int[] blockLengths;
+
+    private WordTimeline(byte[] data, int timeStep, int wordCount, boolean confidences, String[] words,
+                         int[] blockWordCounts, int[] blockStarts, int[] blockEnds, int[] blockOffsets, int[] blockLengths) {
+        this.data = data;
+        this.timeStep = timeStep;
+        this.wordCount = wordCount;
+        this.confidences = confidences;
+        this.words = words;
+        this.blockWordCounts = blockWordCounts;
+        this.blockStarts = blockStarts;
+        this.blockEnds = blockEnds;
+        this.blockOffsets = blockOffsets;
+        this.blockLengths = blockLengths;
+    }
+
+    /**
+     * Encodes the words of a transcription, in the order they were spoken. Confidences are kept to
+     * 1/255 when every word has one, and left out otherwise.
+     */
+    public static byte[] encode(List<WordTimestamp> timestamps) {
+        int count = timestamps.size();
+        String[] texts = new String[count];
+        int[] starts = new int[count];
+        int[] ends = new int[count];
+        boolean confidences = count > 0;
+        int timeStep = 0;
+
+        for (int i = 0; i < count; i++) {
+            WordTimestamp word = timestamps.get(i);
+            texts[i] = word.getWord() == null ? "" : word.getWord();
+            starts[i] = millis(word.getStartTime());
+            ends[i] = Math.max(starts[i], millis(word.getEndTime()));
+            confidences &= word.getProbability() != null;
+            timeStep = gcd(gcd(timeStep, starts[i]), ends[i]);
+        }
+        timeStep = Math.max(1, timeStep);
+
+        // Most frequent words first, ties in the order they're first spoken
+        Map<String, int[]> frequencies = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            int first = i;
+            frequencies.computeIfAbsent(texts[i], text -> new int[]{0, first})[0]++;
+        }
+        List<String> table = frequencies.keySet().stream()
+                .sorted(Comparator.comparingInt((String text) -> -frequencies.get(text)[0])
+                        .thenComparingInt(text -> frequencies.get(text)[1]))
+                .toList();
+        Map<String, Integer> ids = new HashMap<>();
+        ByteArrayOutputStream tableOut = new ByteArrayOutputStream();
+        for (String text : table) {
+            ids.put(text, ids.size());
+            byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+            VarInt.write(tableOut, utf8.length);
+            tableOut.writeBytes(utf8);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(MAGIC);
+        out.write(FORMAT);
+        VarInt.write(out, confidences ? FLAG_CONFIDENCES : 0);
+        VarInt.write(out, timeStep);
+        VarInt.write(out, count);
+        VarInt.write(out, table.size());
+        writeDeflated(out, tableOut.toByteArray());
+
+        List<byte[]> blocks = new ArrayList<>();
+        int blockCount = (count + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        VarInt.write(out, blockCount);
+        int previousStart = 0;
+        for (int block = 0; block < blockCount; block++) {
+            int from = block * BLOCK_SIZE;
+            int to = Math.min(count, from + BLOCK_SIZE);
+            int blockStart = starts[from] / timeStep;
+            int blockEnd = blockStart;
+
+            ByteArrayOutputStream wordIds = new ByteArrayOutputStream();
+            ByteArrayOutputStream gaps = new ByteArrayOutputStream();
+            ByteArrayOutputStream lengths = new ByteArrayOutputStream();
+            ByteArrayOutputStream scores = new ByteArrayOutputStream();
+            int previousEnd = blockStart;
+            for (int i = from; i < to; i++) {
+                int start = starts[i] / timeStep;
+                int end = ends[i] / timeStep;
+                VarInt.write(wordIds, ids.get(texts[i]));
+                VarInt.writeSigned(gaps, start - previousEnd);
+                VarInt.write(lengths, end - start);
+                if (confidences) {
+                    scores.write((int) Math.round(Math.min(1, Math.max(0, timestamps.get(i).getProbability())) * 255));
+                }
+                previousEnd = end;
+                blockEnd = Math.max(blockEnd, end);
+            }
+
+            ByteArrayOutputStream columns = new ByteArrayOutputStream();
+            columns.writeBytes(wordIds.toByteArray());
+            columns.writeBytes(gaps.toByteArray());
+            columns.writeBytes(lengths.toByteArray());
+            columns.writeBytes(scores.toByteArray());
+            byte[] deflated = deflate(columns.toByteArray());
+            blocks.add(deflated);
+
+            VarInt.write(out, to - from);
+            VarInt.writeSigned(out, blockStart - previousStart);
+            VarInt.write(out, blockEnd - blockStart);
+            VarInt.write(out, deflated.length);
+            previousStart = blockStart;
+        }
+        blocks.forEach(out::writeBytes);
+
+        return out.toByteArray();
+    }
+
+    /**
+     * Reads the word table and the block index, blocks are only inflated when a slice needs them.
+     */
+    public static WordTimeline read(byte[] data) {
+        ByteBuffer in = ByteBuffer.wrap(data);
+        byte[] magic = new byte[MAGIC.length];
+        in.get(magic);
+        if (!Arrays.equals(magic, MAGIC) || in.get() != FORMAT) {
+            throw new IllegalArgumentException("Not a word timeline of format " + FORMAT);
+        }
+
+        boolean confidences = (VarInt.read(in) & FLAG_CONFIDENCES) != 0;
+        int timeStep = VarInt.read(in);
+        int wordCount = VarInt.read(in);
+
+        String[] words = new String[VarInt.read(in)];
+        ByteBuffer table = ByteBuffer.wrap(readDeflated(in));
+        for (int i = 0; i < words.length; i++) {
+            byte[] utf8 = new byte[VarInt.read(table)];
+            table.get(utf8);
+            words[i] = new String(utf8, StandardCharsets.UTF_8);
+        }
+
+        int blockCount = VarInt.read(in);
+        int[] blockWordCounts = new int[blockCount];
+        int[] blockStarts = new int[blockCount];
+        int[] blockEnds = new int[blockCount];
+        int[] blockLengths = new int[blockCount];
+        int start = 0;
+        for (int block = 0; block < blockCount; block++) {
+            blockWordCounts[block] = VarInt.read(in);
+            start += VarInt.readSigned(in);
+            blockStarts[block] = start;
+            blockEnds[block] = start + VarInt.read(in);
+            blockLengths[block] = VarInt.read(in);
+        }
+
+        int[] blockOffsets = new int[blockCount];
+        int offset = in.position();
+        for (int block = 0; block < blockCount; block++) {
+            blockOffsets[block] = offset;
+            offset += blockLengths[block];
+        }
+
+        return new WordTimeline(data, timeStep, wordCount, confidences, words,
+                blockWordCounts, blockStarts, blockEnds, blockOffsets, blockLengths);
+    }
+
+    public int getWordCount() {
+        return wordCount;
+    }
+
+    /**
+     * End of the last word, in seconds.
+     */
+    public double getEndTime() {
+        return blockEnds.length == 0 ? 0 : seconds(Arrays.stream(blockEnds).max().getAsInt());
+    }
+
+    public List<WordTimestamp> getWords() {
+        return slice(0, Double.MAX_VALUE);
+    }
+
+    /**
+     * Words spoken at least partly between two times, in seconds.
+     */
+    public List<WordTimestamp> slice(double startTime, double endTime) {
+        List<WordTimestamp> slice = new ArrayList<>();
+        for (int block = 0; block < blockStarts.length; block++) {
+            if (seconds(blockEnds[block]) <= startTime || seconds(blockStarts[block]) >= endTime) {
+                continue;
+            }
+
+            for (WordTimestamp word : decodeBlock(block)) {
+                if (word.getEndTime() > startTime && word.getStartTime() < endTime) {
+                    slice.add(word);
+                }
+            }
+        }
+        return slice;
+    }
+
+    private List<WordTimestamp> decodeBlock(int block) {
+        int count = blockWordCounts[block];
+        ByteBuffer columns = ByteBuffer.wrap(inflate(data, blockOffsets[block], blockLengths[block]));
+        int[] wordIds = new int[count];
+        int[] gaps = new int[count];
+        for (int i = 0; i < count; i++) {
+            wordIds[i] = VarInt.read(columns);
+        }
+        for (int i = 0; i < count; i++) {
+            gaps[i] = VarInt.readSigned(columns);
+        }
+
+        // Each word starts its gap after the end of the word before, the first after the start of the block
+        int[] starts = new int[count];
+        int[] ends = new int[count];
+        int previousEnd = blockStarts[block];
+        for (int i = 0; i < count; i++) {
+            starts[i] = previousEnd + gaps[i];
+            ends[i] = starts[i] + VarInt.read(columns);
+            previousEnd = ends[i];
+        }
+
+        List<WordTimestamp> decoded = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            WordTimestamp word = new WordTimestamp();
+            word.setWord(words[wordIds[i]]);
+            word.setStartTime(seconds(starts[i]));
+            word.setEndTime(seconds(ends[i]));
+            if (confidences) {
+                word.setProbability((columns.get() & 0xFF) / 255.0);
+            }
+            decoded.add(word);
+        }
+        return decoded;
+    }
+
+    private double seconds(int steps) {
+        return (long) steps * timeStep / 1000.0;
+    }
+
+    private static int millis(double seconds) {
+        return (int) Math.round(seconds * 1000);
+    }
+
+    private static int gcd(int a, int b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+
+    private static void writeDeflated(ByteArrayOutputStream out, byte[] bytes) {
+        byte[] deflated = deflate(bytes);
+        VarInt.write(out, deflated.length);
+        out.writeBytes(deflated);
+    }
+
+    private static byte[] readDeflated(ByteBuffer in) {
+        int length = VarInt.read(in);
+        byte[] inflated = inflate(in.array(), in.position(), length);
+        in.position(in.position() + length);
+        return inflated;
+    }
+
+    private static byte[] deflate(byte[] bytes) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 2 + 16);
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] data, int offset, int length) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data, offset, length);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(length * 3);
+            byte[] buffer = new byte[4096];
+            while (!inflater.finished()) {
+                int inflated = inflater.inflate(buffer);
+                if (inflated == 0 && !inflater.finished() && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalArgumentException("Word timeline block is truncated");
+                }
+                out.write(buffer, 0, inflated);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Word timeline block is corrupt", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
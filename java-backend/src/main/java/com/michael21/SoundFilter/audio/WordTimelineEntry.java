@@ -0,0 +1,38 @@
+package com.michael21.SoundFilter.audio;
+
+import com.michael21.SoundFilter.entity.AbstractEntity;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Word timeline of a project version, kept apart from the version so it's only read when words are asked for.
+ */
+@Entity
+@Getter
+@NoArgsConstructor
+public class WordTimelineEntry extends AbstractEntity {
+    @Column(nullable = false)
+    private int wordCount;
+
+    // Encoded by WordTimeline, tens of KB for hours of speech
+    @Lob
+    @Column(nullable = false, length = 16 * 1024 * 1024)
+    private byte[] data;
+
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    public WordTimelineEntry(int wordCount, byte[] data) {
+        this.wordCount = wordCount;
+        this.data = data;
+    }
+
+    public WordTimeline read() {
+        return WordTimeline.read(data);
+    }
+}
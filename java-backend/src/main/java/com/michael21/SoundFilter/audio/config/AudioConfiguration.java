@@ -0,0 +1,45 @@
+package com.michael21.SoundFilter.audio.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.List;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.audio")
+@Setter
+@Getter
+public class AudioConfiguration {
+    // Audio jobs running at once on this instance, the rest wait for a slot
+    private int maxConcurrentJobs = 2;
+    private Duration jobEventsTimeout = Duration.ofMinutes(30);
+    // Identify the Whisper setup of the Python API, part of the transcription cache key
+    private String transcriptionModel = "whisper-tiny";
+    private String transcriptionLanguage = "auto";
+    // Transcriptions kept in memory, older ones are read back from the database
+    private int transcriptionCacheSize = 256;
+    // Audio transcribed again on both sides of an edit, so words next to it get their context back
+    private Duration retranscriptionPadding = Duration.ofSeconds(2);
+    // Long recordings are split at quiet points and the chunks transcribed side by side
+    private boolean chunkedTranscriptionEnabled = true;
+    private Duration transcriptionChunkLength = Duration.ofMinutes(5);
+    private Duration transcriptionChunkOverlap = Duration.ofSeconds(2);
+    // How far a cut may move from the chunk length to land on silence
+    private Duration transcriptionChunkSilenceSearch = Duration.ofSeconds(20);
+    // Compressed audio is decoded to WAV before splitting, which only pays off for long recordings
+    private DataSize chunkedTranscriptionMinCompressedSize = DataSize.ofMegabytes(16);
+    // Renders of earlier edit lists kept per project, so undo and redo don't render again
+    private int renderedVersionsKept = 5;
+    // Frames per bin of the waveform peak levels, from the most to the least detailed
+    private List<Integer> waveformLevels = List.of(256, 1024, 4096);
+    // Audio censored on both sides of a banned phrase, word times of Whisper are only roughly aligned
+    private Duration censorPadding = Duration.ofMillis(150);
+    private int maxCensoredPhrases = 10000;
+    // Fuzzy censoring also takes words that sound alike or are this many letters apart, from this length on
+    private int fuzzyMaxEditDistance = 1;
+    private int fuzzyMinWordLength = 4;
+}
@@ -1,41 +1,86 @@
 package com.michael21.SoundFilter.audio.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.michael21.SoundFilter.audio.AudioJobType;
+import com.michael21.SoundFilter.audio.data.AudioEditsRequest;
+import com.michael21.SoundFilter.audio.data.AudioJobResponse;
 import com.michael21.SoundFilter.audio.data.AudioModificationResponse;
-import com.michael21.SoundFilter.audio.data.TranscriptionResult;
+import com.michael21.SoundFilter.audio.data.AudioProjectVersionResponse;
+import com.michael21.SoundFilter.audio.data.CensorRequest;
+import com.michael21.SoundFilter.audio.data.CensorResponse;
+import com.michael21.SoundFilter.audio.data.RenderedAudioFile;
+import com.michael21.SoundFilter.audio.data.WordTimelineResponse;
+import com.michael21.SoundFilter.audio.jobs.TranscribeAudioJob;
+import com.michael21.SoundFilter.audio.service.AudioJobService;
 import com.michael21.SoundFilter.audio.service.AudioService;
-import com.michael21.SoundFilter.config.ApplicationProperties;
+import com.michael21.SoundFilter.users.AudioProject;
 import com.michael21.SoundFilter.users.User;
 import com.michael21.SoundFilter.util.exception.ApiException;
 import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.List;
+import java.util.Optional;
 
 @Slf4j
 @RestController
 @RequestMapping("/api/audio")
 @RequiredArgsConstructor
 public class AudioController {
+    private final AudioJobService audioJobService;
     private final AudioService audioService;
-    private final ApplicationProperties applicationProperties;
+    private final ObjectMapper objectMapper;
+
+    @GetMapping("/jobs/{job_id}")
+    public ResponseEntity<AudioJobResponse> getJob(
+            @AuthenticationPrincipal User user,
+            @PathVariable Long job_id
+    ) {
+        return ResponseEntity.ok(audioJobService.getJob(user, job_id));
+    }
+
+    @GetMapping(value = "/jobs/{job_id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamJobEvents(
+            @AuthenticationPrincipal User user,
+            @PathVariable Long job_id
+    ) {
+        return audioJobService.subscribe(user, job_id);
+    }
 
     @PostMapping("/{project_id}/transcribe")
-    public ResponseEntity<TranscriptionResult> transcribeAudio(
+    public ResponseEntity<AudioJobResponse> transcribeAudio(
             @AuthenticationPrincipal User user,
             @PathVariable Long project_id
     ) {
         try {
             log.info("Transcribe audio request received - Project ID: {}", project_id);
-            TranscriptionResult result = audioService.transcribeAudio(user, project_id);
-            return ResponseEntity.ok(result);
+            AudioJobResponse job = audioJobService.submit(user, project_id, AudioJobType.TRANSCRIBE,
+                    audioJobId -> new TranscribeAudioJob(audioJobId, project_id));
+            return ResponseEntity.accepted().body(job);
         } catch (ApiException e) {
             log.error("API Exception in transcribe audio: {}", e.getMessage());
             throw e;
@@ -73,8 +118,7 @@ public class AudioController {
                         .build();
             }
 
-            AudioModificationResponse response = audioService.muteAudio(user, project_id, start_time, end_time);
-            return ResponseEntity.ok(response);
+            return rendering(user, project_id, audioService.muteAudio(user, project_id, start_time, end_time));
         } catch (ApiException e) {
             log.error("API Exception in mute audio: {}", e.getMessage());
             throw e;
@@ -121,14 +165,7 @@ public class AudioController {
                         .build();
             }
 
-            AudioModificationResponse response = audioService.replaceWithTone(
-                    user,
-                    project_id,
-                    start_time,
-                    end_time,
-                    tone_frequency
-            );
-            return ResponseEntity.ok(response);
+            return rendering(user, project_id, audioService.replaceWithTone(user, project_id, start_time, end_time, tone_frequency));
         } catch (ApiException e) {
             log.error("API Exception in replace with tone: {}", e.getMessage());
             throw e;
@@ -147,7 +184,7 @@ public class AudioController {
             @PathVariable Long project_id,
             @RequestParam("start_time") Double start_time,
             @RequestParam("replacement_text") String replacement_text,
-            @RequestParam(value = "end_time", required = false) Double end_time,
+            @RequestParam("end_time") Double end_time,
             @RequestParam(value = "use_edge_tts", required = false, defaultValue = "false") Boolean use_edge_tts,
             @RequestParam(value = "gender", required = false) String gender,
             @RequestParam(value = "output_format", required = false) String output_format
@@ -156,10 +193,11 @@ public class AudioController {
             log.info("Replace with TTS request received - Project ID: {}, Start Time: {}, End Time: {}, Text: {}",
                     project_id, start_time, end_time, replacement_text);
 
-            if (start_time == null) {
+            // Speech of any length would shift the audio after it, and every later edit with it
+            if (start_time == null || end_time == null) {
                 throw ApiException.builder()
                         .status(HttpServletResponse.SC_BAD_REQUEST)
-                        .message("Start time is required")
+                        .message("Start time and end time are required")
                         .build();
             }
 
@@ -170,24 +208,15 @@ public class AudioController {
                         .build();
             }
 
-            if (end_time != null && start_time >= end_time) {
+            if (start_time >= end_time) {
                 throw ApiException.builder()
                         .status(HttpServletResponse.SC_BAD_REQUEST)
                         .message("Start time must be less than end time")
                         .build();
             }
 
-            AudioModificationResponse response = audioService.replaceWithTts(
-                    user,
-                    project_id,
-                    start_time,
-                    replacement_text,
-                    end_time,
-                    use_edge_tts,
-                    gender,
-                    output_format
-            );
-            return ResponseEntity.ok(response);
+            return rendering(user, project_id, audioService.replaceWithTts(user, project_id, start_time, replacement_text,
+                    end_time, use_edge_tts, gender, output_format));
         } catch (ApiException e) {
             log.error("API Exception in replace with TTS: {}", e.getMessage());
             throw e;
@@ -200,6 +229,35 @@ public class AudioController {
         }
     }
 
+    @PostMapping("/{project_id}/edits")
+    public ResponseEntity<AudioModificationResponse> applyEdits(
+            @AuthenticationPrincipal User user,
+            @PathVariable Long project_id,
+            @Valid @RequestBody AudioEditsRequest request
+    ) {
+        log.info("Apply edits request received - Project ID: {}, Edits: {}", project_id, request.getEdits().size());
+
+        audioService.validateEdits(request.getEdits());
+
+        return rendering(user, project_id, audioService.applyEdits(user, project_id, request.getEdits()));
+    }
+
+    /**
+     * Mutes or tones the banned phrases wherever the transcription has them.
+     */
+    @PostMapping("/{project_id}/censor")
+    public ResponseEntity<CensorResponse> censorPhrases(
+            @AuthenticationPrincipal User user,
+            @PathVariable Long project_id,
+            @Valid @RequestBody CensorRequest request
+    ) {
+        log.info("Censor request received - Project ID: {}, Phrases: {}, Fuzzy: {}, Dry run: {}",
+                project_id, request.getPhrases().size(), request.isFuzzy(), request.isDryRun());
+
+        CensorResponse response = audioService.censorPhrases(user, project_id, request);
+        return request.isDryRun() ? ResponseEntity.ok(response) : rendering(user, project_id, response);
+    }
+
     @PostMapping("/{project_id}/convert-format")
     public ResponseEntity<AudioModificationResponse> convertAudioFormat(
             @AuthenticationPrincipal User user,
@@ -226,8 +284,7 @@ public class AudioController {
                         .build();
             }
 
-            AudioModificationResponse response = audioService.convertAudioFormat(user, project_id, target_format);
-            return ResponseEntity.ok(response);
+            return rendering(user, project_id, audioService.convertAudioFormat(user, project_id, target_format));
         } catch (ApiException e) {
             log.error("API Exception in convert audio format: {}", e.getMessage());
             throw e;
@@ -239,4 +296,181 @@ public class AudioController {
                     .build();
         }
     }
+
+    @PostMapping("/{project_id}/undo")
+    public ResponseEntity<AudioModificationResponse> undo(
+            @AuthenticationPrincipal User user,
+            @PathVariable Long project_id
+    ) {
+        return rendering(user, project_id, audioService.undo(user, project_id));
+    }
+
+    @PostMapping("/{project_id}/redo")
+    public ResponseEntity<AudioModificationResponse> redo(
+            @AuthenticationPrincipal User user,
+            @PathVariable Long project_id
+    ) {
+        return rendering(user, project_id, audioService.redo(user, project_id));
+    }
+
+    @GetMapping("/{project_id}/versions")
+    public ResponseEntity<List<AudioProjectVersionResponse>> getVersions(
+            @AuthenticationPrincipal User user,
+            @PathVariable Long project_id
+    ) {
+        return ResponseEntity.ok(audioService.getVersions(user, project_id));
+    }
+
+    @PostMapping("/{project_id}/versions/{version_number}/restore")
+    public ResponseEntity<AudioModificationResponse> restoreVersion(
+            @AuthenticationPrincipal User user,
+            @PathVariable Long project_id,
+            @PathVariable Integer version_number
+    ) {
+        return rendering(user, project_id, audioService.restoreVersion(user, project_id, version_number));
+    }
+
+    @GetMapping("/{project_id}/words")
+    public ResponseEntity<WordTimelineResponse> getWords(
+            @AuthenticationPrincipal User user,
+            @PathVariable Long project_id,
+            @RequestParam(value = "version", required = false) Integer version,
+            @RequestParam(value = "start_time", defaultValue = "0") Double start_time,
+            @RequestParam(value = "end_time", required = false) Double end_time
+    ) {
+        return ResponseEntity.ok(audioService.getWords(user, project_id, version, start_time, end_time));
+    }
+
+    /**
+     * Serves the audio with byte ranges, so players seek without downloading everything before the position.
+     * Audio of edits that are still being rendered is answered with the render job.
+     */
+    @GetMapping("/{project_id}/stream")
+    public ResponseEntity<StreamingResponseBody> streamAudio(
+            @AuthenticationPrincipal User user,
+            @PathVariable Long project_id,
+            @RequestParam(value = "v", required = false) String v,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+            @RequestHeader(value = HttpHeaders.IF_RANGE, required = false) String ifRange,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+    ) {
+        Optional<RenderedAudioFile> rendered = audioService.findRenderedAudio(user, project_id);
+        if (rendered.isEmpty()) {
+            return streamRenderPending(user, project_id);
+        }
+        RenderedAudioFile audio = rendered.get();
+        String eTag = "\"" + audio.editListHash() + "\"";
+
+        CacheControl cacheControl = cacheControl(audio, v);
+
+        if (ifNoneMatch != null && (ifNoneMatch.trim().equals("*") || List.of(ifNoneMatch.split("\\s*,\\s*")).contains(eTag))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).cacheControl(cacheControl).build();
+        }
+
+        long size = audioService.getAudioSize(audio);
+        long start = 0;
+        long length = size;
+        boolean partial = false;
+
+        // A range of a different version than the client holds would corrupt its copy, it gets the whole audio
+        if (range != null && (ifRange == null || ifRange.equals(eTag))) {
+            try {
+                List<HttpRange> ranges = HttpRange.parseRanges(range);
+                // Players ask for one range at a time, several are answered with the whole audio
+                if (ranges.size() == 1) {
+                    start = ranges.get(0).getRangeStart(size);
+                    if (start >= size) {
+                        throw new IllegalArgumentException("Range starts after the end of the audio");
+                    }
+                    length = ranges.get(0).getRangeEnd(size) - start + 1;
+                    partial = true;
+                }
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                        .header(HttpHeaders.CONTENT_RANGE, "bytes */" + size)
+                        .build();
+            }
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(partial ? HttpStatus.PARTIAL_CONTENT : HttpStatus.OK)
+                .contentType(MediaTypeFactory.getMediaType(audio.fileName()).orElse(MediaType.APPLICATION_OCTET_STREAM))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.inline()
+                        .filename(audio.fileName(), StandardCharsets.UTF_8).build().toString())
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .eTag(eTag)
+                .cacheControl(cacheControl)
+                .contentLength(length);
+
+        if (partial) {
+            response.header(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + (start + length - 1) + "/" + size);
+        }
+
+        long rangeStart = start;
+        long rangeLength = length;
+        return response.body(target -> audioService.streamAudio(audio, rangeStart, rangeLength, target));
+    }
+
+    @GetMapping("/{project_id}/peaks")
+    public ResponseEntity<?> getWaveformPeaks(
+            @AuthenticationPrincipal User user,
+            @PathVariable Long project_id,
+            @RequestParam(value = "level", defaultValue = "1024") Integer level,
+            @RequestParam(value = "v", required = false) String v
+    ) throws IOException {
+        Optional<RenderedAudioFile> rendered = audioService.findRenderedAudio(user, project_id);
+        if (rendered.isEmpty()) {
+            return renderPending(user, project_id);
+        }
+        RenderedAudioFile audio = rendered.get();
+        byte[] peaks = audioService.getWaveformPeaks(user, audio, level);
+
+        CacheControl cacheControl = cacheControl(audio, v);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .eTag("\"" + audio.editListHash() + "-" + level + "\"")
+                .cacheControl(cacheControl)
+                .body(peaks);
+    }
+
+    /**
+     * Edits are rendered by a background job once they're saved, so requests never wait for a render.
+     */
+    private <T> ResponseEntity<T> rendering(User user, Long projectId, T response) {
+        audioJobService.render(user, projectId);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Answers for audio that isn't rendered yet with the job rendering it, like a transcription request.
+     */
+    private ResponseEntity<AudioJobResponse> renderPending(User user, Long projectId) {
+        // Players ask for audio, the job is sent as JSON all the same
+        return ResponseEntity.accepted()
+                .contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(CacheControl.noStore())
+                .body(audioJobService.render(user, projectId));
+    }
+
+    /**
+     * Streamed responses only take a streamed body, the job is written to it as JSON.
+     */
+    private ResponseEntity<StreamingResponseBody> streamRenderPending(User user, Long projectId) {
+        ResponseEntity<AudioJobResponse> pending = renderPending(user, projectId);
+        AudioJobResponse job = pending.getBody();
+        return new ResponseEntity<>(target -> target.write(objectMapper.writeValueAsBytes(job)), pending.getHeaders(),
+                pending.getStatusCode());
+    }
+
+    /**
+     * The audio of a version never changes, so it's cached for good when the URL names that version.
+     * A shorter version than the playback URL has could name several, so it's only revalidated.
+     */
+    private static CacheControl cacheControl(RenderedAudioFile audio, String v) {
+        boolean versioned = v != null && v.length() >= AudioProject.PLAYBACK_VERSION_LENGTH
+                && audio.editListHash().startsWith(v);
+        return versioned
+                ? CacheControl.maxAge(Duration.ofDays(365)).cachePrivate().immutable()
+                : CacheControl.noCache();
+    }
 }
@@ -0,0 +1,31 @@
+package com.michael21.SoundFilter.audio.data;
+
+import com.michael21.SoundFilter.audio.AudioEditType;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class AudioEdit {
+    @NotNull
+    private AudioEditType type;
+
+    @NotNull
+    @PositiveOrZero
+    private Double startTime;
+
+    @NotNull
+    private Double endTime;
+
+    // Tone edits only
+    private Integer toneFrequency;
+
+    // TTS edits only
+    private String replacementText;
+    private Boolean useEdgeTts;
+    private String gender;
+}
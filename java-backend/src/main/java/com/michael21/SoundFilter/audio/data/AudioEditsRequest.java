@@ -0,0 +1,13 @@
+package com.michael21.SoundFilter.audio.data;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class AudioEditsRequest {
+    @NotEmpty(message = "At least one edit is required")
+    private List<@Valid AudioEdit> edits;
+}
@@ -0,0 +1,15 @@
+package com.michael21.SoundFilter.audio.data;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.michael21.SoundFilter.audio.AudioJobStatus;
+import com.michael21.SoundFilter.audio.AudioJobType;
+
+import java.time.LocalDateTime;
+
+/**
+ * State of an audio job. The result holds the operation response once the job succeeded:
+ * an {@link AudioModificationResponse}, or a {@link TranscriptionResult} for transcriptions.
+ */
+public record AudioJobResponse(long jobId, Long projectId, AudioJobType type, AudioJobStatus status,
+                               JsonNode result, String error, LocalDateTime createdAt, LocalDateTime updatedAt) {
+}
@@ -0,0 +1,9 @@
+package com.michael21.SoundFilter.audio.data;
+
+import com.michael21.SoundFilter.users.AudioProjectChange;
+
+import java.time.LocalDateTime;
+
+public record AudioProjectVersionResponse(int versionNumber, AudioProjectChange change, String audioFormat,
+                                          int editCount, LocalDateTime createdAt, boolean current) {
+}
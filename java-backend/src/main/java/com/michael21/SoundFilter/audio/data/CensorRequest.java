@@ -0,0 +1,37 @@
+package com.michael21.SoundFilter.audio.data;
+
+import com.michael21.SoundFilter.audio.AudioEditType;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class CensorRequest {
+    @NotEmpty(message = "At least one phrase is required")
+    private List<String> phrases;
+
+    // MUTE or TONE
+    private AudioEditType type = AudioEditType.MUTE;
+
+    // Tone edits only
+    private Integer toneFrequency;
+
+    // Seconds on both sides of a phrase, the configured padding if not given
+    @PositiveOrZero
+    private Double padding;
+
+    // Also match words Whisper may have misheard, by sound or spelling
+    private boolean fuzzy;
+
+    // Letters apart a misheard word may be, the configured distance if not given
+    @Min(0)
+    @Max(3)
+    private Integer maxEditDistance;
+
+    // Only find the phrases, without adding the edits
+    private boolean dryRun;
+}
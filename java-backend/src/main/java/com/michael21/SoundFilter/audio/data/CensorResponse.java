@@ -0,0 +1,12 @@
+package com.michael21.SoundFilter.audio.data;
+
+import com.michael21.SoundFilter.audio.PhraseMatcher;
+
+import java.util.List;
+
+/**
+ * Spans of the audio where banned phrases were found. The audio URL is the one to play once they're censored,
+ * unchanged for a dry run or when nothing was found.
+ */
+public record CensorResponse(Long projectId, String audioUrl, List<PhraseMatcher.Range> ranges) {
+}
@@ -0,0 +1,14 @@
+package com.michael21.SoundFilter.audio.data;
+
+/**
+ * Audio of a project matching its edit list.
+ *
+ * @param filePath S3 key of the audio
+ * @param fileName Name to download the audio as
+ * @param fileSize Length of the audio in bytes, null if unknown
+ * @param audioFormat The audio format (file extension)
+ * @param editListHash Hash of the edit list the audio was rendered from
+ */
+public record RenderedAudioFile(String filePath, String fileName, Long fileSize, String audioFormat,
+                                String editListHash) {
+}
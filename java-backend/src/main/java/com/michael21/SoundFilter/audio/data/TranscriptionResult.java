@@ -25,5 +25,8 @@ public class TranscriptionResult {
 
         @JsonProperty("end_time")
         private double endTime;
+
+        // Confidence of Whisper in the word from 0 to 1, missing from transcriptions made before it was kept
+        private Double probability;
     }
 }
\ No newline at end of file
@@ -0,0 +1,11 @@
+package com.michael21.SoundFilter.audio.data;
+
+import com.michael21.SoundFilter.audio.data.TranscriptionResult.WordTimestamp;
+
+import java.util.List;
+
+/**
+ * Words of a project version spoken between two times, out of all its words.
+ */
+public record WordTimelineResponse(Long projectId, int versionNumber, int wordCount, List<WordTimestamp> words) {
+}
@@ -0,0 +1,23 @@
+package com.michael21.SoundFilter.audio.jobs;
+
+import com.michael21.SoundFilter.audio.jobs.handlers.ComputeWaveformPeaksJobHandler;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.jobrunr.jobs.lambdas.JobRequest;
+import org.jobrunr.jobs.lambdas.JobRequestHandler;
+
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class ComputeWaveformPeaksJob implements JobRequest {
+    private Long userId;
+    private String editListHash;
+    private String audioFilePath;
+    private String audioFormat;
+
+    @Override
+    public Class<? extends JobRequestHandler> getJobRequestHandler() {
+        return ComputeWaveformPeaksJobHandler.class;
+    }
+}
@@ -0,0 +1,21 @@
+package com.michael21.SoundFilter.audio.jobs;
+
+import com.michael21.SoundFilter.audio.jobs.handlers.TranscribeAudioJobHandler;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.jobrunr.jobs.lambdas.JobRequest;
+import org.jobrunr.jobs.lambdas.JobRequestHandler;
+
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class TranscribeAudioJob implements JobRequest {
+    private Long audioJobId;
+    private Long projectId;
+
+    @Override
+    public Class<? extends JobRequestHandler> getJobRequestHandler() {
+        return TranscribeAudioJobHandler.class;
+    }
+}
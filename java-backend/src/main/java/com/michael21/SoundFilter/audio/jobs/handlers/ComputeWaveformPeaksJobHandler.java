@@ -0,0 +1,23 @@
+package com.michael21.SoundFilter.audio.jobs.handlers;
+
+import com.michael21.SoundFilter.audio.jobs.ComputeWaveformPeaksJob;
+import com.michael21.SoundFilter.audio.service.WaveformService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.jobrunr.jobs.annotations.Job;
+import org.jobrunr.jobs.lambdas.JobRequestHandler;
+import org.springframework.stereotype.Component;
+
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class ComputeWaveformPeaksJobHandler implements JobRequestHandler<ComputeWaveformPeaksJob> {
+    private final WaveformService waveformService;
+
+    @Override
+    @Job(name = "Compute waveform peaks", retries = 2)
+    public void run(ComputeWaveformPeaksJob job) throws Exception {
+        log.info("Computing waveform peaks of {}", job.getAudioFilePath());
+        waveformService.computePeaks(job.getUserId(), job.getEditListHash(), job.getAudioFilePath(), job.getAudioFormat());
+    }
+}
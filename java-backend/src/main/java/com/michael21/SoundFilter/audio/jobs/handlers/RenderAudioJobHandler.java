@@ -0,0 +1,32 @@
+package com.michael21.SoundFilter.audio.jobs.handlers;
+
+import com.michael21.SoundFilter.audio.data.AudioModificationResponse;
+import com.michael21.SoundFilter.audio.data.RenderedAudioFile;
+import com.michael21.SoundFilter.audio.jobs.RenderAudioJob;
+import com.michael21.SoundFilter.audio.service.AudioJobService;
+import com.michael21.SoundFilter.audio.service.AudioService;
+import com.michael21.SoundFilter.users.AudioProject;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.jobrunr.jobs.annotations.Job;
+import org.jobrunr.jobs.lambdas.JobRequestHandler;
+import org.springframework.stereotype.Component;
+
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class RenderAudioJobHandler implements JobRequestHandler<RenderAudioJob> {
+    private final AudioJobService audioJobService;
+    private final AudioService audioService;
+
+    @Override
+    @Job(name = "Render audio", retries = AudioJobService.RETRIES)
+    public void run(RenderAudioJob job) throws Exception {
+        log.info("Rendering audio of project {} for audio job {}", job.getProjectId(), job.getAudioJobId());
+        audioJobService.run(job.getAudioJobId(), user -> {
+            RenderedAudioFile audio = audioService.renderAudio(user, job.getProjectId());
+            return new AudioModificationResponse(job.getProjectId(),
+                    AudioProject.playbackUrl(job.getProjectId(), audio.editListHash(), null, null));
+        });
+    }
+}
@@ -0,0 +1,28 @@
+package com.michael21.SoundFilter.audio.jobs.handlers;
+
+import com.michael21.SoundFilter.audio.jobs.TranscribeAudioJob;
+import com.michael21.SoundFilter.audio.service.AudioJobService;
+import com.michael21.SoundFilter.audio.service.AudioService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.jobrunr.jobs.annotations.Job;
+import org.jobrunr.jobs.lambdas.JobRequestHandler;
+import org.springframework.stereotype.Component;
+
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class TranscribeAudioJobHandler implements JobRequestHandler<TranscribeAudioJob> {
+    private final AudioJobService audioJobService;
+    private final AudioService audioService;
+
+    @Override
+    @Job(name = "Transcribe audio", retries = AudioJobService.RETRIES)
+    public void run(TranscribeAudioJob job) throws Exception {
+        log.info("Transcribing audio of project {} for audio job {}", job.getProjectId(), job.getAudioJobId());
+        audioJobService.run(job.getAudioJobId(), user -> {
+            audioService.renderAudio(user, job.getProjectId());
+            return audioService.transcribeAudio(user, job.getProjectId());
+        });
+    }
+}
@@ -0,0 +1,20 @@
+package com.michael21.SoundFilter.audio.processor;
+
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+
+/**
+ * Encoded audio read once from its source.
+ *
+ * @param stream The audio content
+ * @param contentLength Length of the content in bytes, or -1 if unknown
+ * @param fileName Name of the audio file
+ * @param audioFormat The audio format (file extension)
+ * @param channel The same content for reads by position, which leave the stream alone, or null if it's only streamed
+ */
+public record AudioInput(InputStream stream, long contentLength, String fileName, String audioFormat,
+                         FileChannel channel) {
+    public AudioInput(InputStream stream, long contentLength, String fileName, String audioFormat) {
+        this(stream, contentLength, fileName, audioFormat, null);
+    }
+}
@@ -0,0 +1,42 @@
+package com.michael21.SoundFilter.audio.processor;
+
+import com.michael21.SoundFilter.audio.data.AudioEdit;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Applies range edits to encoded audio, streaming it from the source to the target.
+ * Implementations are consulted in {@link org.springframework.core.annotation.Order} order
+ * and the first one that supports the audio performs the edit.
+ */
+public interface AudioProcessor {
+    /**
+     * Checks whether this processor can edit the given audio.
+     *
+     * @param audioFormat The project audio format (file extension)
+     * @param headerPrefix The first bytes of the encoded audio
+     * @return true if the audio can be edited by this processor
+     */
+    boolean supports(String audioFormat, byte[] headerPrefix);
+
+    /**
+     * Checks whether this processor can apply every one of the given edits.
+     *
+     * @param edits Edits about to be applied
+     * @return true if {@link #applyEdits} accepts the edits
+     */
+    default boolean canApply(List<AudioEdit> edits) {
+        return true;
+    }
+
+    /**
+     * Applies non-overlapping edits in a single pass over the audio.
+     *
+     * @param source The audio to edit
+     * @param target Receives the edited audio
+     * @param edits Non-overlapping edits ordered by start time
+     */
+    void applyEdits(AudioInput source, OutputStream target, List<AudioEdit> edits) throws IOException;
+}
@@ -0,0 +1,255 @@
+package com.michael21.SoundFilter.audio.processor;
+
+import com.michael21.SoundFilter.audio.AudioEditType;
+import com.michael21.SoundFilter.audio.data.AudioEdit;
+import com.michael21.SoundFilter.util.exception.ApiException;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Edits uncompressed WAV audio inside the JVM, writing silence or a sine tone into the sample
+ * ranges while the audio streams through a fixed-size block buffer. Tones are matched to the loudness
+ * of the audio they replace, which is measured up front through the channel of the source.
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class PcmAudioProcessor implements AudioProcessor {
+    private static final int BLOCK_FRAMES = 4096;
+    private static final double MAX_FADE_SECONDS = 0.05;
+    private static final RangeEditor MUTE = (header, block, offset, rangeFrame, rangeFrames, frameCount, samples) ->
+            Arrays.fill(block, offset, offset + frameCount * header.blockAlign(), PcmCodec.silence(header));
+
+    @Override
+    public boolean supports(String audioFormat, byte[] headerPrefix) {
+        return "wav".equalsIgnoreCase(audioFormat) && WavHeader.parse(headerPrefix).isPresent();
+    }
+
+    @Override
+    public boolean canApply(List<AudioEdit> edits) {
+        // Speech synthesis only exists in the Python API
+        return edits.stream().noneMatch(edit -> edit.getType() == AudioEditType.TTS);
+    }
+
+    @Override
+    public void applyEdits(AudioInput source, OutputStream target, List<AudioEdit> edits) throws IOException {
+        List<FrameEdit> frameEdits = edit(source, target, (header, dataOffset) -> {
+            List<FrameEdit> result = new ArrayList<>(edits.size());
+            for (AudioEdit edit : edits) {
+                long[] range = frameRange(header, edit.getStartTime(), edit.getEndTime());
+                result.add(new FrameEdit(range, edit.getType() == AudioEditType.MUTE
+                        ? MUTE
+                        : toneWriter(source, header, dataOffset, range, edit.getToneFrequency())));
+            }
+            return result;
+        });
+
+        log.info("Applied {} edits to {}", frameEdits.size(), source.fileName());
+    }
+
+    /**
+     * Copies the audio to the target block by block, letting the editors rewrite the blocks overlapping their ranges.
+     *
+     * @param frameEdits Creates the edits from the header of the audio, ordered by frame and not overlapping
+     * @return The applied edits
+     */
+    private List<FrameEdit> edit(AudioInput source, OutputStream target, FrameEdits frameEdits) throws IOException {
+        InputStream in = source.stream();
+        byte[] headerBytes = WavHeader.readHeaderBytes(in);
+        WavHeader header = (headerBytes == null ? null : WavHeader.parseStreamed(headerBytes).orElse(null));
+
+        if (header == null) {
+            throw ApiException.builder()
+                    .status(HttpServletResponse.SC_BAD_REQUEST)
+                    .message("Audio is not an uncompressed WAV file")
+                    .build();
+        }
+
+        List<FrameEdit> edits = frameEdits.create(header, headerBytes.length);
+        target.write(headerBytes);
+
+        int blockAlign = header.blockAlign();
+        byte[] block = new byte[BLOCK_FRAMES * blockAlign];
+        float[] samples = new float[BLOCK_FRAMES * header.channels()];
+        long totalFrames = header.frameCount();
+        long frame = 0;
+        int firstEdit = 0;
+
+        while (frame < totalFrames) {
+            int wanted = (int) Math.min(BLOCK_FRAMES, totalFrames - frame) * blockAlign;
+            int read = in.readNBytes(block, 0, wanted);
+            int blockFrames = read / blockAlign;
+
+            // Edits are ordered, so the ones ending before this block are never needed again
+            while (firstEdit < edits.size() && edits.get(firstEdit).to() <= frame) {
+                firstEdit++;
+            }
+
+            for (int i = firstEdit; i < edits.size() && edits.get(i).from() < frame + blockFrames; i++) {
+                FrameEdit edit = edits.get(i);
+                long from = Math.max(frame, edit.from());
+                long to = Math.min(frame + blockFrames, edit.to());
+                if (from < to) {
+                    edit.editor().edit(header, block, (int) (from - frame) * blockAlign, from - edit.from(),
+                            edit.to() - edit.from(), (int) (to - from), samples);
+                }
+            }
+
+            target.write(block, 0, read);
+            frame += blockFrames;
+
+            if (read < wanted) {
+                break;
+            }
+        }
+
+        // Trailing chunks such as LIST metadata are passed through untouched
+        in.transferTo(target);
+
+        return edits;
+    }
+
+    /**
+     * Creates the writer of a tone as loud as the whole range it replaces. Measuring first keeps the level
+     * constant across blocks, the channel is read by position so the streamed copy isn't disturbed.
+     *
+     * @param dataOffset Byte offset of the first frame in the source
+     */
+    private static ToneWriter toneWriter(AudioInput source, WavHeader header, long dataOffset, long[] range,
+                                         int toneFrequency) throws IOException {
+        if (source.channel() == null) {
+            throw new IllegalArgumentException("Tones need a seekable source to measure its loudness");
+        }
+
+        int blockAlign = header.blockAlign();
+        ByteBuffer block = ByteBuffer.allocate(BLOCK_FRAMES * blockAlign);
+        float[] samples = new float[BLOCK_FRAMES * header.channels()];
+        double sumOfSquares = 0;
+        long sampleCount = 0;
+
+        for (long frame = range[0]; frame < range[1]; ) {
+            int frames = (int) Math.min(BLOCK_FRAMES, range[1] - frame);
+            block.clear().limit(frames * blockAlign);
+            long position = dataOffset + frame * blockAlign;
+            while (block.hasRemaining()) {
+                if (source.channel().read(block, position + block.position()) < 0) {
+                    break;
+                }
+            }
+
+            int read = block.position() / blockAlign;
+            PcmCodec.decode(block.array(), 0, read, header, samples);
+            for (int i = 0; i < read * header.channels(); i++) {
+                sumOfSquares += samples[i] * samples[i];
+            }
+            sampleCount += (long) read * header.channels();
+
+            if (read < frames) {
+                break;
+            }
+            frame += frames;
+        }
+
+        // A sine wave of amplitude A has an RMS of A / sqrt(2); silent audio gets a full scale tone
+        double rms = sampleCount == 0 ? 0 : Math.sqrt(sumOfSquares / sampleCount);
+        return new ToneWriter(toneFrequency, rms > 0 ? Math.min(1.0, rms * Math.sqrt(2)) : 1.0);
+    }
+
+    private static long[] frameRange(WavHeader header, double startTime, double endTime) {
+        long total = header.frameCount();
+        long from = Math.max(0, Math.min(total, Math.round(startTime * header.sampleRate())));
+        long to = Math.max(0, Math.min(total, Math.round(endTime * header.sampleRate())));
+
+        if (to <= from) {
+            throw ApiException.builder()
+                    .status(HttpServletResponse.SC_BAD_REQUEST)
+                    .message("Edit range is outside of the audio")
+                    .build();
+        }
+
+        return new long[]{from, to};
+    }
+
+    private record FrameEdit(long from, long to, RangeEditor editor) {
+        private FrameEdit(long[] range, RangeEditor editor) {
+            this(range[0], range[1], editor);
+        }
+    }
+
+    @FunctionalInterface
+    private interface FrameEdits {
+        /**
+         * @param header Layout of the samples
+         * @param dataOffset Byte offset of the first frame in the source
+         */
+        List<FrameEdit> create(WavHeader header, long dataOffset) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface RangeEditor {
+        /**
+         * Rewrites frames of a block in place.
+         *
+         * @param header Layout of the samples
+         * @param block Encoded frames
+         * @param offset Byte offset of the first frame to rewrite
+         * @param rangeFrame Index of the first frame relative to the start of the edited range
+         * @param rangeFrames Length of the edited range in frames
+         * @param frameCount Number of frames to rewrite
+         * @param samples Scratch buffer of one block of decoded samples
+         */
+        void edit(WavHeader header, byte[] block, int offset, long rangeFrame, long rangeFrames,
+                  int frameCount, float[] samples);
+    }
+
+    /**
+     * Writes a sine tone at a fixed amplitude with short fades at both ends.
+     */
+    private static final class ToneWriter implements RangeEditor {
+        private final int toneFrequency;
+        private final double amplitude;
+
+        private ToneWriter(int toneFrequency, double amplitude) {
+            this.toneFrequency = toneFrequency;
+            this.amplitude = amplitude;
+        }
+
+        @Override
+        public void edit(WavHeader header, byte[] block, int offset, long rangeFrame, long rangeFrames,
+                         int frameCount, float[] samples) {
+            int channels = header.channels();
+            double phaseStep = 2 * Math.PI * toneFrequency / header.sampleRate();
+            long fadeFrames = Math.min((long) (MAX_FADE_SECONDS * header.sampleRate()), rangeFrames / 4);
+
+            for (int i = 0; i < frameCount; i++) {
+                long frame = rangeFrame + i;
+                double gain = amplitude;
+
+                if (frame < fadeFrames) {
+                    gain *= (double) frame / fadeFrames;
+                } else if (frame >= rangeFrames - fadeFrames) {
+                    gain *= (double) Math.max(0, rangeFrames - 1 - frame) / fadeFrames;
+                }
+
+                float sample = (float) (Math.sin(phaseStep * frame) * gain);
+                int base = i * channels;
+                for (int c = 0; c < channels; c++) {
+                    samples[base + c] = sample;
+                }
+            }
+
+            PcmCodec.encode(samples, frameCount, header, block, offset);
+        }
+    }
+}
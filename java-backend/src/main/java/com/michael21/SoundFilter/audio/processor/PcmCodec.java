@@ -0,0 +1,111 @@
+package com.michael21.SoundFilter.audio.processor;
+
+/**
+ * Converts interleaved little-endian PCM bytes to and from normalized float samples in [-1, 1].
+ * All methods work on caller-owned buffers so hot loops never allocate.
+ */
+public final class PcmCodec {
+    private PcmCodec() {
+    }
+
+    /**
+     * Decodes whole frames into {@code target}, one float per sample.
+     *
+     * @param source Encoded PCM bytes
+     * @param offset Byte offset of the first frame in {@code source}
+     * @param frames Number of frames to decode
+     * @param header Layout of the samples
+     * @param target Buffer of at least {@code frames * channels} floats
+     */
+    public static void decode(byte[] source, int offset, int frames, WavHeader header, float[] target) {
+        int samples = frames * header.channels();
+        int position = offset;
+
+        switch (header.bitsPerSample()) {
+            case 8 -> {
+                for (int i = 0; i < samples; i++, position++) {
+                    target[i] = ((source[position] & 0xFF) - 128) / 128f;
+                }
+            }
+            case 16 -> {
+                for (int i = 0; i < samples; i++, position += 2) {
+                    target[i] = (short) ((source[position] & 0xFF) | source[position + 1] << 8) / 32768f;
+                }
+            }
+            case 24 -> {
+                for (int i = 0; i < samples; i++, position += 3) {
+                    int value = (source[position] & 0xFF) | (source[position + 1] & 0xFF) << 8 | source[position + 2] << 16;
+                    target[i] = value / 8388608f;
+                }
+            }
+            default -> {
+                boolean floating = header.formatCode() == WavHeader.FORMAT_IEEE_FLOAT;
+                for (int i = 0; i < samples; i++, position += 4) {
+                    int bits = (source[position] & 0xFF) | (source[position + 1] & 0xFF) << 8
+                            | (source[position + 2] & 0xFF) << 16 | source[position + 3] << 24;
+                    target[i] = floating ? Float.intBitsToFloat(bits) : bits / 2147483648f;
+                }
+            }
+        }
+    }
+
+    /**
+     * Encodes whole frames from {@code source} back into PCM bytes, clipping to the sample range.
+     *
+     * @param source Normalized samples, {@code frames * channels} long
+     * @param frames Number of frames to encode
+     * @param header Layout of the samples
+     * @param target Encoded PCM bytes
+     * @param offset Byte offset of the first frame in {@code target}
+     */
+    public static void encode(float[] source, int frames, WavHeader header, byte[] target, int offset) {
+        int samples = frames * header.channels();
+        int position = offset;
+
+        switch (header.bitsPerSample()) {
+            case 8 -> {
+                for (int i = 0; i < samples; i++, position++) {
+                    target[position] = (byte) (quantize(source[i], 127) + 128);
+                }
+            }
+            case 16 -> {
+                for (int i = 0; i < samples; i++, position += 2) {
+                    int value = quantize(source[i], Short.MAX_VALUE);
+                    target[position] = (byte) value;
+                    target[position + 1] = (byte) (value >> 8);
+                }
+            }
+            case 24 -> {
+                for (int i = 0; i < samples; i++, position += 3) {
+                    int value = quantize(source[i], 8388607);
+                    target[position] = (byte) value;
+                    target[position + 1] = (byte) (value >> 8);
+                    target[position + 2] = (byte) (value >> 16);
+                }
+            }
+            default -> {
+                boolean floating = header.formatCode() == WavHeader.FORMAT_IEEE_FLOAT;
+                for (int i = 0; i < samples; i++, position += 4) {
+                    int value = floating ? Float.floatToRawIntBits(source[i]) : quantize(source[i], Integer.MAX_VALUE);
+                    target[position] = (byte) value;
+                    target[position + 1] = (byte) (value >> 8);
+                    target[position + 2] = (byte) (value >> 16);
+                    target[position + 3] = (byte) (value >> 24);
+                }
+            }
+        }
+    }
+
+    /**
+     * Byte value of digital silence for the sample layout.
+     */
+    public static byte silence(WavHeader header) {
+        // 8-bit WAV samples are unsigned, centred on 128
+        return header.bitsPerSample() == 8 ? (byte) 0x80 : 0;
+    }
+
+    private static int quantize(float sample, int fullScale) {
+        float clipped = Math.max(-1f, Math.min(1f, sample));
+        return (int) Math.round((double) clipped * fullScale);
+    }
+}
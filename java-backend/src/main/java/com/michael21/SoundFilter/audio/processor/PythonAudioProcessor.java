@@ -0,0 +1,93 @@
+package com.michael21.SoundFilter.audio.processor;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.michael21.SoundFilter.audio.AudioUtil;
+import com.michael21.SoundFilter.audio.data.AudioEdit;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fallback processor delegating edits to the Python audio API, which can decode any codec ffmpeg supports.
+ */
+@Slf4j
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+@RequiredArgsConstructor
+public class PythonAudioProcessor implements AudioProcessor {
+    private final AudioUtil audioUtil;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public boolean supports(String audioFormat, byte[] headerPrefix) {
+        return true;
+    }
+
+    @Override
+    public void applyEdits(AudioInput source, OutputStream target, List<AudioEdit> edits) throws IOException {
+        applyEdits(source, target, edits, source.audioFormat());
+    }
+
+    /**
+     * Applies edits and encodes the result in another format, in the same request.
+     *
+     * @param outputFormat Format of the audio written to the target
+     */
+    public void applyEdits(AudioInput source, OutputStream target, List<AudioEdit> edits,
+                           String outputFormat) throws IOException {
+        List<Map<String, Object>> pythonEdits = new ArrayList<>();
+
+        for (AudioEdit edit : edits) {
+            Map<String, Object> pythonEdit = new LinkedHashMap<>();
+            pythonEdit.put("type", edit.getType().name().toLowerCase());
+            pythonEdit.put("start_time", edit.getStartTime());
+            pythonEdit.put("end_time", edit.getEndTime());
+
+            switch (edit.getType()) {
+                case TONE -> pythonEdit.put("tone_frequency", edit.getToneFrequency());
+                case TTS -> {
+                    pythonEdit.put("replacement_text", edit.getReplacementText());
+                    pythonEdit.put("use_edge_tts", Boolean.TRUE.equals(edit.getUseEdgeTts()));
+                    pythonEdit.put("gender", edit.getGender());
+                }
+                default -> {
+                }
+            }
+
+            pythonEdits.add(pythonEdit);
+        }
+
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put("edits", objectMapper.writeValueAsString(pythonEdits));
+        params.put("output_format", outputFormat);
+
+        log.info("Sending {} edits to Python API", edits.size());
+        send(source, target, "/audio-api/batch-modify", params);
+    }
+
+    private void send(AudioInput source, OutputStream target, String endpoint, Map<String, Object> params) {
+        Long written = audioUtil.streamPythonApi(
+                source.stream(),
+                source.contentLength(),
+                source.fileName(),
+                endpoint,
+                params,
+                response -> response.getBody().transferTo(target)
+        );
+
+        if (written == null || written == 0) {
+            throw new RuntimeException("Received empty response from Python API");
+        }
+
+        log.info("Received modified audio: {} bytes", written);
+    }
+}
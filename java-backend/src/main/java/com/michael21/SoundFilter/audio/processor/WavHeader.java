@@ -0,0 +1,168 @@
+package com.michael21.SoundFilter.audio.processor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Optional;
+
+/**
+ * Layout of a RIFF/WAVE file holding integer PCM or IEEE float samples.
+ */
+public record WavHeader(int formatCode, int channels, int sampleRate, int bitsPerSample,
+                        int blockAlign, int dataOffset, long dataLength) {
+    public static final int FORMAT_PCM = 1;
+    public static final int FORMAT_IEEE_FLOAT = 3;
+    private static final int FORMAT_EXTENSIBLE = 0xFFFE;
+    private static final int MAX_HEADER_BYTES = 1024 * 1024;
+
+    public long frameCount() {
+        return dataLength / blockAlign;
+    }
+
+    public int bytesPerSample() {
+        return bitsPerSample / 8;
+    }
+
+    /**
+     * Parses the header of a WAV file held in memory.
+     *
+     * @param data The encoded audio, or a prefix of it
+     * @return The header with the data length limited to the bytes present, or empty if the data
+     * is not a WAV file with samples the JVM can edit
+     */
+    public static Optional<WavHeader> parse(byte[] data) {
+        return parse(data, true);
+    }
+
+    /**
+     * Parses header bytes read by {@link #readHeaderBytes(InputStream)}, keeping the declared data length.
+     *
+     * @param headerBytes Bytes of the file up to the start of the sample data
+     * @return The header, or empty if the samples can't be edited by the JVM
+     */
+    public static Optional<WavHeader> parseStreamed(byte[] headerBytes) {
+        return parse(headerBytes, false);
+    }
+
+    /**
+     * Reads a WAV file up to the start of its sample data, leaving the stream positioned on the first sample.
+     *
+     * @param in The encoded audio
+     * @return The raw header bytes, or null if the stream is not a WAV file with a data chunk
+     */
+    public static byte[] readHeaderBytes(InputStream in) throws IOException {
+        ByteArrayOutputStream header = new ByteArrayOutputStream(64);
+        byte[] riff = in.readNBytes(12);
+        header.write(riff);
+
+        if (riff.length < 12 || !chunkIdEquals(riff, 0, "RIFF") || !chunkIdEquals(riff, 8, "WAVE")) {
+            return null;
+        }
+
+        while (true) {
+            byte[] chunkHeader = in.readNBytes(8);
+            header.write(chunkHeader);
+
+            if (chunkHeader.length < 8) {
+                return null;
+            }
+            if (chunkIdEquals(chunkHeader, 0, "data")) {
+                return header.toByteArray();
+            }
+
+            long chunkSize = readUInt32(chunkHeader, 4);
+            if (header.size() + chunkSize > MAX_HEADER_BYTES) {
+                return null;
+            }
+
+            header.write(in.readNBytes((int) (chunkSize + (chunkSize & 1))));
+        }
+    }
+
+    private static Optional<WavHeader> parse(byte[] data, boolean limitToBuffer) {
+        if (data == null || data.length < 12 || !chunkIdEquals(data, 0, "RIFF") || !chunkIdEquals(data, 8, "WAVE")) {
+            return Optional.empty();
+        }
+
+        int formatCode = -1;
+        int channels = 0;
+        int sampleRate = 0;
+        int bitsPerSample = 0;
+        int blockAlign = 0;
+        int position = 12;
+
+        while (position + 8 <= data.length) {
+            long chunkSize = readUInt32(data, position + 4);
+            int payload = position + 8;
+
+            if (chunkIdEquals(data, position, "fmt ")) {
+                if (chunkSize < 16 || payload + 16 > data.length) {
+                    return Optional.empty();
+                }
+
+                formatCode = readUInt16(data, payload);
+                channels = readUInt16(data, payload + 2);
+                sampleRate = (int) readUInt32(data, payload + 4);
+                blockAlign = readUInt16(data, payload + 12);
+                bitsPerSample = readUInt16(data, payload + 14);
+
+                // WAVE_FORMAT_EXTENSIBLE keeps the real format code in the first bytes of the sub-format GUID
+                if (formatCode == FORMAT_EXTENSIBLE && chunkSize >= 40 && payload + 26 <= data.length) {
+                    formatCode = readUInt16(data, payload + 24);
+                }
+            } else if (chunkIdEquals(data, position, "data")) {
+                if (formatCode == -1) {
+                    return Optional.empty();
+                }
+
+                long dataLength;
+                if (limitToBuffer) {
+                    // Streamed WAVs may carry a placeholder size, so never trust it past the end of the buffer
+                    dataLength = Math.min(chunkSize, data.length - payload);
+                } else {
+                    // Writers that don't know the length up front leave 0 or 0xFFFFFFFF, read until the end instead
+                    dataLength = chunkSize == 0 || chunkSize == 0xFFFFFFFFL ? Long.MAX_VALUE : chunkSize;
+                }
+
+                WavHeader header = new WavHeader(formatCode, channels, sampleRate, bitsPerSample,
+                        blockAlign, payload, dataLength - dataLength % Math.max(blockAlign, 1));
+
+                return header.isEditable() ? Optional.of(header) : Optional.empty();
+            }
+
+            // Chunks are padded to an even number of bytes
+            position = (int) Math.min(Integer.MAX_VALUE, payload + chunkSize + (chunkSize & 1));
+        }
+
+        return Optional.empty();
+    }
+
+    private boolean isEditable() {
+        if (channels <= 0 || sampleRate <= 0 || blockAlign != channels * bytesPerSample()) {
+            return false;
+        }
+
+        return switch (formatCode) {
+            case FORMAT_PCM -> bitsPerSample == 8 || bitsPerSample == 16 || bitsPerSample == 24 || bitsPerSample == 32;
+            case FORMAT_IEEE_FLOAT -> bitsPerSample == 32;
+            default -> false;
+        };
+    }
+
+    private static boolean chunkIdEquals(byte[] data, int offset, String id) {
+        for (int i = 0; i < 4; i++) {
+            if (data[offset + i] != id.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int readUInt16(byte[] data, int offset) {
+        return (data[offset] & 0xFF) | (data[offset + 1] & 0xFF) << 8;
+    }
+
+    private static long readUInt32(byte[] data, int offset) {
+        return ((long) readUInt16(data, offset)) | ((long) readUInt16(data, offset + 2)) << 16;
+    }
+}
@@ -0,0 +1,144 @@
+package com.michael21.SoundFilter.audio.processor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds quiet points to split long WAV audio at and writes the headers of the resulting chunks.
+ */
+public final class WavSplitter {
+    private static final int BLOCK_FRAMES = 4096;
+    private static final int CANONICAL_HEADER_SIZE = 44;
+
+    private WavSplitter() {
+    }
+
+    /**
+     * Measures the loudness of consecutive windows of the sample data.
+     *
+     * @param data Sample data, positioned on the first frame
+     * @param header Layout of the samples, with the data length limited to the frames present
+     * @param windowFrames Frames per window
+     * @return The RMS of every window, the last one possibly shorter
+     */
+    public static float[] loudness(InputStream data, WavHeader header, int windowFrames) throws IOException {
+        long totalFrames = header.frameCount();
+        float[] loudness = new float[(int) ((totalFrames + windowFrames - 1) / windowFrames)];
+
+        int blockAlign = header.blockAlign();
+        int channels = header.channels();
+        byte[] block = new byte[BLOCK_FRAMES * blockAlign];
+        float[] samples = new float[BLOCK_FRAMES * channels];
+        double sumOfSquares = 0;
+        long frame = 0;
+
+        while (frame < totalFrames) {
+            int wanted = (int) Math.min(BLOCK_FRAMES, totalFrames - frame) * blockAlign;
+            int blockFrames = data.readNBytes(block, 0, wanted) / blockAlign;
+            PcmCodec.decode(block, 0, blockFrames, header, samples);
+
+            for (int i = 0; i < blockFrames; i++, frame++) {
+                for (int c = 0; c < channels; c++) {
+                    float sample = samples[i * channels + c];
+                    sumOfSquares += sample * sample;
+                }
+
+                if ((frame + 1) % windowFrames == 0 || frame + 1 == totalFrames) {
+                    int window = (int) (frame / windowFrames);
+                    long framesInWindow = frame - (long) window * windowFrames + 1;
+                    loudness[window] = (float) Math.sqrt(sumOfSquares / (framesInWindow * channels));
+                    sumOfSquares = 0;
+                }
+            }
+
+            if (blockFrames * blockAlign < wanted) {
+                break;
+            }
+        }
+
+        return loudness;
+    }
+
+    /**
+     * Picks the frames to split the audio at, one roughly every {@code chunkFrames}, each moved to the
+     * quietest window within {@code searchFrames} so the cuts fall between words.
+     *
+     * @param loudness RMS of consecutive windows, from {@link #loudness}
+     * @param windowFrames Frames per window
+     * @param totalFrames Length of the audio in frames
+     * @param chunkFrames Target length of a chunk in frames
+     * @param searchFrames How far a cut may move from its target in frames
+     * @return Ascending frames to split at, empty if the audio fits in one chunk
+     */
+    public static List<Long> silenceCuts(float[] loudness, int windowFrames, long totalFrames,
+                                         long chunkFrames, long searchFrames) {
+        List<Long> cuts = new ArrayList<>();
+        long previous = 0;
+
+        // The last chunk absorbs the remainder instead of leaving a short tail
+        while (totalFrames - previous > chunkFrames + searchFrames) {
+            long target = previous + chunkFrames;
+            int from = (int) (Math.max(previous + 1, target - searchFrames) / windowFrames);
+            int to = (int) Math.min(loudness.length - 1, (target + searchFrames) / windowFrames);
+
+            int quietest = (int) (target / windowFrames);
+            for (int window = from; window <= to; window++) {
+                if (loudness[window] < loudness[quietest]) {
+                    quietest = window;
+                }
+            }
+
+            long cut = (long) quietest * windowFrames + windowFrames / 2;
+            cuts.add(cut);
+            previous = cut;
+        }
+
+        return cuts;
+    }
+
+    /**
+     * Builds a canonical 44 byte header for a chunk of the audio.
+     *
+     * @param header Layout of the source audio
+     * @param frames Length of the chunk in frames
+     * @return The header, followed by the sample data of the chunk
+     */
+    public static byte[] chunkHeader(WavHeader header, long frames) {
+        long dataLength = frames * header.blockAlign();
+        byte[] bytes = new byte[CANONICAL_HEADER_SIZE];
+
+        writeId(bytes, 0, "RIFF");
+        writeUInt32(bytes, 4, CANONICAL_HEADER_SIZE - 8 + dataLength);
+        writeId(bytes, 8, "WAVE");
+        writeId(bytes, 12, "fmt ");
+        writeUInt32(bytes, 16, 16);
+        writeUInt16(bytes, 20, header.formatCode());
+        writeUInt16(bytes, 22, header.channels());
+        writeUInt32(bytes, 24, header.sampleRate());
+        writeUInt32(bytes, 28, (long) header.sampleRate() * header.blockAlign());
+        writeUInt16(bytes, 32, header.blockAlign());
+        writeUInt16(bytes, 34, header.bitsPerSample());
+        writeId(bytes, 36, "data");
+        writeUInt32(bytes, 40, dataLength);
+
+        return bytes;
+    }
+
+    private static void writeId(byte[] target, int offset, String id) {
+        for (int i = 0; i < 4; i++) {
+            target[offset + i] = (byte) id.charAt(i);
+        }
+    }
+
+    private static void writeUInt16(byte[] target, int offset, int value) {
+        target[offset] = (byte) value;
+        target[offset + 1] = (byte) (value >> 8);
+    }
+
+    private static void writeUInt32(byte[] target, int offset, long value) {
+        writeUInt16(target, offset, (int) value);
+        writeUInt16(target, offset + 2, (int) (value >> 16));
+    }
+}
@@ -0,0 +1,120 @@
+package com.michael21.SoundFilter.audio.processor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimum and maximum of the samples in fixed size bins, at several zoom levels, computed in a single
+ * pass over WAV audio so the editor can draw a waveform without downloading the audio.
+ * <p>
+ * A level is encoded little-endian as the magic {@code SFPK}, then the format version, sample rate,
+ * samples per bin and bin count as 32-bit integers, followed by the minimum and maximum of every bin
+ * as signed bytes scaled to full range.
+ */
+public final class WaveformPeaks {
+    public static final int HEADER_SIZE = 20;
+    private static final int MAGIC = 0x4B504653;
+    private static final int VERSION = 1;
+    private static final int BLOCK_FRAMES = 4096;
+
+    private WaveformPeaks() {
+    }
+
+    /**
+     * Computes the peaks of every level.
+     *
+     * @param data Sample data, positioned on the first frame, read until it ends or the declared length
+     * @param header Layout of the samples
+     * @param levels Frames per bin of every level
+     * @return The encoded peaks of every level, by frames per bin
+     */
+    public static Map<Integer, byte[]> compute(InputStream data, WavHeader header, List<Integer> levels) throws IOException {
+        int channels = header.channels();
+        int blockAlign = header.blockAlign();
+        byte[] block = new byte[BLOCK_FRAMES * blockAlign];
+        float[] samples = new float[BLOCK_FRAMES * channels];
+
+        int levelCount = levels.size();
+        ByteArrayOutputStream[] bins = new ByteArrayOutputStream[levelCount];
+        float[] binMin = new float[levelCount];
+        float[] binMax = new float[levelCount];
+        int[] binFrames = new int[levelCount];
+        for (int l = 0; l < levelCount; l++) {
+            bins[l] = new ByteArrayOutputStream();
+            binMin[l] = Float.POSITIVE_INFINITY;
+            binMax[l] = Float.NEGATIVE_INFINITY;
+        }
+
+        long remaining = header.frameCount();
+        while (remaining > 0) {
+            int wanted = (int) Math.min(BLOCK_FRAMES, remaining) * blockAlign;
+            int blockFrames = data.readNBytes(block, 0, wanted) / blockAlign;
+            PcmCodec.decode(block, 0, blockFrames, header, samples);
+
+            for (int i = 0; i < blockFrames; i++) {
+                // Channels are drawn as one, the bin covers the extremes of all of them
+                float frameMin = samples[i * channels];
+                float frameMax = frameMin;
+                for (int c = 1; c < channels; c++) {
+                    float sample = samples[i * channels + c];
+                    frameMin = Math.min(frameMin, sample);
+                    frameMax = Math.max(frameMax, sample);
+                }
+
+                for (int l = 0; l < levelCount; l++) {
+                    binMin[l] = Math.min(binMin[l], frameMin);
+                    binMax[l] = Math.max(binMax[l], frameMax);
+
+                    if (++binFrames[l] == levels.get(l)) {
+                        writeBin(bins[l], binMin[l], binMax[l]);
+                        binMin[l] = Float.POSITIVE_INFINITY;
+                        binMax[l] = Float.NEGATIVE_INFINITY;
+                        binFrames[l] = 0;
+                    }
+                }
+            }
+
+            remaining -= blockFrames;
+            if (blockFrames * blockAlign < wanted) {
+                break;
+            }
+        }
+
+        Map<Integer, byte[]> peaks = new LinkedHashMap<>();
+        for (int l = 0; l < levelCount; l++) {
+            if (binFrames[l] > 0) {
+                writeBin(bins[l], binMin[l], binMax[l]);
+            }
+            peaks.put(levels.get(l), encode(header.sampleRate(), levels.get(l), bins[l].toByteArray()));
+        }
+
+        return peaks;
+    }
+
+    private static void writeBin(ByteArrayOutputStream bins, float min, float max) {
+        bins.write(toByte(min));
+        bins.write(toByte(max));
+    }
+
+    private static byte toByte(float sample) {
+        return (byte) Math.max(-128, Math.min(127, Math.round(sample * 127)));
+    }
+
+    private static byte[] encode(int sampleRate, int framesPerBin, byte[] bins) {
+        return ByteBuffer.allocate(HEADER_SIZE + bins.length)
+                .order(ByteOrder.LITTLE_ENDIAN)
+                .putInt(MAGIC)
+                .putInt(VERSION)
+                .putInt(sampleRate)
+                .putInt(framesPerBin)
+                .putInt(bins.length / 2)
+                .put(bins)
+                .array();
+    }
+}
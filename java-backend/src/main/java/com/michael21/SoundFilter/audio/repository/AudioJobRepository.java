@@ -0,0 +1,15 @@
+package com.michael21.SoundFilter.audio.repository;
+
+import com.michael21.SoundFilter.audio.AudioJob;
+import com.michael21.SoundFilter.audio.AudioJobStatus;
+import com.michael21.SoundFilter.audio.AudioJobType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface AudioJobRepository extends JpaRepository<AudioJob, Long> {
+    Optional<AudioJob> findFirstByProjectIdAndTypeAndStatusOrderByIdDesc(Long projectId, AudioJobType type,
+                                                                          AudioJobStatus status);
+}
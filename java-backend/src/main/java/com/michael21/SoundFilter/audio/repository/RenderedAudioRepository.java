@@ -0,0 +1,20 @@
+package com.michael21.SoundFilter.audio.repository;
+
+import com.michael21.SoundFilter.audio.RenderedAudio;
+import com.michael21.SoundFilter.users.AudioProject;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface RenderedAudioRepository extends JpaRepository<RenderedAudio, Long> {
+    Optional<RenderedAudio> findByAudioProjectAndEditListHash(AudioProject audioProject, String editListHash);
+
+    List<RenderedAudio> findByAudioProjectOrderByLastUsedAtDesc(AudioProject audioProject);
+
+    boolean existsByAudioUrlAndAudioProjectNot(String audioUrl, AudioProject audioProject);
+
+    boolean existsByEditListHashAndAudioProjectNot(String editListHash, AudioProject audioProject);
+}
@@ -0,0 +1,12 @@
+package com.michael21.SoundFilter.audio.repository;
+
+import com.michael21.SoundFilter.audio.TranscriptionCacheEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface TranscriptionCacheEntryRepository extends JpaRepository<TranscriptionCacheEntry, Long> {
+    Optional<TranscriptionCacheEntry> findByCacheKey(String cacheKey);
+}
@@ -0,0 +1,229 @@
+package com.michael21.SoundFilter.audio.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.michael21.SoundFilter.audio.AudioJob;
+import com.michael21.SoundFilter.audio.AudioJobStatus;
+import com.michael21.SoundFilter.audio.AudioJobType;
+import com.michael21.SoundFilter.audio.config.AudioConfiguration;
+import com.michael21.SoundFilter.audio.data.AudioJobResponse;
+import com.michael21.SoundFilter.audio.jobs.RenderAudioJob;
+import com.michael21.SoundFilter.audio.repository.AudioJobRepository;
+import com.michael21.SoundFilter.users.User;
+import com.michael21.SoundFilter.users.repository.UserRepository;
+import com.michael21.SoundFilter.util.exception.ApiException;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.jobrunr.jobs.lambdas.JobRequest;
+import org.jobrunr.scheduling.BackgroundJobRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Semaphore;
+import java.util.function.LongFunction;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AudioJobService {
+    /**
+     * Retries of a job failing with an unexpected error, used by the audio job handlers.
+     * Requests rejected with an {@link ApiException} are never retried.
+     */
+    public static final int RETRIES = 2;
+
+    private final AudioJobRepository audioJobRepository;
+    private final UserRepository userRepository;
+    private final AudioService audioService;
+    private final ObjectMapper objectMapper;
+    private final AudioConfiguration audioConfiguration;
+
+    private final Map<Long, List<SseEmitter>> emitters = new ConcurrentHashMap<>();
+    private Semaphore jobSlots;
+
+    @PostConstruct
+    void init() {
+        jobSlots = new Semaphore(audioConfiguration.getMaxConcurrentJobs(), true);
+    }
+
+    /**
+     * Records a new audio job and enqueues it in JobRunr.
+     *
+     * @param user User requesting the operation
+     * @param projectId Project the operation works on
+     * @param type Type of the operation
+     * @param jobRequest Creates the JobRunr request from the ID of the recorded job
+     * @return The accepted job
+     */
+    public AudioJobResponse submit(User user, Long projectId, AudioJobType type, LongFunction<JobRequest> jobRequest) {
+        // Fails fast on projects that don't exist or belong to someone else
+        audioService.getAudioProject(user, projectId);
+
+        // Saved outside of a transaction so the job row is committed before a worker can pick it up
+        AudioJob audioJob = audioJobRepository.saveAndFlush(new AudioJob(user.getId(), projectId, type));
+        BackgroundJobRequest.enqueue(jobRequest.apply(audioJob.getId()));
+        log.info("Enqueued {} job {} for project {}", type, audioJob.getId(), projectId);
+
+        return toResponse(audioJob);
+    }
+
+    /**
+     * Enqueues a render of the edits of a project. A render still waiting in the queue is returned instead,
+     * it renders the edits as they are once it runs.
+     *
+     * @param user Owner of the project
+     * @param projectId Project to render
+     * @return The render job
+     */
+    public AudioJobResponse render(User user, Long projectId) {
+        audioService.getAudioProject(user, projectId);
+
+        return audioJobRepository.findFirstByProjectIdAndTypeAndStatusOrderByIdDesc(projectId, AudioJobType.RENDER,
+                        AudioJobStatus.ENQUEUED)
+                .map(this::toResponse)
+                .orElseGet(() -> submit(user, projectId, AudioJobType.RENDER,
+                        audioJobId -> new RenderAudioJob(audioJobId, projectId)));
+    }
+
+    public AudioJobResponse getJob(User user, Long jobId) {
+        return toResponse(getAudioJob(user, jobId));
+    }
+
+    /**
+     * Streams status changes of a job as server-sent events. The current status is sent right away
+     * and the stream completes once the job has finished.
+     */
+    public SseEmitter subscribe(User user, Long jobId) {
+        AudioJob audioJob = getAudioJob(user, jobId);
+        SseEmitter emitter = new SseEmitter(audioConfiguration.getJobEventsTimeout().toMillis());
+
+        if (!audioJob.getStatus().isFinished()) {
+            List<SseEmitter> jobEmitters = emitters.computeIfAbsent(jobId, id -> new CopyOnWriteArrayList<>());
+            jobEmitters.add(emitter);
+            Runnable remove = () -> jobEmitters.remove(emitter);
+            emitter.onCompletion(remove);
+            emitter.onTimeout(remove);
+            emitter.onError(e -> remove.run());
+        }
+
+        // Re-read after registering so an update made in between isn't lost
+        AudioJob current = audioJobRepository.findById(jobId).orElse(audioJob);
+        send(emitter, toResponse(current));
+
+        return emitter;
+    }
+
+    /**
+     * Runs an audio operation for a recorded job, keeping its status up to date. Jobs that already
+     * succeeded, e.g. when JobRunr picks them up again after a restart, are skipped.
+     *
+     * @param audioJobId ID of the recorded job
+     * @param operation The operation, its result is stored as the job result
+     * @throws Exception Unexpected errors, rethrown so JobRunr retries the job
+     */
+    public void run(Long audioJobId, AudioOperation operation) throws Exception {
+        AudioJob audioJob = audioJobRepository.findById(audioJobId)
+                .orElseThrow(() -> new IllegalArgumentException("Audio job not found: " + audioJobId));
+
+        if (audioJob.getStatus() == AudioJobStatus.SUCCEEDED) {
+            log.info("Audio job {} already succeeded, skipping", audioJobId);
+            return;
+        }
+
+        User user = userRepository.findById(audioJob.getUserId())
+                .orElseThrow(() -> new IllegalArgumentException("User not found: " + audioJob.getUserId()));
+
+        jobSlots.acquire();
+        try {
+            audioJob.onStarted();
+            update(audioJob);
+
+            Object result = operation.run(user);
+            audioJob.onSucceeded(objectMapper.writeValueAsString(result));
+            update(audioJob);
+            log.info("Audio job {} succeeded", audioJobId);
+        } catch (ApiException e) {
+            log.warn("Audio job {} was rejected: {}", audioJobId, e.getMessage());
+            audioJob.onFailed(e.getMessage());
+            update(audioJob);
+        } catch (Exception e) {
+            log.error("Audio job {} failed on attempt {}: {}", audioJobId, audioJob.getAttempts(), e.getMessage(), e);
+            if (audioJob.getAttempts() > RETRIES) {
+                audioJob.onFailed(e.getMessage());
+            } else {
+                audioJob.onRetrying(e.getMessage());
+            }
+            update(audioJob);
+            throw e;
+        } finally {
+            jobSlots.release();
+        }
+    }
+
+    private AudioJob getAudioJob(User user, Long jobId) {
+        AudioJob audioJob = audioJobRepository.findById(jobId)
+                .orElseThrow(() -> ApiException.builder().status(HttpServletResponse.SC_NOT_FOUND).
+                        message("Job not found").build());
+
+        if (audioJob.getUserId() != user.getId()) {
+            throw ApiException.builder().status(HttpServletResponse.SC_FORBIDDEN).
+                    message("This user doesn't have access to this job").build();
+        }
+
+        return audioJob;
+    }
+
+    private void update(AudioJob audioJob) {
+        AudioJob saved = audioJobRepository.saveAndFlush(audioJob);
+        AudioJobResponse response = toResponse(saved);
+
+        List<SseEmitter> jobEmitters = saved.getStatus().isFinished()
+                ? emitters.remove(saved.getId())
+                : emitters.get(saved.getId());
+
+        if (jobEmitters != null) {
+            jobEmitters.forEach(emitter -> send(emitter, response));
+        }
+    }
+
+    private void send(SseEmitter emitter, AudioJobResponse response) {
+        try {
+            emitter.send(SseEmitter.event().name("status").data(response));
+            if (response.status().isFinished()) {
+                emitter.complete();
+            }
+        } catch (IOException | IllegalStateException e) {
+            // The client went away, the emitter cleans itself up
+            log.debug("Could not send audio job event: {}", e.getMessage());
+        }
+    }
+
+    private AudioJobResponse toResponse(AudioJob audioJob) {
+        try {
+            return new AudioJobResponse(
+                    audioJob.getId(),
+                    audioJob.getProjectId(),
+                    audioJob.getType(),
+                    audioJob.getStatus(),
+                    audioJob.getResult() == null ? null : objectMapper.readTree(audioJob.getResult()),
+                    audioJob.getError(),
+                    audioJob.getCreatedAt(),
+                    audioJob.getUpdatedAt()
+            );
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @FunctionalInterface
+    public interface AudioOperation {
+        Object run(User user) throws Exception;
+    }
+}
@@ -0,0 +1,330 @@
+package com.michael21.SoundFilter.audio.service;
+
+import com.michael21.SoundFilter.audio.AudioHash;
+import com.michael21.SoundFilter.audio.AudioMetrics;
+import com.michael21.SoundFilter.audio.AudioUtil;
+import com.michael21.SoundFilter.audio.EditDecisionList;
+import com.michael21.SoundFilter.audio.RenderedAudio;
+import com.michael21.SoundFilter.audio.config.AudioConfiguration;
+import com.michael21.SoundFilter.audio.data.AudioEdit;
+import com.michael21.SoundFilter.audio.data.RenderedAudioFile;
+import com.michael21.SoundFilter.audio.processor.AudioInput;
+import com.michael21.SoundFilter.audio.processor.AudioProcessor;
+import com.michael21.SoundFilter.audio.processor.PythonAudioProcessor;
+import com.michael21.SoundFilter.audio.repository.RenderedAudioRepository;
+import com.michael21.SoundFilter.s3.UploadedFile;
+import com.michael21.SoundFilter.s3.repository.UploadedFileRepository;
+import com.michael21.SoundFilter.s3.service.FileCache;
+import com.michael21.SoundFilter.s3.service.FileService;
+import com.michael21.SoundFilter.s3.service.S3UploadStream;
+import com.michael21.SoundFilter.users.AudioProject;
+import com.michael21.SoundFilter.users.ProjectEdit;
+import com.michael21.SoundFilter.users.User;
+import com.michael21.SoundFilter.users.repository.AudioProjectRepository;
+import com.michael21.SoundFilter.util.exception.ApiException;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FilenameUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Renders the edit list of a project from its source audio. Edits are only stored when they are made,
+ * the audio is rendered when it's played, downloaded or transcribed, and renders are kept per edit list
+ * so undoing and redoing finds them again.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AudioRenderer {
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+    private static final int HEADER_PEEK_SIZE = 16 * 1024;
+
+    private final AudioProjectRepository audioProjectRepository;
+    private final RenderedAudioRepository renderedAudioRepository;
+    private final UploadedFileRepository uploadedFileRepository;
+    private final FileService fileService;
+    private final AudioUtil audioUtil;
+    private final AudioConfiguration audioConfiguration;
+    private final List<AudioProcessor> audioProcessors;
+    private final PythonAudioProcessor pythonAudioProcessor;
+    private final WaveformService waveformService;
+    private final FileCache fileCache;
+    private final AudioMetrics audioMetrics;
+
+    /**
+     * Points the project audio at a rendering of its current edit list, rendering it if it wasn't before.
+     * Callers hold the render lock of the project, so the same edits are never rendered twice at once.
+     *
+     * @param user Owner of the project
+     * @param projectId Project to render
+     * @return The rendered audio
+     */
+    @Transactional
+    public RenderedAudioFile render(User user, Long projectId) {
+        AudioProject audioProject = audioProjectRepository.findById(projectId)
+                .orElseThrow(() -> ApiException.builder().status(HttpServletResponse.SC_NOT_FOUND).
+                        message("Project not found").build());
+
+        if (!(audioProject.getUser().getId() == user.getId())) {
+            throw ApiException.builder().status(HttpServletResponse.SC_FORBIDDEN).
+                    message("This user doesn't have access to this project").build();
+        }
+
+        audioProject.ensureSource();
+
+        if (!audioProject.isRendered()) {
+            Optional<RenderedAudio> rendered = renderedAudioRepository.findByAudioProjectAndEditListHash(
+                    audioProject, audioProject.getEditListHash());
+
+            if (rendered.isPresent()) {
+                log.info("Reusing rendered audio of project {}", projectId);
+                rendered.get().onUsed();
+                audioProject.onRendered(rendered.get().getAudioUrl(), rendered.get().getAudioHash(),
+                        rendered.get().getFileSize());
+            } else {
+                renderEdits(audioProject);
+            }
+
+            audioMetrics.stage("render", "db_flush", audioProject.getAudioFormat(),
+                    () -> audioProjectRepository.saveAndFlush(audioProject));
+        }
+
+        return renderedFile(audioProject);
+    }
+
+    /**
+     * The audio of a project whose current edit list was rendered.
+     */
+    public RenderedAudioFile renderedFile(AudioProject audioProject) {
+        return new RenderedAudioFile(fileService.getFilePathFromUrl(audioProject.getAudioUrl()),
+                audioProject.getName() + "." + audioProject.getAudioFormat(), audioProject.getFileSize(),
+                audioProject.getAudioFormat(), audioProject.getEditListHash());
+    }
+
+    /**
+     * Deletes the source audio of the project and everything rendered from it.
+     */
+    @Transactional
+    public void deleteAudio(AudioProject audioProject) {
+        Set<String> audioUrls = new LinkedHashSet<>();
+        audioUrls.add(audioProject.getAudioUrl());
+        if (audioProject.getSourceAudioUrl() != null) {
+            audioUrls.add(audioProject.getSourceAudioUrl());
+        }
+
+        List<RenderedAudio> renders = renderedAudioRepository.findByAudioProjectOrderByLastUsedAtDesc(audioProject);
+        Set<String> editListHashes = new LinkedHashSet<>();
+        if (audioProject.getEditListHash() != null) {
+            editListHashes.add(audioProject.getEditListHash());
+        }
+
+        renders.forEach(render -> {
+            audioUrls.add(render.getAudioUrl());
+            editListHashes.add(render.getEditListHash());
+        });
+        renderedAudioRepository.deleteAll(renders);
+
+        audioUrls.forEach(audioUrl -> deleteUnlessShared(audioUrl, audioProject, "delete"));
+        editListHashes.forEach(editListHash -> deletePeaksUnlessShared(editListHash, audioProject));
+    }
+
+    /**
+     * Lets a forked project reuse the renders of the project it was forked from, without copying them.
+     */
+    @Transactional
+    public void shareRenders(AudioProject original, AudioProject fork) {
+        renderedAudioRepository.findByAudioProjectOrderByLastUsedAtDesc(original).forEach(render ->
+                renderedAudioRepository.save(new RenderedAudio(fork, render.getEditListHash(), render.getAudioUrl(),
+                        render.getAudioHash(), render.getFileSize())));
+    }
+
+    private void renderEdits(AudioProject audioProject) {
+        List<AudioEdit> edits = EditDecisionList.flatten(audioProject.getAppliedEdits().stream()
+                .map(ProjectEdit::toAudioEdit)
+                .toList());
+        String targetFormat = audioProject.getAudioFormat();
+        boolean converted = !targetFormat.equalsIgnoreCase(audioProject.getSourceAudioFormat());
+
+        if (edits.isEmpty() && !converted) {
+            // Everything was undone, the source is the audio
+            audioProject.onRendered(audioProject.getSourceAudioUrl(), audioProject.getSourceAudioHash(),
+                    audioProject.getSourceFileSize());
+            return;
+        }
+
+        String sourceUrl = audioProject.getSourceAudioUrl();
+        String sourceFileName = sourceUrl.substring(sourceUrl.lastIndexOf("/") + 1);
+
+        UploadedFile uploadedFile = new UploadedFile(FilenameUtils.getBaseName(sourceFileName) + "." + targetFormat,
+                null, audioProject.getUser());
+        // A render of the same edit list interrupted before resumes the upload where it stopped
+        String resumeKey = "render:" + audioProject.getId() + ":" + audioProject.getEditListHash();
+        S3UploadStream target = fileService.openResumableUploadStream(resumeKey, uploadedFile.buildPath("audio-file"));
+
+        MessageDigest digest = AudioHash.newDigest();
+        String audioUrl;
+
+        try (target) {
+            // Back to back edits render from the same source, it's only downloaded once per node
+            FileChannel cachedSource = audioMetrics.stage("render", "s3_download", audioProject.getSourceAudioFormat(),
+                    () -> fileCache.load(fileService.getFilePathFromUrl(sourceUrl)));
+            long contentLength = cachedSource.size();
+            audioMetrics.recordBytes("render", "s3_download", audioProject.getSourceAudioFormat(), contentLength);
+            log.info("Rendering {} edits of project {} from {} bytes of {}", edits.size(), audioProject.getId(),
+                    contentLength, sourceUrl);
+
+            try (InputStream sourceStream = new BufferedInputStream(Channels.newInputStream(cachedSource), STREAM_BUFFER_SIZE)) {
+                AudioInput source = new AudioInput(sourceStream, contentLength, sourceFileName,
+                        audioProject.getSourceAudioFormat(), cachedSource);
+                OutputStream output = new DigestOutputStream(target, digest);
+
+                // Parts are uploaded while the audio is processed, this stage includes all but the last one
+                if (!converted) {
+                    AudioProcessor processor = resolveProcessor(source, edits);
+                    log.info("Applying edits with {}", processor.getClass().getSimpleName());
+                    String stage = processor instanceof PythonAudioProcessor ? "python_api" : "pcm";
+                    audioMetrics.stage("render", stage, targetFormat, () -> {
+                        processor.applyEdits(source, output, edits);
+                        return null;
+                    });
+                } else if (edits.isEmpty()) {
+                    audioMetrics.stage("render", "python_api", targetFormat, () -> {
+                        streamThroughPythonApi(source, output, "/audio-api/convert-format",
+                                Map.of("target_format", targetFormat));
+                        return null;
+                    });
+                } else {
+                    audioMetrics.stage("render", "python_api", targetFormat, () -> {
+                        pythonAudioProcessor.applyEdits(source, output, edits, targetFormat);
+                        return null;
+                    });
+                }
+            }
+
+            audioUrl = audioMetrics.stage("render", "s3_upload", targetFormat, target::complete);
+            audioMetrics.recordBytes("render", "s3_upload", targetFormat, target.getSize());
+            log.info("Rendered audio URL from S3: {}", audioUrl);
+        } catch (Exception e) {
+            if (target.isFailed()) {
+                // S3 errors are worth a retry, which resumes the upload where it stopped
+                throw new IllegalStateException("Error rendering audio: upload to S3 failed", e);
+            }
+            if (e instanceof ApiException apiException) {
+                throw apiException;
+            }
+
+            log.error("Error rendering audio: {}", e.getMessage(), e);
+            throw ApiException.builder()
+                    .status(HttpServletResponse.SC_INTERNAL_SERVER_ERROR)
+                    .message("Error rendering audio: " + e.getMessage())
+                    .build();
+        }
+
+        uploadedFile.onUploaded(audioUrl, target.getSize());
+        uploadedFileRepository.save(uploadedFile);
+
+        String audioHash = AudioHash.toHex(digest);
+        renderedAudioRepository.save(new RenderedAudio(audioProject, audioProject.getEditListHash(), audioUrl,
+                audioHash, target.getSize()));
+        audioProject.onRendered(audioUrl, audioHash, target.getSize());
+        waveformService.schedulePeaks(audioProject);
+
+        evictRenders(audioProject);
+    }
+
+    private void evictRenders(AudioProject audioProject) {
+        List<RenderedAudio> renders = renderedAudioRepository.findByAudioProjectOrderByLastUsedAtDesc(audioProject);
+        int kept = Math.max(1, audioConfiguration.getRenderedVersionsKept());
+
+        for (RenderedAudio render : renders.subList(Math.min(kept, renders.size()), renders.size())) {
+            if (render.getAudioUrl().equals(audioProject.getAudioUrl())) {
+                continue;
+            }
+
+            log.info("Deleting rendered audio {} of project {}", render.getAudioUrl(), audioProject.getId());
+            renderedAudioRepository.delete(render);
+            deleteUnlessShared(render.getAudioUrl(), audioProject, "render");
+            deletePeaksUnlessShared(render.getEditListHash(), audioProject);
+        }
+    }
+
+    private void deleteUnlessShared(String audioUrl, AudioProject audioProject, String operation) {
+        // Forks refer to the same objects, the last project to let go of one deletes it
+        if (audioProjectRepository.existsBySourceAudioUrlAndIdNot(audioUrl, audioProject.getId())
+                || audioProjectRepository.existsByAudioUrlAndIdNot(audioUrl, audioProject.getId())
+                || renderedAudioRepository.existsByAudioUrlAndAudioProjectNot(audioUrl, audioProject)) {
+            log.info("Keeping audio file {}, another project still uses it", audioUrl);
+            return;
+        }
+
+        try {
+            String filePath = fileService.getFilePathFromUrl(audioUrl);
+            fileCache.evict(filePath);
+            audioMetrics.stage(operation, "s3_delete", FilenameUtils.getExtension(audioUrl), () -> {
+                fileService.deleteFile(filePath);
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("Could not delete audio file {}: {}", audioUrl, e.getMessage());
+        }
+    }
+
+    private void deletePeaksUnlessShared(String editListHash, AudioProject audioProject) {
+        // Peaks are keyed by edit list like renders, forks at the same edits read the same ones
+        if (audioProjectRepository.existsByEditListHashAndIdNot(editListHash, audioProject.getId())
+                || renderedAudioRepository.existsByEditListHashAndAudioProjectNot(editListHash, audioProject)) {
+            return;
+        }
+
+        waveformService.deletePeaks(audioProject.getUser().getId(), editListHash);
+    }
+
+    private void streamThroughPythonApi(AudioInput source, OutputStream target, String endpoint, Map<String, Object> params) {
+        Long written = audioUtil.streamPythonApi(
+                source.stream(),
+                source.contentLength(),
+                source.fileName(),
+                endpoint,
+                params,
+                response -> response.getBody().transferTo(target)
+        );
+
+        if (written == null || written == 0) {
+            throw new RuntimeException("Received empty response from Python API");
+        }
+
+        log.info("Received modified audio: {} bytes", written);
+    }
+
+    private AudioProcessor resolveProcessor(AudioInput source, List<AudioEdit> edits) throws IOException {
+        // Peek at the header without consuming it, the processor reads the stream from the start
+        InputStream stream = source.stream();
+        stream.mark(HEADER_PEEK_SIZE);
+        byte[] headerPrefix = stream.readNBytes(HEADER_PEEK_SIZE);
+        stream.reset();
+
+        return audioProcessors.stream()
+                .filter(processor -> processor.supports(source.audioFormat(), headerPrefix) && processor.canApply(edits))
+                .findFirst()
+                .orElseThrow(() -> ApiException.builder()
+                        .status(HttpServletResponse.SC_BAD_REQUEST)
+                        .message("No audio processor available for format: " + source.audioFormat())
+                        .build());
+    }
+}
@@ -1,55 +1,86 @@
 package com.michael21.SoundFilter.audio.service;
 
+import com.michael21.SoundFilter.audio.AudioEditType;
+import com.michael21.SoundFilter.audio.AudioHash;
+import com.michael21.SoundFilter.audio.AudioMetrics;
+import com.michael21.SoundFilter.audio.AudioUtil;
+import com.michael21.SoundFilter.audio.FuzzyPhraseMatcher;
+import com.michael21.SoundFilter.audio.PhraseMatcher;
+import com.michael21.SoundFilter.audio.TranscriptionWindow;
+import com.michael21.SoundFilter.audio.WordTimeline;
+import com.michael21.SoundFilter.audio.WordTimelineEntry;
+import com.michael21.SoundFilter.audio.config.AudioConfiguration;
+import com.michael21.SoundFilter.audio.data.AudioEdit;
 import com.michael21.SoundFilter.audio.data.AudioModificationResponse;
+import com.michael21.SoundFilter.audio.data.AudioProjectVersionResponse;
+import com.michael21.SoundFilter.audio.data.CensorRequest;
+import com.michael21.SoundFilter.audio.data.CensorResponse;
+import com.michael21.SoundFilter.audio.data.RenderedAudioFile;
 import com.michael21.SoundFilter.audio.data.TranscriptionResult;
-import com.michael21.SoundFilter.auth.SecurityUtil;
-import com.michael21.SoundFilter.config.ApplicationProperties;
-import com.michael21.SoundFilter.s3.UploadedFile;
-import com.michael21.SoundFilter.s3.repository.UploadedFileRepository;
+import com.michael21.SoundFilter.audio.data.TranscriptionResult.WordTimestamp;
+import com.michael21.SoundFilter.audio.data.WordTimelineResponse;
+import com.michael21.SoundFilter.s3.service.FileCache;
 import com.michael21.SoundFilter.s3.service.FileService;
+import com.michael21.SoundFilter.search.service.TranscriptSearchService;
 import com.michael21.SoundFilter.users.AudioProject;
+import com.michael21.SoundFilter.users.AudioProjectChange;
+import com.michael21.SoundFilter.users.AudioProjectVersion;
+import com.michael21.SoundFilter.users.ProjectEdit;
 import com.michael21.SoundFilter.users.User;
-import com.michael21.SoundFilter.users.data.UserResponse;
 import com.michael21.SoundFilter.users.repository.AudioProjectRepository;
-import com.michael21.SoundFilter.users.repository.UserRepository;
+import com.michael21.SoundFilter.users.repository.AudioProjectVersionRepository;
 import com.michael21.SoundFilter.util.exception.ApiException;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.PersistenceContext;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.core.io.ByteArrayResource;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.util.LinkedMultiValueMap;
-import org.springframework.util.MultiValueMap;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.web.multipart.MultipartFile;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
 
+import java.io.BufferedInputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.URL;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.time.LocalDateTime;
-import java.util.UUID;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class AudioService {
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
     private final AudioProjectRepository audioProjectRepository;
-    private final UserRepository userRepository;
-    private final UploadedFileRepository uploadedFileRepository;
     private final FileService fileService;
     private final ObjectMapper objectMapper;
-    private final ApplicationProperties applicationProperties;
-    private final RestTemplate restTemplate;
-
-    @PersistenceContext
-    private EntityManager entityManager;
+    private final AudioUtil audioUtil;
+    private final TranscriptionCache transcriptionCache;
+    private final ChunkedTranscriber chunkedTranscriber;
+    private final AudioConfiguration audioConfiguration;
+    private final AudioRenderer audioRenderer;
+    private final AudioProjectVersionRepository audioProjectVersionRepository;
+    private final WaveformService waveformService;
+    private final FileCache fileCache;
+    private final AudioMetrics audioMetrics;
+    private final TranscriptSearchService transcriptSearchService;
+    // Renders of a project run one at a time, a waiting request reuses the render of the one before
+    private final Map<Long, RenderLock> renderLocks = new ConcurrentHashMap<>();
 
     public AudioProject getAudioProject(User user, Long projectId) {
         AudioProject audioProject = audioProjectRepository.findById(projectId)
@@ -65,103 +96,96 @@ public class AudioService {
     }
 
     @Transactional
-    public UserResponse addAudioProject(String name, String description, MultipartFile file) {
-        User user = SecurityUtil.getAuthenticatedUser();
-
-        UploadedFile uploadedFile = new UploadedFile(file.getOriginalFilename(), file.getSize(), user);
-
-        String url = "";
-
-        try {
-            url = fileService.uploadFile(
-                    uploadedFile.buildPath("audio-file"),
-                    file.getBytes()
-            );
-            uploadedFile.onUploaded(url);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
-
-        AudioProject createdProject = new AudioProject(name, description, user, file, url,
-                uploadedFile.getCreatedAt(), uploadedFile.getExtension());
-
-        AudioProject savedProject = audioProjectRepository.saveAndFlush(createdProject);
-
-        user.addAudioProject(savedProject);
-
-        userRepository.saveAndFlush(user);
-
-        // Force flush to ensure all changes are written to the database
-        entityManager.flush();
-
-        return new UserResponse(user);
+    public TranscriptionResult transcribeAudio(User user, Long projectId) {
+        return audioMetrics.operation("transcribe", () -> transcribe(user, projectId));
     }
 
-    @Transactional
-    public TranscriptionResult transcribeAudio(User user, Long projectId) {
+    private TranscriptionResult transcribe(User user, Long projectId) {
         AudioProject audioProject = getAudioProject(user, projectId);
-        String audioUrl = audioProject.getAudioUrl();
 
-        if (audioUrl == null || audioUrl.isEmpty()) {
-            throw ApiException.builder()
-                    .status(HttpServletResponse.SC_BAD_REQUEST)
-                    .message("Audio URL is missing for this project")
-                    .build();
+        // Callers render the edits first, an edit made since then would be missing from the transcription
+        if (!audioProject.isRendered()) {
+            throw new IllegalStateException("Audio of project " + projectId + " changed before it was transcribed");
         }
 
+        String audioUrl = requireAudioUrl(audioProject);
         String fileName = audioUrl.substring(audioUrl.lastIndexOf("/") + 1);
 
-        byte[] audioData;
-
-        try {
-            log.info("Downloading audio file from URL: {}", audioUrl);
-            URL url = new URL(audioUrl);
-            try (InputStream in = url.openStream()) {
-                audioData = in.readAllBytes();
+        if (audioProject.getAudioHash() != null) {
+            Optional<TranscriptionResult> cached = transcriptionCache.get(audioProject.getAudioHash());
+            if (cached.isPresent()) {
+                log.info("Using cached transcription of project {}", projectId);
+                return saveTranscription(audioProject, cached.get());
             }
-
-            log.info("Successfully downloaded {} bytes", audioData.length);
-        } catch (IOException e) {
-            log.error("Error downloading audio file: {}", e.getMessage(), e);
-            throw ApiException.builder()
-                    .status(HttpServletResponse.SC_INTERNAL_SERVER_ERROR)
-                    .message("Error downloading audio file: " + e.getMessage())
-                    .build();
         }
 
-        try {
-            log.info("Sending audio file to Python API for transcription");
-
-            MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
-
-            ByteArrayResource resource = new ByteArrayResource(audioData) {
-                @Override
-                public String getFilename() {
-                    return fileName;
-                }
-            };
+        Optional<TranscriptionResult> previous = Optional.ofNullable(audioProject.getTranscribedAudioHash())
+                .flatMap(transcriptionCache::get);
 
-            body.add("audio_file", resource);
+        // Edits that didn't change the content, like a format conversion, leave the transcription valid
+        if (previous.isPresent() && audioProject.getEditedRanges().isEmpty()) {
+            log.info("Audio of project {} is unchanged since the last transcription", projectId);
+            transcriptionCache.put(audioProject.getAudioHash(), previous.get());
+            return saveTranscription(audioProject, previous.get());
+        }
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+        TranscriptionWindow window = previous
+                .map(result -> TranscriptionWindow.covering(result.getWords(), audioProject.getEditedRanges(),
+                        audioConfiguration.getRetranscriptionPadding().toMillis() / 1000.0))
+                .orElse(null);
 
-            HttpEntity<MultiValueMap<String, Object>> requestEntity = new HttpEntity<>(body, headers);
+        try {
+            // A project transcribed right after an edit reads the audio its render just cached
+            FileChannel cached = audioMetrics.stage("transcribe", "s3_download", audioProject.getAudioFormat(),
+                    () -> fileCache.load(fileService.getFilePathFromUrl(audioUrl)));
+            long contentLength = cached.size();
+            audioMetrics.recordBytes("transcribe", "s3_download", audioProject.getAudioFormat(), contentLength);
+
+            if (window == null) {
+                log.info("Streaming {} bytes from {} to Python API for transcription",
+                        contentLength, audioUrl);
+            } else {
+                log.info("Streaming {} bytes from {} to Python API to transcribe {}s to {}s again",
+                        contentLength, audioUrl, window.startTime(), window.endTime());
+            }
 
-            String jsonResponse = restTemplate.postForObject(
-                    applicationProperties.getBaseUrl() + "/audio-api/transcribe",
-                    requestEntity,
-                    String.class
-            );
+            // Projects created before hashes were tracked or uploaded straight to S3 get theirs while the audio is sent
+            MessageDigest digest = AudioHash.newDigest();
+
+            TranscriptionResult result;
+            try (InputStream audio = new DigestInputStream(
+                    new BufferedInputStream(Channels.newInputStream(cached), STREAM_BUFFER_SIZE), digest)) {
+                result = audioMetrics.stage("transcribe", "python_api", audioProject.getAudioFormat(), () -> {
+                    if (window == null && chunkedTranscriber.shouldSplit(audioProject.getAudioFormat(), contentLength)) {
+                        return chunkedTranscriber.transcribe(
+                                audio,
+                                contentLength,
+                                fileName,
+                                audioProject.getAudioFormat()
+                        );
+                    }
+                    return audioUtil.streamPythonApi(
+                            audio,
+                            contentLength,
+                            fileName,
+                            "/audio-api/transcribe",
+                            window == null ? null : window.toParams(),
+                            response -> objectMapper.readValue(response.getBody(), TranscriptionResult.class)
+                    );
+                });
+            }
 
-            TranscriptionResult result = objectMapper.readValue(jsonResponse, TranscriptionResult.class);
+            if (window != null) {
+                result = window.splice(previous.get(), result);
+            }
 
-            audioProject.setTranscriptionText(result.getTranscript());
-            audioProject.setUpdatedAt(LocalDateTime.now());
-            audioProjectRepository.saveAndFlush(audioProject);
+            audioProject.onHashed(AudioHash.toHex(digest));
+            transcriptionCache.put(audioProject.getAudioHash(), result);
 
-            return result;
+            return saveTranscription(audioProject, result);
 
+        } catch (ApiException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error sending file to Python API: {}", e.getMessage(), e);
             throw ApiException.builder()
@@ -171,522 +195,508 @@ public class AudioService {
         }
     }
 
-    @Transactional
-    public AudioModificationResponse muteAudio(User user, Long projectId, Double startTime, Double endTime) {
-        log.info("Starting muteAudio operation for project {}", projectId);
-        AudioProject audioProject = getAudioProject(user, projectId);
-        String audioUrl = audioProject.getAudioUrl();
-
-        if (audioUrl == null || audioUrl.isEmpty()) {
-            throw ApiException.builder()
-                    .status(HttpServletResponse.SC_BAD_REQUEST)
-                    .message("Audio URL is missing for this project")
-                    .build();
-        }
+    private TranscriptionResult saveTranscription(AudioProject audioProject, TranscriptionResult result) {
+        audioProject.setTranscriptionText(result.getTranscript());
+        audioProject.onTranscribed();
+        audioProject.setUpdatedAt(LocalDateTime.now());
+        audioMetrics.stage("transcribe", "word_timeline", audioProject.getAudioFormat(), () -> {
+            storeWordTimeline(audioProject, result.getWords() == null ? List.of() : result.getWords());
+            return null;
+        });
+        audioMetrics.stage("transcribe", "db_flush", audioProject.getAudioFormat(),
+                () -> audioProjectRepository.saveAndFlush(audioProject));
+        audioMetrics.stage("transcribe", "search_index", audioProject.getAudioFormat(), () -> {
+            transcriptSearchService.index(audioProject, result.getWords());
+            return null;
+        });
 
-        String originalFileName = audioUrl.substring(audioUrl.lastIndexOf("/") + 1);
+        return result;
+    }
 
-        byte[] audioData;
+    /**
+     * Keeps the words of a transcription with the current version of the project, replacing those of
+     * an earlier transcription of the same version.
+     */
+    private void storeWordTimeline(AudioProject audioProject, List<WordTimestamp> words) {
+        Optional<AudioProjectVersion> version = audioProjectVersionRepository
+                .findFirstByAudioProjectOrderByVersionNumberDesc(audioProject);
+        if (version.isEmpty()) {
+            return;
+        }
 
-        try {
-            log.info("Downloading audio file from URL: {}", audioUrl);
-            URL url = new URL(audioUrl);
-            try (InputStream in = url.openStream()) {
-                audioData = in.readAllBytes();
-            }
+        byte[] data = WordTimeline.encode(words);
+        WordTimelineEntry stored = version.get().getWordTimeline();
+        if (stored == null || !Arrays.equals(stored.getData(), data)) {
+            version.get().setWordTimeline(new WordTimelineEntry(words.size(), data));
+        }
+    }
 
-            log.info("Successfully downloaded {} bytes", audioData.length);
-        } catch (IOException e) {
-            log.error("Error downloading audio file: {}", e.getMessage(), e);
+    /**
+     * Reads the words of a project version spoken between two times, only the part of the timeline
+     * holding them is decoded.
+     *
+     * @param versionNumber Version to read, null for the current one
+     * @param startTime Start of the slice in seconds
+     * @param endTime End of the slice in seconds, null for the end of the audio
+     */
+    @Transactional(readOnly = true)
+    public WordTimelineResponse getWords(User user, Long projectId, Integer versionNumber, double startTime, Double endTime) {
+        if (endTime != null && startTime >= endTime) {
             throw ApiException.builder()
-                    .status(HttpServletResponse.SC_INTERNAL_SERVER_ERROR)
-                    .message("Error downloading audio file: " + e.getMessage())
+                    .status(HttpServletResponse.SC_BAD_REQUEST)
+                    .message("Start time must be less than end time")
                     .build();
         }
 
-        try {
-            log.info("Sending audio file to Python API for muting");
-
-            MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
-
-            ByteArrayResource resource = new ByteArrayResource(audioData) {
-                @Override
-                public String getFilename() {
-                    return originalFileName;
-                }
-            };
-
-            body.add("audio_file", resource);
-            body.add("start_time", startTime.toString());
-            body.add("end_time", endTime.toString());
-            body.add("modification_type", "mute");
-            body.add("output_format", audioProject.getAudioFormat());
-
-            log.info("Sending parameters to Python API: start_time={}, end_time={}, modification_type=mute, output_format={}",
-                    startTime, endTime, audioProject.getAudioFormat());
-
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.MULTIPART_FORM_DATA);
-
-            HttpEntity<MultiValueMap<String, Object>> requestEntity = new HttpEntity<>(body, headers);
-
-            byte[] modifiedAudio = restTemplate.postForObject(
-                    applicationProperties.getBaseUrl() + "/audio-api/modify",
-                    requestEntity,
-                    byte[].class
-            );
-
-            if (modifiedAudio == null || modifiedAudio.length == 0) {
-                throw new RuntimeException("Received empty response from Python API");
-            }
-
-            log.info("Received modified audio: {} bytes", modifiedAudio.length);
-
-            // Create a new uploaded file record - this will get a new UUID filename
-            UploadedFile uploadedFile = new UploadedFile(
-                    originalFileName, // Keep the original filename for reference
-                    (long) modifiedAudio.length,
-                    user
-            );
+        AudioProject audioProject = getAudioProject(user, projectId);
+        AudioProjectVersion version = (versionNumber == null
+                ? audioProjectVersionRepository.findFirstByAudioProjectOrderByVersionNumberDesc(audioProject)
+                : audioProjectVersionRepository.findByAudioProjectAndVersionNumber(audioProject, versionNumber))
+                .orElseThrow(() -> ApiException.builder().status(HttpServletResponse.SC_NOT_FOUND).
+                        message("Version not found").build());
 
-            // Delete the old file from S3 if it exists
-            try {
-                String oldFilePath = extractFilePathFromUrl(audioProject.getAudioUrl());
-                if (oldFilePath != null) {
-                    fileService.deleteFile(oldFilePath);
-                    log.info("Deleted old audio file: {}", oldFilePath);
-                }
-            } catch (Exception e) {
-                log.warn("Could not delete old audio file: {}", e.getMessage());
-            }
+        WordTimeline timeline = findWordTimeline(audioProject, version.getEditListHash())
+                .orElseThrow(() -> ApiException.builder()
+                        .status(HttpServletResponse.SC_CONFLICT)
+                        .message("Version " + version.getVersionNumber() + " of the project wasn't transcribed")
+                        .build());
 
-            // Upload the modified audio to S3 - buildPath() will generate a new UUID
-            String filePath = uploadedFile.buildPath("audio-file");
-            log.info("Generated new file path: {}", filePath);
-            String newAudioUrl = fileService.uploadFile(filePath, modifiedAudio);
-            log.info("New audio URL from S3: {}", newAudioUrl);
+        return new WordTimelineResponse(projectId, version.getVersionNumber(), timeline.getWordCount(),
+                timeline.slice(startTime, endTime != null ? endTime : Double.MAX_VALUE));
+    }
 
-            uploadedFile.onUploaded(newAudioUrl);
-            uploadedFileRepository.saveAndFlush(uploadedFile);
+    @Transactional
+    public AudioModificationResponse muteAudio(User user, Long projectId, Double startTime, Double endTime) {
+        log.info("Adding mute edit to project {}", projectId);
+        AudioProject audioProject = getAudioProject(user, projectId);
 
-            // Update the project with the new audio URL
-            audioProject.setAudioUrl(newAudioUrl);
-            audioProject.setUpdatedAt(LocalDateTime.now());
-            audioProjectRepository.saveAndFlush(audioProject);
+        return addEdits(audioProject, List.of(
+                new AudioEdit(AudioEditType.MUTE, startTime, endTime, null, null, null, null)));
+    }
 
-            // Force flush and clear the persistence context to ensure changes are committed
-            // and the cache is cleared
-            entityManager.flush();
-            entityManager.clear();
+    @Transactional
+    public AudioModificationResponse replaceWithTone(
+            User user,
+            Long projectId,
+            Double startTime,
+            Double endTime,
+            Integer toneFrequency) {
 
-            // Return simplified response with just the project ID and new audio URL
-            return new AudioModificationResponse(projectId, newAudioUrl);
+        log.info("Adding tone edit to project {}", projectId);
+        AudioProject audioProject = getAudioProject(user, projectId);
 
-        } catch (Exception e) {
-            log.error("Error muting audio: {}", e.getMessage(), e);
-            throw ApiException.builder()
-                    .status(HttpServletResponse.SC_INTERNAL_SERVER_ERROR)
-                    .message("Error muting audio: " + e.getMessage())
-                    .build();
-        }
+        return addEdits(audioProject, List.of(
+                new AudioEdit(AudioEditType.TONE, startTime, endTime, toneFrequency, null, null, null)));
     }
 
     @Transactional
-    public AudioModificationResponse replaceWithTone(
+    public AudioModificationResponse replaceWithTts(
             User user,
             Long projectId,
             Double startTime,
+            String replacementText,
             Double endTime,
-            Integer toneFrequency) {
+            Boolean useEdgeTts,
+            String gender,
+            String outputFormat) {
 
-        log.info("Starting replaceWithTone operation for project {}", projectId);
+        log.info("Adding TTS edit to project {}", projectId);
         AudioProject audioProject = getAudioProject(user, projectId);
-        String audioUrl = audioProject.getAudioUrl();
 
-        if (audioUrl == null || audioUrl.isEmpty()) {
-            throw ApiException.builder()
-                    .status(HttpServletResponse.SC_BAD_REQUEST)
-                    .message("Audio URL is missing for this project")
-                    .build();
+        if (outputFormat != null && !outputFormat.isEmpty()) {
+            audioProject.changeFormat(outputFormat.toLowerCase());
         }
 
-        String originalFileName = audioUrl.substring(audioUrl.lastIndexOf("/") + 1);
-
-        byte[] audioData;
+        return addEdits(audioProject, List.of(
+                new AudioEdit(AudioEditType.TTS, startTime, endTime, null, replacementText, useEdgeTts, gender)));
+    }
 
-        try {
-            log.info("Downloading audio file from URL: {}", audioUrl);
-            URL url = new URL(audioUrl);
-            try (InputStream in = url.openStream()) {
-                audioData = in.readAllBytes();
-            }
+    @Transactional
+    public AudioModificationResponse convertAudioFormat(User user, Long projectId, String targetFormat) {
+        log.info("Converting project {} to format {}", projectId, targetFormat);
+        AudioProject audioProject = getAudioProject(user, projectId);
 
-            log.info("Successfully downloaded {} bytes", audioData.length);
-        } catch (IOException e) {
-            log.error("Error downloading audio file: {}", e.getMessage(), e);
+        // Check if already in target format
+        if (targetFormat.equalsIgnoreCase(audioProject.getAudioFormat())) {
             throw ApiException.builder()
-                    .status(HttpServletResponse.SC_INTERNAL_SERVER_ERROR)
-                    .message("Error downloading audio file: " + e.getMessage())
+                    .status(HttpServletResponse.SC_BAD_REQUEST)
+                    .message("Audio is already in " + targetFormat + " format")
                     .build();
         }
 
-        try {
-            log.info("Sending audio file to Python API for tone replacement");
-
-            MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
-
-            ByteArrayResource resource = new ByteArrayResource(audioData) {
-                @Override
-                public String getFilename() {
-                    return originalFileName;
-                }
-            };
-
-            body.add("audio_file", resource);
-            body.add("start_time", startTime.toString());
-            body.add("end_time", endTime.toString());
-            body.add("modification_type", "tone");
-            body.add("tone_frequency", toneFrequency.toString());
-            body.add("output_format", audioProject.getAudioFormat());
-
-            log.info("Sending parameters to Python API: start_time={}, end_time={}, modification_type=tone, tone_frequency={}, output_format={}",
-                    startTime, endTime, toneFrequency, audioProject.getAudioFormat());
-
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.MULTIPART_FORM_DATA);
-
-            HttpEntity<MultiValueMap<String, Object>> requestEntity = new HttpEntity<>(body, headers);
-
-            byte[] modifiedAudio = restTemplate.postForObject(
-                    applicationProperties.getBaseUrl() + "/audio-api/modify",
-                    requestEntity,
-                    byte[].class
-            );
-
-            if (modifiedAudio == null || modifiedAudio.length == 0) {
-                throw new RuntimeException("Received empty response from Python API");
-            }
+        audioProject.changeFormat(targetFormat.toLowerCase());
+        return saveEdits(audioProject, AudioProjectChange.CONVERT);
+    }
 
-            log.info("Received modified audio: {} bytes", modifiedAudio.length);
+    /**
+     * Adds many edits to the edit list at once, they are undone together.
+     *
+     * @param user Owner of the project
+     * @param projectId Project to edit
+     * @param edits Edits validated by {@link #validateEdits(List)}
+     * @return The project ID and the new audio URL
+     */
+    @Transactional
+    public AudioModificationResponse applyEdits(User user, Long projectId, List<AudioEdit> edits) {
+        log.info("Adding {} edits to project {}", edits.size(), projectId);
+        AudioProject audioProject = getAudioProject(user, projectId);
 
-            // Try to delete the old file
-            try {
-                String oldFilePath = extractFilePathFromUrl(audioProject.getAudioUrl());
-                if (oldFilePath != null) {
-                    fileService.deleteFile(oldFilePath);
-                    log.info("Deleted old audio file: {}", oldFilePath);
-                }
-            } catch (Exception e) {
-                log.warn("Could not delete old audio file: {}", e.getMessage());
-            }
+        return addEdits(audioProject, edits.stream()
+                .sorted(Comparator.comparingDouble(AudioEdit::getStartTime))
+                .toList());
+    }
 
-            // Generate a new unique filename for the modified audio
-            String newFileName = UUID.randomUUID().toString() + "." + audioProject.getAudioFormat();
-            String filePath = "user:" + user.getId() + "/audio-file/" + newFileName;
-            String newAudioUrl = fileService.uploadFile(filePath, modifiedAudio);
+    /**
+     * Mutes or tones every occurrence of the banned phrases, found in the stored transcription without
+     * transcribing again. All spans are added as one revision, they are undone together.
+     */
+    @Transactional
+    public CensorResponse censorPhrases(User user, Long projectId, CensorRequest request) {
+        if (request.getType() == AudioEditType.TTS) {
+            throw ApiException.builder()
+                    .status(HttpServletResponse.SC_BAD_REQUEST)
+                    .message("Phrases can only be muted or replaced with a tone")
+                    .build();
+        }
 
-            log.info("New audio URL from S3: {}", newAudioUrl);
+        if (request.getPhrases().size() > audioConfiguration.getMaxCensoredPhrases()) {
+            throw ApiException.builder()
+                    .status(HttpServletResponse.SC_BAD_REQUEST)
+                    .message("At most " + audioConfiguration.getMaxCensoredPhrases() + " phrases can be censored at once")
+                    .build();
+        }
 
-            // Create and save the uploaded file record
-            UploadedFile uploadedFile = new UploadedFile(
-                    originalFileName,
-                    (long) modifiedAudio.length,
-                    user
-            );
-            uploadedFile.onUploaded(newAudioUrl);
-            uploadedFileRepository.saveAndFlush(uploadedFile);
+        AudioProject audioProject = getAudioProject(user, projectId);
+        List<WordTimestamp> words = requireTranscribedWords(audioProject);
 
-            // Update the project with the new audio URL
-            audioProject.setAudioUrl(newAudioUrl);
-            audioProject.setUpdatedAt(LocalDateTime.now());
-            audioProjectRepository.saveAndFlush(audioProject);
+        double padding = request.getPadding() != null
+                ? request.getPadding()
+                : audioConfiguration.getCensorPadding().toMillis() / 1000.0;
+        List<PhraseMatcher.Range> ranges = audioMetrics.stage("censor", "phrase_match", null,
+                () -> PhraseMatcher.ranges(findPhrases(request, words), padding));
+        log.info("Found {} spans to censor in project {}", ranges.size(), projectId);
 
-            // Force flush and clear the persistence context
-            entityManager.flush();
-            entityManager.clear();
+        if (request.isDryRun() || ranges.isEmpty()) {
+            return new CensorResponse(projectId, audioProject.getPlaybackUrl(), ranges);
+        }
 
-            // Return the new audio URL in the response
-            return new AudioModificationResponse(projectId, newAudioUrl);
+        List<AudioEdit> edits = ranges.stream()
+                .map(range -> new AudioEdit(request.getType(), range.startTime(), range.endTime(),
+                        request.getToneFrequency(), null, null, null))
+                .toList();
+        validateEdits(edits);
 
-        } catch (Exception e) {
-            log.error("Error replacing with tone: {}", e.getMessage(), e);
-            throw ApiException.builder()
-                    .status(HttpServletResponse.SC_INTERNAL_SERVER_ERROR)
-                    .message("Error replacing with tone: " + e.getMessage())
-                    .build();
-        }
+        return new CensorResponse(projectId, addEdits(audioProject, edits).getAudioUrl(), ranges);
     }
 
     @Transactional
-    public AudioModificationResponse replaceWithTts(
-            User user,
-            Long projectId,
-            Double startTime,
-            String replacementText,
-            Double endTime,
-            Boolean useEdgeTts,
-            String gender,
-            String outputFormat) {
-
-        log.info("Starting replaceWithTts operation for project {}", projectId);
+    public AudioModificationResponse undo(User user, Long projectId) {
         AudioProject audioProject = getAudioProject(user, projectId);
-        String audioUrl = audioProject.getAudioUrl();
 
-        if (audioUrl == null || audioUrl.isEmpty()) {
+        if (audioProject.undo().isEmpty()) {
             throw ApiException.builder()
                     .status(HttpServletResponse.SC_BAD_REQUEST)
-                    .message("Audio URL is missing for this project")
+                    .message("There is nothing to undo")
                     .build();
         }
 
-        String originalFileName = audioUrl.substring(audioUrl.lastIndexOf("/") + 1);
-
-        byte[] audioData;
+        return saveEdits(audioProject, AudioProjectChange.UNDO);
+    }
 
-        try {
-            log.info("Downloading audio file from URL: {}", audioUrl);
-            URL url = new URL(audioUrl);
-            try (InputStream in = url.openStream()) {
-                audioData = in.readAllBytes();
-            }
+    @Transactional
+    public AudioModificationResponse redo(User user, Long projectId) {
+        AudioProject audioProject = getAudioProject(user, projectId);
 
-            log.info("Successfully downloaded {} bytes", audioData.length);
-        } catch (IOException e) {
-            log.error("Error downloading audio file: {}", e.getMessage(), e);
+        if (audioProject.redo().isEmpty()) {
             throw ApiException.builder()
-                    .status(HttpServletResponse.SC_INTERNAL_SERVER_ERROR)
-                    .message("Error downloading audio file: " + e.getMessage())
+                    .status(HttpServletResponse.SC_BAD_REQUEST)
+                    .message("There is nothing to redo")
                     .build();
         }
 
-        try {
-            log.info("Sending audio file to Python API for TTS replacement");
+        return saveEdits(audioProject, AudioProjectChange.REDO);
+    }
 
-            MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
+    @Transactional(readOnly = true)
+    public List<AudioProjectVersionResponse> getVersions(User user, Long projectId) {
+        AudioProject audioProject = getAudioProject(user, projectId);
 
-            ByteArrayResource resource = new ByteArrayResource(audioData) {
-                @Override
-                public String getFilename() {
-                    return originalFileName;
-                }
-            };
+        return audioProjectVersionRepository.findByAudioProjectOrderByVersionNumberDesc(audioProject).stream()
+                .map(version -> new AudioProjectVersionResponse(version.getVersionNumber(), version.getChangeType(),
+                        version.getAudioFormat(), version.getEdits().size(), version.getCreatedAt(),
+                        version.getEditListHash().equals(audioProject.getEditListHash())))
+                .toList();
+    }
 
-            body.add("audio_file", resource);
-            body.add("start_time", startTime.toString());
-            body.add("replacement_text", replacementText);
+    /**
+     * Brings the project back to an earlier version. Nothing is rendered until the audio is played,
+     * and the render of the version is reused if it's still stored.
+     */
+    @Transactional
+    public AudioModificationResponse restoreVersion(User user, Long projectId, int versionNumber) {
+        AudioProject audioProject = getAudioProject(user, projectId);
+        AudioProjectVersion version = audioProjectVersionRepository
+                .findByAudioProjectAndVersionNumber(audioProject, versionNumber)
+                .orElseThrow(() -> ApiException.builder().status(HttpServletResponse.SC_NOT_FOUND).
+                        message("Version not found").build());
 
-            if (outputFormat == null || outputFormat.isEmpty()) {
-                outputFormat = audioProject.getAudioFormat();
-            }
-            body.add("output_format", outputFormat);
+        log.info("Restoring version {} of project {}", versionNumber, projectId);
+        audioProject.restore(version);
 
-            body.add("use_edge_tts", useEdgeTts.toString());
+        return saveEdits(audioProject, AudioProjectChange.RESTORE);
+    }
 
-            if (endTime != null) {
-                body.add("end_time", endTime.toString());
-            }
+    /**
+     * Renders the edit list of the project unless it was rendered before. Runs outside of a transaction,
+     * so the lock is only released once the render is committed and the next caller finds it.
+     *
+     * @param user Owner of the project
+     * @param projectId Project to render
+     * @return The audio matching the edit list
+     */
+    public RenderedAudioFile renderAudio(User user, Long projectId) {
+        return audioMetrics.operation("render", () -> {
+            RenderLock lock = renderLocks.compute(projectId, (id, held) -> {
+                RenderLock renderLock = held == null ? new RenderLock() : held;
+                renderLock.users++;
+                return renderLock;
+            });
+            // The format isn't known before the project is loaded, waiting is tagged with an unknown one
+            audioMetrics.stage("render", "lock_wait", null, () -> {
+                lock.lock();
+                return null;
+            });
 
-            if (gender != null) {
-                body.add("gender", gender);
+            try {
+                return audioRenderer.render(user, projectId);
+            } finally {
+                lock.unlock();
+                // The last user removes the lock, one that just got it keeps it in the map
+                renderLocks.compute(projectId, (id, held) -> --held.users == 0 ? null : held);
             }
+        });
+    }
 
-            log.info("Sending parameters to Python API: start_time={}, replacement_text={}, use_edge_tts={}, gender={}, output_format={}",
-                    startTime, replacementText, useEdgeTts, gender, outputFormat);
-
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.MULTIPART_FORM_DATA);
-
-            HttpEntity<MultiValueMap<String, Object>> requestEntity = new HttpEntity<>(body, headers);
+    /**
+     * Finds the audio of the current edits of a project without rendering them.
+     *
+     * @return The rendered audio, empty until a render job has rendered the edits
+     */
+    @Transactional(readOnly = true)
+    public Optional<RenderedAudioFile> findRenderedAudio(User user, Long projectId) {
+        AudioProject audioProject = getAudioProject(user, projectId);
+        return audioProject.isRendered() ? Optional.of(audioRenderer.renderedFile(audioProject)) : Optional.empty();
+    }
 
-            byte[] modifiedAudio = restTemplate.postForObject(
-                    applicationProperties.getBaseUrl() + "/audio-api/replace-with-tts",
-                    requestEntity,
-                    byte[].class
-            );
+    /**
+     * Sends part of the audio from the local cache, or straight from S3 while the cache is filled.
+     *
+     * @param audio Rendered audio of the project
+     * @param start First byte to send
+     * @param length Number of bytes to send
+     * @param target Response body
+     */
+    public void streamAudio(RenderedAudioFile audio, long start, long length, OutputStream target) throws IOException {
+        if (length <= 0) {
+            return;
+        }
 
-            if (modifiedAudio == null || modifiedAudio.length == 0) {
-                throw new RuntimeException("Received empty response from Python API");
+        try (FileChannel cached = fileCache.open(audio.filePath())) {
+            if (cached != null) {
+                audioMetrics.stage("stream", "cache_read", audio.audioFormat(), () -> {
+                    // Lets the kernel copy the file to the response without passing it through the heap
+                    WritableByteChannel channel = Channels.newChannel(target);
+                    long position = start;
+                    long end = start + length;
+                    while (position < end) {
+                        long sent = cached.transferTo(position, end - position, channel);
+                        if (sent <= 0) {
+                            throw new EOFException("Cached copy of " + audio.filePath() + " ended at byte " + position);
+                        }
+                        position += sent;
+                    }
+                    return null;
+                });
+                audioMetrics.recordBytes("stream", "cache_read", audio.audioFormat(), length);
+                return;
             }
+        }
 
-            // Try to delete the old file
-            try {
-                String oldFilePath = extractFilePathFromUrl(audioProject.getAudioUrl());
-                if (oldFilePath != null) {
-                    fileService.deleteFile(oldFilePath);
-                    log.info("Deleted old audio file: {}", oldFilePath);
-                }
-            } catch (Exception e) {
-                log.warn("Could not delete old audio file: {}", e.getMessage());
+        fileCache.prefetch(audio.filePath());
+        audioMetrics.stage("stream", "s3_download", audio.audioFormat(), () -> {
+            try (ResponseInputStream<GetObjectResponse> download =
+                         fileService.downloadFileRange(audio.filePath(), start, start + length - 1)) {
+                return download.transferTo(target);
             }
+        });
+        audioMetrics.recordBytes("stream", "s3_download", audio.audioFormat(), length);
+    }
 
-            // Generate a new unique filename for the modified audio
-            String newFileName = UUID.randomUUID().toString() + "." + outputFormat;
-            String filePath = "user:" + user.getId() + "/audio-file/" + newFileName;
-            String newAudioUrl = fileService.uploadFile(filePath, modifiedAudio);
-
-            log.info("New audio URL from S3: {}", newAudioUrl);
-
-            // Create and save the uploaded file record
-            UploadedFile uploadedFile = new UploadedFile(
-                    originalFileName,
-                    (long) modifiedAudio.length,
-                    user
-            );
-            uploadedFile.onUploaded(newAudioUrl);
-            uploadedFileRepository.saveAndFlush(uploadedFile);
-
-            // Update the project with the new audio URL
-            audioProject.setAudioUrl(newAudioUrl);
-            audioProject.setUpdatedAt(LocalDateTime.now());
-            audioProjectRepository.saveAndFlush(audioProject);
-
-            // Force flush and clear the persistence context to ensure changes are committed
-            // and the cache is cleared
-            entityManager.flush();
-            entityManager.clear();
-
-            // Return the new audio URL in the response
-            return new AudioModificationResponse(projectId, newAudioUrl);
+    public long getAudioSize(RenderedAudioFile audio) {
+        if (audio.fileSize() != null) {
+            return audio.fileSize();
+        }
 
-        } catch (Exception e) {
-            log.error("Error replacing with TTS: {}", e.getMessage(), e);
+        HeadObjectResponse head = fileService.headFile(audio.filePath());
+        if (head == null) {
             throw ApiException.builder()
-                    .status(HttpServletResponse.SC_INTERNAL_SERVER_ERROR)
-                    .message("Error replacing with TTS: " + e.getMessage())
+                    .status(HttpServletResponse.SC_NOT_FOUND)
+                    .message("Audio file not found")
                     .build();
         }
+        return head.contentLength();
     }
 
-    @Transactional
-    public AudioModificationResponse convertAudioFormat(User user, Long projectId, String targetFormat) {
-        log.info("Starting convertAudioFormat operation for project {} to format {}", projectId, targetFormat);
-        AudioProject audioProject = getAudioProject(user, projectId);
-        String audioUrl = audioProject.getAudioUrl();
-
-        if (audioUrl == null || audioUrl.isEmpty()) {
+    /**
+     * Reads one level of waveform peaks of the audio, computing them if the background job didn't yet.
+     *
+     * @param audio Rendered audio of the project
+     * @param level Frames per bin, one of the configured levels
+     * @return The encoded peaks
+     */
+    public byte[] getWaveformPeaks(User user, RenderedAudioFile audio, int level) throws IOException {
+        if (!audioConfiguration.getWaveformLevels().contains(level)) {
             throw ApiException.builder()
                     .status(HttpServletResponse.SC_BAD_REQUEST)
-                    .message("Audio URL is missing for this project")
+                    .message("Waveform level must be one of " + audioConfiguration.getWaveformLevels())
                     .build();
         }
 
-        // Check if already in target format
-        if (targetFormat.equalsIgnoreCase(audioProject.getAudioFormat())) {
-            throw ApiException.builder()
-                    .status(HttpServletResponse.SC_BAD_REQUEST)
-                    .message("Audio is already in " + targetFormat + " format")
-                    .build();
+        byte[] peaks = waveformService.getPeaks(user.getId(), audio.editListHash(), level);
+        if (peaks == null) {
+            waveformService.computePeaks(user.getId(), audio.editListHash(), audio.filePath(), audio.audioFormat());
+            peaks = waveformService.getPeaks(user.getId(), audio.editListHash(), level);
         }
 
-        String originalFileName = audioUrl.substring(audioUrl.lastIndexOf("/") + 1);
+        return peaks;
+    }
 
-        byte[] audioData;
-        try {
-            log.info("Downloading audio file from URL: {}", audioUrl);
-            URL url = new URL(audioUrl);
-            try (InputStream in = url.openStream()) {
-                audioData = in.readAllBytes();
+    /**
+     * Checks the parameters of every edit and that no two edits overlap.
+     *
+     * @param edits Edits in the order they were requested
+     */
+    public void validateEdits(List<AudioEdit> edits) {
+        for (AudioEdit edit : edits) {
+            if (edit.getStartTime() >= edit.getEndTime()) {
+                throw ApiException.builder()
+                        .status(HttpServletResponse.SC_BAD_REQUEST)
+                        .message("Start time must be less than end time")
+                        .build();
             }
-            log.info("Successfully downloaded {} bytes", audioData.length);
-        } catch (IOException e) {
-            log.error("Error downloading audio file: {}", e.getMessage(), e);
-            throw ApiException.builder()
-                    .status(HttpServletResponse.SC_INTERNAL_SERVER_ERROR)
-                    .message("Error downloading audio file: " + e.getMessage())
-                    .build();
-        }
-
-        try {
-            log.info("Sending audio file to Python API for format conversion");
-
-            MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
 
-            ByteArrayResource resource = new ByteArrayResource(audioData) {
-                @Override
-                public String getFilename() {
-                    return originalFileName;
+            if (edit.getType() == AudioEditType.TONE) {
+                if (edit.getToneFrequency() == null) {
+                    edit.setToneFrequency(440);
                 }
-            };
-
-            body.add("audio_file", resource);
-            body.add("target_format", targetFormat);
-
-            log.info("Sending parameters to Python API: target_format={}", targetFormat);
+                if (edit.getToneFrequency() < 20 || edit.getToneFrequency() > 20000) {
+                    throw ApiException.builder()
+                            .status(HttpServletResponse.SC_BAD_REQUEST)
+                            .message("Tone frequency must be between 20 and 20000 Hz")
+                            .build();
+                }
+            }
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+            if (edit.getType() == AudioEditType.TTS
+                    && (edit.getReplacementText() == null || edit.getReplacementText().trim().isEmpty())) {
+                throw ApiException.builder()
+                        .status(HttpServletResponse.SC_BAD_REQUEST)
+                        .message("Replacement text is required")
+                        .build();
+            }
+        }
 
-            HttpEntity<MultiValueMap<String, Object>> requestEntity = new HttpEntity<>(body, headers);
+        List<AudioEdit> orderedEdits = edits.stream()
+                .sorted(Comparator.comparingDouble(AudioEdit::getStartTime))
+                .toList();
 
-            byte[] convertedAudio = restTemplate.postForObject(
-                    applicationProperties.getBaseUrl() + "/audio-api/convert-format",
-                    requestEntity,
-                    byte[].class
-            );
+        for (int i = 1; i < orderedEdits.size(); i++) {
+            AudioEdit previous = orderedEdits.get(i - 1);
+            AudioEdit current = orderedEdits.get(i);
 
-            if (convertedAudio == null || convertedAudio.length == 0) {
-                throw new RuntimeException("Received empty response from Python API");
+            if (current.getStartTime() < previous.getEndTime()) {
+                throw ApiException.builder()
+                        .status(HttpServletResponse.SC_BAD_REQUEST)
+                        .message("Edits overlap between " + current.getStartTime() + "s and " + previous.getEndTime() + "s")
+                        .build();
             }
+        }
+    }
 
-            log.info("Received converted audio: {} bytes", convertedAudio.length);
+    private AudioModificationResponse addEdits(AudioProject audioProject, List<AudioEdit> edits) {
+        audioProject.addEdits(edits.stream().map(ProjectEdit::from).toList());
+        return saveEdits(audioProject, AudioProjectChange.EDIT);
+    }
 
-            // Try to delete the old file
-            try {
-                String oldFilePath = extractFilePathFromUrl(audioProject.getAudioUrl());
-                if (oldFilePath != null) {
-                    fileService.deleteFile(oldFilePath);
-                    log.info("Deleted old audio file: {}", oldFilePath);
-                }
-            } catch (Exception e) {
-                log.warn("Could not delete old audio file: {}", e.getMessage());
-            }
+    private AudioModificationResponse saveEdits(AudioProject audioProject, AudioProjectChange change) {
+        audioProject.recordVersion(change);
+        audioProject.setUpdatedAt(LocalDateTime.now());
+        // Edits are only recorded here, rendering them is timed by the render job that follows
+        audioMetrics.stage(change.name().toLowerCase(), "db_flush", audioProject.getAudioFormat(),
+                () -> audioProjectRepository.saveAndFlush(audioProject));
 
-            // Generate a new unique filename for the converted audio
-            String newFileName = UUID.randomUUID().toString() + "." + targetFormat;
-            String filePath = "user:" + user.getId() + "/audio-file/" + newFileName;
-            String newAudioUrl = fileService.uploadFile(filePath, convertedAudio);
+        log.info("Project {} has {} of {} edits applied", audioProject.getId(), audioProject.getAppliedEditCount(),
+                audioProject.getEdits().size());
+        return new AudioModificationResponse(audioProject.getId(), audioProject.getPlaybackUrl());
+    }
+
+    private List<PhraseMatcher.Match> findPhrases(CensorRequest request, List<WordTimestamp> words) {
+        if (!request.isFuzzy()) {
+            return PhraseMatcher.compile(request.getPhrases()).find(words);
+        }
 
-            log.info("New audio URL from S3: {}", newAudioUrl);
+        int maxEditDistance = request.getMaxEditDistance() != null
+                ? request.getMaxEditDistance()
+                : audioConfiguration.getFuzzyMaxEditDistance();
+        return FuzzyPhraseMatcher.compile(request.getPhrases(), maxEditDistance, audioConfiguration.getFuzzyMinWordLength())
+                .find(words);
+    }
 
-            // Create and save the uploaded file record
-            UploadedFile uploadedFile = new UploadedFile(
-                    originalFileName.substring(0, originalFileName.lastIndexOf('.')) + "." + targetFormat,
-                    (long) convertedAudio.length,
-                    user
-            );
-            uploadedFile.onUploaded(newAudioUrl);
-            uploadedFileRepository.saveAndFlush(uploadedFile);
+    /**
+     * Words of the transcription of the current audio. Spans edited since may have lost or changed words,
+     * so the project has to be transcribed again first, which only transcribes those spans.
+     */
+    private List<WordTimestamp> requireTranscribedWords(AudioProject audioProject) {
+        if (audioProject.getTranscribedAudioHash() == null || !audioProject.getEditedRanges().isEmpty()) {
+            throw ApiException.builder()
+                    .status(HttpServletResponse.SC_CONFLICT)
+                    .message("The project has to be transcribed after its last edit")
+                    .build();
+        }
 
-            // Update the project with the new audio URL and format
-            audioProject.setAudioUrl(newAudioUrl);
-            audioProject.setAudioFormat(targetFormat);
-            audioProject.setFileSize((long) convertedAudio.length);
-            audioProject.setUpdatedAt(LocalDateTime.now());
-            audioProjectRepository.saveAndFlush(audioProject);
+        return findWordTimeline(audioProject, audioProject.getEditListHash())
+                .map(WordTimeline::getWords)
+                .or(() -> transcriptionCache.get(audioProject.getTranscribedAudioHash()).map(TranscriptionResult::getWords))
+                .orElseThrow(() -> ApiException.builder()
+                        .status(HttpServletResponse.SC_CONFLICT)
+                        .message("The transcription of the project is no longer available, transcribe it again")
+                        .build());
+    }
 
-            // Force flush and clear the persistence context
-            entityManager.flush();
-            entityManager.clear();
+    private Optional<WordTimeline> findWordTimeline(AudioProject audioProject, String editListHash) {
+        return audioProjectVersionRepository.findWordTimelines(audioProject, editListHash, Limit.of(1)).stream()
+                .findFirst()
+                .map(WordTimelineEntry::read);
+    }
 
-            // Return the new audio URL in the response
-            return new AudioModificationResponse(projectId, newAudioUrl);
+    private String requireAudioUrl(AudioProject audioProject) {
+        String audioUrl = audioProject.getAudioUrl();
 
-        } catch (Exception e) {
-            log.error("Error converting audio format: {}", e.getMessage(), e);
+        if (audioUrl == null || audioUrl.isEmpty()) {
             throw ApiException.builder()
-                    .status(HttpServletResponse.SC_INTERNAL_SERVER_ERROR)
-                    .message("Error converting audio format: " + e.getMessage())
+                    .status(HttpServletResponse.SC_BAD_REQUEST)
+                    .message("Audio URL is missing for this project")
                     .build();
         }
+
+        return audioUrl;
     }
 
-    private String extractFilePathFromUrl(String audioUrl) {
-        try {
-            URL url = new URL(audioUrl);
-            return url.getPath().startsWith("/") ? url.getPath().substring(1) : url.getPath();
-        } catch (Exception e) {
-            log.error("Error extracting file path from URL: {}", e.getMessage());
-            return null;
-        }
+    /**
+     * Lock of a project with the number of requests holding or waiting for it, only changed in
+     * {@link Map#compute} so the lock is removed exactly when nobody uses it.
+     */
+    private static final class RenderLock extends ReentrantLock {
+        private int users;
     }
 }
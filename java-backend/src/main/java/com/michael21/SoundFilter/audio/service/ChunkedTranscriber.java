@@ -0,0 +1,261 @@
+package com.michael21.SoundFilter.audio.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.michael21.SoundFilter.audio.AudioUtil;
+import com.michael21.SoundFilter.audio.TranscriptionChunk;
+import com.michael21.SoundFilter.audio.config.AudioConfiguration;
+import com.michael21.SoundFilter.audio.data.TranscriptionResult;
+import com.michael21.SoundFilter.audio.processor.WavHeader;
+import com.michael21.SoundFilter.audio.processor.WavSplitter;
+import com.michael21.SoundFilter.config.ApplicationProperties;
+import com.michael21.SoundFilter.config.PythonApiProperties;
+import com.michael21.SoundFilter.util.exception.ApiException;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Transcribes long recordings by splitting them at silences and sending the chunks to a pool of
+ * Python API workers at once, so the time taken shrinks with the number of workers instead of
+ * growing with the length of the recording.
+ */
+@Slf4j
+@Service
+public class ChunkedTranscriber {
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+    private static final double LOUDNESS_WINDOW_SECONDS = 0.05;
+    // 16 kHz mono 16-bit, speech is rarely recorded with less, a smaller WAV is shorter than it looks
+    private static final long MIN_WAV_BYTES_PER_SECOND = 16000 * 2;
+
+    private final AudioUtil audioUtil;
+    private final ObjectMapper objectMapper;
+    private final AudioConfiguration audioConfiguration;
+    // A worker URL is taken for every chunk in flight, so no worker gets more than its share
+    private final BlockingQueue<String> idleWorkers = new LinkedBlockingQueue<>();
+    private final ExecutorService executor;
+
+    public ChunkedTranscriber(AudioUtil audioUtil, ObjectMapper objectMapper, AudioConfiguration audioConfiguration,
+                              PythonApiProperties pythonApiProperties, ApplicationProperties applicationProperties) {
+        this.audioUtil = audioUtil;
+        this.objectMapper = objectMapper;
+        this.audioConfiguration = audioConfiguration;
+
+        List<String> workers = pythonApiProperties.getTranscriptionWorkers().isEmpty()
+                ? List.of(applicationProperties.getBaseUrl())
+                : pythonApiProperties.getTranscriptionWorkers();
+        for (int i = 0; i < Math.max(1, pythonApiProperties.getTranscriptionWorkerConcurrency()); i++) {
+            idleWorkers.addAll(workers);
+        }
+
+        this.executor = Executors.newFixedThreadPool(idleWorkers.size());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Checks whether splitting the audio is worth it, only recordings longer than two chunks are split.
+     * WAV audio too short for that at the lowest common rate is sent whole, compressed audio has to be
+     * decoded first, so only large files are split.
+     *
+     * @param audioFormat The project audio format (file extension)
+     * @param contentLength Length of the encoded audio in bytes
+     */
+    public boolean shouldSplit(String audioFormat, long contentLength) {
+        if (!audioConfiguration.isChunkedTranscriptionEnabled()) {
+            return false;
+        }
+
+        if ("wav".equalsIgnoreCase(audioFormat)) {
+            long twoChunks = 2 * audioConfiguration.getTranscriptionChunkLength().toSeconds();
+            return contentLength >= twoChunks * MIN_WAV_BYTES_PER_SECOND;
+        }
+
+        return contentLength >= audioConfiguration.getChunkedTranscriptionMinCompressedSize().toBytes();
+    }
+
+    /**
+     * Transcribes the whole audio, in parallel chunks when it is long enough.
+     *
+     * @param audio The encoded audio, read to the end
+     * @param contentLength Length of the audio in bytes
+     * @param fileName Name of the audio file
+     * @param audioFormat The project audio format (file extension)
+     * @return The transcription of the whole audio
+     */
+    public TranscriptionResult transcribe(InputStream audio, long contentLength, String fileName,
+                                          String audioFormat) throws IOException, InterruptedException {
+        Path wav = Files.createTempFile("transcription-", ".wav");
+
+        try {
+            spoolAsWav(audio, contentLength, fileName, audioFormat, wav);
+            String wavFileName = FilenameUtils.getBaseName(fileName) + ".wav";
+
+            WavHeader header = readHeader(wav);
+            if (header == null) {
+                log.info("{} can't be split, transcribing it in one request", fileName);
+                return transcribeWhole(wav, wavFileName);
+            }
+
+            int windowFrames = Math.max(1, (int) (LOUDNESS_WINDOW_SECONDS * header.sampleRate()));
+            float[] loudness;
+            try (InputStream data = openData(wav, header, 0, header.frameCount())) {
+                loudness = WavSplitter.loudness(data, header, windowFrames);
+            }
+
+            List<Long> cutFrames = WavSplitter.silenceCuts(loudness, windowFrames, header.frameCount(),
+                    toFrames(audioConfiguration.getTranscriptionChunkLength().toMillis(), header),
+                    toFrames(audioConfiguration.getTranscriptionChunkSilenceSearch().toMillis(), header));
+
+            if (cutFrames.isEmpty()) {
+                return transcribeWhole(wav, wavFileName);
+            }
+
+            double duration = (double) header.frameCount() / header.sampleRate();
+            List<TranscriptionChunk> chunks = TranscriptionChunk.between(
+                    cutFrames.stream().map(frame -> (double) frame / header.sampleRate()).toList(),
+                    duration, audioConfiguration.getTranscriptionChunkOverlap().toMillis() / 1000.0);
+
+            log.info("Transcribing {}s of {} in {} chunks", duration, fileName, chunks.size());
+
+            List<Future<TranscriptionResult>> futures = new ArrayList<>();
+            for (int i = 0; i < chunks.size(); i++) {
+                TranscriptionChunk chunk = chunks.get(i);
+                String chunkFileName = FilenameUtils.getBaseName(fileName) + "-" + i + ".wav";
+                futures.add(executor.submit(() -> transcribeChunk(wav, header, chunk, chunkFileName)));
+            }
+
+            return TranscriptionChunk.merge(fileName, chunks, awaitAll(futures));
+
+        } finally {
+            Files.deleteIfExists(wav);
+        }
+    }
+
+    private void spoolAsWav(InputStream audio, long contentLength, String fileName, String audioFormat,
+                            Path wav) throws IOException {
+        try (OutputStream out = Files.newOutputStream(wav)) {
+            if ("wav".equalsIgnoreCase(audioFormat)) {
+                audio.transferTo(out);
+                return;
+            }
+
+            log.info("Decoding {} to WAV before splitting it", fileName);
+            audioUtil.streamPythonApi(audio, contentLength, fileName, "/audio-api/convert-format",
+                    Map.of("target_format", "wav"), response -> response.getBody().transferTo(out));
+        }
+    }
+
+    private WavHeader readHeader(Path wav) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(wav), STREAM_BUFFER_SIZE)) {
+            byte[] headerBytes = WavHeader.readHeaderBytes(in);
+            WavHeader header = headerBytes == null ? null : WavHeader.parseStreamed(headerBytes).orElse(null);
+
+            if (header == null) {
+                return null;
+            }
+
+            // Streamed WAVs may not declare their length, the file does
+            long available = Files.size(wav) - header.dataOffset();
+            long dataLength = Math.min(header.dataLength(), available - available % header.blockAlign());
+
+            return new WavHeader(header.formatCode(), header.channels(), header.sampleRate(), header.bitsPerSample(),
+                    header.blockAlign(), header.dataOffset(), dataLength);
+        }
+    }
+
+    private TranscriptionResult transcribeChunk(Path wav, WavHeader header, TranscriptionChunk chunk,
+                                                String chunkFileName) throws IOException, InterruptedException {
+        long fromFrame = Math.round(chunk.sendStart() * header.sampleRate());
+        long toFrame = Math.min(header.frameCount(), Math.round(chunk.sendEnd() * header.sampleRate()));
+        byte[] chunkHeader = WavSplitter.chunkHeader(header, toFrame - fromFrame);
+
+        try (InputStream data = openData(wav, header, fromFrame, toFrame)) {
+            InputStream chunkAudio = new SequenceInputStream(new ByteArrayInputStream(chunkHeader), data);
+            long length = chunkHeader.length + (toFrame - fromFrame) * header.blockAlign();
+
+            return send(chunkAudio, length, chunkFileName);
+        }
+    }
+
+    private TranscriptionResult transcribeWhole(Path wav, String wavFileName) throws IOException, InterruptedException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(wav), STREAM_BUFFER_SIZE)) {
+            return send(in, Files.size(wav), wavFileName);
+        }
+    }
+
+    private TranscriptionResult send(InputStream audio, long contentLength, String fileName) throws InterruptedException {
+        String worker = idleWorkers.take();
+
+        try {
+            return audioUtil.streamPythonApi(worker, audio, contentLength, fileName, "/audio-api/transcribe", null,
+                    response -> objectMapper.readValue(response.getBody(), TranscriptionResult.class));
+        } finally {
+            idleWorkers.add(worker);
+        }
+    }
+
+    private InputStream openData(Path wav, WavHeader header, long fromFrame, long toFrame) throws IOException {
+        InputStream in = Files.newInputStream(wav);
+        in.skipNBytes(header.dataOffset() + fromFrame * header.blockAlign());
+
+        return new BufferedInputStream(BoundedInputStream.builder()
+                .setInputStream(in)
+                .setMaxCount((toFrame - fromFrame) * header.blockAlign())
+                .get(), STREAM_BUFFER_SIZE);
+    }
+
+    private List<TranscriptionResult> awaitAll(List<Future<TranscriptionResult>> futures) throws InterruptedException {
+        List<TranscriptionResult> results = new ArrayList<>();
+
+        try {
+            for (Future<TranscriptionResult> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (ExecutionException e) {
+            // One failed chunk fails the transcription, the others would be thrown away
+            futures.forEach(future -> future.cancel(true));
+
+            if (e.getCause() instanceof ApiException apiException) {
+                throw apiException;
+            }
+
+            log.error("Error transcribing chunk: {}", e.getCause().getMessage(), e.getCause());
+            throw ApiException.builder()
+                    .status(HttpServletResponse.SC_INTERNAL_SERVER_ERROR)
+                    .message("Error transcribing audio: " + e.getCause().getMessage())
+                    .build();
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw e;
+        }
+    }
+
+    private static long toFrames(long millis, WavHeader header) {
+        return millis * header.sampleRate() / 1000;
+    }
+}
@@ -0,0 +1,105 @@
+package com.michael21.SoundFilter.audio.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.michael21.SoundFilter.audio.TranscriptionCacheEntry;
+import com.michael21.SoundFilter.audio.config.AudioConfiguration;
+import com.michael21.SoundFilter.audio.data.TranscriptionResult;
+import com.michael21.SoundFilter.audio.repository.TranscriptionCacheEntryRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Transcriptions keyed by the SHA-256 of the audio and the transcription model settings.
+ * Recently used results are kept in a bounded in-process LRU, all results are persisted
+ * so they survive restarts and are shared between instances.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TranscriptionCache {
+    private final TranscriptionCacheEntryRepository transcriptionCacheEntryRepository;
+    private final AudioConfiguration audioConfiguration;
+    private final ObjectMapper objectMapper;
+
+    private final Map<String, TranscriptionResult> recentResults = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, TranscriptionResult> eldest) {
+            return size() > audioConfiguration.getTranscriptionCacheSize();
+        }
+    };
+
+    public Optional<TranscriptionResult> get(String audioHash) {
+        if (audioHash == null) {
+            return Optional.empty();
+        }
+
+        String cacheKey = cacheKey(audioHash);
+
+        synchronized (recentResults) {
+            TranscriptionResult result = recentResults.get(cacheKey);
+            if (result != null) {
+                return Optional.of(result);
+            }
+        }
+
+        Optional<TranscriptionResult> stored = transcriptionCacheEntryRepository.findByCacheKey(cacheKey)
+                .map(entry -> readResult(entry.getResult()));
+        stored.ifPresent(result -> remember(cacheKey, result));
+
+        return stored;
+    }
+
+    // Runs apart from the caller's transaction so a concurrent insert of the same key can't roll it back
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void put(String audioHash, TranscriptionResult result) {
+        // Audio that was never read has no hash yet, its transcription can't be found again
+        if (audioHash == null) {
+            return;
+        }
+
+        String cacheKey = cacheKey(audioHash);
+        remember(cacheKey, result);
+
+        if (transcriptionCacheEntryRepository.findByCacheKey(cacheKey).isPresent()) {
+            return;
+        }
+
+        try {
+            transcriptionCacheEntryRepository.save(
+                    new TranscriptionCacheEntry(cacheKey, audioHash, objectMapper.writeValueAsString(result)));
+        } catch (DataIntegrityViolationException e) {
+            // Another transcription of the same audio was stored first
+            log.debug("Transcription of {} already cached", audioHash);
+        } catch (JsonProcessingException e) {
+            log.warn("Could not cache transcription of {}: {}", audioHash, e.getMessage());
+        }
+    }
+
+    private void remember(String cacheKey, TranscriptionResult result) {
+        synchronized (recentResults) {
+            recentResults.put(cacheKey, result);
+        }
+    }
+
+    // Results depend on the model and language as much as on the audio, changing either misses the cache
+    private String cacheKey(String audioHash) {
+        return audioHash + ":" + audioConfiguration.getTranscriptionModel() + ":" + audioConfiguration.getTranscriptionLanguage();
+    }
+
+    private TranscriptionResult readResult(String json) {
+        try {
+            return objectMapper.readValue(json, TranscriptionResult.class);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.michael21.SoundFilter.audio.service;
+
+import com.michael21.SoundFilter.audio.AudioMetrics;
+import com.michael21.SoundFilter.audio.AudioUtil;
+import com.michael21.SoundFilter.audio.config.AudioConfiguration;
+import com.michael21.SoundFilter.audio.jobs.ComputeWaveformPeaksJob;
+import com.michael21.SoundFilter.audio.processor.WavHeader;
+import com.michael21.SoundFilter.audio.processor.WaveformPeaks;
+import com.michael21.SoundFilter.s3.service.FileCache;
+import com.michael21.SoundFilter.s3.service.FileService;
+import com.michael21.SoundFilter.users.AudioProject;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.jobrunr.scheduling.BackgroundJobRequest;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Waveform peaks of rendered audio, stored next to it in S3 so the editor draws the waveform from a few
+ * kilobytes instead of downloading and decoding the whole file. Peaks are keyed by the edit list hash,
+ * so undoing an edit or forking a project finds the peaks computed before.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class WaveformService {
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
+    private final FileService fileService;
+    private final AudioUtil audioUtil;
+    private final AudioConfiguration audioConfiguration;
+    private final FileCache fileCache;
+    private final AudioMetrics audioMetrics;
+
+    /**
+     * Computes the peaks of the current audio of the project in the background.
+     */
+    public void schedulePeaks(AudioProject audioProject) {
+        BackgroundJobRequest.enqueue(new ComputeWaveformPeaksJob(audioProject.getUser().getId(),
+                audioProject.getEditListHash(), fileService.getFilePathFromUrl(audioProject.getAudioUrl()),
+                audioProject.getAudioFormat()));
+    }
+
+    /**
+     * Computes every configured level of peaks in one pass over the audio, unless they were computed before.
+     *
+     * @param userId Owner of the audio
+     * @param editListHash Edit list the audio was rendered from
+     * @param audioFilePath Key of the audio in S3
+     * @param audioFormat Format of the audio
+     */
+    public void computePeaks(Long userId, String editListHash, String audioFilePath, String audioFormat) throws IOException {
+        audioMetrics.operation("waveform", () -> {
+            compute(userId, editListHash, audioFilePath, audioFormat);
+            return null;
+        });
+    }
+
+    private void compute(Long userId, String editListHash, String audioFilePath, String audioFormat) throws IOException {
+        List<Integer> levels = audioConfiguration.getWaveformLevels();
+
+        // Levels are uploaded in order, the last one being there means they all are
+        if (fileService.headFile(peaksPath(userId, editListHash, levels.get(levels.size() - 1))) != null) {
+            log.info("Waveform peaks of {} already computed", audioFilePath);
+            return;
+        }
+
+        // Peaks are computed right after a render, which leaves the audio cached for playback too
+        FileChannel cached = audioMetrics.stage("waveform", "s3_download", audioFormat, () -> fileCache.load(audioFilePath));
+        long contentLength = cached.size();
+        audioMetrics.recordBytes("waveform", "s3_download", audioFormat, contentLength);
+        Map<Integer, byte[]> peaks;
+
+        try (InputStream audio = new BufferedInputStream(Channels.newInputStream(cached), STREAM_BUFFER_SIZE)) {
+            if ("wav".equalsIgnoreCase(audioFormat)) {
+                peaks = audioMetrics.stage("waveform", "pcm", audioFormat, () -> computeWav(audio, levels));
+            } else {
+                // Compressed audio is decoded to WAV by the Python API and measured as it streams back
+                String fileName = audioFilePath.substring(audioFilePath.lastIndexOf("/") + 1);
+                peaks = audioMetrics.stage("waveform", "python_api", audioFormat, () ->
+                        audioUtil.streamPythonApi(audio, contentLength, fileName,
+                                "/audio-api/convert-format", Map.of("target_format", "wav"),
+                                response -> computeWav(new BufferedInputStream(response.getBody(), STREAM_BUFFER_SIZE), levels)));
+            }
+        }
+
+        if (peaks == null) {
+            throw new IOException("Could not decode the samples of " + audioFilePath);
+        }
+
+        for (Map.Entry<Integer, byte[]> level : peaks.entrySet()) {
+            audioMetrics.stage("waveform", "s3_upload", audioFormat,
+                    () -> fileService.uploadFile(peaksPath(userId, editListHash, level.getKey()), level.getValue()));
+        }
+        log.info("Computed {} levels of waveform peaks of {}", peaks.size(), audioFilePath);
+    }
+
+    /**
+     * Reads one level of peaks.
+     *
+     * @return The encoded peaks, or null if they weren't computed yet
+     */
+    public byte[] getPeaks(Long userId, String editListHash, int level) throws IOException {
+        String path = peaksPath(userId, editListHash, level);
+        if (fileService.headFile(path) == null) {
+            return null;
+        }
+
+        try (ResponseInputStream<GetObjectResponse> download = fileService.downloadFile(path)) {
+            return download.readAllBytes();
+        }
+    }
+
+    public void deletePeaks(Long userId, String editListHash) {
+        for (Integer level : audioConfiguration.getWaveformLevels()) {
+            try {
+                fileService.deleteFile(peaksPath(userId, editListHash, level));
+            } catch (Exception e) {
+                log.warn("Could not delete waveform peaks {} of {}: {}", level, editListHash, e.getMessage());
+            }
+        }
+    }
+
+    private static Map<Integer, byte[]> computeWav(InputStream audio, List<Integer> levels) throws IOException {
+        byte[] headerBytes = WavHeader.readHeaderBytes(audio);
+        if (headerBytes == null) {
+            return null;
+        }
+
+        WavHeader header = WavHeader.parseStreamed(headerBytes).orElse(null);
+        if (header == null) {
+            return null;
+        }
+        if (header.dataLength() <= 0) {
+            // Streamed WAV leaves the length unset, the samples run until the end of the stream
+            header = new WavHeader(header.formatCode(), header.channels(), header.sampleRate(), header.bitsPerSample(),
+                    header.blockAlign(), header.dataOffset(), Long.MAX_VALUE);
+        }
+
+        return WaveformPeaks.compute(audio, header, levels);
+    }
+
+    private static String peaksPath(Long userId, String editListHash, int level) {
+        return "user:" + userId + "/peaks/" + editListHash + "/" + level + ".peaks";
+    }
+}
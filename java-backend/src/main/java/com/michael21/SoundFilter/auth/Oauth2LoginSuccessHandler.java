@@ -5,9 +5,11 @@ import com.michael21.SoundFilter.users.User;
 import com.michael21.SoundFilter.users.UserConnectedAccount;
 import com.michael21.SoundFilter.users.repository.ConnectedAccountRepository;
 import com.michael21.SoundFilter.users.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -26,13 +28,16 @@ public class Oauth2LoginSuccessHandler implements AuthenticationSuccessHandler {
     private final ConnectedAccountRepository connectedAccountRepository;
     private final ApplicationProperties applicationProperties;
     private final UserRepository userRepository;
+    private final SessionFactory sessionFactory;
 
     public Oauth2LoginSuccessHandler(ApplicationProperties applicationProperties,
                                      UserRepository userRepository,
-                                     ConnectedAccountRepository connectedAccountRepository) {
+                                     ConnectedAccountRepository connectedAccountRepository,
+                                     EntityManagerFactory entityManagerFactory) {
         this.applicationProperties = applicationProperties;
         this.userRepository = userRepository;
         this.connectedAccountRepository = connectedAccountRepository;
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
     }
 
     @Override
@@ -57,6 +62,8 @@ public class Oauth2LoginSuccessHandler implements AuthenticationSuccessHandler {
             existingUser.addConnectedAccount(newConnectedAccount);
             existingUser = userRepository.save(existingUser);
             connectedAccountRepository.save(newConnectedAccount);
+            // The account is written from its own side, the cached accounts of the user don't see it
+            sessionFactory.getCache().evictCollectionData(User.class.getName() + ".connectedAccounts", existingUser.getId());
             authenticateUser(existingUser, response);
         } else {
             User newUser = createUserFromOauth2User(authenticationToken);
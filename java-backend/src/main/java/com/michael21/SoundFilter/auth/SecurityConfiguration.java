@@ -4,6 +4,7 @@ import com.michael21.SoundFilter.config.ApplicationProperties;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpHeaders;
@@ -43,6 +44,7 @@ public class SecurityConfiguration {
                    .requestMatchers(antMatcher(HttpMethod.POST, "/api/users/forgot-password")).permitAll()
                    .requestMatchers(antMatcher(HttpMethod.GET, "/api/users/verify-email")).permitAll()
                    .requestMatchers(antMatcher(HttpMethod.PATCH, "/api/users/reset-password")).permitAll()
+                   .requestMatchers(EndpointRequest.to("health", "prometheus")).permitAll() //management port only, not proxied
                    .anyRequest().authenticated(); //any other request requires authentication
         });
 
@@ -56,12 +56,11 @@ public class AuthService {
 
         User user = SecurityUtil.getAuthenticatedUser();
 
+        // Projects aren't part of the session, they are listed a page at a time by /api/projects.
+        // The user and its connected accounts usually come from the second-level cache
         user = userRepository.findById(user.getId())
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
-        log.debug("User has {} audio projects",
-                user.getAudioProjects() != null ? user.getAudioProjects().size() : 0);
-
         return new UserResponse(user);
     }
 
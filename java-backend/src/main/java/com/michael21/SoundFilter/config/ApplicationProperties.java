@@ -5,6 +5,7 @@ import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
 import java.util.List;
 
 @Configuration
@@ -17,4 +18,6 @@ public class ApplicationProperties {
     private String baseUrl;
     private String loginPageUrl;
     private String loginSuccessUrl;
+    // Virtual threads pinned to their carrier for longer are reported, when running on virtual threads
+    private Duration pinnedThreadThreshold = Duration.ofMillis(20);
 }
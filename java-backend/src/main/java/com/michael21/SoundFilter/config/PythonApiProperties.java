@@ -0,0 +1,36 @@
+package com.michael21.SoundFilter.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.python-api")
+@Setter
+@Getter
+public class PythonApiProperties {
+    private int maxConnections = 50;
+    private int maxConnectionsPerRoute = 20;
+    private Duration connectTimeout = Duration.ofSeconds(5);
+    // How long a request waits for a pooled connection before failing instead of queueing forever
+    private Duration connectionRequestTimeout = Duration.ofSeconds(30);
+    private Duration readTimeout = Duration.ofMinutes(2);
+    // Read timeouts of slow endpoints keyed by path, e.g. transcriptions of long recordings
+    private Map<String, Duration> endpointReadTimeouts = new HashMap<>();
+    private Duration keepAlive = Duration.ofSeconds(30);
+    private Duration validateAfterInactivity = Duration.ofSeconds(2);
+    // Base URLs of the Python APIs sharing the chunks of long transcriptions, app.base-url when empty
+    private List<String> transcriptionWorkers = new ArrayList<>();
+    private int transcriptionWorkerConcurrency = 1;
+
+    public Duration getReadTimeout(String path) {
+        return endpointReadTimeouts.getOrDefault(path, readTimeout);
+    }
+}
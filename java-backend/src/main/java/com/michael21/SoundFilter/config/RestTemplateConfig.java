@@ -1,13 +1,78 @@
 package com.michael21.SoundFilter.config;
 
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import lombok.RequiredArgsConstructor;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.DefaultConnectionKeepAliveStrategy;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+/**
+ * HTTP client for the Python audio API, keeping connections alive in a bounded pool and
+ * applying timeouts so a hung Python worker can't hold a thread forever.
+ */
 @Configuration
+@RequiredArgsConstructor
 public class RestTemplateConfig {
+    private final PythonApiProperties pythonApiProperties;
+
+    @Bean
+    public PoolingHttpClientConnectionManager pythonApiConnectionManager() {
+        return PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(pythonApiProperties.getMaxConnections())
+                .setMaxConnPerRoute(pythonApiProperties.getMaxConnectionsPerRoute())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(pythonApiProperties.getConnectTimeout()))
+                        .setSocketTimeout(Timeout.of(pythonApiProperties.getReadTimeout()))
+                        .setValidateAfterInactivity(TimeValue.of(pythonApiProperties.getValidateAfterInactivity()))
+                        .build())
+                .build();
+    }
+
+    @Bean
+    public CloseableHttpClient pythonApiHttpClient(PoolingHttpClientConnectionManager pythonApiConnectionManager) {
+        TimeValue keepAlive = TimeValue.of(pythonApiProperties.getKeepAlive());
+
+        return HttpClients.custom()
+                .setConnectionManager(pythonApiConnectionManager)
+                // Honour the Keep-Alive header of the server, but never keep a connection longer than configured
+                .setKeepAliveStrategy((response, context) ->
+                        DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context).min(keepAlive))
+                .evictExpiredConnections()
+                .evictIdleConnections(keepAlive)
+                .build();
+    }
+
+    @Bean
+    public RestTemplate restTemplate(CloseableHttpClient pythonApiHttpClient) {
+        HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(pythonApiHttpClient);
+
+        // Per request configuration so slow endpoints can get a longer read timeout than the rest
+        requestFactory.setHttpContextFactory((method, uri) -> {
+            HttpClientContext context = HttpClientContext.create();
+            context.setRequestConfig(RequestConfig.custom()
+                    .setConnectionRequestTimeout(Timeout.of(pythonApiProperties.getConnectionRequestTimeout()))
+                    .setResponseTimeout(Timeout.of(pythonApiProperties.getReadTimeout(uri.getPath())))
+                    .build());
+            return context;
+        });
+
+        return new RestTemplate(requestFactory);
+    }
+
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public MeterBinder pythonApiConnectionPoolMetrics(PoolingHttpClientConnectionManager pythonApiConnectionManager) {
+        return new PoolingHttpClientConnectionManagerMetricsBinder(pythonApiConnectionManager, "python-api");
     }
 }
@@ -18,6 +18,9 @@ public class EmailConfig {
         templateResolver.setSuffix(".html");
         templateResolver.setTemplateMode("HTML");
         templateResolver.setCharacterEncoding("UTF-8");
+        // Templates are parsed once and kept, rendering an email doesn't read the file again
+        templateResolver.setCacheable(true);
+        templateResolver.setCacheTTLMs(null);
 
         return templateResolver;
     }
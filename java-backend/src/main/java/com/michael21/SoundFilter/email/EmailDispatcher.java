@@ -0,0 +1,236 @@
+package com.michael21.SoundFilter.email;
+
+import com.michael21.SoundFilter.email.config.EmailDispatchConfiguration;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Sends queued messages in batches over long-lived SMTP connections, so a burst of sign-ups pays for one
+ * handshake per connection rather than one per message. Each connection belongs to a worker thread, which
+ * takes the queued messages up to a batch, waiting a short window for more to arrive, and sends them back
+ * to back.
+ */
+@Slf4j
+@Service
+public class EmailDispatcher {
+    private final JavaMailSenderImpl mailSender;
+    private final EmailDispatchConfiguration configuration;
+    private final BlockingQueue<QueuedMessage> queue = new LinkedBlockingQueue<>();
+    private final List<Thread> workers = new ArrayList<>();
+    private final Timer batchDuration;
+    private final DistributionSummary batchSize;
+    private volatile boolean running = true;
+
+    public EmailDispatcher(JavaMailSenderImpl mailSender, EmailDispatchConfiguration configuration,
+                           MeterRegistry meterRegistry) {
+        this.mailSender = mailSender;
+        this.configuration = configuration;
+        this.batchDuration = Timer.builder("email.batch.duration")
+                .description("Time to send one batch of emails")
+                .register(meterRegistry);
+        this.batchSize = DistributionSummary.builder("email.batch.size")
+                .description("Emails sent in one batch")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        for (int i = 0; i < Math.max(1, configuration.getConnections()); i++) {
+            workers.add(Thread.ofPlatform().name("email-dispatcher-" + i).daemon().start(this::dispatch));
+        }
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        for (Thread worker : workers) {
+            worker.join(configuration.getSendTimeout().toMillis());
+        }
+
+        QueuedMessage queued;
+        while ((queued = queue.poll()) != null) {
+            queued.sent().completeExceptionally(new MailSendException("Shutting down before the email was sent"));
+        }
+    }
+
+    /**
+     * Queues a message and waits until it was handed to the SMTP server.
+     *
+     * @param message Message to send, addressed and complete
+     * @throws MailSendException If the message was rejected, couldn't be sent or wasn't sent in time
+     */
+    public void send(MimeMessage message) {
+        CompletableFuture<Void> sent = new CompletableFuture<>();
+
+        try {
+            prepare(message);
+            queue.add(new QueuedMessage(message, sent));
+            sent.get(configuration.getSendTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (MessagingException e) {
+            throw new MailSendException("Could not prepare email", e);
+        } catch (ExecutionException e) {
+            throw new MailSendException("Could not send email", e.getCause());
+        } catch (TimeoutException e) {
+            // A cancelled message is skipped, a retry of the caller won't send it twice
+            sent.cancel(false);
+            throw new MailSendException("Email not sent within " + configuration.getSendTimeout());
+        } catch (InterruptedException e) {
+            sent.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new MailSendException("Interrupted while sending email");
+        }
+    }
+
+    private void dispatch() {
+        SmtpConnection connection = new SmtpConnection();
+        List<QueuedMessage> batch = new ArrayList<>();
+
+        try {
+            while (running) {
+                QueuedMessage first = queue.poll(configuration.getIdleTimeout().toMillis(), TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    connection.close();
+                    continue;
+                }
+
+                batch.add(first);
+                long deadline = System.nanoTime() + configuration.getBatchWindow().toNanos();
+                while (batch.size() < configuration.getBatchSize()) {
+                    QueuedMessage next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                sendBatch(connection, batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            // Stopping, messages not sent yet are failed so their senders don't wait for the timeout
+            for (QueuedMessage queued : batch) {
+                queued.sent().completeExceptionally(new MailSendException("Shutting down before the email was sent"));
+            }
+        } finally {
+            connection.close();
+        }
+    }
+
+    private void sendBatch(SmtpConnection connection, List<QueuedMessage> batch) {
+        long start = System.nanoTime();
+        int sent = 0;
+
+        for (QueuedMessage queued : batch) {
+            if (queued.sent().isDone()) {
+                continue;
+            }
+
+            try {
+                connection.send(queued.message());
+                queued.sent().complete(null);
+                sent++;
+            } catch (MessagingException | RuntimeException e) {
+                queued.sent().completeExceptionally(e);
+            }
+        }
+
+        long elapsed = System.nanoTime() - start;
+        batchDuration.record(elapsed, TimeUnit.NANOSECONDS);
+        batchSize.record(batch.size());
+        log.info("Sent {} of {} emails in {} ms", sent, batch.size(), TimeUnit.NANOSECONDS.toMillis(elapsed));
+    }
+
+    // What JavaMailSender does before sending, done by the sender so workers only talk to the server
+    private static void prepare(MimeMessage message) throws MessagingException {
+        if (message.getSentDate() == null) {
+            message.setSentDate(new Date());
+        }
+        String messageId = message.getMessageID();
+        message.saveChanges();
+        if (messageId != null) {
+            message.setHeader("Message-ID", messageId);
+        }
+    }
+
+    private Transport connect() throws MessagingException {
+        String username = mailSender.getUsername();
+        String password = mailSender.getPassword();
+        if ("".equals(username)) {
+            username = null;
+            if ("".equals(password)) {
+                password = null;
+            }
+        }
+
+        Transport transport = mailSender.getSession()
+                .getTransport(mailSender.getProtocol() != null ? mailSender.getProtocol() : "smtp");
+        transport.connect(mailSender.getHost(), mailSender.getPort(), username, password);
+        return transport;
+    }
+
+    /**
+     * Connection of one worker, opened on the first message and kept until it's idle or broken.
+     */
+    private final class SmtpConnection {
+        private Transport transport;
+
+        void send(MimeMessage message) throws MessagingException {
+            if (transport == null) {
+                transport = connect();
+            }
+
+            try {
+                transport.sendMessage(message, message.getAllRecipients());
+            } catch (SendFailedException e) {
+                // Rejected by the server, the connection is still fine
+                throw e;
+            } catch (MessagingException e) {
+                // The server dropped the connection, the message goes out again over a new one
+                log.info("SMTP connection lost, reconnecting: {}", e.getMessage());
+                close();
+                transport = connect();
+                transport.sendMessage(message, message.getAllRecipients());
+            }
+        }
+
+        void close() {
+            if (transport == null) {
+                return;
+            }
+
+            try {
+                transport.close();
+            } catch (MessagingException e) {
+                log.debug("Could not close SMTP connection: {}", e.getMessage());
+            }
+            transport = null;
+        }
+    }
+
+    private record QueuedMessage(MimeMessage message, CompletableFuture<Void> sent) {
+    }
+}
@@ -5,7 +5,6 @@ import jakarta.mail.internet.MimeMessage;
 import java.util.List;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
@@ -15,26 +14,28 @@ import org.springframework.stereotype.Service;
 @RequiredArgsConstructor
 public class EmailService {
     private final JavaMailSender mailSender;
+    private final EmailDispatcher emailDispatcher;
 
     public void sendHtmlMessage(List<String> to, String subject, String htmlBody) {
+        send(to, subject, htmlBody, true);
+    }
+
+    public void sendSimpleEmail(List<String> to, String subject, String content) {
+        log.info("Sending email to: {}", to);
+        send(to, subject, content, false);
+    }
+
+    // Queued with other senders' messages and sent over a pooled connection, this waits until it's sent
+    private void send(List<String> to, String subject, String body, boolean html) {
         try {
             MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+            MimeMessageHelper helper = new MimeMessageHelper(message, html, "UTF-8");
             helper.setTo(to.toArray(new String[0]));
             helper.setSubject(subject);
-            helper.setText(htmlBody, true);
-            mailSender.send(message);
+            helper.setText(body, html);
+            emailDispatcher.send(message);
         } catch (MessagingException e) {
             throw new RuntimeException("Error sending email", e);
         }
     }
-
-    public void sendSimpleEmail(List<String> to, String subject, String content) {
-        log.info("Sending email to: {}", to);
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setTo(to.toArray(new String[0]));
-        message.setSubject(subject);
-        message.setText(content);
-        mailSender.send(message);
-    }
 }
@@ -0,0 +1,25 @@
+package com.michael21.SoundFilter.email.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.email.dispatch")
+@Setter
+@Getter
+public class EmailDispatchConfiguration {
+    // SMTP connections kept open, each sends one batch at a time
+    private int connections = 2;
+    // Messages sent over one connection before the next batch is taken
+    private int batchSize = 50;
+    // How long a batch waits for more messages once the first one is queued
+    private Duration batchWindow = Duration.ofMillis(50);
+    // Connections idle this long are closed, before the SMTP server drops them
+    private Duration idleTimeout = Duration.ofSeconds(30);
+    // How long a sender waits for its message to go out
+    private Duration sendTimeout = Duration.ofMinutes(2);
+}
@@ -0,0 +1,41 @@
+package com.michael21.SoundFilter.s3;
+
+import com.michael21.SoundFilter.entity.AbstractEntity;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Multipart upload still in progress, kept so a later attempt producing the same content can resume it.
+ * The uploaded parts themselves are listed from S3.
+ */
+@Entity
+@Getter
+@NoArgsConstructor
+public class MultipartUploadState extends AbstractEntity {
+    // Identifies the content being uploaded across attempts, e.g. the source and the operation of an edit
+    @Column(nullable = false, unique = true, length = 512)
+    private String resumeKey;
+
+    @Column(nullable = false)
+    private String filePath;
+
+    @Column(nullable = false)
+    private String uploadId;
+
+    private long partSize;
+
+    @CreationTimestamp
+    private LocalDateTime createdAt;
+
+    public MultipartUploadState(String resumeKey, String filePath, String uploadId, long partSize) {
+        this.resumeKey = resumeKey;
+        this.filePath = filePath;
+        this.uploadId = uploadId;
+        this.partSize = partSize;
+    }
+}
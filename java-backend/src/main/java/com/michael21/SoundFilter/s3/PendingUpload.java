@@ -0,0 +1,47 @@
+package com.michael21.SoundFilter.s3;
+
+import com.michael21.SoundFilter.entity.AbstractEntity;
+import com.michael21.SoundFilter.users.User;
+import jakarta.persistence.Entity;
+import jakarta.persistence.ManyToOne;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.apache.commons.io.FilenameUtils;
+
+import java.time.Instant;
+
+/**
+ * Upload handed to a client through pre-signed URLs, waiting for the client to confirm it finished.
+ */
+@Entity
+@Getter
+@NoArgsConstructor
+public class PendingUpload extends AbstractEntity {
+    private String filePath;
+    private String originalFileName;
+    private String extension;
+    private String contentType;
+    private long size;
+    // Null when the file is sent in a single PUT
+    private String multipartUploadId;
+    private Instant expiresAt;
+
+    @ManyToOne
+    private User user;
+
+    public PendingUpload(User user, String originalFileName, long size, String contentType, String filePath,
+                         String multipartUploadId, Instant expiresAt) {
+        this.user = user;
+        this.originalFileName = originalFileName;
+        this.extension = FilenameUtils.getExtension(originalFileName);
+        this.size = size;
+        this.contentType = contentType;
+        this.filePath = filePath;
+        this.multipartUploadId = multipartUploadId;
+        this.expiresAt = expiresAt;
+    }
+
+    public boolean isExpired() {
+        return Instant.now().isAfter(expiresAt);
+    }
+}
@@ -43,6 +43,11 @@ public class UploadedFile extends AbstractEntity {
         this.createdAt = LocalDateTime.now();
     }
 
+    public void onUploaded(String url, long size){
+        this.size = size;
+        onUploaded(url);
+    }
+
     /**
      * Builds a path for storing a file in S3.
      *
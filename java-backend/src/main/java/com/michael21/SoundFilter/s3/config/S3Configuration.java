@@ -5,6 +5,9 @@ import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
 
 @Configuration
 @ConfigurationProperties(prefix = "app.s3")
@@ -17,4 +20,25 @@ public class S3Configuration {
     private String region;
     private String baseUrl;
     private String storageClass;
+    // Pooled connections to S3, the limit on concurrent S3 calls once requests run on virtual threads
+    private int maxConnections = 50;
+    private Duration connectionAcquisitionTimeout = Duration.ofSeconds(30);
+    private DataSize uploadPartSize = DataSize.ofMegabytes(8);
+    // Parts of one upload in flight at once, each holds a part sized buffer
+    private int uploadParallelism = 4;
+    // Threads shared by all uploads, unused when running on virtual threads
+    private int uploadThreads = 16;
+    private int uploadPartAttempts = 3;
+    private Duration uploadRetryBackoff = Duration.ofMillis(500);
+    // Interrupted uploads are kept this long for a retry to resume them
+    private Duration resumableUploadRetention = Duration.ofHours(24);
+    // Uploads sent by clients straight to S3 through pre-signed URLs
+    private Duration presignedUploadExpiry = Duration.ofHours(1);
+    private DataSize presignedMultipartThreshold = DataSize.ofMegabytes(64);
+    private DataSize maxAudioUploadSize = DataSize.ofGigabytes(2);
+    // Node-local copies of S3 objects, the least recently used are deleted past the maximum size
+    private String cacheDirectory = System.getProperty("java.io.tmpdir") + "/sound-filter/s3-cache";
+    private DataSize cacheMaxSize = DataSize.ofGigabytes(5);
+    // Threads filling the cache in the background while a miss is served straight from S3
+    private int cacheThreads = 2;
 }
@@ -0,0 +1,22 @@
+package com.michael21.SoundFilter.s3.data;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pre-signed requests letting a client upload a file straight to S3.
+ *
+ * @param url PUT URL of a single part upload, null for multipart uploads
+ * @param headers Headers the client has to send with every PUT, they are part of the signature
+ * @param multipartUploadId S3 multipart upload ID, null for single part uploads
+ * @param partSize Size of every part but the last one, in bytes
+ * @param parts PUT URLs of the parts in order
+ * @param expiresAt When the URLs stop working
+ */
+public record PresignedUpload(String url, Map<String, List<String>> headers, String multipartUploadId,
+                              long partSize, List<PresignedPart> parts, Instant expiresAt) {
+
+    public record PresignedPart(int partNumber, String url) {
+    }
+}
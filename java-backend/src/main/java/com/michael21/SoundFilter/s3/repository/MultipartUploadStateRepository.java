@@ -0,0 +1,18 @@
+package com.michael21.SoundFilter.s3.repository;
+
+import com.michael21.SoundFilter.s3.MultipartUploadState;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface MultipartUploadStateRepository extends JpaRepository<MultipartUploadState, Long> {
+    Optional<MultipartUploadState> findByResumeKey(String resumeKey);
+
+    List<MultipartUploadState> findByCreatedAtBefore(LocalDateTime time);
+
+    void deleteByResumeKey(String resumeKey);
+}
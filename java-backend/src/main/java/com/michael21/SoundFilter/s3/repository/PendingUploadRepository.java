@@ -0,0 +1,13 @@
+package com.michael21.SoundFilter.s3.repository;
+
+import com.michael21.SoundFilter.s3.PendingUpload;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface PendingUploadRepository extends JpaRepository<PendingUpload, Long> {
+    List<PendingUpload> findByExpiresAtBefore(Instant time);
+}
@@ -0,0 +1,256 @@
+package com.michael21.SoundFilter.s3.service;
+
+import com.michael21.SoundFilter.s3.config.S3Configuration;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Size-bounded copies of S3 objects on the local disk, the least recently used are deleted first.
+ * Objects are never overwritten under the same key, so a cached copy never goes stale.
+ * <p>
+ * Concurrent loads of one object share a single download, and a partial download is never visible
+ * since files are moved into place once complete. Copies are handed out as channels opened while the
+ * index is locked, so a copy evicted while it's read stays readable until closed. The index is guarded by a lock rather than a monitor,
+ * it's held while files are opened and deleted and a monitor would pin a virtual thread meanwhile.
+ */
+@Slf4j
+@Service
+public class FileCache {
+    // Copies named by the SHA-256 of their key, and downloads in progress
+    private static final Pattern OWN_FILE = Pattern.compile("[0-9a-f]{64}|download-.*\\.tmp");
+
+    private final FileService fileService;
+    private final Path directory;
+    private final long maxSize;
+    private final ExecutorService prefetchExecutor;
+    // Size of every cached file by S3 key, least recently used first
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, CompletableFuture<Void>> loading = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private long size;
+
+    public FileCache(FileService fileService, S3Configuration s3Configuration) throws IOException {
+        this.fileService = fileService;
+        this.directory = Path.of(s3Configuration.getCacheDirectory());
+        this.maxSize = s3Configuration.getCacheMaxSize().toBytes();
+        this.prefetchExecutor = Executors.newFixedThreadPool(Math.max(1, s3Configuration.getCacheThreads()));
+
+        // Files left by a previous run aren't tracked, they are cheaper to download again than to trust.
+        // Only the cache's own files go, the directory may be shared by mistake
+        Files.createDirectories(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (OWN_FILE.matcher(file.getFileName().toString()).matches() && Files.isRegularFile(file)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+        log.info("Caching S3 objects in {}, up to {} bytes", directory, maxSize);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        prefetchExecutor.shutdownNow();
+    }
+
+    /**
+     * Opens the cached copy of an object.
+     *
+     * @param filePath Key of the file
+     * @return A channel over the copy, or null if the object isn't cached
+     */
+    public FileChannel open(String filePath) throws IOException {
+        // Opening under the lock keeps the file from being evicted in between, an open file outlives its deletion
+        lock.lock();
+        try {
+            if (entries.get(filePath) == null) {
+                return null;
+            }
+            return FileChannel.open(pathOf(filePath), StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            remove(filePath);
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Opens the cached copy of an object, downloading it first if it isn't cached.
+     *
+     * @param filePath Key of the file
+     * @return A channel over the copy, which stays readable after the copy is evicted
+     */
+    public FileChannel load(String filePath) throws IOException {
+        while (true) {
+            FileChannel cached = open(filePath);
+            if (cached != null) {
+                return cached;
+            }
+
+            CompletableFuture<Void> download = new CompletableFuture<>();
+            CompletableFuture<Void> running = loading.putIfAbsent(filePath, download);
+            if (running != null) {
+                // Opened on the next pass, or downloaded again if it was evicted right after
+                await(running, filePath);
+                continue;
+            }
+
+            try {
+                FileChannel channel = download(filePath);
+                download.complete(null);
+                return channel;
+            } catch (IOException | RuntimeException e) {
+                download.completeExceptionally(e);
+                throw e;
+            } finally {
+                loading.remove(filePath);
+            }
+        }
+    }
+
+    /**
+     * Downloads an object to the cache in the background, unless it's cached or being downloaded.
+     */
+    public void prefetch(String filePath) {
+        lock.lock();
+        try {
+            if (entries.containsKey(filePath) || loading.containsKey(filePath)) {
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        prefetchExecutor.submit(() -> {
+            try {
+                load(filePath).close();
+            } catch (Exception e) {
+                log.warn("Could not cache {}: {}", filePath, e.getMessage());
+            }
+        });
+    }
+
+    public void evict(String filePath) {
+        lock.lock();
+        try {
+            if (entries.containsKey(filePath)) {
+                remove(filePath);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private FileChannel download(String filePath) throws IOException {
+        Path target = pathOf(filePath);
+        Path temp = Files.createTempFile(directory, "download-", ".tmp");
+
+        try (ResponseInputStream<GetObjectResponse> download = fileService.downloadFile(filePath);
+             OutputStream out = Files.newOutputStream(temp)) {
+            download.transferTo(out);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        long fileSize = Files.size(target);
+
+        FileChannel channel;
+        lock.lock();
+        try {
+            Long previous = entries.put(filePath, fileSize);
+            size += fileSize - (previous == null ? 0 : previous);
+            evictOverflow();
+            channel = FileChannel.open(target, StandardOpenOption.READ);
+        } finally {
+            lock.unlock();
+        }
+
+        log.info("Cached {} bytes of {}", fileSize, filePath);
+        return channel;
+    }
+
+    private void evictOverflow() {
+        // The newest file stays even if it alone is over the limit, its caller is about to read it
+        Iterator<String> eldest = entries.keySet().iterator();
+        while (size > maxSize && entries.size() > 1) {
+            String filePath = eldest.next();
+            eldest.remove();
+            deleteCopy(filePath);
+        }
+    }
+
+    private void remove(String filePath) {
+        entries.remove(filePath);
+        deleteCopy(filePath);
+    }
+
+    private void deleteCopy(String filePath) {
+        try {
+            Path path = pathOf(filePath);
+            size -= Files.size(path);
+            Files.delete(path);
+        } catch (NoSuchFileException ignored) {
+            // Already gone, nothing to free
+        } catch (IOException e) {
+            log.warn("Could not delete cached copy of {}: {}", filePath, e.getMessage());
+        }
+    }
+
+    private static void await(CompletableFuture<Void> download, String filePath) throws IOException {
+        try {
+            download.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IOException("Download of " + filePath + " failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while downloading " + filePath);
+        }
+    }
+
+    private Path pathOf(String filePath) {
+        // Keys hold slashes and colons, the hash of a key is a safe file name
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(filePath.getBytes(StandardCharsets.UTF_8));
+            return directory.resolve(HexFormat.of().formatHex(hash));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -1,30 +1,69 @@
 package com.michael21.SoundFilter.s3.service;
 
+import com.michael21.SoundFilter.s3.MultipartUploadState;
 import com.michael21.SoundFilter.s3.config.S3Configuration;
+import com.michael21.SoundFilter.s3.data.PresignedUpload;
+import com.michael21.SoundFilter.s3.data.PresignedUpload.PresignedPart;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Service;
 import software.amazon.awssdk.auth.credentials.*;
 import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.*;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedPutObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedUploadPartRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PutObjectPresignRequest;
+import software.amazon.awssdk.services.s3.presigner.model.UploadPartPresignRequest;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+@Slf4j
 @Service
 public class FileService {
+    // S3 accepts at most 10000 parts per multipart upload
+    private static final int MAX_PARTS = 10000;
+
     private S3Client s3Client;
+    private S3Presigner s3Presigner;
     private final S3Configuration s3Configuration;
+    private final MultipartUploadStateStore multipartUploadStateStore;
+    // Uploads the parts of every upload stream in the background
+    private final ExecutorService uploadExecutor;
 
-    public FileService(S3Configuration s3Configuration) {
-        try {
-            if (s3Configuration == null) {
-                throw new IllegalArgumentException("S3Configuration cannot be null");
-            }
+    public FileService(S3Configuration s3Configuration, MultipartUploadStateStore multipartUploadStateStore,
+                       Environment environment) {
+        if (s3Configuration == null) {
+            throw new IllegalArgumentException("S3Configuration cannot be null");
+        }
 
-            this.s3Configuration = s3Configuration;
+        this.s3Configuration = s3Configuration;
+        this.multipartUploadStateStore = multipartUploadStateStore;
+        // Part uploads block on S3 for most of their time, on virtual threads only the connection pool bounds them
+        this.uploadExecutor = Threading.VIRTUAL.isActive(environment)
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(Math.max(1, s3Configuration.getUploadThreads()));
 
+        try {
             System.out.println("Access Key: " + (s3Configuration.getAccessKey() != null ? "Present" : "NULL"));
             System.out.println("Secret Key: " + (s3Configuration.getSecretKey() != null ? "Present" : "NULL"));
             System.out.println("Base URL: " + s3Configuration.getBaseUrl());
@@ -54,6 +93,9 @@ public class FileService {
                     .serviceConfiguration(software.amazon.awssdk.services.s3.S3Configuration.builder()
                             .pathStyleAccessEnabled(true)
                             .build())
+                    .httpClientBuilder(ApacheHttpClient.builder()
+                            .maxConnections(s3Configuration.getMaxConnections())
+                            .connectionAcquisitionTimeout(s3Configuration.getConnectionAcquisitionTimeout()))
                     .build();
 
             try {
@@ -66,6 +108,15 @@ public class FileService {
 
             this.s3Client = s3Client;
 
+            this.s3Presigner = S3Presigner.builder()
+                    .endpointOverride(URI.create(s3Configuration.getBaseUrl()))
+                    .region(Region.of(s3Configuration.getRegion()))
+                    .credentialsProvider(StaticCredentialsProvider.create(credentials))
+                    .serviceConfiguration(software.amazon.awssdk.services.s3.S3Configuration.builder()
+                            .pathStyleAccessEnabled(true)
+                            .build())
+                    .build();
+
         } catch (Exception e) {
             System.err.println("Error initializing S3 client: " + e.getMessage());
             e.printStackTrace();
@@ -73,7 +124,11 @@ public class FileService {
         }
     }
 
-    public String uploadFile(String filePath, byte[] file){
+    public String uploadFile(String filePath, byte[] file) throws IOException {
+        if (file.length > s3Configuration.getUploadPartSize().toBytes()) {
+            return uploadFile(filePath, new ByteArrayInputStream(file), file.length);
+        }
+
         PutObjectRequest request = PutObjectRequest.builder()
                 .bucket(s3Configuration.getBucketName())
                 .storageClass(s3Configuration.getStorageClass())
@@ -83,6 +138,280 @@ public class FileService {
 
         s3Client.putObject(request, RequestBody.fromBytes(file));
 
+        return getFileUrl(filePath);
+    }
+
+    public String uploadFile(String filePath, InputStream file, long size) throws IOException {
+        // Large files go through the upload stream, which sends their parts in parallel
+        if (size > s3Configuration.getUploadPartSize().toBytes()) {
+            try (S3UploadStream target = openUploadStream(filePath)) {
+                file.transferTo(target);
+                return target.complete();
+            }
+        }
+
+        PutObjectRequest request = PutObjectRequest.builder()
+                .bucket(s3Configuration.getBucketName())
+                .storageClass(s3Configuration.getStorageClass())
+                .key(filePath)
+                .acl(ObjectCannedACL.PUBLIC_READ)
+                .build();
+
+        s3Client.putObject(request, RequestBody.fromInputStream(file, size));
+
+        return getFileUrl(filePath);
+    }
+
+    /**
+     * Opens a stream uploading to S3 in parts of the configured size, for content of unknown length.
+     *
+     * @param filePath Key of the file to create
+     * @return The upload stream; call {@link S3UploadStream#complete()} to commit it
+     */
+    public S3UploadStream openUploadStream(String filePath) {
+        return new S3UploadStream(s3Client, this, uploadExecutor, multipartUploadStateStore, s3Configuration,
+                filePath, null, null, Map.of());
+    }
+
+    /**
+     * Opens an upload stream that survives failures: when it isn't completed, the parts already in S3
+     * are kept and a later stream with the same resume key only uploads the parts whose content differs.
+     * A resumed upload keeps the file path of the interrupted attempt.
+     *
+     * @param resumeKey Identifies the content across attempts
+     * @param filePath Key of the file to create when there is nothing to resume
+     * @return The upload stream; call {@link S3UploadStream#complete()} to commit it
+     */
+    public S3UploadStream openResumableUploadStream(String resumeKey, String filePath) {
+        Optional<MultipartUploadState> state = multipartUploadStateStore.find(resumeKey);
+
+        if (state.isPresent()) {
+            MultipartUploadState interrupted = state.get();
+
+            if (interrupted.getPartSize() == s3Configuration.getUploadPartSize().toBytes()) {
+                try {
+                    Map<Integer, String> uploadedParts = new HashMap<>();
+                    s3Client.listPartsPaginator(ListPartsRequest.builder()
+                                    .bucket(s3Configuration.getBucketName())
+                                    .key(interrupted.getFilePath())
+                                    .uploadId(interrupted.getUploadId())
+                                    .build())
+                            .parts()
+                            .forEach(part -> uploadedParts.put(part.partNumber(), part.eTag()));
+
+                    log.info("Resuming upload of {} with {} parts already uploaded",
+                            interrupted.getFilePath(), uploadedParts.size());
+                    return new S3UploadStream(s3Client, this, uploadExecutor, multipartUploadStateStore, s3Configuration,
+                            interrupted.getFilePath(), resumeKey, interrupted.getUploadId(), uploadedParts);
+                } catch (NoSuchUploadException e) {
+                    log.info("Interrupted upload of {} no longer exists, starting over", interrupted.getFilePath());
+                }
+            } else {
+                // Parts of another size can't be matched against the new content
+                abortMultipartUpload(interrupted.getFilePath(), interrupted.getUploadId());
+            }
+
+            multipartUploadStateStore.delete(resumeKey);
+        }
+
+        return new S3UploadStream(s3Client, this, uploadExecutor, multipartUploadStateStore, s3Configuration,
+                filePath, resumeKey, null, Map.of());
+    }
+
+    /**
+     * Aborts resumable uploads nobody came back for.
+     *
+     * @param olderThan Creation time before which uploads are abandoned
+     * @return The number of aborted uploads
+     */
+    public int abortAbandonedUploads(LocalDateTime olderThan) {
+        List<MultipartUploadState> abandoned = multipartUploadStateStore.findCreatedBefore(olderThan);
+
+        for (MultipartUploadState state : abandoned) {
+            try {
+                abortMultipartUpload(state.getFilePath(), state.getUploadId());
+            } catch (S3Exception e) {
+                log.warn("Could not abort upload of {}: {}", state.getFilePath(), e.getMessage());
+            }
+            multipartUploadStateStore.delete(state.getResumeKey());
+        }
+
+        return abandoned.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        uploadExecutor.shutdownNow();
+    }
+
+    /**
+     * Pre-signs the requests uploading a file straight from a client to S3, so the content never
+     * passes through the backend. Large files get a multipart upload with one URL per part.
+     *
+     * @param filePath Key of the file to create
+     * @param contentType Content type stored with the file
+     * @param size Size of the file in bytes
+     * @return The URLs to PUT the content to
+     */
+    public PresignedUpload presignUpload(String filePath, String contentType, long size) {
+        if (size < s3Configuration.getPresignedMultipartThreshold().toBytes()) {
+            PutObjectRequest request = PutObjectRequest.builder()
+                    .bucket(s3Configuration.getBucketName())
+                    .storageClass(s3Configuration.getStorageClass())
+                    .key(filePath)
+                    .contentType(contentType)
+                    .acl(ObjectCannedACL.PUBLIC_READ)
+                    .build();
+
+            PresignedPutObjectRequest presigned = s3Presigner.presignPutObject(PutObjectPresignRequest.builder()
+                    .signatureDuration(s3Configuration.getPresignedUploadExpiry())
+                    .putObjectRequest(request)
+                    .build());
+
+            return new PresignedUpload(presigned.url().toString(), withoutHost(presigned.signedHeaders()),
+                    null, size, List.of(), presigned.expiration());
+        }
+
+        String uploadId = s3Client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                .bucket(s3Configuration.getBucketName())
+                .storageClass(s3Configuration.getStorageClass())
+                .key(filePath)
+                .contentType(contentType)
+                .acl(ObjectCannedACL.PUBLIC_READ)
+                .build()).uploadId();
+
+        long partSize = Math.max(s3Configuration.getUploadPartSize().toBytes(), (size + MAX_PARTS - 1) / MAX_PARTS);
+        int partCount = (int) ((size + partSize - 1) / partSize);
+        List<PresignedPart> parts = new ArrayList<>(partCount);
+        Instant expiresAt = null;
+
+        for (int partNumber = 1; partNumber <= partCount; partNumber++) {
+            UploadPartRequest request = UploadPartRequest.builder()
+                    .bucket(s3Configuration.getBucketName())
+                    .key(filePath)
+                    .uploadId(uploadId)
+                    .partNumber(partNumber)
+                    .build();
+
+            PresignedUploadPartRequest presigned = s3Presigner.presignUploadPart(UploadPartPresignRequest.builder()
+                    .signatureDuration(s3Configuration.getPresignedUploadExpiry())
+                    .uploadPartRequest(request)
+                    .build());
+
+            parts.add(new PresignedPart(partNumber, presigned.url().toString()));
+            expiresAt = presigned.expiration();
+        }
+
+        return new PresignedUpload(null, Map.of(), uploadId, partSize, parts, expiresAt);
+    }
+
+    /**
+     * Commits a multipart upload made through pre-signed part URLs. The parts are listed from S3
+     * instead of trusting ETags reported by the client.
+     *
+     * @param filePath Key of the uploaded file
+     * @param multipartUploadId ID returned by {@link #presignUpload}
+     */
+    public void completeMultipartUpload(String filePath, String multipartUploadId) {
+        List<CompletedPart> completedParts = new ArrayList<>();
+
+        s3Client.listPartsPaginator(ListPartsRequest.builder()
+                        .bucket(s3Configuration.getBucketName())
+                        .key(filePath)
+                        .uploadId(multipartUploadId)
+                        .build())
+                .parts()
+                .forEach(part -> completedParts.add(CompletedPart.builder()
+                        .partNumber(part.partNumber())
+                        .eTag(part.eTag())
+                        .build()));
+
+        s3Client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                .bucket(s3Configuration.getBucketName())
+                .key(filePath)
+                .uploadId(multipartUploadId)
+                .multipartUpload(CompletedMultipartUpload.builder().parts(completedParts).build())
+                .build());
+    }
+
+    public void abortMultipartUpload(String filePath, String multipartUploadId) {
+        try {
+            s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                    .bucket(s3Configuration.getBucketName())
+                    .key(filePath)
+                    .uploadId(multipartUploadId)
+                    .build());
+        } catch (NoSuchUploadException e) {
+            // Already completed or aborted
+        }
+    }
+
+    /**
+     * Reads the metadata of an S3 object.
+     *
+     * @param filePath Key of the file
+     * @return The metadata, or null if there is no such file
+     */
+    public HeadObjectResponse headFile(String filePath) {
+        try {
+            return s3Client.headObject(HeadObjectRequest.builder()
+                    .bucket(s3Configuration.getBucketName())
+                    .key(filePath)
+                    .build());
+        } catch (NoSuchKeyException e) {
+            return null;
+        }
+    }
+
+    private static Map<String, List<String>> withoutHost(Map<String, List<String>> signedHeaders) {
+        // Browsers set the host themselves and refuse to send it explicitly
+        Map<String, List<String>> headers = new LinkedHashMap<>(signedHeaders);
+        headers.keySet().removeIf(name -> name.equalsIgnoreCase("host"));
+        return headers;
+    }
+
+    /**
+     * Opens a stream over an S3 object without buffering it in memory.
+     *
+     * @param filePath Key of the file to read
+     * @return The object content, its metadata is available through {@link ResponseInputStream#response()}
+     */
+    public ResponseInputStream<GetObjectResponse> downloadFile(String filePath) {
+        GetObjectRequest request = GetObjectRequest.builder()
+                .bucket(s3Configuration.getBucketName())
+                .key(filePath)
+                .build();
+
+        try {
+            return s3Client.getObject(request);
+        } catch (S3Exception e) {
+            throw new RuntimeException("Failed to download file from S3", e);
+        }
+    }
+
+    /**
+     * Opens a stream over part of an S3 object.
+     *
+     * @param filePath Key of the file to read
+     * @param start First byte to read
+     * @param end Last byte to read, inclusive
+     * @return The content of the range
+     */
+    public ResponseInputStream<GetObjectResponse> downloadFileRange(String filePath, long start, long end) {
+        GetObjectRequest request = GetObjectRequest.builder()
+                .bucket(s3Configuration.getBucketName())
+                .key(filePath)
+                .range("bytes=" + start + "-" + end)
+                .build();
+
+        try {
+            return s3Client.getObject(request);
+        } catch (S3Exception e) {
+            throw new RuntimeException("Failed to download file range from S3", e);
+        }
+    }
+
+    public String getFileUrl(String filePath) {
         try {
             GetUrlRequest getUrlRequest = GetUrlRequest.builder().bucket(s3Configuration.getBucketName()).key(filePath).build();
             return s3Client.utilities().getUrl(getUrlRequest).toURI().toString();
@@ -91,6 +420,21 @@ public class FileService {
         }
     }
 
+    /**
+     * Resolves the S3 key of a file from its public URL.
+     *
+     * @param fileUrl URL returned when the file was uploaded
+     * @return The key of the file inside the bucket
+     */
+    public String getFilePathFromUrl(String fileUrl) {
+        String path = URI.create(fileUrl).getPath();
+        path = path.startsWith("/") ? path.substring(1) : path;
+
+        // Path-style URLs carry the bucket name as the first segment
+        String bucketPrefix = s3Configuration.getBucketName() + "/";
+        return path.startsWith(bucketPrefix) ? path.substring(bucketPrefix.length()) : path;
+    }
+
     public void deleteFile(String filePath) {
         DeleteObjectRequest request = DeleteObjectRequest.builder()
                 .bucket(s3Configuration.getBucketName())
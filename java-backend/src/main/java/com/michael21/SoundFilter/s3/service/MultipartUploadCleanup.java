@@ -0,0 +1,31 @@
+package com.michael21.SoundFilter.s3.service;
+
+import com.michael21.SoundFilter.s3.config.S3Configuration;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.jobrunr.jobs.annotations.Job;
+import org.jobrunr.jobs.annotations.Recurring;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/**
+ * Aborts resumable uploads that were never resumed, S3 keeps charging for their parts otherwise.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MultipartUploadCleanup {
+    private final FileService fileService;
+    private final S3Configuration s3Configuration;
+
+    @Recurring(id = "abort-abandoned-uploads", interval = "PT6H")
+    @Job(name = "Abort abandoned uploads")
+    public void abortAbandonedUploads() {
+        int aborted = fileService.abortAbandonedUploads(LocalDateTime.now().minus(s3Configuration.getResumableUploadRetention()));
+
+        if (aborted > 0) {
+            log.info("Aborted {} abandoned uploads", aborted);
+        }
+    }
+}
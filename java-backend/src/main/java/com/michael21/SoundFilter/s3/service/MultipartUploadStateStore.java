@@ -0,0 +1,44 @@
+package com.michael21.SoundFilter.s3.service;
+
+import com.michael21.SoundFilter.s3.MultipartUploadState;
+import com.michael21.SoundFilter.s3.repository.MultipartUploadStateRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Persists the state of resumable uploads in transactions of their own, so it survives the rollback
+ * of the operation that was uploading.
+ */
+@Service
+@RequiredArgsConstructor
+public class MultipartUploadStateStore {
+    private final MultipartUploadStateRepository multipartUploadStateRepository;
+
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public Optional<MultipartUploadState> find(String resumeKey) {
+        return multipartUploadStateRepository.findByResumeKey(resumeKey);
+    }
+
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public List<MultipartUploadState> findCreatedBefore(LocalDateTime time) {
+        return multipartUploadStateRepository.findByCreatedAtBefore(time);
+    }
+
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void save(String resumeKey, String filePath, String uploadId, long partSize) {
+        multipartUploadStateRepository.deleteByResumeKey(resumeKey);
+        multipartUploadStateRepository.flush();
+        multipartUploadStateRepository.save(new MultipartUploadState(resumeKey, filePath, uploadId, partSize));
+    }
+
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void delete(String resumeKey) {
+        multipartUploadStateRepository.deleteByResumeKey(resumeKey);
+    }
+}
@@ -0,0 +1,363 @@
+package com.michael21.SoundFilter.s3.service;
+
+import com.michael21.SoundFilter.s3.config.S3Configuration;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Output stream uploading to S3 in parts of the configured size. Full parts are uploaded in the
+ * background while the next one is written, with at most {@code uploadParallelism} parts in flight,
+ * so the heap used per upload is bounded by a small pool of part buffers regardless of how much
+ * data is written. A failed part is retried on its own from its buffer.
+ * <p>
+ * Data is committed only by {@link #complete()}. Closing an incomplete stream aborts the upload,
+ * unless the stream is resumable: then the multipart upload is kept, and a later stream with the same
+ * resume key skips the parts S3 already holds with the same content.
+ */
+@Slf4j
+public class S3UploadStream extends OutputStream {
+    private final S3Client s3Client;
+    private final FileService fileService;
+    private final ExecutorService executor;
+    private final MultipartUploadStateStore stateStore;
+    private final S3Configuration s3Configuration;
+    @Getter
+    private final String filePath;
+    private final String resumeKey;
+    private final int partSize;
+    private final int maxBuffers;
+    private final BlockingQueue<byte[]> freeBuffers = new LinkedBlockingQueue<>();
+    private final List<Future<CompletedPart>> parts = new ArrayList<>();
+    // ETags of the parts uploaded by an interrupted attempt, by part number
+    private final Map<Integer, String> resumedParts;
+
+    private byte[] buffer;
+    private int allocatedBuffers;
+    private int position;
+    private String uploadId;
+    private int resumedPartCount;
+    @Getter
+    private long size;
+    private boolean completed;
+    private boolean closed;
+    private volatile Exception failure;
+
+    S3UploadStream(S3Client s3Client, FileService fileService, ExecutorService executor,
+                   MultipartUploadStateStore stateStore, S3Configuration s3Configuration,
+                   String filePath, String resumeKey, String uploadId, Map<Integer, String> resumedParts) {
+        this.s3Client = s3Client;
+        this.fileService = fileService;
+        this.executor = executor;
+        this.stateStore = stateStore;
+        this.s3Configuration = s3Configuration;
+        this.filePath = filePath;
+        this.resumeKey = resumeKey;
+        this.uploadId = uploadId;
+        this.resumedParts = resumedParts;
+        this.partSize = (int) s3Configuration.getUploadPartSize().toBytes();
+        // One buffer is being written while the others are uploaded
+        this.maxBuffers = Math.max(1, s3Configuration.getUploadParallelism()) + 1;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            if (buffer == null) {
+                buffer = takeBuffer();
+            }
+            if (position == buffer.length) {
+                submitPart();
+                buffer = takeBuffer();
+            }
+
+            int chunk = Math.min(len, buffer.length - position);
+            System.arraycopy(b, off, buffer, position, chunk);
+            position += chunk;
+            size += chunk;
+            off += chunk;
+            len -= chunk;
+        }
+    }
+
+    /**
+     * Uploads the buffered remainder, waits for the parts in flight and commits the object.
+     *
+     * @return The URL of the uploaded file
+     */
+    public String complete() throws IOException {
+        ensureOpen();
+
+        try {
+            commit();
+        } catch (SdkException e) {
+            failure = e;
+            throw e;
+        }
+
+        completed = true;
+        closed = true;
+        log.info("Uploaded {} bytes to {} in {} part(s), {} resumed", size, filePath, Math.max(1, parts.size()),
+                resumedPartCount);
+
+        return fileService.getFileUrl(filePath);
+    }
+
+    /**
+     * Tells whether S3 rejected the upload, as opposed to the writer of the stream failing.
+     */
+    public boolean isFailed() {
+        return failure != null;
+    }
+
+    private void commit() throws IOException {
+        if (uploadId == null && parts.isEmpty()) {
+            // Everything fit in one part, a plain PUT is cheaper than a multipart upload
+            byte[] content = buffer == null ? new byte[0] : buffer;
+            PutObjectRequest request = PutObjectRequest.builder()
+                    .bucket(s3Configuration.getBucketName())
+                    .storageClass(s3Configuration.getStorageClass())
+                    .key(filePath)
+                    .acl(ObjectCannedACL.PUBLIC_READ)
+                    .build();
+            s3Client.putObject(request, RequestBody.fromInputStream(new ByteArrayInputStream(content, 0, position), position));
+        } else {
+            if (position > 0 || parts.isEmpty()) {
+                submitPart();
+            }
+
+            List<CompletedPart> completedParts = awaitParts();
+            completedParts.sort(Comparator.comparing(CompletedPart::partNumber));
+
+            CompleteMultipartUploadRequest request = CompleteMultipartUploadRequest.builder()
+                    .bucket(s3Configuration.getBucketName())
+                    .key(filePath)
+                    .uploadId(uploadId)
+                    .multipartUpload(CompletedMultipartUpload.builder().parts(completedParts).build())
+                    .build();
+            s3Client.completeMultipartUpload(request);
+
+            if (resumeKey != null) {
+                stateStore.delete(resumeKey);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        if (completed || uploadId == null) {
+            return;
+        }
+
+        parts.forEach(part -> part.cancel(true));
+
+        if (resumeKey != null) {
+            log.info("Keeping incomplete upload of {} to resume it later", filePath);
+            return;
+        }
+
+        try {
+            s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                    .bucket(s3Configuration.getBucketName())
+                    .key(filePath)
+                    .uploadId(uploadId)
+                    .build());
+            log.info("Aborted incomplete upload of {}", filePath);
+        } catch (S3Exception e) {
+            log.warn("Could not abort multipart upload of {}: {}", filePath, e.getMessage());
+        }
+    }
+
+    private void submitPart() throws IOException {
+        checkFailure();
+
+        if (uploadId == null) {
+            CreateMultipartUploadRequest request = CreateMultipartUploadRequest.builder()
+                    .bucket(s3Configuration.getBucketName())
+                    .storageClass(s3Configuration.getStorageClass())
+                    .key(filePath)
+                    .acl(ObjectCannedACL.PUBLIC_READ)
+                    .build();
+            try {
+                uploadId = s3Client.createMultipartUpload(request).uploadId();
+            } catch (SdkException e) {
+                failure = e;
+                throw e;
+            }
+
+            if (resumeKey != null) {
+                stateStore.save(resumeKey, filePath, uploadId, partSize);
+            }
+        }
+
+        int partNumber = parts.size() + 1;
+        byte[] partBuffer = buffer == null ? new byte[0] : buffer;
+        int length = position;
+        byte[] md5 = md5(partBuffer, length);
+
+        buffer = null;
+        position = 0;
+
+        // An interrupted attempt already uploaded this exact part, its ETag is the MD5 of the content
+        String resumedETag = resumedParts.get(partNumber);
+        if (resumedETag != null && resumedETag.replace("\"", "").equalsIgnoreCase(HexFormat.of().formatHex(md5))) {
+            releaseBuffer(partBuffer);
+            resumedPartCount++;
+            parts.add(CompletableFuture.completedFuture(
+                    CompletedPart.builder().partNumber(partNumber).eTag(resumedETag).build()));
+            return;
+        }
+
+        parts.add(executor.submit(() -> {
+            try {
+                return uploadPart(partNumber, partBuffer, length, Base64.getEncoder().encodeToString(md5));
+            } catch (Exception e) {
+                failure = e;
+                throw e;
+            } finally {
+                releaseBuffer(partBuffer);
+            }
+        }));
+    }
+
+    private CompletedPart uploadPart(int partNumber, byte[] partBuffer, int length, String contentMd5)
+            throws InterruptedException {
+        int attempts = Math.max(1, s3Configuration.getUploadPartAttempts());
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                UploadPartRequest request = UploadPartRequest.builder()
+                        .bucket(s3Configuration.getBucketName())
+                        .key(filePath)
+                        .uploadId(uploadId)
+                        .partNumber(partNumber)
+                        .contentLength((long) length)
+                        .contentMD5(contentMd5)
+                        .build();
+
+                UploadPartResponse response = s3Client.uploadPart(request,
+                        RequestBody.fromInputStream(new ByteArrayInputStream(partBuffer, 0, length), length));
+
+                return CompletedPart.builder().partNumber(partNumber).eTag(response.eTag()).build();
+            } catch (SdkException e) {
+                if (attempt >= attempts || !isRetryable(e) || failure != null) {
+                    throw e;
+                }
+
+                long backoff = s3Configuration.getUploadRetryBackoff().toMillis() << (attempt - 1);
+                log.warn("Upload of part {} of {} failed (attempt {}/{}), retrying in {} ms: {}",
+                        partNumber, filePath, attempt, attempts, backoff, e.getMessage());
+                Thread.sleep(backoff);
+            }
+        }
+    }
+
+    private List<CompletedPart> awaitParts() throws IOException {
+        List<CompletedPart> completedParts = new ArrayList<>();
+
+        try {
+            for (Future<CompletedPart> part : parts) {
+                completedParts.add(part.get());
+            }
+        } catch (ExecutionException e) {
+            throw new IOException("Upload of " + filePath + " failed: " + e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while uploading " + filePath);
+        }
+
+        return completedParts;
+    }
+
+    private byte[] takeBuffer() throws IOException {
+        byte[] free = freeBuffers.poll();
+        if (free != null) {
+            return free;
+        }
+
+        if (allocatedBuffers < maxBuffers) {
+            allocatedBuffers++;
+            return new byte[partSize];
+        }
+
+        // Every buffer is being uploaded, wait for a part to finish
+        try {
+            free = freeBuffers.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while uploading " + filePath);
+        }
+
+        checkFailure();
+        return free;
+    }
+
+    private void releaseBuffer(byte[] partBuffer) {
+        if (partBuffer.length == partSize) {
+            freeBuffers.add(partBuffer);
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        if (failure != null) {
+            throw new IOException("Upload of " + filePath + " failed: " + failure.getMessage(), failure);
+        }
+    }
+
+    private static boolean isRetryable(SdkException e) {
+        if (e instanceof S3Exception s3Exception) {
+            return s3Exception.statusCode() >= 500 || s3Exception.statusCode() == 429;
+        }
+        return e instanceof SdkClientException;
+    }
+
+    private static byte[] md5(byte[] data, int length) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("MD5");
+            digest.update(data, 0, length);
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 is not available", e);
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Upload stream for " + filePath + " is closed");
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.michael21.SoundFilter.search;
+
+import com.michael21.SoundFilter.entity.AbstractEntity;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Row of the search index, the occurrences of one word in the transcription of one project. The owner
+ * is kept on the row so a search reads the index of one user without joining the projects.
+ */
+@Entity
+@Getter
+@NoArgsConstructor
+@Table(indexes = {
+        @Index(columnList = "userId, term, audioProjectId"),
+        @Index(columnList = "audioProjectId, term", unique = true)
+})
+public class TranscriptPosting extends AbstractEntity {
+    @Column(nullable = false)
+    private Long userId;
+
+    @Column(nullable = false)
+    private Long audioProjectId;
+
+    @Column(nullable = false, length = TranscriptPostings.MAX_TERM_LENGTH)
+    private String term;
+
+    // Encoded by TranscriptPostings, a few bytes per occurrence
+    @Lob
+    @Setter
+    @Column(nullable = false, length = 16 * 1024 * 1024)
+    private byte[] postings;
+
+    public TranscriptPosting(Long userId, Long audioProjectId, String term, byte[] postings) {
+        this.userId = userId;
+        this.audioProjectId = audioProjectId;
+        this.term = term;
+        this.postings = postings;
+    }
+}
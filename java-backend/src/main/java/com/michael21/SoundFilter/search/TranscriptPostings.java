@@ -0,0 +1,128 @@
+package com.michael21.SoundFilter.search;
+
+import com.michael21.SoundFilter.audio.PhraseMatcher;
+import com.michael21.SoundFilter.audio.data.TranscriptionResult.WordTimestamp;
+import com.michael21.SoundFilter.util.VarInt;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Occurrences of a word in a transcription, as stored in a row of the search index. An occurrence is
+ * its start as a delta from the one before, its length and the gap to the start of the next word, all
+ * in milliseconds. Words of a phrase follow each other when each starts where the one before says the
+ * next word starts, so phrases are found without numbering the words, and an edit that adds or removes
+ * words only changes the rows of the words around it.
+ */
+public final class TranscriptPostings {
+    // Longer words are indexed by their start, queries are cut the same way
+    public static final int MAX_TERM_LENGTH = 64;
+
+    private TranscriptPostings() {
+    }
+
+    /**
+     * Words of a transcription or a query as they're indexed, see {@link PhraseMatcher#normalize(String)}.
+     */
+    public static String term(String word) {
+        String term = PhraseMatcher.normalize(word);
+        return term.length() > MAX_TERM_LENGTH ? term.substring(0, MAX_TERM_LENGTH) : term;
+    }
+
+    /**
+     * Encodes the occurrences of every word of a transcription, punctuation is skipped.
+     *
+     * @return Postings by term, in the order the terms first occur
+     */
+    public static Map<String, byte[]> encode(List<WordTimestamp> words) {
+        List<String> terms = new ArrayList<>();
+        List<WordTimestamp> indexed = new ArrayList<>();
+        for (WordTimestamp word : words) {
+            String term = word.getWord() == null ? "" : term(word.getWord());
+            if (!term.isEmpty()) {
+                terms.add(term);
+                indexed.add(word);
+            }
+        }
+
+        Map<String, ByteArrayOutputStream> out = new LinkedHashMap<>();
+        Map<String, Integer> lastStarts = new HashMap<>();
+        for (int i = 0; i < indexed.size(); i++) {
+            int start = millis(indexed.get(i).getStartTime());
+            int end = Math.max(start, millis(indexed.get(i).getEndTime()));
+            int nextStart = i + 1 < indexed.size() ? millis(indexed.get(i + 1).getStartTime()) : -1;
+
+            ByteArrayOutputStream postings = out.computeIfAbsent(terms.get(i), term -> new ByteArrayOutputStream());
+            VarInt.writeSigned(postings, start - lastStarts.getOrDefault(terms.get(i), 0));
+            VarInt.write(postings, end - start);
+            VarInt.writeSigned(postings, nextStart - end);
+            lastStarts.put(terms.get(i), start);
+        }
+
+        Map<String, byte[]> encoded = new LinkedHashMap<>();
+        out.forEach((term, postings) -> encoded.put(term, postings.toByteArray()));
+        return encoded;
+    }
+
+    public static List<Occurrence> decode(byte[] postings) {
+        List<Occurrence> occurrences = new ArrayList<>();
+        ByteBuffer in = ByteBuffer.wrap(postings);
+        int start = 0;
+        while (in.hasRemaining()) {
+            start += VarInt.readSigned(in);
+            int end = start + VarInt.read(in);
+            int nextStart = end + VarInt.readSigned(in);
+            occurrences.add(new Occurrence(start, end, nextStart));
+        }
+        return occurrences;
+    }
+
+    /**
+     * Finds a phrase in one transcription.
+     *
+     * @param terms Terms of the phrase, in order
+     * @param postings Postings of the transcription, at least those of the terms
+     * @return Every occurrence of the phrase, spanning its first to its last word, in the order they start
+     */
+    public static List<Occurrence> find(List<String> terms, Map<String, byte[]> postings) {
+        List<Map<Integer, Occurrence>> byStart = new ArrayList<>();
+        for (String term : terms) {
+            byte[] encoded = postings.get(term);
+            if (encoded == null) {
+                return List.of();
+            }
+            Map<Integer, Occurrence> occurrences = new HashMap<>();
+            decode(encoded).forEach(occurrence -> occurrences.putIfAbsent(occurrence.startMillis(), occurrence));
+            byStart.add(occurrences);
+        }
+
+        List<Occurrence> found = new ArrayList<>();
+        for (Occurrence first : byStart.get(0).values()) {
+            Occurrence last = first;
+            for (int i = 1; i < terms.size() && last != null; i++) {
+                last = last.nextStartMillis() < 0 ? null : byStart.get(i).get(last.nextStartMillis());
+            }
+            if (last != null) {
+                found.add(new Occurrence(first.startMillis(), last.endMillis(), last.nextStartMillis()));
+            }
+        }
+
+        found.sort((a, b) -> Integer.compare(a.startMillis(), b.startMillis()));
+        return found;
+    }
+
+    private static int millis(double seconds) {
+        return (int) Math.round(seconds * 1000);
+    }
+
+    /**
+     * @param nextStartMillis Start of the next word, -1 after the last word of the transcription
+     */
+    public record Occurrence(int startMillis, int endMillis, int nextStartMillis) {
+    }
+}
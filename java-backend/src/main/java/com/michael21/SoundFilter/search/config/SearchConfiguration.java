@@ -0,0 +1,17 @@
+package com.michael21.SoundFilter.search.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.search")
+@Setter
+@Getter
+public class SearchConfiguration {
+    private int maxHits = 100;
+    private int maxQueryWords = 16;
+    // Projects checked for a phrase at once, a search reads pages of them until it has enough hits
+    private int projectPageSize = 200;
+}
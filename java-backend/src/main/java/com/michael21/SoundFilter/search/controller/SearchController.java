@@ -0,0 +1,29 @@
+package com.michael21.SoundFilter.search.controller;
+
+import com.michael21.SoundFilter.search.data.SearchResponse;
+import com.michael21.SoundFilter.search.service.TranscriptSearchService;
+import com.michael21.SoundFilter.users.User;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/search")
+@RequiredArgsConstructor
+public class SearchController {
+    private final TranscriptSearchService transcriptSearchService;
+
+    @GetMapping
+    public ResponseEntity<SearchResponse> search(
+            @AuthenticationPrincipal User user,
+            @RequestParam("q") String q,
+            @RequestParam(value = "limit", defaultValue = "50") Integer limit) {
+        return ResponseEntity.ok(transcriptSearchService.search(user, q, limit));
+    }
+}
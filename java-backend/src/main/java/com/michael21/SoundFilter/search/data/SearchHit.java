@@ -0,0 +1,7 @@
+package com.michael21.SoundFilter.search.data;
+
+/**
+ * Occurrence of the searched phrase, from the start of its first word to the end of its last, in seconds.
+ */
+public record SearchHit(Long projectId, double startTime, double endTime) {
+}
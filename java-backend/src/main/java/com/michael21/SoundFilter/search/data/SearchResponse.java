@@ -0,0 +1,6 @@
+package com.michael21.SoundFilter.search.data;
+
+import java.util.List;
+
+public record SearchResponse(String query, List<SearchHit> hits) {
+}
@@ -0,0 +1,40 @@
+package com.michael21.SoundFilter.search.repository;
+
+import com.michael21.SoundFilter.search.TranscriptPosting;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface TranscriptPostingRepository extends JpaRepository<TranscriptPosting, Long> {
+    List<TranscriptPosting> findByAudioProjectId(Long audioProjectId);
+
+    @Query("SELECT p FROM TranscriptPosting p WHERE p.userId = :userId AND p.term = :term " +
+            "ORDER BY p.audioProjectId DESC")
+    List<TranscriptPosting> findFirstPage(@Param("userId") Long userId, @Param("term") String term, Limit limit);
+
+    @Query("SELECT p FROM TranscriptPosting p WHERE p.userId = :userId AND p.term = :term " +
+            "AND p.audioProjectId < :audioProjectId ORDER BY p.audioProjectId DESC")
+    List<TranscriptPosting> findPageAfter(@Param("userId") Long userId, @Param("term") String term,
+                                          @Param("audioProjectId") Long audioProjectId, Limit limit);
+
+    @Query("SELECT p FROM TranscriptPosting p WHERE p.userId = :userId AND p.term IN :terms " +
+            "AND p.audioProjectId IN :audioProjectIds")
+    List<TranscriptPosting> findTerms(@Param("userId") Long userId, @Param("terms") Collection<String> terms,
+                                      @Param("audioProjectIds") Collection<Long> audioProjectIds);
+
+    @Modifying
+    @Query("INSERT INTO TranscriptPosting (userId, audioProjectId, term, postings) " +
+            "SELECT p.userId, :copyId, p.term, p.postings FROM TranscriptPosting p WHERE p.audioProjectId = :audioProjectId")
+    int copyProject(@Param("audioProjectId") Long audioProjectId, @Param("copyId") Long copyId);
+
+    @Modifying
+    @Query("DELETE FROM TranscriptPosting p WHERE p.audioProjectId = :audioProjectId")
+    int deleteProject(@Param("audioProjectId") Long audioProjectId);
+}
@@ -0,0 +1,154 @@
+package com.michael21.SoundFilter.search.service;
+
+import com.michael21.SoundFilter.audio.data.TranscriptionResult.WordTimestamp;
+import com.michael21.SoundFilter.search.TranscriptPosting;
+import com.michael21.SoundFilter.search.TranscriptPostings;
+import com.michael21.SoundFilter.search.config.SearchConfiguration;
+import com.michael21.SoundFilter.search.data.SearchHit;
+import com.michael21.SoundFilter.search.data.SearchResponse;
+import com.michael21.SoundFilter.search.repository.TranscriptPostingRepository;
+import com.michael21.SoundFilter.users.AudioProject;
+import com.michael21.SoundFilter.users.User;
+import com.michael21.SoundFilter.util.exception.ApiException;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Phrase search over the transcriptions of a user, through an index of the words of each project.
+ * The index follows the last transcription of a project, spans edited since are searched as they were.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TranscriptSearchService {
+    private final TranscriptPostingRepository transcriptPostingRepository;
+    private final SearchConfiguration searchConfiguration;
+
+    /**
+     * Brings the index of a project up to date with its transcription. Only the rows of words whose
+     * occurrences changed are written, so transcribing edited spans again rewrites a few rows.
+     */
+    @Transactional
+    public void index(AudioProject audioProject, List<WordTimestamp> words) {
+        Map<String, byte[]> postings = TranscriptPostings.encode(words == null ? List.of() : words);
+        List<TranscriptPosting> changed = new ArrayList<>();
+        List<TranscriptPosting> removed = new ArrayList<>();
+
+        for (TranscriptPosting row : transcriptPostingRepository.findByAudioProjectId(audioProject.getId())) {
+            byte[] current = postings.remove(row.getTerm());
+            if (current == null) {
+                removed.add(row);
+            } else if (!Arrays.equals(current, row.getPostings())) {
+                row.setPostings(current);
+                changed.add(row);
+            }
+        }
+        postings.forEach((term, occurrences) -> changed.add(
+                new TranscriptPosting(audioProject.getUser().getId(), audioProject.getId(), term, occurrences)));
+
+        transcriptPostingRepository.deleteAll(removed);
+        transcriptPostingRepository.saveAll(changed);
+        log.info("Indexed transcription of project {}, {} words written and {} removed",
+                audioProject.getId(), changed.size(), removed.size());
+    }
+
+    /**
+     * Gives a copy of a project the index of the original, their transcriptions are the same.
+     */
+    @Transactional
+    public void copyIndex(AudioProject audioProject, AudioProject copy) {
+        transcriptPostingRepository.copyProject(audioProject.getId(), copy.getId());
+    }
+
+    @Transactional
+    public void deleteIndex(AudioProject audioProject) {
+        transcriptPostingRepository.deleteProject(audioProject.getId());
+    }
+
+    /**
+     * Finds a phrase in the transcriptions of the user. Projects are read newest first, a page at a time
+     * by the longest word of the phrase, which is usually the rarest. A search stops once it has enough
+     * hits, so it reads the same few rows however many transcriptions the user has.
+     *
+     * @param query Words of the phrase, compared like banned phrases are
+     * @param limit Maximum number of hits
+     */
+    @Transactional(readOnly = true)
+    public SearchResponse search(User user, String query, int limit) {
+        List<String> terms = Arrays.stream(query.trim().split("\\s+"))
+                .map(TranscriptPostings::term)
+                .filter(term -> !term.isEmpty())
+                .toList();
+
+        if (terms.isEmpty()) {
+            throw ApiException.builder()
+                    .status(HttpServletResponse.SC_BAD_REQUEST)
+                    .message("Search query must contain a word")
+                    .build();
+        }
+
+        if (terms.size() > searchConfiguration.getMaxQueryWords()) {
+            throw ApiException.builder()
+                    .status(HttpServletResponse.SC_BAD_REQUEST)
+                    .message("Search query can have at most " + searchConfiguration.getMaxQueryWords() + " words")
+                    .build();
+        }
+
+        int maxHits = Math.max(1, Math.min(limit, searchConfiguration.getMaxHits()));
+        int pageSize = searchConfiguration.getProjectPageSize();
+        String first = terms.stream().max(Comparator.comparingInt(String::length)).orElseThrow();
+        Set<String> others = new LinkedHashSet<>(terms);
+        others.remove(first);
+
+        List<SearchHit> hits = new ArrayList<>();
+        Long after = null;
+        while (hits.size() < maxHits) {
+            List<TranscriptPosting> page = after == null
+                    ? transcriptPostingRepository.findFirstPage(user.getId(), first, Limit.of(pageSize))
+                    : transcriptPostingRepository.findPageAfter(user.getId(), first, after, Limit.of(pageSize));
+            if (page.isEmpty()) {
+                break;
+            }
+
+            Map<Long, Map<String, byte[]>> projects = new LinkedHashMap<>();
+            page.forEach(row -> projects.computeIfAbsent(row.getAudioProjectId(), id -> new HashMap<>())
+                    .put(first, row.getPostings()));
+            if (!others.isEmpty()) {
+                transcriptPostingRepository.findTerms(user.getId(), others, projects.keySet())
+                        .forEach(row -> projects.get(row.getAudioProjectId()).put(row.getTerm(), row.getPostings()));
+            }
+
+            for (Map.Entry<Long, Map<String, byte[]>> project : projects.entrySet()) {
+                for (TranscriptPostings.Occurrence occurrence : TranscriptPostings.find(terms, project.getValue())) {
+                    if (hits.size() == maxHits) {
+                        break;
+                    }
+                    hits.add(new SearchHit(project.getKey(), occurrence.startMillis() / 1000.0,
+                            occurrence.endMillis() / 1000.0));
+                }
+            }
+
+            if (page.size() < pageSize) {
+                break;
+            }
+            after = page.get(page.size() - 1).getAudioProjectId();
+        }
+
+        log.info("Found {} hits of a {} word phrase for user {}", hits.size(), terms.size(), user.getId());
+        return new SearchResponse(query, hits);
+    }
+}
@@ -1,22 +1,34 @@
 package com.michael21.SoundFilter.users;
 
+import com.michael21.SoundFilter.audio.EditDecisionList;
 import com.michael21.SoundFilter.entity.AbstractEntity;
 import com.michael21.SoundFilter.users.data.CreateAudioProjectRequest;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+// Serves the project listing, which is ordered by creation since edits must not move a project between pages
+@Table(indexes = @Index(columnList = "user_id, createdAt, id"))
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 @Getter
 @Setter
 public class AudioProject extends AbstractEntity {
+    // Characters of the edit list hash in the playback URL
+    public static final int PLAYBACK_VERSION_LENGTH = 16;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
@@ -24,9 +36,49 @@ public class AudioProject extends AbstractEntity {
     @Column(nullable = false)
     private String name;
 
+    // Last rendering of the edit list, the source audio while nothing needs rendering
     @Column(nullable = false)
     private String audioUrl;
 
+    // Audio as uploaded, edits are rendered from it and never written back
+    @Column
+    private String sourceAudioUrl;
+
+    @Column
+    private String sourceAudioFormat;
+
+    @Column
+    private Long sourceFileSize;
+
+    @Column(length = 64)
+    private String sourceAudioHash;
+
+    // Edit decision list, the first appliedEditCount edits are in effect and the rest were undone
+    @ElementCollection
+    @CollectionTable(name = "audio_project_edit", joinColumns = @JoinColumn(name = "audio_project_id"))
+    @OrderColumn(name = "position")
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+    @Builder.Default
+    private List<ProjectEdit> edits = new ArrayList<>();
+
+    @Column(nullable = false)
+    private int appliedEditCount;
+
+    // Hash of the source, format and applied edits, the audio to play
+    @Column(length = 64)
+    private String editListHash;
+
+    // Hash of the edit list audioUrl was rendered from
+    @Column(length = 64)
+    private String renderedEditListHash;
+
+    @OneToMany(mappedBy = "audioProject", cascade = CascadeType.ALL, orphanRemoval = true)
+    @Builder.Default
+    private List<AudioProjectVersion> versions = new ArrayList<>();
+
+    @Column(nullable = false)
+    private int versionCount;
+
     @Column(columnDefinition = "TEXT")
     private String description;
 
@@ -45,6 +97,21 @@ public class AudioProject extends AbstractEntity {
     @Column
     private Long fileSize;
 
+    // SHA-256 of the current audio, null for projects created before it was tracked
+    @Column(length = 64)
+    private String audioHash;
+
+    // Hash of the audio the stored transcription was made from
+    @Column(length = 64)
+    private String transcribedAudioHash;
+
+    // Edits made since the transcription, only these spans need to be transcribed again
+    @ElementCollection
+    @CollectionTable(name = "audio_project_edited_range", joinColumns = @JoinColumn(name = "audio_project_id"))
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+    @Builder.Default
+    private List<EditedRange> editedRanges = new ArrayList<>();
+
     @CreationTimestamp
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -54,14 +121,223 @@ public class AudioProject extends AbstractEntity {
     private LocalDateTime updatedAt;
 
     public AudioProject(String name, String description, User user, MultipartFile file,
-                        String audioUrl, LocalDateTime createdAt, String extension) {
+                        String audioUrl, LocalDateTime createdAt, String extension, String audioHash) {
+        this(name, description, user, file.getSize(), audioUrl, createdAt, extension, audioHash);
+    }
+
+    public AudioProject(String name, String description, User user, long fileSize,
+                        String audioUrl, LocalDateTime createdAt, String extension, String audioHash) {
         this.user = user;
         this.name = name;
         this.audioUrl = audioUrl;
         this.description = description;
         this.createdAt = createdAt;
         this.updatedAt = createdAt;
-        this.fileSize = file.getSize();
+        this.fileSize = fileSize;
         this.audioFormat = extension;
+        this.audioHash = audioHash;
+        // Builder defaults don't apply to hand-written constructors
+        this.editedRanges = new ArrayList<>();
+        this.edits = new ArrayList<>();
+        this.versions = new ArrayList<>();
+        ensureSource();
+        recordVersion(AudioProjectChange.UPLOAD);
+    }
+
+    /**
+     * Takes the current audio as the source of the edit list. Projects created before edits were
+     * stored as a list get theirs on their first edit.
+     */
+    public void ensureSource() {
+        if (sourceAudioUrl != null) {
+            return;
+        }
+
+        this.sourceAudioUrl = audioUrl;
+        this.sourceAudioFormat = audioFormat;
+        this.sourceFileSize = fileSize;
+        this.sourceAudioHash = audioHash;
+        refreshEditListHash();
+        this.renderedEditListHash = editListHash;
+    }
+
+    public List<ProjectEdit> getAppliedEdits() {
+        return edits.subList(0, appliedEditCount);
+    }
+
+    /**
+     * Appends edits as one revision. Undone edits are discarded, they can't be redone any more.
+     */
+    public void addEdits(List<ProjectEdit> newEdits) {
+        ensureSource();
+        edits.subList(appliedEditCount, edits.size()).clear();
+
+        int revision = edits.isEmpty() ? 1 : edits.get(edits.size() - 1).getRevision() + 1;
+        newEdits.forEach(edit -> edit.setRevision(revision));
+        edits.addAll(newEdits);
+        appliedEditCount = edits.size();
+
+        onEdited(newEdits.stream().map(ProjectEdit::toEditedRange).toList());
+        refreshEditListHash();
+    }
+
+    /**
+     * Takes back the last applied revision.
+     *
+     * @return The edits taken back, empty if there was nothing to undo
+     */
+    public List<ProjectEdit> undo() {
+        ensureSource();
+        int from = appliedEditCount;
+        while (from > 0 && edits.get(from - 1).getRevision() == edits.get(appliedEditCount - 1).getRevision()) {
+            from--;
+        }
+
+        List<ProjectEdit> undone = List.copyOf(edits.subList(from, appliedEditCount));
+        appliedEditCount = from;
+
+        onEdited(undone.stream().map(ProjectEdit::toEditedRange).toList());
+        refreshEditListHash();
+        return undone;
+    }
+
+    /**
+     * Applies the last undone revision again.
+     *
+     * @return The edits applied again, empty if there was nothing to redo
+     */
+    public List<ProjectEdit> redo() {
+        ensureSource();
+        int to = appliedEditCount;
+        while (to < edits.size() && edits.get(to).getRevision() == edits.get(appliedEditCount).getRevision()) {
+            to++;
+        }
+
+        List<ProjectEdit> redone = List.copyOf(edits.subList(appliedEditCount, to));
+        appliedEditCount = to;
+
+        onEdited(redone.stream().map(ProjectEdit::toEditedRange).toList());
+        refreshEditListHash();
+        return redone;
+    }
+
+    public void changeFormat(String audioFormat) {
+        ensureSource();
+        this.audioFormat = audioFormat;
+        refreshEditListHash();
+    }
+
+    /**
+     * Records the current state as the next version of the project.
+     */
+    public AudioProjectVersion recordVersion(AudioProjectChange change) {
+        ensureSource();
+        AudioProjectVersion version = new AudioProjectVersion(this, ++versionCount, change);
+        versions.add(version);
+        return version;
+    }
+
+    /**
+     * Brings back the edits and format of an earlier version, the versions after it are kept.
+     */
+    public void restore(AudioProjectVersion version) {
+        edits.clear();
+        version.getEdits().forEach(edit -> edits.add(edit.copy()));
+        appliedEditCount = edits.size();
+        audioFormat = version.getAudioFormat();
+
+        // Any part of the audio may differ from the restored version
+        onEdited(List.of(new EditedRange(0.0, null)));
+        refreshEditListHash();
+    }
+
+    /**
+     * Starts a new project from the current state of this one. The audio objects are shared rather
+     * than copied, they're never modified and only deleted once no project refers to them.
+     */
+    public AudioProject fork(String name) {
+        ensureSource();
+
+        AudioProject fork = new AudioProject();
+        fork.user = user;
+        fork.name = name;
+        fork.description = description;
+        fork.audioUrl = audioUrl;
+        fork.audioFormat = audioFormat;
+        fork.audioHash = audioHash;
+        fork.fileSize = fileSize;
+        fork.durationInSeconds = durationInSeconds;
+        fork.sourceAudioUrl = sourceAudioUrl;
+        fork.sourceAudioFormat = sourceAudioFormat;
+        fork.sourceFileSize = sourceFileSize;
+        fork.sourceAudioHash = sourceAudioHash;
+        getAppliedEdits().forEach(edit -> fork.edits.add(edit.copy()));
+        fork.appliedEditCount = fork.edits.size();
+        fork.editListHash = editListHash;
+        fork.renderedEditListHash = renderedEditListHash;
+        fork.transcriptionText = transcriptionText;
+        fork.filteredTranscriptionText = filteredTranscriptionText;
+        fork.transcribedAudioHash = transcribedAudioHash;
+        editedRanges.forEach(range -> fork.editedRanges.add(new EditedRange(range.getStartTime(), range.getEndTime())));
+        fork.createdAt = LocalDateTime.now();
+        fork.updatedAt = fork.createdAt;
+        fork.recordVersion(AudioProjectChange.FORK);
+
+        return fork;
+    }
+
+    public boolean isRendered() {
+        return editListHash != null && editListHash.equals(renderedEditListHash);
+    }
+
+    public void onRendered(String audioUrl, String audioHash, Long fileSize) {
+        this.audioUrl = audioUrl;
+        this.audioHash = audioHash;
+        this.fileSize = fileSize;
+        this.renderedEditListHash = editListHash;
+    }
+
+    /**
+     * Fills in the hash of the audio once it was read, for projects uploaded without one. The source gets
+     * it too while the audio is the source, a render going back to the source would lose it otherwise.
+     */
+    public void onHashed(String audioHash) {
+        if (this.audioHash != null) {
+            return;
+        }
+
+        this.audioHash = audioHash;
+        if (sourceAudioHash == null && audioUrl.equals(sourceAudioUrl)) {
+            this.sourceAudioHash = audioHash;
+        }
+    }
+
+    /**
+     * URL the audio is played and downloaded from, with byte ranges for seeking. It changes whenever the edits do.
+     */
+    public String getPlaybackUrl() {
+        return playbackUrl(getId(), editListHash, audioUrl, audioFormat);
+    }
+
+    public static String playbackUrl(long id, String editListHash, String audioUrl, String audioFormat) {
+        String version = editListHash != null ? editListHash : EditDecisionList.hash(audioUrl, audioFormat, List.of());
+        return "/api/audio/" + id + "/stream?v=" + version.substring(0, PLAYBACK_VERSION_LENGTH);
+    }
+
+    private void refreshEditListHash() {
+        this.editListHash = EditDecisionList.hash(sourceAudioUrl, audioFormat,
+                getAppliedEdits().stream().map(ProjectEdit::toAudioEdit).toList());
+    }
+
+    public void onTranscribed() {
+        this.transcribedAudioHash = this.audioHash;
+        this.editedRanges.clear();
+    }
+
+    public void onEdited(List<EditedRange> editedRanges) {
+        // Without a transcription there is nothing to update incrementally
+        if (transcribedAudioHash != null) {
+            this.editedRanges.addAll(editedRanges);
+        }
     }
 }
@@ -0,0 +1,11 @@
+package com.michael21.SoundFilter.users;
+
+public enum AudioProjectChange {
+    UPLOAD,
+    EDIT,
+    UNDO,
+    REDO,
+    CONVERT,
+    RESTORE,
+    FORK
+}
@@ -0,0 +1,68 @@
+package com.michael21.SoundFilter.users;
+
+import com.michael21.SoundFilter.audio.WordTimelineEntry;
+import com.michael21.SoundFilter.entity.AbstractEntity;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * State of a project after one of its changes. The source audio is never overwritten, so a version
+ * is its source and the edits applied to it, and can always be rendered or restored again.
+ */
+@Entity
+@Getter
+@NoArgsConstructor
+@Table(indexes = @Index(columnList = "audio_project_id, versionNumber", unique = true))
+public class AudioProjectVersion extends AbstractEntity {
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "audio_project_id", nullable = false)
+    private AudioProject audioProject;
+
+    @Column(nullable = false)
+    private int versionNumber;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private AudioProjectChange changeType;
+
+    @Column(nullable = false)
+    private String sourceAudioUrl;
+
+    @Column
+    private String audioFormat;
+
+    @Column(nullable = false, length = 64)
+    private String editListHash;
+
+    @ElementCollection
+    @CollectionTable(name = "audio_project_version_edit", joinColumns = @JoinColumn(name = "audio_project_version_id"))
+    @OrderColumn(name = "position")
+    private List<ProjectEdit> edits = new ArrayList<>();
+
+    // Words of the transcription of this version, versions made since the last transcription have none
+    @OneToOne(fetch = FetchType.LAZY, cascade = CascadeType.ALL, orphanRemoval = true)
+    @JoinColumn(name = "word_timeline_id")
+    @Setter
+    private WordTimelineEntry wordTimeline;
+
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    public AudioProjectVersion(AudioProject audioProject, int versionNumber, AudioProjectChange changeType) {
+        this.audioProject = audioProject;
+        this.versionNumber = versionNumber;
+        this.changeType = changeType;
+        this.sourceAudioUrl = audioProject.getSourceAudioUrl();
+        this.audioFormat = audioProject.getAudioFormat();
+        this.editListHash = audioProject.getEditListHash();
+        audioProject.getAppliedEdits().forEach(edit -> this.edits.add(edit.copy()));
+    }
+}
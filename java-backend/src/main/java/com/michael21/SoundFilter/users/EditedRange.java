@@ -0,0 +1,19 @@
+package com.michael21.SoundFilter.users;
+
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Span of project audio changed by an edit, in seconds. A missing end time means the edit
+ * may have changed the audio up to its end.
+ */
+@Embeddable
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class EditedRange {
+    private Double startTime;
+    private Double endTime;
+}
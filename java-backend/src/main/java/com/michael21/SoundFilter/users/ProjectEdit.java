@@ -0,0 +1,62 @@
+package com.michael21.SoundFilter.users;
+
+import com.michael21.SoundFilter.audio.AudioEditType;
+import com.michael21.SoundFilter.audio.data.AudioEdit;
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Entry of the edit decision list of a project. Edits made by one request share a revision,
+ * so they are undone and redone together.
+ */
+@Embeddable
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProjectEdit {
+    @Column(nullable = false)
+    private int revision;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private AudioEditType type;
+
+    @Column(nullable = false)
+    private Double startTime;
+
+    @Column(nullable = false)
+    private Double endTime;
+
+    private Integer toneFrequency;
+
+    @Column(columnDefinition = "TEXT")
+    private String replacementText;
+
+    private Boolean useEdgeTts;
+
+    private String gender;
+
+    public static ProjectEdit from(AudioEdit edit) {
+        return new ProjectEdit(0, edit.getType(), edit.getStartTime(), edit.getEndTime(), edit.getToneFrequency(),
+                edit.getReplacementText(), edit.getUseEdgeTts(), edit.getGender());
+    }
+
+    public ProjectEdit copy() {
+        return new ProjectEdit(revision, type, startTime, endTime, toneFrequency, replacementText, useEdgeTts, gender);
+    }
+
+    public AudioEdit toAudioEdit() {
+        return new AudioEdit(type, startTime, endTime, toneFrequency, replacementText, useEdgeTts, gender);
+    }
+
+    public EditedRange toEditedRange() {
+        return new EditedRange(startTime, endTime);
+    }
+}
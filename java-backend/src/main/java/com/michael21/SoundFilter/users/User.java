@@ -8,6 +8,8 @@ import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -21,6 +23,8 @@ import java.util.Collections;
 import java.util.List;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Getter
 @NoArgsConstructor
 public class User extends AbstractEntity implements UserDetails {
@@ -43,10 +47,12 @@ public class User extends AbstractEntity implements UserDetails {
     @OneToOne(mappedBy = "user")
     private VerificationCode verificationCode;
 
-    @OneToMany(mappedBy = "user", fetch = FetchType.EAGER)
+    @OneToMany(mappedBy = "user")
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     private List<UserConnectedAccount> connectedAccounts = new ArrayList<>();
 
-    @OneToMany(mappedBy = "user", fetch = FetchType.EAGER)
+    // Never loaded as a whole, projects are listed a page at a time through AudioProjectRepository
+    @OneToMany(mappedBy = "user")
     private List<AudioProject> audioProjects = new ArrayList<>();
 
     @Override
@@ -110,8 +116,4 @@ public class User extends AbstractEntity implements UserDetails {
     public void addConnectedAccount(UserConnectedAccount connectedAccount) {
         connectedAccounts.add(connectedAccount);
     }
-
-    public void addAudioProject(AudioProject audioProject) {
-        audioProjects.add(audioProject);
-    }
 }
@@ -2,16 +2,21 @@ package com.michael21.SoundFilter.users;
 
 import com.michael21.SoundFilter.config.ApplicationProperties;
 import com.michael21.SoundFilter.entity.AbstractEntity;
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Entity;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.security.authentication.AbstractAuthenticationToken;
 
 import java.time.LocalDateTime;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Getter
 @NoArgsConstructor
 public class UserConnectedAccount extends AbstractEntity {
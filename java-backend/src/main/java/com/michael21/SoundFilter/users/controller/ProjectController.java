@@ -0,0 +1,33 @@
+package com.michael21.SoundFilter.users.controller;
+
+import com.michael21.SoundFilter.users.data.AudioProjectResponse;
+import com.michael21.SoundFilter.users.data.ProjectPageResponse;
+import com.michael21.SoundFilter.users.service.UserService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/projects")
+@RequiredArgsConstructor
+public class ProjectController {
+    private final UserService userService;
+
+    @GetMapping
+    public ResponseEntity<ProjectPageResponse> getProjects(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "24") Integer limit) {
+        return ResponseEntity.ok(userService.getProjects(cursor, limit));
+    }
+
+    @GetMapping("/{project_id}")
+    public ResponseEntity<AudioProjectResponse> getProject(@PathVariable Long project_id) {
+        return ResponseEntity.ok(userService.getProject(project_id));
+    }
+}
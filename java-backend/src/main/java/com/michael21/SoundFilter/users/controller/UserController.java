@@ -68,26 +68,53 @@ public class UserController {
     }
 
     @PostMapping(value = "/create-audio-project")
-    public ResponseEntity<UserResponse> addAudioProject(
+    public ResponseEntity<AudioProjectResponse> addAudioProject(
             @RequestParam("file") MultipartFile file,
             @RequestParam("name") String name,
             @RequestParam("description") String description) {
 
-        UserResponse user = userService.addAudioProject(name, description, file);
-        return ResponseEntity.ok(user);
+        AudioProjectResponse project = userService.addAudioProject(name, description, file);
+        return ResponseEntity.ok(project);
+    }
+
+    @PostMapping("/audio-project-uploads")
+    public ResponseEntity<AudioProjectUploadResponse> requestAudioProjectUpload(
+            @Valid @RequestBody CreateAudioProjectUploadRequest request) {
+        AudioProjectUploadResponse upload = userService.requestAudioProjectUpload(request);
+        return ResponseEntity.ok(upload);
+    }
+
+    @PostMapping("/audio-project-uploads/{upload_id}/complete")
+    public ResponseEntity<AudioProjectResponse> completeAudioProjectUpload(
+            @PathVariable Long upload_id,
+            @Valid @RequestBody CreateAudioProjectRequest request) {
+        AudioProjectResponse project = userService.completeAudioProjectUpload(upload_id, request);
+        return ResponseEntity.ok(project);
+    }
+
+    @DeleteMapping("/audio-project-uploads/{upload_id}")
+    public ResponseEntity<Void> cancelAudioProjectUpload(@PathVariable Long upload_id) {
+        userService.cancelAudioProjectUpload(upload_id);
+        return ResponseEntity.noContent().build();
     }
 
     @PatchMapping("{id}/project-details")
-    public ResponseEntity<UserResponse> updateProjectDetails(
+    public ResponseEntity<AudioProjectResponse> updateProjectDetails(
             @PathVariable Long id,
             @Valid @RequestBody UpdateProjectDetailsRequest request) {
-        UserResponse user = userService.updateProjectDetails(id, request);
-        return ResponseEntity.ok(user);
+        AudioProjectResponse project = userService.updateProjectDetails(id, request);
+        return ResponseEntity.ok(project);
+    }
+
+    @PostMapping("{id}/fork-project")
+    public ResponseEntity<AudioProjectResponse> forkProject(@PathVariable Long id) {
+        AudioProjectResponse project = userService.forkProject(id);
+        return ResponseEntity.ok(project);
     }
 
     @DeleteMapping("{id}/delete-project")
-    public ResponseEntity<UserResponse> deleteProject(@PathVariable Long id) {
-        UserResponse user = userService.deleteProject(id);
-        return ResponseEntity.ok(user);
+    public ResponseEntity<Void> deleteProject(@PathVariable Long id) {
+        userService.deleteProject(id);
+        return ResponseEntity.noContent().build();
     }
 }
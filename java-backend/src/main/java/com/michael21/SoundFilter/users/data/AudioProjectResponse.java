@@ -0,0 +1,21 @@
+package com.michael21.SoundFilter.users.data;
+
+import com.michael21.SoundFilter.users.AudioProject;
+
+import java.time.LocalDateTime;
+
+public record AudioProjectResponse(long id, String name, String description, String extension,
+                                   LocalDateTime createdAt, LocalDateTime updatedAt, String audioUrl) {
+
+    public static AudioProjectResponse from(AudioProject project) {
+        return new AudioProjectResponse(project.getId(), project.getName(), project.getDescription(),
+                project.getAudioFormat(), project.getCreatedAt(), project.getUpdatedAt(), project.getPlaybackUrl());
+    }
+
+    public static AudioProjectResponse from(AudioProjectSummary project) {
+        return new AudioProjectResponse(project.getId(), project.getName(), project.getDescription(),
+                project.getAudioFormat(), project.getCreatedAt(), project.getUpdatedAt(),
+                AudioProject.playbackUrl(project.getId(), project.getEditListHash(), project.getAudioUrl(),
+                        project.getAudioFormat()));
+    }
+}
@@ -0,0 +1,24 @@
+package com.michael21.SoundFilter.users.data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Columns of a project shown in a listing, read without loading the project entity and its collections.
+ */
+public interface AudioProjectSummary {
+    long getId();
+
+    String getName();
+
+    String getDescription();
+
+    String getAudioFormat();
+
+    String getAudioUrl();
+
+    String getEditListHash();
+
+    LocalDateTime getCreatedAt();
+
+    LocalDateTime getUpdatedAt();
+}
@@ -0,0 +1,12 @@
+package com.michael21.SoundFilter.users.data;
+
+import com.michael21.SoundFilter.s3.data.PresignedUpload;
+
+/**
+ * Upload slot for the audio of a new project.
+ *
+ * @param uploadId ID to confirm the upload with once the file is in S3
+ * @param upload Pre-signed requests to send the file with
+ */
+public record AudioProjectUploadResponse(long uploadId, PresignedUpload upload) {
+}
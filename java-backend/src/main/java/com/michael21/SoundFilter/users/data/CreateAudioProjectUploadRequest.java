@@ -0,0 +1,17 @@
+package com.michael21.SoundFilter.users.data;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+
+@Data
+public class CreateAudioProjectUploadRequest {
+    @NotBlank(message = "File name is required")
+    private String fileName;
+
+    @Positive(message = "File size must be positive")
+    private long size;
+
+    @NotBlank(message = "Content type is required")
+    private String contentType;
+}
@@ -0,0 +1,38 @@
+package com.michael21.SoundFilter.users.data;
+
+import com.michael21.SoundFilter.util.exception.ApiException;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in the project listing, the last project of a page. The next page starts after it, so pages
+ * cost the same however deep they are and don't shift when projects are added in front. The creation time
+ * never changes, so a project edited while the pages are read keeps its place.
+ */
+public record ProjectCursor(LocalDateTime createdAt, long id) {
+
+    public static ProjectCursor of(AudioProjectSummary project) {
+        return new ProjectCursor(project.getCreatedAt(), project.getId());
+    }
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((createdAt + "_" + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ProjectCursor decode(String cursor) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("_");
+            return new ProjectCursor(LocalDateTime.parse(parts[0]), Long.parseLong(parts[1]));
+        } catch (IllegalArgumentException | DateTimeParseException | ArrayIndexOutOfBoundsException e) {
+            throw ApiException.builder()
+                    .status(HttpServletResponse.SC_BAD_REQUEST)
+                    .message("Invalid cursor")
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.michael21.SoundFilter.users.data;
+
+import java.util.List;
+
+/**
+ * Page of the project listing.
+ *
+ * @param projects Projects, most recently updated first
+ * @param nextCursor Cursor of the next page, null on the last page
+ */
+public record ProjectPageResponse(List<AudioProjectResponse> projects, String nextCursor) {
+}
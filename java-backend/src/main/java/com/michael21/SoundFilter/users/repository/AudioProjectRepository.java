@@ -1,10 +1,35 @@
 package com.michael21.SoundFilter.users.repository;
 
 import com.michael21.SoundFilter.users.AudioProject;
+import com.michael21.SoundFilter.users.data.AudioProjectSummary;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 @Repository
 public interface AudioProjectRepository extends JpaRepository<AudioProject, Long> {
+    boolean existsBySourceAudioUrlAndIdNot(String sourceAudioUrl, Long id);
+
+    boolean existsByAudioUrlAndIdNot(String audioUrl, Long id);
+
+    boolean existsByEditListHashAndIdNot(String editListHash, Long id);
+
+    @Query("SELECT p.id AS id, p.name AS name, p.description AS description, p.audioFormat AS audioFormat, " +
+            "p.audioUrl AS audioUrl, p.editListHash AS editListHash, p.createdAt AS createdAt, p.updatedAt AS updatedAt " +
+            "FROM AudioProject p WHERE p.user.id = :userId " +
+            "ORDER BY p.createdAt DESC, p.id DESC")
+    List<AudioProjectSummary> findFirstPage(@Param("userId") Long userId, Limit limit);
 
+    @Query("SELECT p.id AS id, p.name AS name, p.description AS description, p.audioFormat AS audioFormat, " +
+            "p.audioUrl AS audioUrl, p.editListHash AS editListHash, p.createdAt AS createdAt, p.updatedAt AS updatedAt " +
+            "FROM AudioProject p WHERE p.user.id = :userId " +
+            "AND (p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id)) " +
+            "ORDER BY p.createdAt DESC, p.id DESC")
+    List<AudioProjectSummary> findPageAfter(@Param("userId") Long userId, @Param("createdAt") LocalDateTime createdAt,
+                                            @Param("id") Long id, Limit limit);
 }
@@ -0,0 +1,28 @@
+package com.michael21.SoundFilter.users.repository;
+
+import com.michael21.SoundFilter.audio.WordTimelineEntry;
+import com.michael21.SoundFilter.users.AudioProject;
+import com.michael21.SoundFilter.users.AudioProjectVersion;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface AudioProjectVersionRepository extends JpaRepository<AudioProjectVersion, Long> {
+    List<AudioProjectVersion> findByAudioProjectOrderByVersionNumberDesc(AudioProject audioProject);
+
+    Optional<AudioProjectVersion> findByAudioProjectAndVersionNumber(AudioProject audioProject, int versionNumber);
+
+    Optional<AudioProjectVersion> findFirstByAudioProjectOrderByVersionNumberDesc(AudioProject audioProject);
+
+    // Versions with the same edit list have the same audio, and so the same words
+    @Query("SELECT v.wordTimeline FROM AudioProjectVersion v WHERE v.audioProject = :audioProject " +
+            "AND v.editListHash = :editListHash AND v.wordTimeline IS NOT NULL ORDER BY v.versionNumber DESC")
+    List<WordTimelineEntry> findWordTimelines(@Param("audioProject") AudioProject audioProject,
+                                              @Param("editListHash") String editListHash, Limit limit);
+}
@@ -1,14 +1,19 @@
 package com.michael21.SoundFilter.users.repository;
 
 import com.michael21.SoundFilter.users.User;
+import jakarta.persistence.QueryHint;
 import java.util.Optional;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
+    // Runs on every login, the cached result is dropped whenever a user is written
     @Query("SELECT u FROM User u WHERE u.email = :email")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<User> findByEmail(@Param("email") String email);
 }
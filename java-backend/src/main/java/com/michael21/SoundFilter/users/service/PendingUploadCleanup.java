@@ -0,0 +1,42 @@
+package com.michael21.SoundFilter.users.service;
+
+import com.michael21.SoundFilter.s3.PendingUpload;
+import com.michael21.SoundFilter.s3.repository.PendingUploadRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.jobrunr.jobs.annotations.Job;
+import org.jobrunr.jobs.annotations.Recurring;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Discards pre-signed uploads that were never confirmed, so abandoned multipart uploads and
+ * orphaned objects don't pile up in S3.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PendingUploadCleanup {
+    // Clients whose URLs expired mid-upload still get some time to confirm what they sent
+    private static final Duration GRACE_PERIOD = Duration.ofHours(1);
+
+    private final PendingUploadRepository pendingUploadRepository;
+    private final UserService userService;
+
+    @Recurring(id = "discard-expired-uploads", interval = "PT1H")
+    @Job(name = "Discard expired uploads")
+    public void discardExpiredUploads() {
+        List<PendingUpload> expired = pendingUploadRepository.findByExpiresAtBefore(Instant.now().minus(GRACE_PERIOD));
+
+        for (PendingUpload pendingUpload : expired) {
+            userService.discardPendingUpload(pendingUpload);
+        }
+
+        if (!expired.isEmpty()) {
+            log.info("Discarded {} expired uploads", expired.size());
+        }
+    }
+}
@@ -1,10 +1,19 @@
 package com.michael21.SoundFilter.users.service;
 
+import com.michael21.SoundFilter.audio.AudioHash;
+import com.michael21.SoundFilter.audio.AudioMetrics;
+import com.michael21.SoundFilter.audio.service.AudioRenderer;
 import com.michael21.SoundFilter.audio.service.AudioService;
+import com.michael21.SoundFilter.audio.service.WaveformService;
 import com.michael21.SoundFilter.auth.SecurityUtil;
+import com.michael21.SoundFilter.s3.PendingUpload;
 import com.michael21.SoundFilter.s3.UploadedFile;
+import com.michael21.SoundFilter.s3.config.S3Configuration;
+import com.michael21.SoundFilter.s3.data.PresignedUpload;
+import com.michael21.SoundFilter.s3.repository.PendingUploadRepository;
 import com.michael21.SoundFilter.s3.repository.UploadedFileRepository;
 import com.michael21.SoundFilter.s3.service.FileService;
+import com.michael21.SoundFilter.search.service.TranscriptSearchService;
 import com.michael21.SoundFilter.users.AudioProject;
 import com.michael21.SoundFilter.users.PasswordResetToken;
 import com.michael21.SoundFilter.users.User;
@@ -22,17 +31,25 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.jobrunr.scheduling.BackgroundJobRequest;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.List;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class UserService {
+    private static final int MAX_PROJECT_PAGE_SIZE = 100;
+
     private final UserRepository userRepository;
     private final VerificationCodeRepository verificationCodeRepository;
     private final PasswordResetTokenRepository passwordResetTokenRepository;
@@ -41,6 +58,12 @@ public class UserService {
     private final FileService fileService;
     private final AudioProjectRepository audioProjectRepository;
     private final AudioService audioService;
+    private final AudioRenderer audioRenderer;
+    private final WaveformService waveformService;
+    private final PendingUploadRepository pendingUploadRepository;
+    private final S3Configuration s3Configuration;
+    private final AudioMetrics audioMetrics;
+    private final TranscriptSearchService transcriptSearchService;
 
     @Transactional
     public UserResponse create(@Valid CreateUserRequest request) {
@@ -102,8 +125,8 @@ public class UserService {
         User user = SecurityUtil.getAuthenticatedUser();
         user = userRepository.getReferenceById(user.getId());
         user.update(request);
-        user = userRepository.save(user);
-        return new UserResponse(user);
+        userRepository.save(user);
+        return getUserResponse(user);
     }
 
     @Transactional
@@ -114,8 +137,8 @@ public class UserService {
         }
 
         user.updatePassword(request.getPassword());
-        user = userRepository.save(user);
-        return new UserResponse(user);
+        userRepository.save(user);
+        return getUserResponse(user);
     }
 
     @Transactional
@@ -123,10 +146,11 @@ public class UserService {
         User user = SecurityUtil.getAuthenticatedUser();
         UploadedFile uploadedFile = new UploadedFile(file.getOriginalFilename(), file.getSize(), user);
 
-        try {
+        try (InputStream in = file.getInputStream()) {
             String url = fileService.uploadFile(
                     uploadedFile.buildPath("profile-picture"),
-                    file.getBytes()
+                    in,
+                    file.getSize()
             );
             uploadedFile.onUploaded(url);
             user.setProfileImageUrl(url);
@@ -136,64 +160,202 @@ public class UserService {
             throw new RuntimeException(e);
         }
 
-        return new UserResponse(user);
+        return getUserResponse(user);
     }
 
     @Transactional
-    public UserResponse addAudioProject(String name, String description, MultipartFile file) {
+    public AudioProjectResponse addAudioProject(String name, String description, MultipartFile file) {
         User user = SecurityUtil.getAuthenticatedUser();
 
         UploadedFile uploadedFile = new UploadedFile(file.getOriginalFilename(), file.getSize(), user);
 
         String url = "";
 
-        try {
-            url = fileService.uploadFile(
+        MessageDigest digest = AudioHash.newDigest();
+
+        try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+            url = audioMetrics.stage("upload", "s3_upload", uploadedFile.getExtension(), () -> fileService.uploadFile(
                     uploadedFile.buildPath("audio-file"),
-                    file.getBytes()
-            );
+                    in,
+                    file.getSize()
+            ));
+            audioMetrics.recordBytes("upload", "s3_upload", uploadedFile.getExtension(), file.getSize());
             uploadedFile.onUploaded(url);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
 
         AudioProject createdProject = new AudioProject(name, description, user, file, url,
-                uploadedFile.getCreatedAt(), uploadedFile.getExtension());
+                uploadedFile.getCreatedAt(), uploadedFile.getExtension(), AudioHash.toHex(digest));
 
         AudioProject savedProject = audioProjectRepository.save(createdProject);
+        waveformService.schedulePeaks(savedProject);
 
-        user.addAudioProject(savedProject);
+        return AudioProjectResponse.from(savedProject);
+    }
 
-        userRepository.save(user);
+    /**
+     * First step of creating a project: hands out pre-signed URLs so the client uploads the audio
+     * straight to S3 instead of through the backend.
+     *
+     * @param request Name, size and content type of the audio file
+     * @return The upload ID and the URLs to upload to
+     */
+    @Transactional
+    public AudioProjectUploadResponse requestAudioProjectUpload(CreateAudioProjectUploadRequest request) {
+        User user = SecurityUtil.getAuthenticatedUser();
 
-        return new UserResponse(user);
+        if (!request.getContentType().startsWith("audio/")) {
+            throw ApiException.builder()
+                    .status(HttpServletResponse.SC_BAD_REQUEST)
+                    .message("File must be an audio file")
+                    .build();
+        }
+
+        if (request.getSize() > s3Configuration.getMaxAudioUploadSize().toBytes()) {
+            throw ApiException.builder()
+                    .status(HttpServletResponse.SC_BAD_REQUEST)
+                    .message("Audio files can't be larger than " + s3Configuration.getMaxAudioUploadSize().toMegabytes() + " MB")
+                    .build();
+        }
+
+        UploadedFile uploadedFile = new UploadedFile(request.getFileName(), request.getSize(), user);
+        String filePath = uploadedFile.buildPath("audio-file");
+
+        PresignedUpload upload = fileService.presignUpload(filePath, request.getContentType(), request.getSize());
+
+        PendingUpload pendingUpload = pendingUploadRepository.save(new PendingUpload(user, request.getFileName(),
+                request.getSize(), request.getContentType(), filePath, upload.multipartUploadId(), upload.expiresAt()));
+
+        log.info("Pre-signed upload {} of {} bytes to {}", pendingUpload.getId(), request.getSize(), filePath);
+
+        return new AudioProjectUploadResponse(pendingUpload.getId(), upload);
+    }
+
+    /**
+     * Second step of creating a project: checks that the audio reached S3 and creates the project.
+     *
+     * @param uploadId ID returned by {@link #requestAudioProjectUpload}
+     * @param request Name and description of the project
+     */
+    // A rejected upload still discards its pending row, the S3 object it points at is already gone
+    @Transactional(noRollbackFor = ApiException.class)
+    public AudioProjectResponse completeAudioProjectUpload(Long uploadId, CreateAudioProjectRequest request) {
+        User user = SecurityUtil.getAuthenticatedUser();
+        PendingUpload pendingUpload = getPendingUpload(user, uploadId);
+
+        if (pendingUpload.getMultipartUploadId() != null) {
+            try {
+                fileService.completeMultipartUpload(pendingUpload.getFilePath(), pendingUpload.getMultipartUploadId());
+            } catch (Exception e) {
+                log.error("Failed to complete multipart upload {}: {}", uploadId, e.getMessage());
+                throw ApiException.builder()
+                        .status(HttpServletResponse.SC_BAD_REQUEST)
+                        .message("Upload is incomplete")
+                        .build();
+            }
+        }
+
+        HeadObjectResponse object = fileService.headFile(pendingUpload.getFilePath());
+        if (object == null) {
+            throw ApiException.builder()
+                    .status(HttpServletResponse.SC_BAD_REQUEST)
+                    .message("File was not uploaded")
+                    .build();
+        }
+
+        if (object.contentLength() != pendingUpload.getSize()) {
+            fileService.deleteFile(pendingUpload.getFilePath());
+            pendingUploadRepository.delete(pendingUpload);
+            throw ApiException.builder()
+                    .status(HttpServletResponse.SC_BAD_REQUEST)
+                    .message("Uploaded file size doesn't match the announced size")
+                    .build();
+        }
+
+        UploadedFile uploadedFile = new UploadedFile(pendingUpload.getOriginalFileName(), pendingUpload.getSize(), user);
+        uploadedFile.onUploaded(fileService.getFileUrl(pendingUpload.getFilePath()));
+        uploadedFileRepository.save(uploadedFile);
+
+        // The hash is filled in the first time the audio is read back, e.g. by a transcription
+        AudioProject createdProject = new AudioProject(request.getName(), request.getDescription(), user,
+                pendingUpload.getSize(), uploadedFile.getUrl(), uploadedFile.getCreatedAt(),
+                pendingUpload.getExtension(), null);
+
+        AudioProject savedProject = audioProjectRepository.save(createdProject);
+        pendingUploadRepository.delete(pendingUpload);
+        waveformService.schedulePeaks(savedProject);
+
+        return AudioProjectResponse.from(savedProject);
     }
 
     @Transactional
-    public UserResponse updateProjectDetails(Long projectId, UpdateProjectDetailsRequest request) {
+    public void cancelAudioProjectUpload(Long uploadId) {
         User user = SecurityUtil.getAuthenticatedUser();
-        AudioProject audioProject = audioService.getAudioProject(user, projectId);
+        PendingUpload pendingUpload = getPendingUpload(user, uploadId);
+
+        discardPendingUpload(pendingUpload);
+    }
+
+    /**
+     * Removes everything a pending upload may have left in S3, then the upload itself.
+     */
+    @Transactional
+    public void discardPendingUpload(PendingUpload pendingUpload) {
+        try {
+            if (pendingUpload.getMultipartUploadId() != null) {
+                fileService.abortMultipartUpload(pendingUpload.getFilePath(), pendingUpload.getMultipartUploadId());
+            }
+            fileService.deleteFile(pendingUpload.getFilePath());
+        } catch (Exception e) {
+            log.error("Failed to discard upload {}: {}", pendingUpload.getId(), e.getMessage());
+        }
+
+        pendingUploadRepository.delete(pendingUpload);
+    }
 
-        user.getAudioProjects().stream()
-                .filter(project -> project.getId() == projectId)
-                .findFirst()
-                .ifPresent(project -> {
-                    project.setName(request.getName());
-                    project.setDescription(request.getDescription());
-                });
+    private PendingUpload getPendingUpload(User user, Long uploadId) {
+        PendingUpload pendingUpload = pendingUploadRepository.findById(uploadId)
+                .orElseThrow(() -> ApiException.builder().status(HttpServletResponse.SC_NOT_FOUND)
+                        .message("Upload not found").build());
+
+        if (pendingUpload.getUser().getId() != user.getId()) {
+            throw ApiException.builder().status(HttpServletResponse.SC_FORBIDDEN)
+                    .message("This user doesn't have access to this upload").build();
+        }
+
+        return pendingUpload;
+    }
+
+    @Transactional
+    public AudioProjectResponse updateProjectDetails(Long projectId, UpdateProjectDetailsRequest request) {
+        User user = SecurityUtil.getAuthenticatedUser();
+        AudioProject audioProject = audioService.getAudioProject(user, projectId);
 
         audioProject.setName(request.getName());
         audioProject.setDescription(request.getDescription());
 
-        userRepository.save(user);
+        return AudioProjectResponse.from(audioProjectRepository.saveAndFlush(audioProject));
+    }
 
-        audioProjectRepository.save(audioProject);
+    /**
+     * Duplicates a project. The copy refers to the same audio objects in S3, so nothing is downloaded
+     * or uploaded however large the audio is.
+     */
+    @Transactional
+    public AudioProjectResponse forkProject(Long projectId) {
+        User user = SecurityUtil.getAuthenticatedUser();
+        AudioProject audioProject = audioService.getAudioProject(user, projectId);
 
-        return new UserResponse(user);
+        AudioProject fork = audioProjectRepository.saveAndFlush(audioProject.fork(audioProject.getName() + " (copy)"));
+        audioRenderer.shareRenders(audioProject, fork);
+        transcriptSearchService.copyIndex(audioProject, fork);
+
+        return AudioProjectResponse.from(fork);
     }
 
     @Transactional
-    public UserResponse deleteProject(Long projectId) {
+    public void deleteProject(Long projectId) {
         User user = SecurityUtil.getAuthenticatedUser();
 
         AudioProject audioProject = audioProjectRepository.findById(projectId)
@@ -205,19 +367,49 @@ public class UserService {
                     message("This user doesn't have access to this project").build();
         }
 
-        try {
-            String filePath = audioProject.getAudioUrl().substring(audioProject.getAudioUrl().lastIndexOf("/") + 1);
-            fileService.deleteFile(filePath);
-        } catch (Exception e) {
-            log.error("Failed to delete file from S3: {}", e.getMessage());
+        audioRenderer.deleteAudio(audioProject);
+        transcriptSearchService.deleteIndex(audioProject);
+
+        audioProjectRepository.delete(audioProject);
+    }
+
+    /**
+     * Lists the projects of the user, most recently created first.
+     *
+     * @param cursor Cursor returned with the previous page, null for the first page
+     * @param limit Maximum number of projects in the page
+     */
+    @Transactional(readOnly = true)
+    public ProjectPageResponse getProjects(String cursor, int limit) {
+        User user = SecurityUtil.getAuthenticatedUser();
+        int pageSize = Math.max(1, Math.min(limit, MAX_PROJECT_PAGE_SIZE));
+
+        // One project more than the page tells whether there is a next page without counting them all
+        List<AudioProjectSummary> projects;
+        if (cursor == null || cursor.isBlank()) {
+            projects = audioProjectRepository.findFirstPage(user.getId(), Limit.of(pageSize + 1));
+        } else {
+            ProjectCursor after = ProjectCursor.decode(cursor);
+            projects = audioProjectRepository.findPageAfter(user.getId(), after.createdAt(), after.id(),
+                    Limit.of(pageSize + 1));
         }
 
-        user.getAudioProjects().removeIf(project -> project.getId() == (projectId));
+        boolean hasNext = projects.size() > pageSize;
+        List<AudioProjectSummary> page = hasNext ? projects.subList(0, pageSize) : projects;
 
-        userRepository.save(user);
+        return new ProjectPageResponse(page.stream().map(AudioProjectResponse::from).toList(),
+                hasNext ? ProjectCursor.of(page.getLast()).encode() : null);
+    }
 
-        audioProjectRepository.delete(audioProject);
+    @Transactional(readOnly = true)
+    public AudioProjectResponse getProject(Long projectId) {
+        User user = SecurityUtil.getAuthenticatedUser();
+        return AudioProjectResponse.from(audioService.getAudioProject(user, projectId));
+    }
 
-        return new UserResponse(user);
+    private UserResponse getUserResponse(User user) {
+        return new UserResponse(userRepository.findById(user.getId())
+                .orElseThrow(() -> ApiException.builder().status(HttpServletResponse.SC_NOT_FOUND)
+                        .message("User not found").build()));
     }
 }
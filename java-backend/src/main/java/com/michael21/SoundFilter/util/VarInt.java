@@ -0,0 +1,42 @@
+package com.michael21.SoundFilter.util;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Variable length integers, seven bits per byte with the high bit set on all but the last byte.
+ * Small values take one byte, signed values are zigzag encoded so small negative ones do too.
+ */
+public final class VarInt {
+    private VarInt() {
+    }
+
+    public static void write(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    public static void writeSigned(ByteArrayOutputStream out, int value) {
+        write(out, (value << 1) ^ (value >> 31));
+    }
+
+    public static int read(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Variable length integer longer than 5 bytes");
+    }
+
+    public static int readSigned(ByteBuffer in) {
+        int value = read(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
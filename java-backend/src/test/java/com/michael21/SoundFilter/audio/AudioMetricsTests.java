@@ -0,0 +1,59 @@
+package com.michael21.SoundFilter.audio;
+
+import com.michael21.SoundFilter.util.exception.ApiException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AudioMetricsTests {
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final AudioMetrics audioMetrics = new AudioMetrics(registry);
+
+    @Test
+    void timesStagesByOperationFormatAndOutcome() throws IOException {
+        assertEquals("done", audioMetrics.stage("render", "s3_download", "MP3", () -> "done"));
+        assertThrows(IOException.class, () -> audioMetrics.stage("render", "s3_download", "mp3", () -> {
+            throw new IOException("connection reset");
+        }));
+
+        assertEquals(1, registry.get("audio.stage.duration")
+                .tags("operation", "render", "stage", "s3_download", "format", "mp3", "outcome", "success")
+                .timer().count());
+        assertEquals(1, registry.get("audio.stage.duration")
+                .tags("operation", "render", "stage", "s3_download", "format", "mp3", "outcome", "error")
+                .timer().count());
+    }
+
+    @Test
+    void tellsRejectedRequestsApartFromFailures() {
+        assertThrows(ApiException.class, () -> audioMetrics.operation("transcribe", () -> {
+            throw ApiException.builder().status(HttpServletResponse.SC_NOT_FOUND).message("Project not found").build();
+        }));
+
+        assertEquals(1, registry.get("audio.operation.duration")
+                .tags("operation", "transcribe", "outcome", "client_error").timer().count());
+    }
+
+    @Test
+    void countsOperationsInFlight() {
+        audioMetrics.operation("render", () -> {
+            assertEquals(1, registry.get("audio.operations.in.flight").tag("operation", "render").gauge().value());
+            return null;
+        });
+
+        assertEquals(0, registry.get("audio.operations.in.flight").tag("operation", "render").gauge().value());
+    }
+
+    @Test
+    void boundsTheFormatTag() {
+        audioMetrics.recordBytes("upload", "s3_upload", "exe", 2048);
+        audioMetrics.recordBytes("upload", "s3_upload", null, 1024);
+
+        assertEquals(2048, registry.get("audio.stage.bytes").tag("format", "other").summary().totalAmount());
+        assertEquals(1024, registry.get("audio.stage.bytes").tag("format", "unknown").summary().totalAmount());
+    }
+}
@@ -0,0 +1,47 @@
+package com.michael21.SoundFilter.audio;
+
+import com.michael21.SoundFilter.audio.data.AudioEdit;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EditDecisionListTests {
+
+    @Test
+    void laterEditCutsThroughEarlierOne() {
+        List<AudioEdit> flattened = EditDecisionList.flatten(List.of(
+                edit(AudioEditType.MUTE, 1.0, 5.0),
+                edit(AudioEditType.TONE, 2.0, 3.0)));
+
+        assertEquals(3, flattened.size());
+        assertEquals(edit(AudioEditType.MUTE, 1.0, 2.0), flattened.get(0));
+        assertEquals(edit(AudioEditType.TONE, 2.0, 3.0), flattened.get(1));
+        assertEquals(edit(AudioEditType.MUTE, 3.0, 5.0), flattened.get(2));
+    }
+
+    @Test
+    void speechTouchedByLaterEditIsDropped() {
+        AudioEdit speech = edit(AudioEditType.TTS, 1.0, 4.0);
+        speech.setReplacementText("hello");
+
+        List<AudioEdit> flattened = EditDecisionList.flatten(List.of(speech, edit(AudioEditType.MUTE, 3.0, 6.0)));
+
+        assertEquals(List.of(edit(AudioEditType.MUTE, 3.0, 6.0)), flattened);
+    }
+
+    @Test
+    void hashDependsOnEditsAndFormat() {
+        String source = "https://bucket/user:1/audio-file/a.wav";
+        List<AudioEdit> edits = List.of(edit(AudioEditType.MUTE, 1.0, 2.0));
+
+        assertEquals(EditDecisionList.hash(source, "wav", edits), EditDecisionList.hash(source, "wav", edits));
+        assertNotEquals(EditDecisionList.hash(source, "wav", edits), EditDecisionList.hash(source, "wav", List.of()));
+        assertNotEquals(EditDecisionList.hash(source, "wav", edits), EditDecisionList.hash(source, "mp3", edits));
+    }
+
+    private static AudioEdit edit(AudioEditType type, double startTime, double endTime) {
+        return new AudioEdit(type, startTime, endTime, null, null, null, null);
+    }
+}
@@ -0,0 +1,72 @@
+package com.michael21.SoundFilter.audio;
+
+import com.michael21.SoundFilter.audio.data.TranscriptionResult.WordTimestamp;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FuzzyPhraseMatcherTests {
+
+    @Test
+    void misspelledWordsMatchWithinTheDistance() {
+        FuzzyPhraseMatcher matcher = FuzzyPhraseMatcher.compile(List.of("receive payment"), 1, 4);
+
+        assertEquals(1, matcher.find(words(" recieve", " payment")).size());
+        assertEquals(1, matcher.find(words(" receive", " payments")).size());
+        assertTrue(matcher.find(words(" deceived", " payment")).isEmpty());
+    }
+
+    @Test
+    void wordsThatSoundAlikeMatch() {
+        FuzzyPhraseMatcher matcher = FuzzyPhraseMatcher.compile(List.of("good night"), 0, 4);
+
+        List<PhraseMatcher.Match> matches = matcher.find(words(" Good", " nite", "."));
+
+        assertEquals(1, matches.size());
+        assertEquals("good night", matches.get(0).phrase());
+        assertEquals(0, matches.get(0).firstWord());
+        assertEquals(1, matches.get(0).lastWord());
+    }
+
+    @Test
+    void shortWordsOnlyMatchExactly() {
+        FuzzyPhraseMatcher matcher = FuzzyPhraseMatcher.compile(List.of("ass"), 2, 4);
+
+        assertTrue(matcher.find(words(" ask", " as", " is")).isEmpty());
+        assertEquals(1, matcher.find(words(" ass")).size());
+    }
+
+    @Test
+    void aMisheardWordMayContinueSeveralPhrases() {
+        FuzzyPhraseMatcher matcher = FuzzyPhraseMatcher.compile(List.of("shut down", "shot down", "down"), 1, 4);
+
+        List<PhraseMatcher.Match> matches = matcher.find(words(" shat", " down"));
+
+        assertEquals(List.of("down", "shut down", "shot down"),
+                matches.stream().map(PhraseMatcher.Match::phrase).toList());
+    }
+
+    @Test
+    void insertionsRemovalsAndReplacementsCount() {
+        FuzzyPhraseMatcher matcher = FuzzyPhraseMatcher.compile(List.of("kitten"), 2, 4);
+
+        assertEquals(3, matcher.find(words(" kitte", " kittens", " sitten")).size());
+        assertEquals(1, matcher.find(words(" sittin")).size());
+        assertTrue(matcher.find(words(" sitting")).isEmpty());
+    }
+
+    private static List<WordTimestamp> words(String... texts) {
+        List<WordTimestamp> words = new ArrayList<>();
+        for (int i = 0; i < texts.length; i++) {
+            WordTimestamp word = new WordTimestamp();
+            word.setWord(texts[i]);
+            word.setStartTime(i);
+            word.setEndTime(i + 0.5);
+            words.add(word);
+        }
+        return words;
+    }
+}
@@ -0,0 +1,90 @@
+package com.michael21.SoundFilter.audio;
+
+import com.michael21.SoundFilter.audio.data.TranscriptionResult.WordTimestamp;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PhraseMatcherTests {
+
+    @Test
+    void findsPhrasesInsideAndAcrossOtherPhrases() {
+        PhraseMatcher matcher = PhraseMatcher.compile(List.of("big bad wolf", "bad", "bad wolf", "wolf pack"));
+
+        List<PhraseMatcher.Match> matches = matcher.find(words(" The", " big", " bad", " wolf", " pack", "."));
+
+        assertEquals(List.of("bad", "big bad wolf", "bad wolf", "wolf pack"),
+                matches.stream().map(PhraseMatcher.Match::phrase).toList());
+        assertEquals(1, matches.get(1).firstWord());
+        assertEquals(3, matches.get(1).lastWord());
+        assertEquals(1.0, matches.get(1).startTime());
+        assertEquals(3.5, matches.get(1).endTime());
+    }
+
+    @Test
+    void wordsAreComparedWithoutCasePunctuationOrAccents() {
+        PhraseMatcher matcher = PhraseMatcher.compile(List.of("Don't  say", "cafe", " ... "));
+
+        List<PhraseMatcher.Match> matches = matcher.find(words(" DON'T,", " -", " say!", " Café"));
+
+        assertEquals(List.of("Don't  say", "cafe"), matches.stream().map(PhraseMatcher.Match::phrase).toList());
+        assertEquals(List.of("Don't  say", "cafe"), matcher.getPhrases());
+    }
+
+    @Test
+    void otherWordsBreakAPhrase() {
+        PhraseMatcher matcher = PhraseMatcher.compile(List.of("go away"));
+
+        assertTrue(matcher.find(words(" go", " not", " away")).isEmpty());
+        assertEquals(1, matcher.find(words(" go", " go", " away")).size());
+    }
+
+    @Test
+    void rangesArePaddedAndMerged() {
+        PhraseMatcher matcher = PhraseMatcher.compile(List.of("one", "two", "four"));
+        // Words start every second and last half a second
+        List<PhraseMatcher.Match> matches = matcher.find(words(" one", " two", " three", " four"));
+
+        List<PhraseMatcher.Range> ranges = PhraseMatcher.ranges(matches, 0.25);
+
+        assertEquals(List.of(new PhraseMatcher.Range(0.0, 1.75, List.of("one", "two")),
+                new PhraseMatcher.Range(2.75, 3.75, List.of("four"))), ranges);
+    }
+
+    @Test
+    void largeLexiconOverLongTranscription() {
+        List<String> lexicon = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            lexicon.add("word" + i + " word" + (i + 1));
+        }
+        PhraseMatcher matcher = PhraseMatcher.compile(lexicon);
+
+        // About two hours of speech
+        List<WordTimestamp> transcription = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            transcription.add(word(" word" + (i % 7000), i * 0.36, i * 0.36 + 0.3));
+        }
+
+        // Every word following one of word0 to word4999 ends a phrase
+        assertEquals(15000, matcher.find(transcription).size());
+    }
+
+    private static List<WordTimestamp> words(String... texts) {
+        List<WordTimestamp> words = new ArrayList<>();
+        for (int i = 0; i < texts.length; i++) {
+            words.add(word(texts[i], i, i + 0.5));
+        }
+        return words;
+    }
+
+    private static WordTimestamp word(String text, double start, double end) {
+        WordTimestamp word = new WordTimestamp();
+        word.setWord(text);
+        word.setStartTime(start);
+        word.setEndTime(end);
+        return word;
+    }
+}
@@ -0,0 +1,68 @@
+package com.michael21.SoundFilter.audio;
+
+import com.michael21.SoundFilter.audio.data.TranscriptionResult;
+import com.michael21.SoundFilter.audio.data.TranscriptionResult.WordTimestamp;
+import com.michael21.SoundFilter.audio.processor.WavSplitter;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TranscriptionChunkTests {
+
+    @Test
+    void chunksOverlapAroundTheCuts() {
+        List<TranscriptionChunk> chunks = TranscriptionChunk.between(List.of(10.0, 20.0), 25.0, 1.0);
+
+        assertEquals(new TranscriptionChunk(0.0, 11.0, 0.0, 10.0), chunks.get(0));
+        assertEquals(new TranscriptionChunk(9.0, 21.0, 10.0, 20.0), chunks.get(1));
+        assertEquals(new TranscriptionChunk(19.0, 25.0, 20.0, 25.0), chunks.get(2));
+    }
+
+    @Test
+    void mergeShiftsWordsAndKeepsOverlapWordsOnce() {
+        List<TranscriptionChunk> chunks = TranscriptionChunk.between(List.of(10.0), 20.0, 1.0);
+
+        // " two" is heard by both chunks, its midpoint 10.5 puts it in the second one
+        TranscriptionResult first = result("en", word(" one", 2.0, 3.0), word(" two", 10.2, 10.8));
+        TranscriptionResult second = result("en", word(" two", 1.25, 1.75), word(" three", 5.0, 6.0));
+
+        TranscriptionResult merged = TranscriptionChunk.merge("audio.wav", chunks, List.of(first, second));
+
+        assertEquals("one two three", merged.getTranscript());
+        assertEquals(3, merged.getWords().size());
+        assertEquals(10.25, merged.getWords().get(1).getStartTime());
+        assertEquals(14.0, merged.getWords().get(2).getStartTime());
+        assertEquals("en", merged.getDetectedLanguage());
+    }
+
+    @Test
+    void cutsMoveToTheQuietestWindow() {
+        float[] loudness = new float[90];
+        Arrays.fill(loudness, 0.5f);
+        loudness[27] = 0.01f;
+        loudness[62] = 0.01f;
+
+        // Windows of 10 frames, chunks of about 300 frames, cuts may move by 50 frames
+        List<Long> cuts = WavSplitter.silenceCuts(loudness, 10, 900, 300, 50);
+
+        assertEquals(List.of(275L, 625L), cuts);
+    }
+
+    private static TranscriptionResult result(String language, WordTimestamp... words) {
+        TranscriptionResult result = new TranscriptionResult();
+        result.setWords(List.of(words));
+        result.setDetectedLanguage(language);
+        return result;
+    }
+
+    private static WordTimestamp word(String text, double start, double end) {
+        WordTimestamp word = new WordTimestamp();
+        word.setWord(text);
+        word.setStartTime(start);
+        word.setEndTime(end);
+        return word;
+    }
+}
@@ -0,0 +1,61 @@
+package com.michael21.SoundFilter.audio;
+
+import com.michael21.SoundFilter.audio.data.TranscriptionResult;
+import com.michael21.SoundFilter.audio.data.TranscriptionResult.WordTimestamp;
+import com.michael21.SoundFilter.users.EditedRange;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TranscriptionWindowTests {
+
+    @Test
+    void windowIsPaddedAndWidenedToWholeWords() {
+        List<WordTimestamp> words = List.of(word(" one", 0.0, 1.0), word(" two", 2.5, 3.5), word(" three", 7.5, 8.5));
+
+        TranscriptionWindow window = TranscriptionWindow.covering(words,
+                List.of(new EditedRange(4.0, 5.0), new EditedRange(5.5, 6.0)), 1.0);
+
+        // 3.0 falls inside " two" and 7.0 is between words
+        assertEquals(2.5, window.startTime());
+        assertEquals(7.0, window.endTime());
+    }
+
+    @Test
+    void editWithoutEndTimeReachesTheEnd() {
+        TranscriptionWindow window = TranscriptionWindow.covering(List.of(),
+                List.of(new EditedRange(4.0, null)), 1.0);
+
+        assertEquals(3.0, window.startTime());
+        assertNull(window.endTime());
+        assertFalse(window.toParams().containsKey("end_time"));
+    }
+
+    @Test
+    void spliceReplacesWordsInsideTheWindow() {
+        TranscriptionResult previous = result(word(" keep", 0.0, 1.0), word(" old", 2.0, 3.0), word(" tail", 5.0, 6.0));
+        TranscriptionResult windowResult = result(word(" new", 0.5, 1.5));
+
+        TranscriptionResult spliced = new TranscriptionWindow(1.5, 4.0).splice(previous, windowResult);
+
+        assertEquals("keep new tail", spliced.getTranscript());
+        assertEquals(2.0, spliced.getWords().get(1).getStartTime());
+        assertEquals(3.0, spliced.getWords().get(1).getEndTime());
+    }
+
+    private static TranscriptionResult result(WordTimestamp... words) {
+        TranscriptionResult result = new TranscriptionResult();
+        result.setWords(List.of(words));
+        return result;
+    }
+
+    private static WordTimestamp word(String text, double start, double end) {
+        WordTimestamp word = new WordTimestamp();
+        word.setWord(text);
+        word.setStartTime(start);
+        word.setEndTime(end);
+        return word;
+    }
+}
@@ -0,0 +1,147 @@
+package com.michael21.SoundFilter.audio;
+
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.classic.methods.HttpPost;
+import org.apache.hc.client5.http.classic.methods.HttpPut;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.io.entity.ByteArrayEntity;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Throughput of concurrent slow edits on a pool of platform threads, sized like Tomcat's default, against
+ * a virtual thread per edit. An edit downloads the audio from S3, sends it to the Python API and uploads
+ * the result, each stage waiting on a stub that answers after a fixed latency, so threads spend nearly all
+ * their time blocked like they do in production.
+ * <p>
+ * Excluded from the build, run with {@code mvn test -Dgroups=benchmark -DexcludedGroups=}. The size of the
+ * run is set with {@code -Dbenchmark.edits}, {@code -Dbenchmark.platform-threads} and
+ * {@code -Dbenchmark.stage-latency-ms}.
+ */
+@Slf4j
+@Tag("benchmark")
+class VirtualThreadEditBenchmarkTests {
+    private static final int EDITS = Integer.getInteger("benchmark.edits", 2000);
+    private static final int PLATFORM_THREADS = Integer.getInteger("benchmark.platform-threads", 200);
+    private static final long STAGE_LATENCY_MS = Long.getLong("benchmark.stage-latency-ms", 200);
+    private static final byte[] AUDIO = new byte[16 * 1024];
+
+    private static HttpServer stub;
+    private static ExecutorService stubExecutor;
+    private static CloseableHttpClient client;
+    private static String baseUrl;
+
+    @BeforeAll
+    static void startStub() throws IOException {
+        // The stub closes kept-alive connections past this many, which the client would find broken on reuse
+        System.setProperty("sun.net.httpserver.maxIdleConnections", String.valueOf(EDITS));
+
+        // S3 and the Python API behind one stub, downloads return the audio and the Python API echoes it back.
+        // The stub reads requests under a monitor, on platform threads it can't take carriers from the edits
+        stubExecutor = Executors.newCachedThreadPool();
+        stub = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), EDITS);
+        stub.createContext("/", exchange -> {
+            try (exchange) {
+                byte[] body = exchange.getRequestBody().readAllBytes();
+                Thread.sleep(STAGE_LATENCY_MS);
+
+                byte[] response = switch (exchange.getRequestMethod()) {
+                    case "GET" -> AUDIO;
+                    case "POST" -> body;
+                    default -> new byte[0];
+                };
+                exchange.sendResponseHeaders(200, response.length == 0 ? -1 : response.length);
+                exchange.getResponseBody().write(response);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        stub.setExecutor(stubExecutor);
+        stub.start();
+        baseUrl = "http://" + stub.getAddress().getHostString() + ":" + stub.getAddress().getPort();
+
+        // Large enough a pool that only the threads running the edits bound the concurrency
+        client = HttpClients.custom()
+                .setConnectionManager(PoolingHttpClientConnectionManagerBuilder.create()
+                        .setMaxConnTotal(EDITS)
+                        .setMaxConnPerRoute(EDITS)
+                        .build())
+                .build();
+    }
+
+    @AfterAll
+    static void stopStub() throws IOException {
+        client.close();
+        stub.stop(0);
+        stubExecutor.shutdownNow();
+    }
+
+    @Test
+    void virtualThreadsCompleteMoreSlowEditsPerSecond() throws Exception {
+        // Opens every connection and loads the classes so neither run pays for them
+        run("warm-up", Executors.newVirtualThreadPerTaskExecutor(), EDITS);
+
+        double platform = run("platform", Executors.newFixedThreadPool(PLATFORM_THREADS), EDITS);
+        double virtual = run("virtual", Executors.newVirtualThreadPerTaskExecutor(), EDITS);
+
+        assertTrue(virtual > platform,
+                "Virtual threads completed " + virtual + " edits/s, platform threads " + platform);
+    }
+
+    private static double run(String name, ExecutorService executor, int edits) throws Exception {
+        long start = System.nanoTime();
+
+        try (executor) {
+            List<Future<?>> running = new ArrayList<>(edits);
+            for (int i = 0; i < edits; i++) {
+                running.add(executor.submit(() -> {
+                    edit();
+                    return null;
+                }));
+            }
+            for (Future<?> edit : running) {
+                edit.get();
+            }
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        log.info("{} threads: {} edits in {} s, {} edits/s", name, edits, "%.2f".formatted(seconds),
+                "%.1f".formatted(edits / seconds));
+        return edits / seconds;
+    }
+
+    private static void edit() throws IOException {
+        byte[] source = client.execute(new HttpGet(baseUrl + "/s3/source.wav"),
+                response -> EntityUtils.toByteArray(response.getEntity()));
+
+        HttpPost python = new HttpPost(baseUrl + "/audio-api/mute-audio");
+        python.setEntity(new ByteArrayEntity(source, ContentType.APPLICATION_OCTET_STREAM));
+        byte[] edited = client.execute(python, response -> EntityUtils.toByteArray(response.getEntity()));
+
+        HttpPut upload = new HttpPut(baseUrl + "/s3/edited.wav");
+        upload.setEntity(new ByteArrayEntity(edited, ContentType.APPLICATION_OCTET_STREAM));
+        client.execute(upload, response -> {
+            EntityUtils.consume(response.getEntity());
+            return null;
+        });
+    }
+}
@@ -0,0 +1,169 @@
+package com.michael21.SoundFilter.audio.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.michael21.SoundFilter.audio.AudioJobStatus;
+import com.michael21.SoundFilter.audio.AudioJobType;
+import com.michael21.SoundFilter.audio.data.AudioJobResponse;
+import com.michael21.SoundFilter.audio.data.AudioModificationResponse;
+import com.michael21.SoundFilter.audio.data.RenderedAudioFile;
+import com.michael21.SoundFilter.audio.service.AudioJobService;
+import com.michael21.SoundFilter.audio.service.AudioService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class AudioControllerTests {
+    private static final String EDIT_LIST_HASH = "0123456789abcdef0123456789abcdef";
+    private static final String E_TAG = "\"" + EDIT_LIST_HASH + "\"";
+    private static final RenderedAudioFile AUDIO =
+            new RenderedAudioFile("audio/1.mp3", "Project.mp3", 1000L, "mp3", EDIT_LIST_HASH);
+
+    private AudioService audioService;
+    private AudioJobService audioJobService;
+    private AudioController audioController;
+
+    @BeforeEach
+    void createController() {
+        audioService = mock(AudioService.class);
+        when(audioService.findRenderedAudio(any(), eq(1L))).thenReturn(Optional.of(AUDIO));
+        when(audioService.getAudioSize(AUDIO)).thenReturn(1000L);
+        audioJobService = mock(AudioJobService.class);
+        audioController = new AudioController(audioJobService, audioService, new ObjectMapper().findAndRegisterModules());
+    }
+
+    @Test
+    void audioBeingRenderedIsAnsweredWithTheRenderJob() throws IOException {
+        AudioJobResponse job = new AudioJobResponse(7, 1L, AudioJobType.RENDER, AudioJobStatus.ENQUEUED,
+                null, null, null, null);
+        when(audioService.findRenderedAudio(any(), eq(1L))).thenReturn(Optional.empty());
+        when(audioJobService.render(any(), eq(1L))).thenReturn(job);
+
+        ResponseEntity<?> response = stream(EDIT_LIST_HASH.substring(0, 16), "bytes=0-9", null, null);
+
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        assertEquals(MediaType.APPLICATION_JSON, response.getHeaders().getContentType());
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        ((StreamingResponseBody) response.getBody()).writeTo(body);
+        assertEquals(7, new ObjectMapper().readTree(body.toByteArray()).path("jobId").asLong());
+        assertEquals("no-store", response.getHeaders().getCacheControl());
+        verify(audioService, never()).renderAudio(any(), any());
+    }
+
+    @Test
+    void savedEditsAreRenderedInTheBackground() {
+        AudioModificationResponse modification = new AudioModificationResponse(1L, "/api/audio/1/stream?v=0123");
+        when(audioService.undo(any(), eq(1L))).thenReturn(modification);
+
+        ResponseEntity<AudioModificationResponse> response = audioController.undo(null, 1L);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(modification, response.getBody());
+        verify(audioJobService).render(any(), eq(1L));
+        verify(audioService, never()).renderAudio(any(), any());
+    }
+
+    @Test
+    void rangeIsServedAsPartialContent() throws IOException {
+        ResponseEntity<?> response = stream(null, "bytes=100-199", null, null);
+
+        assertEquals(HttpStatus.PARTIAL_CONTENT, response.getStatusCode());
+        assertEquals("bytes 100-199/1000", response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+        assertEquals(100, response.getHeaders().getContentLength());
+        assertEquals(E_TAG, response.getHeaders().getETag());
+        verifyStreamed(response, 100, 100);
+    }
+
+    @Test
+    void openRangeRunsToTheEnd() throws IOException {
+        ResponseEntity<?> response = stream(null, "bytes=900-", null, null);
+
+        assertEquals(HttpStatus.PARTIAL_CONTENT, response.getStatusCode());
+        assertEquals("bytes 900-999/1000", response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+        verifyStreamed(response, 900, 100);
+    }
+
+    @Test
+    void rangePastTheEndIsNotSatisfiable() {
+        ResponseEntity<?> response = stream(null, "bytes=1000-", null, null);
+
+        assertEquals(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE, response.getStatusCode());
+        assertEquals("bytes */1000", response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+    }
+
+    @Test
+    void severalRangesGetTheWholeAudio() throws IOException {
+        ResponseEntity<?> response = stream(null, "bytes=0-9,20-29", null, null);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNull(response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+        verifyStreamed(response, 0, 1000);
+    }
+
+    @Test
+    void rangeOfTheCurrentVersionIsServed() {
+        ResponseEntity<?> response = stream(null, "bytes=0-9", E_TAG, null);
+
+        assertEquals(HttpStatus.PARTIAL_CONTENT, response.getStatusCode());
+    }
+
+    @Test
+    void rangeOfAnotherVersionGetsTheWholeAudio() throws IOException {
+        ResponseEntity<?> response = stream(null, "bytes=0-9", "\"fedcba9876543210\"", null);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(1000, response.getHeaders().getContentLength());
+        verifyStreamed(response, 0, 1000);
+    }
+
+    @Test
+    void matchingETagIsNotModified() {
+        ResponseEntity<?> response = stream(null, null, null, "\"other\", " + E_TAG);
+
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertEquals(E_TAG, response.getHeaders().getETag());
+        assertNull(response.getBody());
+    }
+
+    @Test
+    void wildcardIsNotModified() {
+        assertEquals(HttpStatus.NOT_MODIFIED, stream(null, null, null, "*").getStatusCode());
+    }
+
+    @Test
+    void otherETagGetsTheAudio() {
+        assertEquals(HttpStatus.OK, stream(null, null, null, "\"other\"").getStatusCode());
+    }
+
+    @Test
+    void onlyTheFullVersionIsCachedForGood() {
+        String immutable = stream(EDIT_LIST_HASH.substring(0, 16), null, null, null)
+                .getHeaders().getCacheControl();
+        assertTrue(immutable.contains("immutable"), immutable);
+
+        assertEquals("no-cache", stream(null, null, null, null).getHeaders().getCacheControl());
+        assertEquals("no-cache", stream("", null, null, null).getHeaders().getCacheControl());
+        assertEquals("no-cache", stream("0", null, null, null).getHeaders().getCacheControl());
+        assertEquals("no-cache", stream("fedcba9876543210", null, null, null).getHeaders().getCacheControl());
+    }
+
+    private ResponseEntity<?> stream(String v, String range, String ifRange, String ifNoneMatch) {
+        return audioController.streamAudio(null, 1L, v, range, ifRange, ifNoneMatch);
+    }
+
+    private void verifyStreamed(ResponseEntity<?> response, long start, long length) throws IOException {
+        ((StreamingResponseBody) response.getBody()).writeTo(new ByteArrayOutputStream());
+        verify(audioService).streamAudio(eq(AUDIO), eq(start), eq(length), any(OutputStream.class));
+    }
+}
@@ -0,0 +1,152 @@
+package com.michael21.SoundFilter.audio.processor;
+
+import com.michael21.SoundFilter.audio.AudioEditType;
+import com.michael21.SoundFilter.audio.data.AudioEdit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PcmAudioProcessorTests {
+    private static final int SAMPLE_RATE = 8000;
+
+    @TempDir
+    Path directory;
+
+    private final PcmAudioProcessor processor = new PcmAudioProcessor();
+    private final List<FileChannel> channels = new ArrayList<>();
+
+    @AfterEach
+    void closeChannels() throws IOException {
+        for (FileChannel channel : channels) {
+            channel.close();
+        }
+    }
+
+    @Test
+    void supportsOnlyPcmWav() {
+        assertTrue(processor.supports("wav", wav(SAMPLE_RATE, (short) 1000)));
+        assertFalse(processor.supports("mp3", wav(SAMPLE_RATE, (short) 1000)));
+        assertFalse(processor.supports("wav", new byte[]{1, 2, 3}));
+    }
+
+    @Test
+    void muteSilencesOnlyTheRange() throws IOException {
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+
+        processor.applyEdits(input(wav(SAMPLE_RATE, (short) 1000)), target, List.of(mute(0.25, 0.5)));
+
+        byte[] audio = target.toByteArray();
+        assertEquals(44 + SAMPLE_RATE * 2, audio.length);
+        assertEquals(1000, sampleAt(audio, 0));
+        assertEquals(1000, sampleAt(audio, 1999));
+        assertEquals(0, sampleAt(audio, 2000));
+        assertEquals(0, sampleAt(audio, 3999));
+        assertEquals(1000, sampleAt(audio, 4000));
+    }
+
+    @Test
+    void toneMatchesLoudnessOfReplacedSegment() throws IOException {
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+
+        processor.applyEdits(input(wav(SAMPLE_RATE, (short) 1000)), target, List.of(tone(0.0, 0.5)));
+
+        // A constant signal of 1000 has an RMS of 1000, so the tone peaks at about 1000 * sqrt(2)
+        assertEquals(1414, peak(target.toByteArray(), 0, 4000), 5);
+        assertEquals(1000, sampleAt(target.toByteArray(), 4000));
+    }
+
+    @Test
+    void toneKeepsOneLevelAcrossBlocks() throws IOException {
+        // Quiet, then loud: the tone matches the whole range rather than the part read so far
+        short[] samples = new short[SAMPLE_RATE];
+        Arrays.fill(samples, 0, SAMPLE_RATE / 2, (short) 100);
+        Arrays.fill(samples, SAMPLE_RATE / 2, SAMPLE_RATE, (short) 2000);
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+
+        processor.applyEdits(input(wav(samples)), target, List.of(tone(0.0, 1.0)));
+
+        byte[] audio = target.toByteArray();
+        double amplitude = Math.sqrt((100.0 * 100 + 2000.0 * 2000) / 2) * Math.sqrt(2);
+        assertEquals(amplitude, peak(audio, 500, 1500), 5);
+        assertEquals(amplitude, peak(audio, 5000, 6000), 5);
+    }
+
+    @Test
+    void appliesEveryEditInOnePass() throws IOException {
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        List<AudioEdit> edits = List.of(mute(0.1, 0.2), tone(0.5, 0.75));
+
+        processor.applyEdits(input(wav(SAMPLE_RATE, (short) 1000)), target, edits);
+
+        byte[] audio = target.toByteArray();
+        assertEquals(1000, sampleAt(audio, 799));
+        assertEquals(0, sampleAt(audio, 800));
+        assertEquals(0, sampleAt(audio, 1599));
+        assertEquals(1000, sampleAt(audio, 1600));
+        assertNotEquals(1000, sampleAt(audio, 5000));
+        assertEquals(1000, sampleAt(audio, 6000));
+        assertFalse(processor.canApply(List.of(new AudioEdit(AudioEditType.TTS, 0.0, 1.0, null, "hi", null, null))));
+    }
+
+    private static AudioEdit mute(double startTime, double endTime) {
+        return new AudioEdit(AudioEditType.MUTE, startTime, endTime, null, null, null, null);
+    }
+
+    private static AudioEdit tone(double startTime, double endTime) {
+        return new AudioEdit(AudioEditType.TONE, startTime, endTime, 440, null, null, null);
+    }
+
+    private AudioInput input(byte[] audio) throws IOException {
+        // Renders read a cached copy, tones measure the audio through its channel
+        FileChannel channel = FileChannel.open(Files.write(directory.resolve("test" + channels.size() + ".wav"), audio),
+                StandardOpenOption.READ);
+        channels.add(channel);
+        return new AudioInput(new ByteArrayInputStream(audio), audio.length, "test.wav", "wav", channel);
+    }
+
+    private static byte[] wav(int frames, short value) {
+        short[] samples = new short[frames];
+        Arrays.fill(samples, value);
+        return wav(samples);
+    }
+
+    private static byte[] wav(short[] samples) {
+        int frames = samples.length;
+        ByteBuffer buffer = ByteBuffer.allocate(44 + frames * 2).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put("RIFF".getBytes()).putInt(36 + frames * 2).put("WAVE".getBytes());
+        buffer.put("fmt ".getBytes()).putInt(16).putShort((short) 1).putShort((short) 1)
+                .putInt(SAMPLE_RATE).putInt(SAMPLE_RATE * 2).putShort((short) 2).putShort((short) 16);
+        buffer.put("data".getBytes()).putInt(frames * 2);
+        for (short sample : samples) {
+            buffer.putShort(sample);
+        }
+        return buffer.array();
+    }
+
+    private static int peak(byte[] audio, int from, int to) {
+        int peak = 0;
+        for (int i = from; i < to; i++) {
+            peak = Math.max(peak, Math.abs(sampleAt(audio, i)));
+        }
+        return peak;
+    }
+
+    private static int sampleAt(byte[] audio, int frame) {
+        return ByteBuffer.wrap(audio, 44 + frame * 2, 2).order(ByteOrder.LITTLE_ENDIAN).getShort();
+    }
+}
@@ -0,0 +1,43 @@
+package com.michael21.SoundFilter.audio.processor;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WaveformPeaksTests {
+
+    @Test
+    void everyLevelHoldsTheExtremesOfItsBins() throws IOException {
+        // Stereo 16-bit, the left channel ramps up while the right one stays negative
+        int frames = 1000;
+        ByteBuffer data = ByteBuffer.allocate(frames * 4).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < frames; i++) {
+            data.putShort((short) (i * 32));
+            data.putShort((short) -16384);
+        }
+        WavHeader header = new WavHeader(WavHeader.FORMAT_PCM, 2, 8000, 16, 4, 44, data.capacity());
+
+        Map<Integer, byte[]> peaks = WaveformPeaks.compute(new ByteArrayInputStream(data.array()), header, List.of(100, 400));
+
+        ByteBuffer fine = ByteBuffer.wrap(peaks.get(100)).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(0x4B504653, fine.getInt(0));
+        assertEquals(8000, fine.getInt(8));
+        assertEquals(100, fine.getInt(12));
+        assertEquals(10, fine.getInt(16));
+        assertEquals(WaveformPeaks.HEADER_SIZE + 20, peaks.get(100).length);
+        assertEquals(-63, fine.get(WaveformPeaks.HEADER_SIZE));
+        assertEquals(Math.round(99 * 32 / 32768f * 127), fine.get(WaveformPeaks.HEADER_SIZE + 1));
+
+        // 1000 frames in bins of 400 leave a partial last bin
+        ByteBuffer coarse = ByteBuffer.wrap(peaks.get(400)).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(3, coarse.getInt(16));
+        assertEquals(Math.round(999 * 32 / 32768f * 127), coarse.get(WaveformPeaks.HEADER_SIZE + 5));
+    }
+}
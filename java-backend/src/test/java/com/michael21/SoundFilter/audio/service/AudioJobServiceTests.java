@@ -0,0 +1,109 @@
+package com.michael21.SoundFilter.audio.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.michael21.SoundFilter.audio.AudioJob;
+import com.michael21.SoundFilter.audio.AudioJobStatus;
+import com.michael21.SoundFilter.audio.AudioJobType;
+import com.michael21.SoundFilter.audio.config.AudioConfiguration;
+import com.michael21.SoundFilter.audio.repository.AudioJobRepository;
+import com.michael21.SoundFilter.users.User;
+import com.michael21.SoundFilter.users.repository.UserRepository;
+import com.michael21.SoundFilter.util.exception.ApiException;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class AudioJobServiceTests {
+    private static final long JOB_ID = 7L;
+
+    private AudioJob audioJob;
+    private AudioJobRepository audioJobRepository;
+    private AudioJobService audioJobService;
+    // Status of the job every time it was saved
+    private final List<AudioJobStatus> statuses = new ArrayList<>();
+
+    @BeforeEach
+    void createService() {
+        User user = new User();
+        audioJob = new AudioJob(user.getId(), 1L, AudioJobType.TRANSCRIBE);
+
+        audioJobRepository = mock(AudioJobRepository.class);
+        when(audioJobRepository.findById(JOB_ID)).thenReturn(Optional.of(audioJob));
+        when(audioJobRepository.saveAndFlush(audioJob)).thenAnswer(invocation -> {
+            statuses.add(audioJob.getStatus());
+            return audioJob;
+        });
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findById(user.getId())).thenReturn(Optional.of(user));
+
+        audioJobService = new AudioJobService(audioJobRepository, userRepository, mock(AudioService.class),
+                new ObjectMapper(), new AudioConfiguration());
+        audioJobService.init();
+    }
+
+    @Test
+    void failedJobIsRetriedThenReportedFailed() {
+        for (int attempt = 1; attempt <= AudioJobService.RETRIES; attempt++) {
+            assertThrows(IOException.class, this::runFailing);
+            assertEquals(AudioJobStatus.ENQUEUED, audioJob.getStatus());
+            assertEquals("Whisper is down", audioJob.getError());
+        }
+
+        // JobRunr gives up after the last retry, so does the job
+        assertThrows(IOException.class, this::runFailing);
+
+        assertEquals(AudioJobStatus.FAILED, audioJob.getStatus());
+        assertEquals(AudioJobService.RETRIES + 1, audioJob.getAttempts());
+        assertEquals(List.of(
+                AudioJobStatus.PROCESSING, AudioJobStatus.ENQUEUED,
+                AudioJobStatus.PROCESSING, AudioJobStatus.ENQUEUED,
+                AudioJobStatus.PROCESSING, AudioJobStatus.FAILED), statuses);
+    }
+
+    @Test
+    void retriedJobCanStillSucceed() throws Exception {
+        assertThrows(IOException.class, this::runFailing);
+
+        audioJobService.run(JOB_ID, user -> Map.of("projectId", 1));
+
+        assertEquals(AudioJobStatus.SUCCEEDED, audioJob.getStatus());
+        assertEquals("{\"projectId\":1}", audioJob.getResult());
+        assertNull(audioJob.getError());
+        assertEquals(2, audioJob.getAttempts());
+    }
+
+    @Test
+    void rejectedJobFailsWithoutRetry() throws Exception {
+        audioJobService.run(JOB_ID, user -> {
+            throw ApiException.builder().status(HttpServletResponse.SC_BAD_REQUEST).message("No audio").build();
+        });
+
+        assertEquals(AudioJobStatus.FAILED, audioJob.getStatus());
+        assertEquals("No audio", audioJob.getError());
+        assertEquals(1, audioJob.getAttempts());
+    }
+
+    @Test
+    void succeededJobIsNotRunAgain() throws Exception {
+        audioJobService.run(JOB_ID, user -> "done");
+        audioJobService.run(JOB_ID, user -> fail("Ran a job that already succeeded"));
+
+        assertEquals(1, audioJob.getAttempts());
+        verify(audioJobRepository, times(2)).saveAndFlush(audioJob);
+    }
+
+    private void runFailing() throws Exception {
+        audioJobService.run(JOB_ID, user -> {
+            throw new IOException("Whisper is down");
+        });
+    }
+}
@@ -0,0 +1,99 @@
+package com.michael21.SoundFilter.email;
+
+import com.michael21.SoundFilter.email.config.EmailDispatchConfiguration;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.Address;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.time.Duration;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class EmailDispatcherTests {
+    private Transport transport;
+    private EmailDispatcher emailDispatcher;
+
+    @BeforeEach
+    void startDispatcher() throws MessagingException {
+        transport = mock(Transport.class);
+        Session session = mock(Session.class);
+        when(session.getTransport("smtp")).thenReturn(transport);
+
+        JavaMailSenderImpl mailSender = mock(JavaMailSenderImpl.class);
+        when(mailSender.getSession()).thenReturn(session);
+        when(mailSender.getHost()).thenReturn("smtp.example.com");
+        when(mailSender.getPort()).thenReturn(587);
+
+        EmailDispatchConfiguration configuration = new EmailDispatchConfiguration();
+        configuration.setConnections(1);
+        configuration.setBatchWindow(Duration.ofMillis(10));
+        configuration.setSendTimeout(Duration.ofSeconds(5));
+        emailDispatcher = new EmailDispatcher(mailSender, configuration, new SimpleMeterRegistry());
+        emailDispatcher.start();
+    }
+
+    @AfterEach
+    void stopDispatcher() throws InterruptedException {
+        emailDispatcher.stop();
+    }
+
+    @Test
+    void queuedEmailsShareOneConnection() throws MessagingException {
+        MimeMessage first = message("first@example.com");
+        MimeMessage second = message("second@example.com");
+
+        emailDispatcher.send(first);
+        emailDispatcher.send(second);
+
+        verify(transport, times(1)).connect("smtp.example.com", 587, null, null);
+        verify(transport).sendMessage(eq(first), any(Address[].class));
+        verify(transport).sendMessage(eq(second), any(Address[].class));
+        assertNotNull(first.getSentDate());
+    }
+
+    @Test
+    void emailIsSentAgainOverANewConnectionWhenTheServerDropsIt() throws MessagingException {
+        MimeMessage message = message("user@example.com");
+        doThrow(new MessagingException("Connection reset")).doNothing()
+                .when(transport).sendMessage(eq(message), any(Address[].class));
+
+        emailDispatcher.send(message);
+
+        verify(transport, times(2)).connect("smtp.example.com", 587, null, null);
+        verify(transport, times(2)).sendMessage(eq(message), any(Address[].class));
+    }
+
+    @Test
+    void rejectedEmailFailsWithoutReconnecting() throws MessagingException {
+        MimeMessage message = message("unknown@example.com");
+        doThrow(new SendFailedException("Mailbox unavailable"))
+                .when(transport).sendMessage(eq(message), any(Address[].class));
+
+        MailSendException e = assertThrows(MailSendException.class, () -> emailDispatcher.send(message));
+
+        assertInstanceOf(SendFailedException.class, e.getCause());
+        verify(transport, times(1)).connect("smtp.example.com", 587, null, null);
+        verify(transport, times(1)).sendMessage(eq(message), any(Address[].class));
+    }
+
+    private static MimeMessage message(String to) throws MessagingException {
+        MimeMessage message = new MimeMessage(Session.getInstance(new Properties()));
+        message.setRecipient(Message.RecipientType.TO, new InternetAddress(to));
+        message.setSubject("Verify your email");
+        message.setText("Your code is 123456");
+        return message;
+    }
+}
@@ -0,0 +1,149 @@
+package com.michael21.SoundFilter.s3.service;
+
+import com.michael21.SoundFilter.s3.config.S3Configuration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class FileCacheTests {
+    @TempDir
+    Path directory;
+
+    private FileService fileService;
+    private FileCache fileCache;
+
+    @BeforeEach
+    void createCache() throws IOException {
+        fileService = mock(FileService.class);
+        when(fileService.downloadFile(anyString())).thenAnswer(invocation -> object(invocation.getArgument(0)));
+
+        S3Configuration s3Configuration = new S3Configuration();
+        s3Configuration.setCacheDirectory(directory.toString());
+        // Objects hold their own key, two of them fit but not three
+        s3Configuration.setCacheMaxSize(DataSize.ofBytes(20));
+        s3Configuration.setCacheThreads(1);
+        fileCache = new FileCache(fileService, s3Configuration);
+    }
+
+    @AfterEach
+    void shutdown() {
+        fileCache.shutdown();
+    }
+
+    @Test
+    void leastRecentlyUsedCopiesAreEvictedPastTheMaximumSize() throws IOException {
+        fileCache.load("a/first").close();
+        fileCache.load("a/second").close();
+        // Reading the first one again makes the second the least recently used
+        fileCache.load("a/first").close();
+        fileCache.load("a/third").close();
+
+        assertNotNull(fileCache.open("a/first"));
+        assertNull(fileCache.open("a/second"));
+        assertNotNull(fileCache.open("a/third"));
+        verify(fileService, times(1)).downloadFile("a/first");
+    }
+
+    @Test
+    void loadedCopyStaysReadableAfterItsEvicted() throws IOException {
+        try (FileChannel first = fileCache.load("a/first")) {
+            fileCache.load("a/second").close();
+            fileCache.load("a/third").close();
+
+            assertNull(fileCache.open("a/first"));
+            assertEquals("a/first", read(first));
+        }
+    }
+
+    @Test
+    void evictedCopyIsDownloadedAgain() throws IOException {
+        fileCache.load("a/first").close();
+        fileCache.evict("a/first");
+
+        try (FileChannel first = fileCache.load("a/first")) {
+            assertEquals("a/first", read(first));
+        }
+        verify(fileService, times(2)).downloadFile("a/first");
+    }
+
+    @Test
+    void startupDeletesOnlyTheCachesOwnFiles() throws IOException {
+        fileCache.load("a/first").close();
+        Path download = Files.createFile(directory.resolve("download-123.tmp"));
+        Path other = Files.writeString(directory.resolve("notes.txt"), "not cached");
+        Path otherDirectory = Files.createDirectory(directory.resolve("data"));
+
+        S3Configuration s3Configuration = new S3Configuration();
+        s3Configuration.setCacheDirectory(directory.toString());
+        s3Configuration.setCacheMaxSize(DataSize.ofBytes(20));
+        new FileCache(fileService, s3Configuration).shutdown();
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(Set.of(other, otherDirectory), files.collect(Collectors.toSet()));
+        }
+        assertFalse(Files.exists(download));
+    }
+
+    @Test
+    void concurrentLoadsShareOneDownload() throws Exception {
+        CountDownLatch downloading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(fileService.downloadFile("a/slow")).thenAnswer(invocation -> {
+            downloading.countDown();
+            release.await();
+            return object("a/slow");
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Callable<String> load = () -> {
+                try (FileChannel channel = fileCache.load("a/slow")) {
+                    return read(channel);
+                }
+            };
+            Future<String> first = executor.submit(load);
+            downloading.await();
+            Future<String> second = executor.submit(load);
+            release.countDown();
+
+            assertEquals("a/slow", first.get());
+            assertEquals("a/slow", second.get());
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(fileService, times(1)).downloadFile("a/slow");
+    }
+
+    private static ResponseInputStream<GetObjectResponse> object(String filePath) {
+        // Every object holds its own key, so copies are told apart by their content
+        return new ResponseInputStream<>(GetObjectResponse.builder().build(),
+                AbortableInputStream.create(new ByteArrayInputStream(filePath.getBytes())));
+    }
+
+    private static String read(FileChannel channel) throws IOException {
+        return new String(Channels.newInputStream(channel).readAllBytes());
+    }
+}
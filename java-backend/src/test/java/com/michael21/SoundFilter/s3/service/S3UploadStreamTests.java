@@ -0,0 +1,227 @@
+package com.michael21.SoundFilter.s3.service;
+
+import com.michael21.SoundFilter.s3.config.S3Configuration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class S3UploadStreamTests {
+    private static final int PART_SIZE = 4;
+
+    private StubS3Client s3Client;
+    private S3Configuration s3Configuration;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void createClient() {
+        s3Client = new StubS3Client();
+        s3Configuration = new S3Configuration();
+        s3Configuration.setBucketName("bucket");
+        s3Configuration.setUploadPartSize(DataSize.ofBytes(PART_SIZE));
+        s3Configuration.setUploadParallelism(2);
+        s3Configuration.setUploadPartAttempts(3);
+        s3Configuration.setUploadRetryBackoff(Duration.ofMillis(1));
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void failedPartIsRetriedFromItsBuffer() throws IOException {
+        s3Client.failures.put(2, List.of(503));
+
+        try (S3UploadStream stream = open(null, Map.of())) {
+            stream.write("aaaabbbbcc".getBytes());
+            stream.complete();
+        }
+
+        assertEquals(List.of(1, 2, 2, 3), s3Client.uploadedParts.stream().sorted().toList());
+        assertEquals("bbbb", s3Client.content.get(2));
+        assertEquals(List.of(1, 2, 3), s3Client.completedParts);
+    }
+
+    @Test
+    void writerBlocksOnceEveryBufferIsInFlight() throws Exception {
+        s3Client.release = new CountDownLatch(1);
+        S3UploadStream stream = open(null, Map.of());
+
+        // Three parts waiting on S3 hold all three buffers, so the fourth part has to wait for one
+        Future<?> writer = executor.submit(() -> {
+            try {
+                stream.write("aaaabbbbccccdddd".getBytes());
+                stream.write('e');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        assertThrows(TimeoutException.class, () -> writer.get(200, TimeUnit.MILLISECONDS));
+        assertEquals(3, s3Client.uploadedParts.size());
+
+        s3Client.release.countDown();
+        writer.get(5, TimeUnit.SECONDS);
+        stream.complete();
+
+        assertEquals(List.of(1, 2, 3, 4, 5), s3Client.completedParts);
+        assertEquals("e", s3Client.content.get(5));
+    }
+
+    @Test
+    void resumedUploadSkipsOnlyPartsWithTheSameContent() throws Exception {
+        Map<Integer, String> resumedParts = Map.of(
+                1, "\"" + md5Hex("aaaa") + "\"",
+                2, "\"" + md5Hex("xxxx") + "\"");
+
+        try (S3UploadStream stream = open("render:1", "upload-1", resumedParts)) {
+            stream.write("aaaabbbbcc".getBytes());
+            stream.complete();
+        }
+
+        assertEquals(List.of(2, 3), s3Client.uploadedParts.stream().sorted().toList());
+        assertEquals(0, s3Client.createdUploads);
+        assertEquals(List.of(1, 2, 3), s3Client.completedParts);
+        assertEquals("\"" + md5Hex("aaaa") + "\"", s3Client.completedETags.get(0));
+    }
+
+    @Test
+    void fatalErrorFailsTheStreamAndAbortsTheUpload() throws Exception {
+        s3Client.failures.put(1, List.of(403));
+        S3UploadStream stream = open(null, Map.of());
+
+        stream.write("aaaabbbb".getBytes());
+        assertThrows(IOException.class, stream::complete);
+        stream.close();
+
+        assertTrue(stream.isFailed());
+        // Client errors aren't retried
+        assertEquals(1, s3Client.uploadedParts.stream().filter(part -> part == 1).count());
+        assertEquals(1, s3Client.abortedUploads);
+        assertTrue(s3Client.completedParts.isEmpty());
+    }
+
+    private S3UploadStream open(String resumeKey, Map<Integer, String> resumedParts) {
+        return open(resumeKey, null, resumedParts);
+    }
+
+    private S3UploadStream open(String resumeKey, String uploadId, Map<Integer, String> resumedParts) {
+        return new S3UploadStream(s3Client, mock(FileService.class), executor, mock(MultipartUploadStateStore.class),
+                s3Configuration, "audio/file.wav", resumeKey, uploadId, resumedParts);
+    }
+
+    private static String md5Hex(String content) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(content.getBytes()));
+    }
+
+    /**
+     * Keeps the parts in memory, failing the attempts of a part with the given status codes first.
+     */
+    private static class StubS3Client implements S3Client {
+        private final Map<Integer, List<Integer>> failures = new ConcurrentHashMap<>();
+        private final List<Integer> uploadedParts = new CopyOnWriteArrayList<>();
+        private final Map<Integer, String> content = new ConcurrentHashMap<>();
+        private final List<Integer> completedParts = new CopyOnWriteArrayList<>();
+        private final List<String> completedETags = new CopyOnWriteArrayList<>();
+        private volatile CountDownLatch release;
+        private volatile int createdUploads;
+        private volatile int abortedUploads;
+
+        @Override
+        public CreateMultipartUploadResponse createMultipartUpload(CreateMultipartUploadRequest request) {
+            createdUploads++;
+            return CreateMultipartUploadResponse.builder().uploadId("upload-" + createdUploads).build();
+        }
+
+        @Override
+        public UploadPartResponse uploadPart(UploadPartRequest request, RequestBody requestBody) {
+            int attempt = (int) uploadedParts.stream().filter(part -> part.equals(request.partNumber())).count();
+            uploadedParts.add(request.partNumber());
+
+            try {
+                if (release != null) {
+                    release.await();
+                }
+                try (InputStream body = requestBody.contentStreamProvider().newStream()) {
+                    content.put(request.partNumber(), new String(body.readAllBytes()));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            List<Integer> statusCodes = failures.getOrDefault(request.partNumber(), List.of());
+            if (attempt < statusCodes.size()) {
+                throw (S3Exception) S3Exception.builder().statusCode(statusCodes.get(attempt)).message("Stubbed failure").build();
+            }
+
+            try {
+                String md5 = HexFormat.of().formatHex(MessageDigest.getInstance("MD5")
+                        .digest(content.get(request.partNumber()).getBytes()));
+                return UploadPartResponse.builder().eTag("\"" + md5 + "\"").build();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public CompleteMultipartUploadResponse completeMultipartUpload(CompleteMultipartUploadRequest request) {
+            for (CompletedPart part : request.multipartUpload().parts()) {
+                completedParts.add(part.partNumber());
+                completedETags.add(part.eTag());
+            }
+            return CompleteMultipartUploadResponse.builder().build();
+        }
+
+        @Override
+        public AbortMultipartUploadResponse abortMultipartUpload(AbortMultipartUploadRequest request) {
+            abortedUploads++;
+            return AbortMultipartUploadResponse.builder().build();
+        }
+
+        @Override
+        public String serviceName() {
+            return "s3";
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
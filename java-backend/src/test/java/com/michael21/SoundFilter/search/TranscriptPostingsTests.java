@@ -0,0 +1,67 @@
+package com.michael21.SoundFilter.search;
+
+import com.michael21.SoundFilter.audio.data.TranscriptionResult.WordTimestamp;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TranscriptPostingsTests {
+
+    @Test
+    void occurrencesAreDecodedAsEncoded() {
+        Map<String, byte[]> postings = TranscriptPostings.encode(words(" The", " cat,", " the", " hat", "."));
+
+        assertEquals(List.of("the", "cat", "hat"), List.copyOf(postings.keySet()));
+        assertEquals(List.of(new TranscriptPostings.Occurrence(0, 500, 1000),
+                        new TranscriptPostings.Occurrence(2000, 2500, 3000)),
+                TranscriptPostings.decode(postings.get("the")));
+        assertEquals(List.of(new TranscriptPostings.Occurrence(3000, 3500, -1)),
+                TranscriptPostings.decode(postings.get("hat")));
+    }
+
+    @Test
+    void phrasesAreWordsFollowingEachOther() {
+        Map<String, byte[]> postings = TranscriptPostings.encode(
+                words(" see", " you", " later", " I'll", " see", " -", " you", " soon"));
+
+        assertEquals(List.of(new TranscriptPostings.Occurrence(0, 1500, 2000),
+                        new TranscriptPostings.Occurrence(4000, 6500, 7000)),
+                TranscriptPostings.find(List.of("see", "you"), postings));
+        assertEquals(1, TranscriptPostings.find(List.of("ill", "see", "you", "soon"), postings).size());
+        assertTrue(TranscriptPostings.find(List.of("you", "see"), postings).isEmpty());
+        assertTrue(TranscriptPostings.find(List.of("see", "them"), postings).isEmpty());
+    }
+
+    @Test
+    void editsOnlyChangeTheWordsAroundThem() {
+        List<WordTimestamp> before = words(" one", " two", " three", " four", " five");
+        List<WordTimestamp> after = new ArrayList<>(before);
+        after.remove(2);
+
+        Map<String, byte[]> old = TranscriptPostings.encode(before);
+        Map<String, byte[]> edited = TranscriptPostings.encode(after);
+
+        assertArrayEquals(old.get("one"), edited.get("one"));
+        assertArrayEquals(old.get("four"), edited.get("four"));
+        assertArrayEquals(old.get("five"), edited.get("five"));
+        assertFalse(Arrays.equals(old.get("two"), edited.get("two")));
+        assertFalse(edited.containsKey("three"));
+    }
+
+    private static List<WordTimestamp> words(String... texts) {
+        List<WordTimestamp> words = new ArrayList<>();
+        for (int i = 0; i < texts.length; i++) {
+            WordTimestamp word = new WordTimestamp();
+            word.setWord(texts[i]);
+            word.setStartTime(i);
+            word.setEndTime(i + 0.5);
+            words.add(word);
+        }
+        return words;
+    }
+}
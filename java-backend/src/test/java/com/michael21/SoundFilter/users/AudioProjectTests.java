@@ -0,0 +1,63 @@
+package com.michael21.SoundFilter.users;
+
+import com.michael21.SoundFilter.audio.AudioEditType;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AudioProjectTests {
+
+    @Test
+    void undoAndRedoStepThroughWholeRevisions() {
+        AudioProject project = project();
+        String original = project.getEditListHash();
+
+        project.addEdits(List.of(mute(1.0, 2.0), mute(3.0, 4.0)));
+        String edited = project.getEditListHash();
+
+        assertEquals(2, project.undo().size());
+        assertEquals(original, project.getEditListHash());
+        assertEquals(2, project.redo().size());
+        assertEquals(edited, project.getEditListHash());
+        assertTrue(project.redo().isEmpty());
+    }
+
+    @Test
+    void restoreBringsBackTheEditsOfAVersion() {
+        AudioProject project = project();
+        project.addEdits(List.of(mute(1.0, 2.0)));
+        AudioProjectVersion version = project.recordVersion(AudioProjectChange.EDIT);
+
+        project.addEdits(List.of(mute(5.0, 6.0)));
+        project.changeFormat("mp3");
+        project.restore(version);
+
+        assertEquals(version.getEditListHash(), project.getEditListHash());
+        assertEquals("wav", project.getAudioFormat());
+    }
+
+    @Test
+    void forkSharesTheAudioOfTheProject() {
+        AudioProject project = project();
+        project.addEdits(List.of(mute(1.0, 2.0)));
+
+        AudioProject fork = project.fork("copy");
+
+        assertEquals(project.getSourceAudioUrl(), fork.getSourceAudioUrl());
+        assertEquals(project.getEditListHash(), fork.getEditListHash());
+        assertEquals(1, fork.getVersionCount());
+        assertEquals(AudioProjectChange.FORK, fork.getVersions().get(0).getChangeType());
+    }
+
+    private static AudioProject project() {
+        return new AudioProject("name", null, new User(), 100L, "https://bucket/user:1/audio-file/a.wav",
+                LocalDateTime.now(), "wav", null);
+    }
+
+    private static ProjectEdit mute(double startTime, double endTime) {
+        return new ProjectEdit(0, AudioEditType.MUTE, startTime, endTime, null, null, null, null);
+    }
+}
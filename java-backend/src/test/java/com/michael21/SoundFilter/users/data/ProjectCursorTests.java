@@ -0,0 +1,37 @@
+package com.michael21.SoundFilter.users.data;
+
+import com.michael21.SoundFilter.util.exception.ApiException;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ProjectCursorTests {
+
+    @Test
+    void decodesWhatItEncodes() {
+        ProjectCursor cursor = new ProjectCursor(LocalDateTime.of(2025, 3, 14, 15, 9, 26, 535_000), 42);
+
+        assertEquals(cursor, ProjectCursor.decode(cursor.encode()));
+    }
+
+    @Test
+    void ignoresUpdatesOfTheLastProject() {
+        AudioProjectSummary project = mock(AudioProjectSummary.class);
+        when(project.getId()).thenReturn(42L);
+        when(project.getCreatedAt()).thenReturn(LocalDateTime.of(2025, 3, 14, 15, 9));
+        when(project.getUpdatedAt()).thenReturn(LocalDateTime.of(2025, 3, 14, 15, 9), LocalDateTime.of(2025, 6, 1, 8, 0));
+
+        // An edit while the user pages through the list moves neither the project nor the cursor
+        assertEquals(ProjectCursor.of(project), ProjectCursor.of(project));
+        assertEquals(new ProjectCursor(LocalDateTime.of(2025, 3, 14, 15, 9), 42), ProjectCursor.of(project));
+    }
+
+    @Test
+    void rejectsForgedCursors() {
+        assertThrows(ApiException.class, () -> ProjectCursor.decode("not a cursor"));
+        assertThrows(ApiException.class, () -> ProjectCursor.decode("MjAyNQ"));
+    }
+}
@@ -34,6 +34,86 @@ def load_tts_model():
             traceback.print_exc()
 
 
+def clip_audio(file_path: str, start_time: Optional[float] = None, end_time: Optional[float] = None) -> None:
+    """
+    Cut an audio file down to a span, replacing the file in place.
+
+    Args:
+        file_path: Path to the audio file
+        start_time: Start of the span in seconds, or None for the beginning
+        end_time: End of the span in seconds, or None for the end
+    """
+    audio = AudioSegment.from_file(file_path)
+    start_ms = int((start_time or 0) * 1000)
+    end_ms = len(audio) if end_time is None else min(len(audio), int(end_time * 1000))
+
+    # Written as WAV whatever the extension, ffmpeg probes the content when Whisper loads it
+    audio[start_ms:end_ms].export(file_path, format="wav")
+
+
+def replacement_segment(
+        audio: AudioSegment,
+        start_ms: int,
+        end_ms: int,
+        modification_type: str,
+        tone_frequency: int = 440
+) -> AudioSegment:
+    segment_duration = end_ms - start_ms
+
+    if modification_type == "mute":
+        return AudioSegment.silent(duration=segment_duration, frame_rate=audio.frame_rate)
+
+    if modification_type != "tone":
+        raise ValueError(f"Unknown modification type: {modification_type}")
+
+    frequency = tone_frequency
+    sample_rate = audio.frame_rate
+    channels = audio.channels
+    num_samples = int(segment_duration / 1000 * sample_rate)
+    t = np.linspace(0, segment_duration / 1000, num_samples, endpoint=False)
+    samples = np.sin(2 * np.pi * frequency * t)
+
+    fade_duration = min(50, segment_duration // 4)
+    if fade_duration > 0:
+        fade_samples = int(fade_duration / 1000 * sample_rate)
+        fade_in = np.linspace(0, 1, fade_samples)
+        fade_out = np.linspace(1, 0, fade_samples)
+        samples[:fade_samples] *= fade_in
+        samples[-fade_samples:] *= fade_out
+
+    samples = (samples * 32767).astype(np.int16)
+    if channels > 1:
+        multi_channel_samples = np.zeros((num_samples, channels), dtype=np.int16)
+        for i in range(channels):
+            multi_channel_samples[:, i] = samples
+        samples = multi_channel_samples.flatten()
+
+    modified_segment = AudioSegment(
+        samples.tobytes(),
+        frame_rate=sample_rate,
+        sample_width=2,
+        channels=channels
+    )
+
+    if len(modified_segment) != segment_duration:
+        if len(modified_segment) < segment_duration:
+            modified_segment += AudioSegment.silent(duration=segment_duration - len(modified_segment),
+                                                    frame_rate=sample_rate)
+        else:
+            modified_segment = modified_segment[:segment_duration]
+
+    original_segment = audio[start_ms:end_ms]
+    if len(original_segment) > 0 and original_segment.dBFS > -float('inf'):
+        try:
+            modified_segment = modified_segment.apply_gain(
+                original_segment.dBFS - modified_segment.dBFS
+            )
+        except Exception:
+            pass
+
+    return modified_segment
+
+
 def modify_audio(
         file_path: str,
         start_time: float,
@@ -54,68 +134,11 @@ def modify_audio(
         if end_ms <= start_ms:
             raise ValueError("End time must be greater than start time")
 
-        segment_duration = end_ms - start_ms
-
-        if modification_type == "mute":
-            modified_segment = AudioSegment.silent(duration=segment_duration, frame_rate=audio.frame_rate)
-        elif modification_type == "tone":
-            frequency = tone_frequency
-            sample_rate = audio.frame_rate
-            channels = audio.channels
-            num_samples = int(segment_duration / 1000 * sample_rate)
-            t = np.linspace(0, segment_duration / 1000, num_samples, endpoint=False)
-            samples = np.sin(2 * np.pi * frequency * t)
-
-            fade_duration = min(50, segment_duration // 4)
-            if fade_duration > 0:
-                fade_samples = int(fade_duration / 1000 * sample_rate)
-                fade_in = np.linspace(0, 1, fade_samples)
-                fade_out = np.linspace(1, 0, fade_samples)
-                samples[:fade_samples] *= fade_in
-                samples[-fade_samples:] *= fade_out
-
-            samples = (samples * 32767).astype(np.int16)
-            if channels > 1:
-                multi_channel_samples = np.zeros((num_samples, channels), dtype=np.int16)
-                for i in range(channels):
-                    multi_channel_samples[:, i] = samples
-                samples = multi_channel_samples.flatten()
-
-            modified_segment = AudioSegment(
-                samples.tobytes(),
-                frame_rate=sample_rate,
-                sample_width=2,
-                channels=channels
-            )
-
-            if len(modified_segment) != segment_duration:
-                if len(modified_segment) < segment_duration:
-                    modified_segment += AudioSegment.silent(duration=segment_duration - len(modified_segment),
-                                                            frame_rate=sample_rate)
-                else:
-                    modified_segment = modified_segment[:segment_duration]
-
-            original_segment = audio[start_ms:end_ms]
-            if len(original_segment) > 0 and original_segment.dBFS > -float('inf'):
-                try:
-                    modified_segment = modified_segment.apply_gain(
-                        original_segment.dBFS - modified_segment.dBFS
-                    )
-                except Exception:
-                    pass
-        else:
-            raise ValueError(f"Unknown modification type: {modification_type}")
+        modified_segment = replacement_segment(audio, start_ms, end_ms, modification_type, tone_frequency)
 
         audio = audio[:start_ms] + modified_segment + audio[end_ms:]
-        buffer = io.BytesIO()
-        audio.export(buffer, format=output_format)
-        buffer.seek(0)
-
-        content_type = f"audio/{output_format}"
-        if output_format == "mp3":
-            content_type = "audio/mpeg"
 
-        return buffer.read(), content_type
+        return _export(audio, output_format)
 
     except Exception as e:
         print(f"Error modifying audio: {e}")
@@ -415,6 +438,180 @@ async def generate_edge_tts(
         raise
 
 
+async def synthesize_replacement(
+        audio: AudioSegment,
+        file_path: str,
+        start_ms: int,
+        end_ms: Optional[int],
+        replacement_text: str,
+        detected_lang: str,
+        use_edge_tts: bool = False,
+        preset: str = "fast",
+        gender: Optional[str] = None
+) -> Tuple[AudioSegment, int]:
+    """
+    Synthesize speech replacing a span of audio, fitted to the span and matched to its loudness.
+
+    Args:
+        audio: The audio being edited
+        file_path: Path to the original audio file, used for voice cloning and gender detection
+        start_ms: Start of the replaced span in milliseconds
+        end_ms: End of the replaced span in milliseconds, or None to replace as much as the speech lasts
+        replacement_text: Text to synthesize
+        detected_lang: Language of the speech
+
+    Returns:
+        The synthesized segment and the end of the span it replaces in milliseconds
+    """
+    target_duration_ms = None if end_ms is None else end_ms - start_ms
+
+    with tempfile.TemporaryDirectory() as temp_dir:
+        tts_audio = None
+
+        # Try Tortoise TTS if not using Edge TTS
+        if not use_edge_tts:
+            if not TTS_MODEL_LOADED:
+                print("TTS model not loaded yet, loading now...")
+                load_tts_model()
+
+            if TTS_MODEL_LOADED:
+                try:
+                    # Use the entire audio file for voice cloning
+                    voice_sample_path = None
+                    with tempfile.NamedTemporaryFile(suffix=".wav", delete=False) as temp_file:
+                        audio.export(temp_file.name, format="wav")
+                        voice_sample_path = temp_file.name
+
+                    tts_output_path = os.path.join(temp_dir, f"tts_output.wav")
+
+                    output_path = generate_tts(
+                        replacement_text,
+                        voice_sample_path=voice_sample_path,
+                        output_path=tts_output_path,
+                        output_format="wav",
+                        language=detected_lang,
+                        preset=preset
+                    )
+
+                    tts_audio = AudioSegment.from_file(output_path)
+
+                    # Clean up voice sample file
+                    if voice_sample_path and os.path.exists(voice_sample_path):
+                        try:
+                            os.remove(voice_sample_path)
+                        except Exception:
+                            pass
+
+                except Exception as e:
+                    print(f"Tortoise TTS failed: {e}")
+                    tts_audio = None
+            else:
+                print("Tortoise TTS model not loaded, falling back to Edge TTS")
+                tts_audio = None
+
+        # Use Edge TTS if specified or if Tortoise failed
+        if tts_audio is None:
+            # Use provided gender or detect it
+            speaker_gender = gender
+            if speaker_gender is None:
+                speaker_gender = detect_gender_from_audio(file_path)
+            print(f"Using gender for Edge TTS: {speaker_gender}")
+
+            # Generate TTS audio using Edge TTS
+            tts_output_path = os.path.join(temp_dir, f"tts_output.mp3")
+
+            try:
+                # Directly await the async function
+                output_path = await generate_edge_tts(
+                    replacement_text,
+                    tts_output_path,
+                    language=detected_lang,
+                    gender=speaker_gender
+                )
+
+                if os.path.exists(output_path) and os.path.getsize(output_path) > 0:
+                    tts_audio = AudioSegment.from_file(output_path)
+                    print(f"Used edge-tts with {speaker_gender} voice")
+                else:
+                    raise Exception("edge-tts failed to create audio file")
+
+            except Exception as e:
+                print(f"Edge TTS failed: {e}")
+                raise  # Re-raise the exception since we don't have another fallback
+
+        # Fit TTS to target duration if specified
+        if target_duration_ms is not None:
+            tts_duration_ms = len(tts_audio)
+
+            if tts_duration_ms != target_duration_ms:
+                # Calculate time stretch factor
+                stretch_factor = tts_duration_ms / target_duration_ms
+                print(
+                    f"Adjusting TTS duration: {tts_duration_ms}ms → {target_duration_ms}ms (factor: {stretch_factor:.2f})")
+
+                # Time-stretch the audio to fit exactly
+                temp_wav = os.path.join(temp_dir, "temp_for_stretch.wav")
+                tts_audio.export(temp_wav, format="wav")
+
+                y, sr = librosa.load(temp_wav, sr=None)
+                y_stretched = librosa.effects.time_stretch(y, rate=stretch_factor)
+
+                # Save the stretched audio
+                stretched_path = os.path.join(temp_dir, f"tts_stretched.wav")
+                sf.write(stretched_path, y_stretched, sr)
+
+                # Load the stretched audio
+                tts_audio = AudioSegment.from_file(stretched_path)
+
+                # Verify the duration is correct
+                actual_duration = len(tts_audio)
+                if abs(actual_duration - target_duration_ms) > 10:  # Allow 10ms tolerance
+                    print(f"Fine-tuning duration: {actual_duration}ms → {target_duration_ms}ms")
+                    # Fine-tune by trimming or padding if needed
+                    if actual_duration > target_duration_ms:
+                        tts_audio = tts_audio[:target_duration_ms]
+                    else:
+                        silence = AudioSegment.silent(duration=target_duration_ms - actual_duration,
+                                                      frame_rate=tts_audio.frame_rate)
+                        tts_audio = tts_audio + silence
+
+        # If end_time was not provided, determine it based on TTS duration
+        if end_ms is None:
+            end_ms = start_ms + len(tts_audio)
+
+        # Get the original segment for volume matching
+        original_segment = audio[start_ms:end_ms]
+
+        # Adjust volume
+        if len(original_segment) > 0 and original_segment.dBFS > -float('inf'):
+            try:
+                tts_audio = tts_audio.apply_gain(original_segment.dBFS - tts_audio.dBFS)
+            except Exception:
+                pass
+
+        return tts_audio, end_ms
+
+
+def detect_language(file_path: str) -> str:
+    try:
+        transcription_result = transcribe_audio(file_path)
+        return transcription_result.get("detected_language", "en")
+    except Exception:
+        return 'en'
+
+
+def _export(audio: AudioSegment, output_format: str) -> Tuple[bytes, str]:
+    buffer = io.BytesIO()
+    audio.export(buffer, format=output_format)
+    buffer.seek(0)
+
+    content_type = f"audio/{output_format}"
+    if output_format == "mp3":
+        content_type = "audio/mpeg"
+
+    return buffer.read(), content_type
+
+
 async def replace_with_tts(
         file_path: str,
         start_time: float,
@@ -430,8 +627,6 @@ async def replace_with_tts(
         audio = AudioSegment.from_file(file_path)
         start_ms = int(start_time * 1000)
 
-        # Calculate target duration if end_time is provided
-        target_duration_ms = None
         if end_time is not None:
             end_ms = int(end_time * 1000)
             if start_ms < 0:
@@ -440,159 +635,68 @@ async def replace_with_tts(
                 end_ms = len(audio)
             if end_ms <= start_ms:
                 raise ValueError("End time must be greater than start time")
-
-            # Calculate the exact duration we need to fit
-            target_duration_ms = end_ms - start_ms
         else:
             end_ms = None  # Will be determined by TTS duration
 
-        # First, try to get language from Whisper
-        try:
-            transcription_result = transcribe_audio(file_path)
-            detected_lang = transcription_result.get("detected_language", "en")
-        except Exception:
-            detected_lang = 'en'
-
-        with tempfile.TemporaryDirectory() as temp_dir:
-            tts_audio = None
-
-            # Try Tortoise TTS if not using Edge TTS
-            if not use_edge_tts:
-                if not TTS_MODEL_LOADED:
-                    print("TTS model not loaded yet, loading now...")
-                    load_tts_model()
-
-                if TTS_MODEL_LOADED:
-                    try:
-                        # Use the entire audio file for voice cloning
-                        voice_sample_path = None
-                        with tempfile.NamedTemporaryFile(suffix=".wav", delete=False) as temp_file:
-                            audio.export(temp_file.name, format="wav")
-                            voice_sample_path = temp_file.name
-
-                        tts_output_path = os.path.join(temp_dir, f"tts_output.{output_format}")
-
-                        output_path = generate_tts(
-                            replacement_text,
-                            voice_sample_path=voice_sample_path,
-                            output_path=tts_output_path,
-                            output_format=output_format,
-                            language=detected_lang,
-                            preset=preset
-                        )
-
-                        tts_audio = AudioSegment.from_file(output_path)
-
-                        # Clean up voice sample file
-                        if voice_sample_path and os.path.exists(voice_sample_path):
-                            try:
-                                os.remove(voice_sample_path)
-                            except Exception:
-                                pass
-
-                    except Exception as e:
-                        print(f"Tortoise TTS failed: {e}")
-                        tts_audio = None
-                else:
-                    print("Tortoise TTS model not loaded, falling back to Edge TTS")
-                    tts_audio = None
+        tts_audio, end_ms = await synthesize_replacement(
+            audio, file_path, start_ms, end_ms, replacement_text,
+            detect_language(file_path), use_edge_tts, preset, gender
+        )
 
-            # Use Edge TTS if specified or if Tortoise failed
-            if tts_audio is None:
-                # Use provided gender or detect it
-                speaker_gender = gender
-                if speaker_gender is None:
-                    speaker_gender = detect_gender_from_audio(file_path)
-                print(f"Using gender for Edge TTS: {speaker_gender}")
+        # Replace segment in original audio
+        modified_audio = audio[:start_ms] + tts_audio + audio[end_ms:]
 
-                # Generate TTS audio using Edge TTS
-                tts_output_path = os.path.join(temp_dir, f"tts_output.mp3")
+        return _export(modified_audio, output_format)
 
-                try:
-                    # Directly await the async function
-                    output_path = await generate_edge_tts(
-                        replacement_text,
-                        tts_output_path,
-                        language=detected_lang,
-                        gender=speaker_gender
-                    )
+    except Exception as e:
+        print(f"Error replacing audio with TTS: {e}")
+        import traceback
+        traceback.print_exc()
+        raise
 
-                    if os.path.exists(output_path) and os.path.getsize(output_path) > 0:
-                        tts_audio = AudioSegment.from_file(output_path)
-                        print(f"Used edge-tts with {speaker_gender} voice")
-                    else:
-                        raise Exception("edge-tts failed to create audio file")
 
-                except Exception as e:
-                    print(f"Edge TTS failed: {e}")
-                    raise  # Re-raise the exception since we don't have another fallback
-
-            # Fit TTS to target duration if specified
-            if end_time is not None and target_duration_ms is not None:
-                tts_duration_ms = len(tts_audio)
-
-                if tts_duration_ms != target_duration_ms:
-                    # Calculate time stretch factor
-                    stretch_factor = tts_duration_ms / target_duration_ms
-                    print(
-                        f"Adjusting TTS duration: {tts_duration_ms}ms → {target_duration_ms}ms (factor: {stretch_factor:.2f})")
-
-                    # Time-stretch the audio to fit exactly
-                    temp_wav = os.path.join(temp_dir, "temp_for_stretch.wav")
-                    tts_audio.export(temp_wav, format="wav")
-
-                    y, sr = librosa.load(temp_wav, sr=None)
-                    y_stretched = librosa.effects.time_stretch(y, rate=stretch_factor)
-
-                    # Save the stretched audio
-                    stretched_path = os.path.join(temp_dir, f"tts_stretched.wav")
-                    sf.write(stretched_path, y_stretched, sr)
-
-                    # Load the stretched audio
-                    tts_audio = AudioSegment.from_file(stretched_path)
-
-                    # Verify the duration is correct
-                    actual_duration = len(tts_audio)
-                    if abs(actual_duration - target_duration_ms) > 10:  # Allow 10ms tolerance
-                        print(f"Fine-tuning duration: {actual_duration}ms → {target_duration_ms}ms")
-                        # Fine-tune by trimming or padding if needed
-                        if actual_duration > target_duration_ms:
-                            tts_audio = tts_audio[:target_duration_ms]
-                        else:
-                            silence = AudioSegment.silent(duration=target_duration_ms - actual_duration,
-                                                          frame_rate=tts_audio.frame_rate)
-                            tts_audio = tts_audio + silence
-
-            # If end_time was not provided, determine it based on TTS duration
-            if end_ms is None:
-                end_ms = start_ms + len(tts_audio)
-
-            # Get the original segment for volume matching
-            original_segment = audio[start_ms:end_ms]
-
-            # Adjust volume
-            if len(original_segment) > 0 and original_segment.dBFS > -float('inf'):
-                try:
-                    tts_audio = tts_audio.apply_gain(original_segment.dBFS - tts_audio.dBFS)
-                except Exception:
-                    pass
+async def batch_modify(
+        file_path: str,
+        edits: List[Dict],
+        output_format: str = "wav"
+) -> Tuple[bytes, str]:
+    """
+    Apply many edits to an audio file, decoding and encoding it only once.
 
-            # Replace segment in original audio
-            modified_audio = audio[:start_ms] + tts_audio + audio[end_ms:]
+    Args:
+        file_path: Path to the audio file
+        edits: Non-overlapping edits, each with "type" ('mute', 'tone' or 'tts'), "start_time" and
+            "end_time" in seconds, and "tone_frequency" or "replacement_text", "use_edge_tts" and "gender"
+        output_format: Output format (wav, mp3, etc.)
+    """
+    try:
+        audio = AudioSegment.from_file(file_path)
+        detected_lang = None
 
-            # Export modified audio
-            buffer = io.BytesIO()
-            modified_audio.export(buffer, format=output_format)
-            buffer.seek(0)
+        # Every edit keeps the length of its span, so the spans of later edits stay where they were
+        for edit in edits:
+            start_ms = max(0, int(edit["start_time"] * 1000))
+            end_ms = min(len(audio), int(edit["end_time"] * 1000))
+            if end_ms <= start_ms:
+                raise ValueError(f"Edit range {edit['start_time']}-{edit['end_time']} is outside of the audio")
+
+            if edit["type"] == "tts":
+                if detected_lang is None:
+                    detected_lang = detect_language(file_path)
+                gender = edit.get("gender")
+                segment, end_ms = await synthesize_replacement(
+                    audio, file_path, start_ms, end_ms, edit["replacement_text"], detected_lang,
+                    edit.get("use_edge_tts", False), "fast", gender.lower() if gender else None
+                )
+            else:
+                segment = replacement_segment(audio, start_ms, end_ms, edit["type"], edit.get("tone_frequency", 440))
 
-            content_type = f"audio/{output_format}"
-            if output_format == "mp3":
-                content_type = "audio/mpeg"
+            audio = audio[:start_ms] + segment + audio[end_ms:]
 
-            return buffer.read(), content_type
+        return _export(audio, output_format)
 
     except Exception as e:
-        print(f"Error replacing audio with TTS: {e}")
+        print(f"Error applying batch edits: {e}")
         import traceback
         traceback.print_exc()
         raise
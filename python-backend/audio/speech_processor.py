@@ -44,7 +44,8 @@ def transcribe_audio(file_path: str) -> Dict:
                 {
                     "word": str,
                     "start_time": float,
-                    "end_time": float
+                    "end_time": float,
+                    "probability": float
                 },
                 ...
             ],
@@ -94,7 +95,8 @@ def transcribe_audio(file_path: str) -> Dict:
                         result["words"].append({
                             "word": word_data["word"],
                             "start_time": word_data["start"],
-                            "end_time": word_data["end"]
+                            "end_time": word_data["end"],
+                            "probability": word_data.get("probability")
                         })
 
     except Exception as e:
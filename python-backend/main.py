@@ -3,12 +3,13 @@ from contextlib import asynccontextmanager
 from fastapi import FastAPI, UploadFile, File, Form, HTTPException, Response, status
 from typing import Optional, List, Dict
 import uvicorn
+import json
 import os
 import pathlib
 import threading
 
 from audio.speech_processor import detect_phrase_in_audio, transcribe_audio
-from audio.audio_modifier import modify_audio, replace_with_tts, load_tts_model
+from audio.audio_modifier import modify_audio, replace_with_tts, load_tts_model, clip_audio, batch_modify
 
 @asynccontextmanager
 async def lifespan(app: FastAPI):
@@ -82,7 +83,9 @@ async def detect_phrase(
 
 @app.post("/audio-api/transcribe")
 async def transcribe(
-        audio_file: UploadFile = File(..., description="Audio file to analyze")
+        audio_file: UploadFile = File(..., description="Audio file to analyze"),
+        start_time: Optional[float] = Form(None, description="Start of the span to transcribe in seconds"),
+        end_time: Optional[float] = Form(None, description="End of the span to transcribe in seconds")
 ):
     if not audio_file.content_type.startswith("audio/"):
         raise HTTPException(status_code=status.HTTP_400_BAD_REQUEST, detail="File must be an audio file")
@@ -96,6 +99,10 @@ async def transcribe(
             content = await audio_file.read()
             buffer.write(content)
 
+        # Only the requested span is transcribed, word times are relative to its start
+        if start_time is not None or end_time is not None:
+            clip_audio(temp_file_path, start_time, end_time)
+
         result = transcribe_audio(temp_file_path)
 
         return {
@@ -175,6 +182,59 @@ async def modify_audio_endpoint(
                 print(f"Warning: Could not remove temporary file {temp_file_path}: {e}")
 
 
+@app.post("/audio-api/batch-modify")
+async def batch_modify_endpoint(
+        audio_file: UploadFile = File(..., description="Audio file to modify"),
+        edits: str = Form(..., description="JSON list of non-overlapping edits ordered by start time"),
+        output_format: str = Form("wav", description="Output format (wav, mp3, etc.)")
+):
+    if not audio_file.content_type.startswith("audio/"):
+        raise HTTPException(status_code=status.HTTP_400_BAD_REQUEST, detail="File must be an audio file")
+
+    try:
+        edit_list = json.loads(edits)
+    except ValueError:
+        raise HTTPException(status_code=status.HTTP_400_BAD_REQUEST, detail="Edits must be a JSON list")
+
+    for edit in edit_list:
+        if edit.get("type") not in ["mute", "tone", "tts"]:
+            raise HTTPException(status_code=status.HTTP_400_BAD_REQUEST,
+                                detail="Edit type must be 'mute', 'tone' or 'tts'")
+        if edit.get("start_time") is None or edit.get("end_time") is None or edit["start_time"] >= edit["end_time"]:
+            raise HTTPException(status_code=status.HTTP_400_BAD_REQUEST,
+                                detail="Every edit needs a start time less than its end time")
+
+    temp_file_path = os.path.join(TEMP_DIR, audio_file.filename)
+
+    try:
+        os.makedirs(TEMP_DIR, exist_ok=True)
+
+        with open(temp_file_path, "wb") as buffer:
+            content = await audio_file.read()
+            buffer.write(content)
+
+        file_bytes, content_type = await batch_modify(temp_file_path, edit_list, output_format)
+
+        return Response(
+            content=file_bytes,
+            media_type=content_type,
+            headers={
+                "Content-Disposition": f'attachment; filename="modified_{audio_file.filename}"'
+            }
+        )
+
+    except Exception as e:
+        raise HTTPException(status_code=status.HTTP_500_INTERNAL_SERVER_ERROR,
+                            detail=f"Error modifying audio: {str(e)}")
+
+    finally:
+        if os.path.exists(temp_file_path):
+            try:
+                os.remove(temp_file_path)
+            except Exception as e:
+                print(f"Warning: Could not remove temporary file {temp_file_path}: {e}")
+
+
 # Add this endpoint to your existing FastAPI application (main.py)
 
 @app.post("/audio-api/convert-format")